@@ -91,7 +91,7 @@ public class NamedRenditionDownloadTargetProcessor implements DownloadTargetProc
         final AssetRenditionParameters assetRenditionParameters = new AssetRenditionParameters(assetModel, renditionName);
         assetRenditionParameters.setOtherProperty("userId", userId);
 
-        for (final AssetRenditionDispatcher assetRenditionDispatcher : assetRenditionDispatchers.getAssetRenditionDispatchers()) {
+        for (final AssetRenditionDispatcher assetRenditionDispatcher : assetRenditionDispatchers.getAssetRenditionDispatchers(renditionName)) {
 
             if (assetRenditionDispatcher.accepts(assetModel, renditionName)) {
                 if (log.isDebugEnabled()) {
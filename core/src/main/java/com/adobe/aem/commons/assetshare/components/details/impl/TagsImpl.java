@@ -21,6 +21,7 @@ package com.adobe.aem.commons.assetshare.components.details.impl;
 
 import com.adobe.aem.commons.assetshare.components.details.Tags;
 import com.adobe.aem.commons.assetshare.content.AssetModel;
+import com.adobe.aem.commons.assetshare.content.impl.cache.TagTitleCache;
 import com.adobe.aem.commons.assetshare.content.properties.impl.TagTitlesImpl;
 import com.adobe.cq.export.json.ComponentExporter;
 import com.adobe.cq.export.json.ExporterConstants;
@@ -33,6 +34,7 @@ import org.apache.sling.models.annotations.DefaultInjectionStrategy;
 import org.apache.sling.models.annotations.Exporter;
 import org.apache.sling.models.annotations.Model;
 import org.apache.sling.models.annotations.Required;
+import org.apache.sling.models.annotations.injectorspecific.OSGiService;
 import org.apache.sling.models.annotations.injectorspecific.ScriptVariable;
 import org.apache.sling.models.annotations.injectorspecific.Self;
 import org.apache.sling.models.annotations.injectorspecific.ValueMapValue;
@@ -76,6 +78,9 @@ public class TagsImpl extends AbstractEmptyTextComponent implements Tags {
     @ScriptVariable
     private Page currentPage;
 
+    @OSGiService
+    private TagTitleCache tagTitleCache;
+
     private List<String> tagTitles;
 
     @Override
@@ -121,10 +126,10 @@ public class TagsImpl extends AbstractEmptyTextComponent implements Tags {
         final Collection<String> combinedTagTitles = new LinkedHashSet<>();
 
         for (final String tagId: tagValues) {
-            final Tag tag = tagManager.resolve(tagId);
+            final String title = getTitle(tagManager, tagId, locale);
 
-            if (tag != null) {
-                combinedTagTitles.add(tag.getTitle(locale));
+            if (title != null) {
+                combinedTagTitles.add(title);
             } else {
                 combinedTagTitles.add(tagId);
             }
@@ -134,6 +139,15 @@ public class TagsImpl extends AbstractEmptyTextComponent implements Tags {
     }
 
 
+    private String getTitle(final TagManager tagManager, final String tagId, final Locale locale) {
+        if (tagTitleCache != null) {
+            return tagTitleCache.getTitle(tagManager, tagId, locale);
+        }
+
+        final Tag tag = tagManager.resolve(tagId);
+        return tag == null ? null : tag.getTitle(locale);
+    }
+
     /**
      * This method tries to coerce the property value into a Collection, which is the expected collection type.
      * This is necessary since computed properties can be passed in as the {@tagPropertyName} and can return various values.
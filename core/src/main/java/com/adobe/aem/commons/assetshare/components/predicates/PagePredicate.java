@@ -22,6 +22,7 @@ package com.adobe.aem.commons.assetshare.components.predicates;
 import com.day.cq.search.PredicateGroup;
 import org.osgi.annotation.versioning.ConsumerType;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -57,6 +58,23 @@ public interface PagePredicate extends Predicate {
      */
     String getOrderBySort();
 
+    /**
+     * @return true if the results should be paged using keyset (search-after) cursors rather than offsets.
+     */
+    default boolean isKeysetPagination() {
+        return false;
+    }
+
+    /**
+     * When this is not empty, the property and tags predicates filtering on these properties obtain the page's search results to display their facet counts.
+     * As predicates are typically rendered before the search results, the page's search is then executed while the first of those predicates renders (and is shared with the search results via the request's ModelCache).
+     *
+     * @return the relative paths of the properties the property and tags predicates on the page filter on, whose facet counts should be computed with the search; empty if facet counts are disabled.
+     */
+    default List<String> getFacetProperties() {
+        return Collections.emptyList();
+    }
+
     /**
      * @return the limit.
      */
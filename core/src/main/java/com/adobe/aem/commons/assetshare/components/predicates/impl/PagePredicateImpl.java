@@ -27,12 +27,14 @@ import com.adobe.aem.commons.assetshare.components.search.SearchConfig;
 import com.adobe.aem.commons.assetshare.search.searchpredicates.SearchPredicate;
 import com.adobe.aem.commons.assetshare.util.ComponentModelVisitor;
 import com.adobe.aem.commons.assetshare.util.PredicateUtil;
+import com.adobe.aem.commons.assetshare.util.ResourceTypeVisitor;
 import com.adobe.cq.export.json.ComponentExporter;
 import com.adobe.cq.export.json.ExporterConstants;
 import com.day.cq.dam.api.DamConstants;
 import com.day.cq.search.Predicate;
 import com.day.cq.search.PredicateConverter;
 import com.day.cq.search.PredicateGroup;
+import com.day.cq.search.eval.JcrPropertyPredicateEvaluator;
 import com.day.cq.search.eval.PathPredicateEvaluator;
 import com.day.cq.search.eval.TypePredicateEvaluator;
 import com.day.cq.wcm.api.Page;
@@ -42,6 +44,8 @@ import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.sling.api.SlingHttpServletRequest;
 import org.apache.sling.api.request.RequestParameter;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ValueMap;
 import org.apache.sling.models.annotations.DefaultInjectionStrategy;
 import org.apache.sling.models.annotations.Exporter;
 import org.apache.sling.models.annotations.Model;
@@ -55,9 +59,12 @@ import javax.annotation.PostConstruct;
 import javax.inject.Inject;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 @Model(
         adaptables = {SlingHttpServletRequest.class},
@@ -71,6 +78,7 @@ public class PagePredicateImpl extends AbstractPredicate implements PagePredicat
 
     private static final int MAX_LIMIT = 1000;
     private static final int DEFAULT_LIMIT = 50;
+    private static final String[] FULLTEXT_OPERATIONS = new String[]{"startsWith", "contains"};
 
     @Self
     @Required
@@ -164,6 +172,43 @@ public class PagePredicateImpl extends AbstractPredicate implements PagePredicat
        return offset;
     }
 
+    @Override
+    public boolean isKeysetPagination() {
+        return searchConfig.isKeysetPagination();
+    }
+
+    @Override
+    public List<String> getFacetProperties() {
+        if (!searchConfig.isFacets()) {
+            return Collections.emptyList();
+        }
+
+        final ResourceTypeVisitor visitor = new ResourceTypeVisitor(new String[]{PropertyPredicateImpl.RESOURCE_TYPE, TagsPredicateImpl.RESOURCE_TYPE});
+        visitor.accept(currentPage.getContentResource());
+
+        final Set<String> facetProperties = new LinkedHashSet<>();
+
+        for (final Resource resource : visitor.getResources()) {
+            final ValueMap properties = resource.getValueMap();
+
+            // Values matched by startsWith or contains are not distinct values of the property, so they cannot be counted by facets.
+            if (ArrayUtils.contains(FULLTEXT_OPERATIONS, properties.get(JcrPropertyPredicateEvaluator.OPERATION, String.class))) {
+                continue;
+            }
+
+            String property = properties.get(JcrPropertyPredicateEvaluator.PROPERTY, String.class);
+            if (StringUtils.isBlank(property) && resource.getResourceResolver().isResourceType(resource, TagsPredicateImpl.RESOURCE_TYPE)) {
+                property = TagsPredicateImpl.DEFAULT_PROPERTY;
+            }
+
+            if (StringUtils.isNotBlank(property)) {
+                facetProperties.add(StringUtils.removeStart(property, "./"));
+            }
+        }
+
+        return new ArrayList<>(facetProperties);
+    }
+
     public String getGuessTotal() {
         return searchConfig.getGuessTotal();
     }
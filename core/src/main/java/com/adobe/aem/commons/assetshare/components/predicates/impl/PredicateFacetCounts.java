@@ -0,0 +1,97 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.adobe.aem.commons.assetshare.components.predicates.impl;
+
+import com.adobe.aem.commons.assetshare.components.predicates.PagePredicate;
+import com.adobe.aem.commons.assetshare.components.predicates.impl.options.FacetCountOptionItem;
+import com.adobe.aem.commons.assetshare.components.search.SearchConfig;
+import com.adobe.aem.commons.assetshare.search.Search;
+import com.adobe.aem.commons.assetshare.search.results.Results;
+import com.adobe.aem.commons.assetshare.util.ModelCache;
+import com.adobe.cq.wcm.core.components.models.form.OptionItem;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.sling.api.SlingHttpServletRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Maps the facet counts computed by the page's search onto the option items of a predicate.
+ */
+final class PredicateFacetCounts {
+    private PredicateFacetCounts() {
+    }
+
+    /**
+     * The page's search is obtained from the request's ModelCache, so this does not execute an additional query; it may however execute the page's search earlier than the search results would (see {@link PagePredicate#getFacetProperties()}).
+     * The search is only requested if facet counts are computed for the property.
+     * <br>
+     * This MUST NOT be used while building the search's own query (ie. from getPredicateGroup()), as that would recursively request the search.
+     *
+     * @param request the request.
+     * @param property the relative path of the property the predicate filters on.
+     * @param optionItems the option items of the predicate.
+     * @param locale the locale used to format the counts.
+     * @return the option items decorated with their counts, or the option items as is if the search did not compute facets for the property.
+     */
+    static List<OptionItem> decorate(final SlingHttpServletRequest request,
+                                     final String property,
+                                     final List<OptionItem> optionItems,
+                                     final Locale locale) {
+        final SearchConfig searchConfig = request.adaptTo(SearchConfig.class);
+
+        if (searchConfig == null || !searchConfig.isFacets() || StringUtils.isBlank(property)) {
+            return optionItems;
+        }
+
+        final PagePredicate pagePredicate = request.adaptTo(PagePredicate.class);
+
+        if (pagePredicate == null || !pagePredicate.getFacetProperties().contains(StringUtils.removeStart(property, "./"))) {
+            // Facet counts are not requested for this property (ie. it is matched with startsWith), so the search need not be executed.
+            return optionItems;
+        }
+
+        final ModelCache modelCache = request.adaptTo(ModelCache.class);
+        final Search search = modelCache != null ? modelCache.get(Search.class) : null;
+        final Results results = search != null ? search.getResults() : null;
+
+        if (results == null) {
+            return optionItems;
+        }
+
+        final Map<String, Long> counts = results.getFacetCounts().get(StringUtils.removeStart(property, "./"));
+
+        if (counts == null) {
+            // Facets were not computed for this property, typically as it is not indexed for facets.
+            return optionItems;
+        }
+
+        final List<OptionItem> decorated = new ArrayList<>(optionItems.size());
+
+        for (final OptionItem optionItem : optionItems) {
+            decorated.add(new FacetCountOptionItem(optionItem, counts.getOrDefault(optionItem.getValue(), 0L), locale));
+        }
+
+        return decorated;
+    }
+}
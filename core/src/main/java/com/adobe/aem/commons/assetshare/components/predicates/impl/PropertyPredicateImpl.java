@@ -26,6 +26,7 @@ import com.adobe.aem.commons.assetshare.components.predicates.PropertyPredicate;
 import com.adobe.aem.commons.assetshare.components.predicates.impl.options.CoreComponentsOptionItem;
 import com.adobe.aem.commons.assetshare.components.predicates.impl.options.SelectedOptionItem;
 import com.adobe.aem.commons.assetshare.components.predicates.impl.options.UnselectedOptionItem;
+import com.adobe.aem.commons.assetshare.configuration.Config;
 import com.adobe.aem.commons.assetshare.search.impl.predicateevaluators.PropertyValuesPredicateEvaluator;
 import com.adobe.aem.commons.assetshare.util.JsonResolver;
 import com.adobe.aem.commons.assetshare.util.PredicateUtil;
@@ -135,8 +136,18 @@ public class PropertyPredicateImpl extends AbstractPredicate implements Property
 
     /* Options - Core Component Delegates */
     private List<OptionItem> items = null;
+    private List<OptionItem> facetedItems = null;
 
     public List<OptionItem> getItems() {
+        if (facetedItems == null) {
+            final Config config = request.adaptTo(Config.class);
+            facetedItems = PredicateFacetCounts.decorate(request, getProperty(), getOptionItems(), config != null ? config.getLocale() : request.getLocale());
+        }
+
+        return facetedItems;
+    }
+
+    private List<OptionItem> getOptionItems() {
         if (items == null) {
             final ValueMap initialValues = getInitialValues();
             final List<OptionItem> processedOptionItems = new ArrayList<>();
@@ -221,7 +232,7 @@ public class PropertyPredicateImpl extends AbstractPredicate implements Property
 
     @Override
     public boolean isReady() {
-        return getItems().size() > 0;
+        return getOptionItems().size() > 0;
     }
 
     @Override
@@ -253,7 +264,8 @@ public class PropertyPredicateImpl extends AbstractPredicate implements Property
         String prefix = getName() + ".";
 
         int i = 0;
-        for (OptionItem item : getItems()) {
+        // The undecorated option items are used, as the search's facet counts depend on this predicate group.
+        for (OptionItem item : getOptionItems()) {
             if (item.isSelected()) {
                 params.put(prefix + JcrPropertyPredicateEvaluator.PROPERTY, getProperty());
                 params.put(prefix + i + "_" + getValuesKey(), item.getValue());
@@ -23,6 +23,7 @@ import com.adobe.aem.commons.assetshare.components.predicates.AbstractPredicate;
 import com.adobe.aem.commons.assetshare.components.predicates.TagsPredicate;
 import com.adobe.aem.commons.assetshare.components.predicates.impl.options.TagOptionItem;
 import com.adobe.aem.commons.assetshare.configuration.Config;
+import com.adobe.aem.commons.assetshare.content.impl.cache.TagTitleCache;
 import com.adobe.aem.commons.assetshare.search.impl.predicateevaluators.PropertyValuesPredicateEvaluator;
 import com.adobe.aem.commons.assetshare.util.PredicateUtil;
 import com.adobe.cq.export.json.ComponentExporter;
@@ -41,6 +42,7 @@ import org.apache.sling.models.annotations.DefaultInjectionStrategy;
 import org.apache.sling.models.annotations.Exporter;
 import org.apache.sling.models.annotations.Model;
 import org.apache.sling.models.annotations.Required;
+import org.apache.sling.models.annotations.injectorspecific.OSGiService;
 import org.apache.sling.models.annotations.injectorspecific.Self;
 import org.apache.sling.models.annotations.injectorspecific.ValueMapValue;
 
@@ -61,6 +63,7 @@ import java.util.Locale;
 @Exporter(name = ExporterConstants.SLING_MODEL_EXPORTER_NAME, extensions = ExporterConstants.SLING_MODEL_EXTENSION)
 public class TagsPredicateImpl extends AbstractPredicate implements TagsPredicate {
     protected static final String RESOURCE_TYPE = "asset-share-commons/components/search/tags";
+    protected static final String DEFAULT_PROPERTY = "jcr:content/metadata/cq:tags";
 
     private static final String SORT_ALPHABETICAL = "alphabetical";
     private static final String SORT_NATURAL = "natural";
@@ -73,6 +76,9 @@ public class TagsPredicateImpl extends AbstractPredicate implements TagsPredicat
     @Required
     private Options coreOptions;
 
+    @OSGiService
+    private TagTitleCache tagTitleCache;
+
     @ValueMapValue(name = PropertyPredicateImpl.PN_TYPE)
     private String typeString;
 
@@ -113,7 +119,7 @@ public class TagsPredicateImpl extends AbstractPredicate implements TagsPredicat
 
     @Override
     public String getProperty() {
-        return StringUtils.defaultIfBlank(property, "jcr:content/metadata/cq:tags");
+        return StringUtils.defaultIfBlank(property, DEFAULT_PROPERTY);
     }
 
     @Override
@@ -153,7 +159,7 @@ public class TagsPredicateImpl extends AbstractPredicate implements TagsPredicat
             final Locale locale = request.adaptTo(Config.class).getLocale();
 
             for (final Tag tag : tags) {
-                items.add(new TagOptionItem(tag, locale, PredicateUtil.isOptionInInitialValues(tag.getTagID(), initialValues)));
+                items.add(new TagOptionItem(tag, locale, PredicateUtil.isOptionInInitialValues(tag.getTagID(), initialValues), tagTitleCache));
             }
         }
 
@@ -161,7 +167,7 @@ public class TagsPredicateImpl extends AbstractPredicate implements TagsPredicat
             Collections.sort(items, new AlphabeticalOptionItems());
         }
 
-        return items;
+        return PredicateFacetCounts.decorate(request, getProperty(), items, request.adaptTo(Config.class).getLocale());
     }
 
     @Override
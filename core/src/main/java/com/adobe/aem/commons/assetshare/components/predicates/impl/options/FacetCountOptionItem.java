@@ -0,0 +1,75 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.adobe.aem.commons.assetshare.components.predicates.impl.options;
+
+import com.adobe.cq.wcm.core.components.models.form.OptionItem;
+
+import java.text.NumberFormat;
+import java.util.Locale;
+
+/**
+ * Decorates an OptionItem's text with the number of search results that have the option's value, ie. "Images (1,203)".
+ */
+public class FacetCountOptionItem implements OptionItem {
+
+    private final OptionItem wrappedOptionItem;
+    private final long count;
+    private final Locale locale;
+
+    public FacetCountOptionItem(OptionItem wrappedOptionItem, long count, Locale locale) {
+        this.wrappedOptionItem = wrappedOptionItem;
+        this.count = count;
+        this.locale = locale;
+    }
+
+    /**
+     * @return the number of search results that have the option's value.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    @Override
+    public boolean isSelected() {
+        return wrappedOptionItem.isSelected();
+    }
+
+    @Override
+    public boolean isDisabled() {
+        return wrappedOptionItem.isDisabled();
+    }
+
+    @Override
+    public String getValue() {
+        return wrappedOptionItem.getValue();
+    }
+
+    @Override
+    public String getText() {
+        final String text = wrappedOptionItem.getText();
+
+        if (text == null) {
+            return null;
+        }
+
+        return text + " (" + NumberFormat.getIntegerInstance(locale != null ? locale : Locale.getDefault()).format(count) + ")";
+    }
+}
@@ -19,6 +19,7 @@
 
 package com.adobe.aem.commons.assetshare.components.predicates.impl.options;
 
+import com.adobe.aem.commons.assetshare.content.impl.cache.TagTitleCache;
 import com.adobe.cq.wcm.core.components.models.form.OptionItem;
 import com.day.cq.tagging.Tag;
 
@@ -29,10 +30,23 @@ public class TagOptionItem implements OptionItem {
     private Locale locale;
     private boolean selected;
 
+    private TagTitleCache tagTitleCache;
+
     public TagOptionItem(Tag tag, Locale locale, boolean selected) {
+        this(tag, locale, selected, null);
+    }
+
+    /**
+     * @param tag the tag.
+     * @param locale the locale of the option's text.
+     * @param selected true if the option is selected.
+     * @param tagTitleCache the cache used to look up the tag's title; may be null.
+     */
+    public TagOptionItem(Tag tag, Locale locale, boolean selected, TagTitleCache tagTitleCache) {
         this.tag = tag;
         this.locale = locale;
         this.selected = selected;
+        this.tagTitleCache = tagTitleCache;
     }
 
     @Override
@@ -55,7 +69,9 @@ public class TagOptionItem implements OptionItem {
 
     @Override
     public String getText() {
-        if (tag != null) {
+        if (tag != null && tagTitleCache != null) {
+            return tagTitleCache.getTitle(tag, locale);
+        } else if (tag != null) {
             return tag.getTitle(locale);
         }
         return "";
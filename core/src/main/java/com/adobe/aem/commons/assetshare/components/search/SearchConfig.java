@@ -62,6 +62,16 @@ public interface SearchConfig {
      */
     default boolean isOrderByCase() { return true; }
 
+    /**
+     * @return true if the results should be paged using keyset (search-after) cursors rather than offsets.
+     */
+    default boolean isKeysetPagination() { return false; }
+
+    /**
+     * @return true if the property and tags predicates on the page should display the number of results for each of their options.
+     */
+    default boolean isFacets() { return false; }
+
     /**
      * @return the limit of number of results to return for this search.
      */
@@ -47,6 +47,8 @@ public class SearchConfigImpl implements SearchConfig, ComponentExporter {
     private static final String DEFAULT_ORDER_BY = "@jcr:score";
     private static final String DEFAULT_ORDER_BY_SORT = Predicate.SORT_DESCENDING;
     private static final boolean DEFAULT_ORDER_BY_CASE = true;
+    private static final boolean DEFAULT_KEYSET_PAGINATION = false;
+    private static final boolean DEFAULT_FACETS = false;
 
     private static final String DEFAULT_LAYOUT = "card";
     private static final String DEFAULT_SPID = "search";
@@ -56,6 +58,8 @@ public class SearchConfigImpl implements SearchConfig, ComponentExporter {
     private String PN_ORDER_BY = "orderBy";
     private String PN_ORDER_BY_SORT = "orderBySort";
     private String PN_ORDER_BY_CASE = "orderByCase";
+    private String PN_KEYSET_PAGINATION = "keysetPagination";
+    private String PN_FACETS = "facets";
     private String PN_LIMIT = Predicate.PARAM_LIMIT;
     private String PN_PATHS = "paths";
     private String PN_LAYOUT = "layout";
@@ -148,6 +152,16 @@ public class SearchConfigImpl implements SearchConfig, ComponentExporter {
         return properties.get(PN_ORDER_BY_CASE, DEFAULT_ORDER_BY_CASE);
     }
 
+    @Override
+    public boolean isKeysetPagination() {
+        return properties.get(PN_KEYSET_PAGINATION, DEFAULT_KEYSET_PAGINATION);
+    }
+
+    @Override
+    public boolean isFacets() {
+        return properties.get(PN_FACETS, DEFAULT_FACETS);
+    }
+
     @Override
     public List<String> getPaths() {
         final List<String> paths  = Arrays.stream(properties.get(PN_PATHS, DEFAULT_PATHS)).filter(path ->
@@ -17,7 +17,7 @@
  *
  */
 
-@Version("2.1.1")
+@Version("2.2.0")
 package com.adobe.aem.commons.assetshare.components.search;
 
 import org.osgi.annotation.versioning.Version;
@@ -21,6 +21,9 @@ package com.adobe.aem.commons.assetshare.content.impl;
 
 import com.adobe.aem.commons.assetshare.content.AssetModel;
 import com.adobe.aem.commons.assetshare.content.AssetResolver;
+import com.adobe.aem.commons.assetshare.content.impl.cache.ComputedPropertyValueCache;
+import com.adobe.aem.commons.assetshare.content.impl.precomputed.PrecomputedProperties;
+import com.adobe.aem.commons.assetshare.content.impl.profiling.ComputedPropertyProfiler;
 import com.adobe.aem.commons.assetshare.content.properties.ComputedProperties;
 import com.adobe.aem.commons.assetshare.content.properties.impl.TitleImpl;
 import com.adobe.aem.commons.assetshare.util.UrlUtil;
@@ -67,6 +70,15 @@ public class AssetModelImpl implements AssetModel {
     @Required
     private AssetResolver assetResolver;
 
+    @OSGiService
+    private ComputedPropertyValueCache computedPropertyValueCache;
+
+    @OSGiService
+    private PrecomputedProperties precomputedProperties;
+
+    @OSGiService
+    private ComputedPropertyProfiler computedPropertyProfiler;
+
     private ValueMap properties;
 
     // This must be populated in init(); if it cannot be an exception is thrown.
@@ -126,7 +138,11 @@ public class AssetModelImpl implements AssetModel {
     public ValueMap getProperties() {
         if (properties == null) {
             if (asset != null) {
-                properties = new ValueMapDecorator(new CombinedProperties(computedProperties.getComputedProperties(), request, asset));
+                properties = new ValueMapDecorator(new CombinedProperties(computedProperties.getComputedPropertiesByName(), request, asset,
+                        new CombinedProperties.Collaborators()
+                                .valueCache(computedPropertyValueCache)
+                                .precomputedProperties(precomputedProperties)
+                                .profiler(computedPropertyProfiler)));
             } else {
                 properties = new ValueMapDecorator(new HashMap<>());
             }
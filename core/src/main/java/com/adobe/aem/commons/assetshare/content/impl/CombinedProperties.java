@@ -20,8 +20,12 @@
 package com.adobe.aem.commons.assetshare.content.impl;
 
 import com.adobe.acs.commons.util.ParameterUtil;
+import com.adobe.aem.commons.assetshare.content.impl.cache.ComputedPropertyValueCache;
+import com.adobe.aem.commons.assetshare.content.impl.precomputed.PrecomputedProperties;
+import com.adobe.aem.commons.assetshare.content.impl.profiling.ComputedPropertyProfiler;
 import com.adobe.aem.commons.assetshare.content.properties.ComputedProperty;
 import com.day.cq.dam.api.Asset;
+import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.sling.api.SlingHttpServletRequest;
 import org.apache.sling.api.resource.Resource;
@@ -30,12 +34,20 @@ import org.apache.sling.api.wrappers.ValueMapDecorator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.AbstractMap;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.stream.Collectors;
 
 public final class CombinedProperties implements Map<String, Object> {
@@ -49,15 +61,37 @@ public final class CombinedProperties implements Map<String, Object> {
 
     private final Map<String, ComputedProperty> computedProperties;
     private final Map<String, Object> cachedValues = new HashMap<>();
+    private final Set<String> evaluating = new LinkedHashSet<>();
+    // The computed properties whose evaluation depended on a circular dependency; their values are null and never cached.
+    private final Set<String> circular = new HashSet<>();
     private final SlingHttpServletRequest request;
     private final Asset asset;
+    private final ComputedPropertyValueCache valueCache;
+    private final PrecomputedProperties precomputedProperties;
+    private final ComputedPropertyProfiler profiler;
 
+    private String valueCacheKeyPrefix;
+    private ValueMap precomputedValues;
+    private boolean precomputedValuesRead = false;
     private ValueMap assetProperties;
     private ValueMap metaProperties;
 
     public CombinedProperties(final List<ComputedProperty> computedProperties,
                               final SlingHttpServletRequest request,
                               final Asset asset) {
+        this(getComputedPropertiesMap(computedProperties), request, asset, new Collaborators());
+    }
+
+    /**
+     * @param computedProperties the computed properties indexed by name (see {@link com.adobe.aem.commons.assetshare.content.properties.ComputedProperties#getComputedPropertiesByName()}); this is not copied, so it must not be modified.
+     * @param request the request; may be null.
+     * @param asset the asset.
+     * @param collaborators the optional services used to obtain and profile the computed values.
+     */
+    public CombinedProperties(final Map<String, ComputedProperty> computedProperties,
+                              final SlingHttpServletRequest request,
+                              final Asset asset,
+                              final Collaborators collaborators) {
 
         if (log.isTraceEnabled()) {
             log.trace("Constructing CombinedProperties for [ {} ]", asset.getPath());
@@ -65,9 +99,12 @@ public final class CombinedProperties implements Map<String, Object> {
 
         this.request = request;
         this.asset = asset;
+        this.valueCache = collaborators.valueCache;
+        this.precomputedProperties = collaborators.precomputedProperties;
+        this.profiler = collaborators.profiler;
         this.assetProperties = getProperties();
         this.metaProperties = getMetadataProperties();
-        this.computedProperties = getComputedPropertiesMap(computedProperties);
+        this.computedProperties = computedProperties;
     }
 
     @Override
@@ -82,24 +119,26 @@ public final class CombinedProperties implements Map<String, Object> {
 
     @Override
     public final boolean containsKey(Object key) {
-        final ComputedPropertyParameter computedPropertyParameter = new ComputedPropertyParameter((String) key);
+        final ComputedPropertyParameter computedPropertyParameter = parse((String) key);
+        final String name = computedPropertyParameter == null ? (String) key : computedPropertyParameter.getName();
+        final String cacheId = computedPropertyParameter == null ? (String) key : computedPropertyParameter.getCacheId();
 
         boolean result = false;
 
-        final ComputedProperty computedProperty = computedProperties.get(computedPropertyParameter.getName());
+        final ComputedProperty computedProperty = computedProperties.get(name);
 
         if (computedProperty != null &&
-                (cachedValues.containsKey(computedPropertyParameter.getCacheId()) ||
-                        computedProperty.accepts(asset, request, computedPropertyParameter.getName()))) {
+                (cachedValues.containsKey(cacheId) ||
+                        computedProperty.accepts(asset, request, name))) {
             result = true;
         }
 
         if (!result) {
-            result = assetProperties.get(computedPropertyParameter.getName()) != null;
+            result = assetProperties.get(name) != null;
         }
 
         if (!result) {
-            result = metaProperties.get(computedPropertyParameter.getName()) != null;
+            result = metaProperties.get(name) != null;
         }
 
         return result;
@@ -116,50 +155,86 @@ public final class CombinedProperties implements Map<String, Object> {
             return null;
         }
 
-        final ComputedPropertyParameter computedPropertyParameter = new ComputedPropertyParameter((String) key);
+        final ComputedPropertyParameter computedPropertyParameter = parse((String) key);
+        final String name = computedPropertyParameter == null ? (String) key : computedPropertyParameter.getName();
+        final String cacheId = computedPropertyParameter == null ? (String) key : computedPropertyParameter.getCacheId();
 
         if (log.isTraceEnabled()) {
-            log.trace("Getting value for key [ {} ] from CombinedProperties", computedPropertyParameter.getCacheId());
+            log.trace("Getting value for key [ {} ] from CombinedProperties", cacheId);
         }
 
-        if (computedPropertyParameter.getName() == null) {
+        if (name == null) {
             return null;
         }
 
         Object result = null;
 
-        final ComputedProperty computedProperty = computedProperties.get(computedPropertyParameter.getName());
+        final ComputedProperty computedProperty = computedProperties.get(name);
 
         if (computedProperty != null) {
-            if (computedProperty.isCachable() && cachedValues.containsKey(computedPropertyParameter.getCacheId())) {
-                result = cachedValues.get(computedPropertyParameter.getCacheId());
+            if (computedProperty.isCachable() && cachedValues.containsKey(cacheId)) {
+                result = cachedValues.get(cacheId);
                 if (log.isTraceEnabled()) {
-                    log.trace(String.format("Computed value [ %s -> %s ] using [ %s ] served from ComputedPropertyAccessor cache.", computedPropertyParameter.getCacheId(), result, computedProperty.getClass().getName()));
+                    log.trace(String.format("Computed value [ %s -> %s ] using [ %s ] served from ComputedPropertyAccessor cache.", cacheId, result, computedProperty.getClass().getName()));
                 }
-            } else if (computedProperty.accepts(asset, request, computedPropertyParameter.getName())) {
-                result = computedProperty.get(asset, request, computedPropertyParameter.getParameters());
+            } else if (computedProperty.accepts(asset, request, name)) {
+                final String keyPrefix = getValueCacheKeyPrefix(computedProperty);
 
                 if (computedProperty.isCachable()) {
-                    cachedValues.put(computedPropertyParameter.getCacheId(), result);
+                    result = ComputedPropertyBatch.get(request, asset.getPath(), cacheId);
+                }
+
+                if (result == null) {
+                    result = getPrecomputedValue(computedProperty, cacheId);
+                }
+
+                if (result == null && keyPrefix != null) {
+                    result = valueCache.get(computedProperty, keyPrefix, cacheId);
+                }
+
+                if (result == null) {
+                    result = evaluate(computedProperty, computedPropertyParameter == null ? ComputedPropertyParameter.NO_PARAMETERS : computedPropertyParameter.getParameters());
+
+                    if (keyPrefix != null && !circular.contains(computedProperty.getName())) {
+                        valueCache.put(computedProperty, keyPrefix, cacheId, result);
+                    }
+                }
+
+                if (computedProperty.isCachable() && !circular.contains(computedProperty.getName())) {
+                    cachedValues.put(cacheId, result);
                 }
 
                 if (log.isTraceEnabled()) {
-                    log.trace(String.format("Computed value [ %s -> %s ] using [ %s ] ", computedPropertyParameter.getCacheId(), result, computedProperty.getClass().getName()));
+                    log.trace(String.format("Computed value [ %s -> %s ] using [ %s ] ", cacheId, result, computedProperty.getClass().getName()));
                 }
             }
         }
 
         if (result == null && metaProperties != null) {
-            result = metaProperties.get(computedPropertyParameter.getName());
+            result = metaProperties.get(name);
         }
 
         if (result == null && assetProperties != null) {
-            result = assetProperties.get(computedPropertyParameter.getName());
+            result = assetProperties.get(name);
         }
 
         return result;
     }
 
+    /**
+     * Plain keys (ie. dc:title) are by far the most common, and are used as is, rather than parsed.
+     *
+     * @param key the key.
+     * @return the parsed key, or null if the key is a plain key.
+     */
+    private ComputedPropertyParameter parse(final String key) {
+        if (!StringUtils.contains(key, COMPUTED_PROPERTY_NAME_PARAMETER_DELIMITER)) {
+            return null;
+        }
+
+        return ComputedPropertyParameter.parse(key, computedProperties);
+    }
+
     @Override
     public final Object put(String key, Object value) {
         throw new UnsupportedOperationException(UNSUPPORTED_OPERATION);
@@ -217,7 +292,83 @@ public final class CombinedProperties implements Map<String, Object> {
         return asset.adaptTo(Resource.class).getChild("jcr:content/metadata").getValueMap();
     }
 
-    protected final Map<String, ComputedProperty> getComputedPropertiesMap(final List<ComputedProperty> computedProperties) {
+    /**
+     * @param computedProperty the computed property.
+     * @return the key prefix of this asset in the shared value cache, or null if the computed property's value should not be shared across requests.
+     */
+    private String getValueCacheKeyPrefix(final ComputedProperty computedProperty) {
+        if (valueCache == null || !valueCache.accepts(computedProperty)) {
+            return null;
+        }
+
+        if (valueCacheKeyPrefix == null) {
+            valueCacheKeyPrefix = StringUtils.defaultString(valueCache.getKeyPrefix(asset, request));
+        }
+
+        return StringUtils.defaultIfEmpty(valueCacheKeyPrefix, null);
+    }
+
+    /**
+     * @param computedProperty the computed property.
+     * @param parameters the parameters of the computed property.
+     * @return the computed value, or null if the computed property (transitively) depends on itself, in which case any value computed with it is incomplete.
+     */
+    private Object evaluate(final ComputedProperty computedProperty, final ValueMap parameters) {
+        if (circular.contains(computedProperty.getName())) {
+            return null;
+        }
+
+        if (!evaluating.add(computedProperty.getName())) {
+            log.warn("Computed property [ {} ] depends on itself via [ {} ]; its value cannot be computed for [ {} ]",
+                    computedProperty.getName(), evaluating, asset.getPath());
+            // Every computed property being evaluated depends on the cycle.
+            circular.addAll(evaluating);
+            return null;
+        }
+
+        try {
+            final String[] dependencyNames = computedProperty.getDependencies();
+            final ValueMap dependencies = ArrayUtils.isEmpty(dependencyNames) ? ValueMap.EMPTY
+                    : new ValueMapDecorator(new Dependencies(computedProperty.getName(), dependencyNames));
+
+            final Object result;
+
+            if (profiler == null || !profiler.isEnabled()) {
+                result = computedProperty.get(asset, request, parameters, dependencies);
+            } else {
+                final long start = System.nanoTime();
+                try {
+                    result = computedProperty.get(asset, request, parameters, dependencies);
+                } finally {
+                    profiler.record(computedProperty, asset, System.nanoTime() - start);
+                }
+            }
+
+            return circular.contains(computedProperty.getName()) ? null : result;
+        } finally {
+            evaluating.remove(computedProperty.getName());
+        }
+    }
+
+    /**
+     * @param computedProperty the computed property.
+     * @param cacheId the normalized key of the computed property.
+     * @return the value stored with the asset, or null if the value is not precomputed or is stale.
+     */
+    private Object getPrecomputedValue(final ComputedProperty computedProperty, final String cacheId) {
+        if (precomputedProperties == null || !precomputedProperties.accepts(computedProperty, cacheId)) {
+            return null;
+        }
+
+        if (!precomputedValuesRead) {
+            precomputedValues = precomputedProperties.getPrecomputedValues(asset);
+            precomputedValuesRead = true;
+        }
+
+        return precomputedValues == null ? null : precomputedProperties.get(precomputedValues, computedProperty, cacheId, request);
+    }
+
+    protected static Map<String, ComputedProperty> getComputedPropertiesMap(final List<ComputedProperty> computedProperties) {
         final Map<String, ComputedProperty> result = new HashMap<>();
 
         for (final ComputedProperty computedProperty : computedProperties) {
@@ -237,6 +388,86 @@ public final class CombinedProperties implements Map<String, Object> {
         return result;
     }
 
+    /**
+     * The optional services a CombinedProperties uses to obtain computed values without computing them, and to report the cost of computing them.
+     * <br>
+     * Each is null unless set, in which case it is not used.
+     */
+    public static final class Collaborators {
+        private ComputedPropertyValueCache valueCache;
+        private PrecomputedProperties precomputedProperties;
+        private ComputedPropertyProfiler profiler;
+
+        /**
+         * @param valueCache the cache used to share computed values across requests; may be null.
+         * @return these collaborators.
+         */
+        public Collaborators valueCache(final ComputedPropertyValueCache valueCache) {
+            this.valueCache = valueCache;
+            return this;
+        }
+
+        /**
+         * @param precomputedProperties the service providing the values stored with the asset; may be null.
+         * @return these collaborators.
+         */
+        public Collaborators precomputedProperties(final PrecomputedProperties precomputedProperties) {
+            this.precomputedProperties = precomputedProperties;
+            return this;
+        }
+
+        /**
+         * @param profiler the profiler the cost of evaluating the computed properties is reported to; may be null.
+         * @return these collaborators.
+         */
+        public Collaborators profiler(final ComputedPropertyProfiler profiler) {
+            this.profiler = profiler;
+            return this;
+        }
+    }
+
+    /**
+     * The values of the declared dependencies of a computed property, which are served via this CombinedProperties (and thus its cache), so that each dependency is computed once.
+     */
+    private final class Dependencies extends AbstractMap<String, Object> {
+        private final String dependent;
+        private final Set<String> names;
+
+        Dependencies(final String dependent, final String[] names) {
+            this.dependent = dependent;
+            this.names = new LinkedHashSet<>(Arrays.asList(names));
+        }
+
+        @Override
+        public Object get(final Object key) {
+            if (!names.contains(key)) {
+                log.debug("Computed property [ {} ] requested [ {} ], which is not one of its declared dependencies", dependent, key);
+                return null;
+            }
+
+            return CombinedProperties.this.get(key);
+        }
+
+        @Override
+        public boolean containsKey(final Object key) {
+            return names.contains(key) && CombinedProperties.this.containsKey(key);
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            final Map<String, Object> values = new LinkedHashMap<>();
+
+            for (final String name : names) {
+                final Object value = get(name);
+                if (value != null) {
+                    values.put(name, value);
+                }
+            }
+
+            return values.entrySet();
+        }
+    }
+
     /**
      * Internal class that parses and collects the Computed Property "key" into the ComputedProperty name (used to select the ComputedProperty) and optional Parameters.
      * <br>
@@ -245,21 +476,72 @@ public final class CombinedProperties implements Map<String, Object> {
      * &lt;computed-property-name&gt;?&lt;param1-key&gt;=&lt;param1-value&gt;&&lt;param2-key&gt;=&lt;param2-value&gt;
      */
     protected static class ComputedPropertyParameter {
+        // Only keys of registered computed properties are retained, as other keys may be supplied by clients (ie. the fields of the search JSON API); past this size, keys are simply parsed on every call.
+        private static final int MAX_PARSED_KEYS = 2048;
+        private static final ConcurrentMap<String, ComputedPropertyParameter> PARSED_KEYS = new ConcurrentHashMap<>();
+        private static final ValueMap NO_PARAMETERS = new ValueMapDecorator(Collections.emptyMap());
+
         private final String name;
-        private final ValueMap parameters = new ValueMapDecorator(new TreeMap<>());
-        private String cacheId;
+        private final ValueMap parameters;
+        private final String cacheId;
+
+        /**
+         * @param rawParam the key.
+         * @return the parsed key; this is never retained, see {@link #parse(String, Map)}.
+         */
+        public static ComputedPropertyParameter parse(final String rawParam) {
+            return parse(rawParam, null);
+        }
+
+        /**
+         * ComputedPropertyParameters are immutable, so the parsed form of each key of a registered computed property is shared across all CombinedProperties.
+         *
+         * @param rawParam the key.
+         * @param computedProperties the registered computed properties indexed by name; keys whose name is not among them are not retained. May be null.
+         * @return the parsed key.
+         */
+        public static ComputedPropertyParameter parse(final String rawParam, final Map<String, ComputedProperty> computedProperties) {
+            if (rawParam == null) {
+                return new ComputedPropertyParameter(null);
+            }
+
+            ComputedPropertyParameter computedPropertyParameter = PARSED_KEYS.get(rawParam);
+
+            if (computedPropertyParameter == null) {
+                computedPropertyParameter = new ComputedPropertyParameter(rawParam);
+
+                if (computedProperties != null
+                        && computedProperties.containsKey(computedPropertyParameter.getName())
+                        && PARSED_KEYS.size() < MAX_PARSED_KEYS) {
+                    PARSED_KEYS.putIfAbsent(rawParam, computedPropertyParameter);
+                }
+            }
+
+            return computedPropertyParameter;
+        }
 
         public ComputedPropertyParameter(String rawParam) {
-            name = StringUtils.substringBefore(rawParam, COMPUTED_PROPERTY_NAME_PARAMETER_DELIMITER);
-            parameters.putAll(
+            if (!StringUtils.contains(rawParam, COMPUTED_PROPERTY_NAME_PARAMETER_DELIMITER)) {
+                // Plain keys (ie. dc:title) are by far the most common, and need no parsing.
+                name = rawParam;
+                parameters = NO_PARAMETERS;
+                cacheId = rawParam;
+                return;
+            }
+
+            final Map<String, Object> tmp = new TreeMap<>(
                     ParameterUtil.toMap(StringUtils.split(
                             StringUtils.substringAfter(rawParam, COMPUTED_PROPERTY_NAME_PARAMETER_DELIMITER),
                             PARAMETER_DELIMITER),
                             PARAMETER_KEY_VALUE_DELIMITER, true, ""));
-            cacheId = name;
 
-            if (!parameters.isEmpty()) {
-                cacheId += COMPUTED_PROPERTY_NAME_PARAMETER_DELIMITER + parameters.keySet().stream()
+            name = StringUtils.substringBefore(rawParam, COMPUTED_PROPERTY_NAME_PARAMETER_DELIMITER);
+            parameters = new ValueMapDecorator(Collections.unmodifiableMap(tmp));
+
+            if (tmp.isEmpty()) {
+                cacheId = name;
+            } else {
+                cacheId = name + COMPUTED_PROPERTY_NAME_PARAMETER_DELIMITER + tmp.keySet().stream()
                         .map(key -> key + PARAMETER_KEY_VALUE_DELIMITER + parameters.get(key, ""))
                         .collect(Collectors.joining(PARAMETER_DELIMITER));
             }
@@ -0,0 +1,130 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.adobe.aem.commons.assetshare.content.impl;
+
+import com.adobe.aem.commons.assetshare.content.properties.ComputedProperty;
+import com.day.cq.dam.api.Asset;
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Computes the values of computed properties for many assets at once (see {@link ComputedProperty#getAll}), and holds them for the rest of the request,
+ * where they are served by the {@link CombinedProperties} of each asset.
+ */
+public final class ComputedPropertyBatch {
+    private static final Logger log = LoggerFactory.getLogger(ComputedPropertyBatch.class);
+
+    private static final String REQUEST_ATTR_VALUES = ComputedPropertyBatch.class.getName() + "__values";
+    private static final String KEY_DELIMITER = "\n";
+
+    private ComputedPropertyBatch() {
+    }
+
+    /**
+     * @param request the request the values are computed for, and held by.
+     * @param computedProperties the computed properties indexed by name.
+     * @param assets the assets to compute the values of.
+     * @param keys the computed property keys (ie. tagTitles or rendition?name=card) to compute. Keys of computed properties that are not cachable are ignored, as are the assets a computed property does not accept.
+     */
+    public static void compute(final SlingHttpServletRequest request,
+                               final Map<String, ComputedProperty> computedProperties,
+                               final List<Asset> assets,
+                               final Collection<String> keys) {
+        if (assets.isEmpty() || keys.isEmpty()) {
+            return;
+        }
+
+        final Map<String, Object> values = getValues(request, true);
+
+        for (final String key : keys) {
+            final CombinedProperties.ComputedPropertyParameter computedPropertyParameter = CombinedProperties.ComputedPropertyParameter.parse(key, computedProperties);
+            final ComputedProperty<?> computedProperty = computedProperties.get(computedPropertyParameter.getName());
+
+            if (computedProperty == null || !computedProperty.isCachable()) {
+                continue;
+            }
+
+            final long start = System.currentTimeMillis();
+
+            // Values are only held for the assets the computed property accepts, as they are served without checking again.
+            final Map<String, Asset> accepted = new LinkedHashMap<>();
+            for (final Asset asset : assets) {
+                if (computedProperty.accepts(asset, request, computedPropertyParameter.getName())) {
+                    accepted.put(asset.getPath(), asset);
+                }
+            }
+
+            if (accepted.isEmpty()) {
+                continue;
+            }
+
+            try {
+                for (final Map.Entry<String, ?> entry : computedProperty.getAll(new ArrayList<>(accepted.values()), request, computedPropertyParameter.getParameters()).entrySet()) {
+                    if (accepted.containsKey(entry.getKey())) {
+                        values.put(entry.getKey() + KEY_DELIMITER + computedPropertyParameter.getCacheId(), entry.getValue());
+                    }
+                }
+            } catch (RuntimeException e) {
+                // The values are still computed per asset, as they are requested.
+                log.warn("Could not compute the values of computed property [ {} ] for [ {} ] assets at once", computedPropertyParameter.getCacheId(), assets.size(), e);
+            }
+
+            if (log.isDebugEnabled()) {
+                log.debug("Computed [ {} ] for [ {} ] assets in [ {} ms ]", computedPropertyParameter.getCacheId(), assets.size(), System.currentTimeMillis() - start);
+            }
+        }
+    }
+
+    /**
+     * @param request the request.
+     * @param assetPath the path of the asset.
+     * @param cacheId the cacheId of the computed property invocation (ie. its name and parameters).
+     * @return the value computed for the asset by {@link #compute}, or null if none was.
+     */
+    static Object get(final SlingHttpServletRequest request, final String assetPath, final String cacheId) {
+        final Map<String, Object> values = getValues(request, false);
+        return values == null ? null : values.get(assetPath + KEY_DELIMITER + cacheId);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> getValues(final SlingHttpServletRequest request, final boolean create) {
+        if (request == null) {
+            return null;
+        }
+
+        Map<String, Object> values = (Map<String, Object>) request.getAttribute(REQUEST_ATTR_VALUES);
+
+        if (values == null && create) {
+            values = new HashMap<>();
+            request.setAttribute(REQUEST_ATTR_VALUES, values);
+        }
+
+        return values;
+    }
+}
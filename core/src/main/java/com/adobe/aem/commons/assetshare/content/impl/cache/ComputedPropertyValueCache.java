@@ -0,0 +1,64 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.adobe.aem.commons.assetshare.content.impl.cache;
+
+import com.adobe.aem.commons.assetshare.content.properties.ComputedProperty;
+import com.day.cq.dam.api.Asset;
+import org.apache.sling.api.SlingHttpServletRequest;
+
+/**
+ * A cache of computed property values that is shared across requests (and so across AssetModels of the same asset).
+ * <br>
+ * Entries are keyed by the asset's path and last modified date, the computed property's cacheId (its name and parameters) and the requesting locale,
+ * so an asset modification implicitly invalidates its cached values.
+ */
+public interface ComputedPropertyValueCache {
+    /**
+     * @param computedProperty the computed property.
+     * @return true if values of the computed property may be served from, and stored in, this cache.
+     */
+    boolean accepts(ComputedProperty computedProperty);
+
+    /**
+     * @param asset the asset whose computed property values are requested.
+     * @param request the request the values are computed for; may be null.
+     * @return the prefix of the cache keys of the asset's computed property values, or null if the asset's values cannot be cached (ie. it has no last modified date).
+     */
+    String getKeyPrefix(Asset asset, SlingHttpServletRequest request);
+
+    /**
+     * @param computedProperty the computed property.
+     * @param keyPrefix the key prefix of the asset (see {@link #getKeyPrefix(Asset, SlingHttpServletRequest)}).
+     * @param cacheId the cacheId of the computed property invocation (ie. its name and parameters).
+     * @return the cached value, or null if there is no cached value.
+     */
+    Object get(ComputedProperty computedProperty, String keyPrefix, String cacheId);
+
+    /**
+     * Values that cannot safely be shared between requests (ie. anything other than Strings, Numbers, Booleans and collections thereof) are not cached.
+     *
+     * @param computedProperty the computed property.
+     * @param keyPrefix the key prefix of the asset (see {@link #getKeyPrefix(Asset, SlingHttpServletRequest)}).
+     * @param cacheId the cacheId of the computed property invocation (ie. its name and parameters).
+     * @param value the computed value.
+     */
+    void put(ComputedProperty computedProperty, String keyPrefix, String cacheId, Object value);
+}
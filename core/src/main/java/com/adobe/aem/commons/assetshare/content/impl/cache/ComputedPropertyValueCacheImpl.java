@@ -0,0 +1,382 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.adobe.aem.commons.assetshare.content.impl.cache;
+
+import com.adobe.aem.commons.assetshare.content.properties.ComputedProperty;
+import com.adobe.granite.jmx.annotation.AnnotatedStandardMBean;
+import com.day.cq.dam.api.Asset;
+import com.day.cq.wcm.api.Page;
+import com.day.cq.wcm.api.components.ComponentContext;
+import com.day.cq.wcm.commons.WCMUtils;
+import com.google.common.collect.ImmutableSet;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.resource.observation.ExternalResourceChangeListener;
+import org.apache.sling.api.resource.observation.ResourceChange;
+import org.apache.sling.api.resource.observation.ResourceChangeListener;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Modified;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.DynamicMBean;
+import javax.management.NotCompliantMBeanException;
+import javax.management.openmbean.CompositeDataSupport;
+import javax.management.openmbean.CompositeType;
+import javax.management.openmbean.OpenDataException;
+import javax.management.openmbean.OpenType;
+import javax.management.openmbean.SimpleType;
+import javax.management.openmbean.TabularData;
+import javax.management.openmbean.TabularDataSupport;
+import javax.management.openmbean.TabularType;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component(
+        service = { ComputedPropertyValueCache.class, ResourceChangeListener.class, DynamicMBean.class },
+        property = {
+                "jmx.objectname=com.adobe.aem.commons.assetshare:type=Computed Property Value Cache",
+                ResourceChangeListener.PATHS + "=" + ComputedPropertyValueCacheImpl.DAM_ROOT,
+                ResourceChangeListener.PATHS + "=" + ComputedPropertyValueCacheImpl.TAGS_ROOT,
+                ResourceChangeListener.CHANGES + "=ADDED",
+                ResourceChangeListener.CHANGES + "=CHANGED",
+                ResourceChangeListener.CHANGES + "=REMOVED"
+        }
+)
+@Designate(ocd = ComputedPropertyValueCacheImpl.Cfg.class)
+public class ComputedPropertyValueCacheImpl extends AnnotatedStandardMBean implements ComputedPropertyValueCache, ComputedPropertyValueCacheMBean, ResourceChangeListener, ExternalResourceChangeListener {
+    private static final Logger log = LoggerFactory.getLogger(ComputedPropertyValueCacheImpl.class);
+
+    static final String DAM_ROOT = "/content/dam";
+    static final String TAGS_ROOT = "/content/cq:tags";
+
+    private static final String KEY_DELIMITER = "\n";
+    private static final String JCR_CONTENT = "/jcr:content";
+    private static final String REQUEST_ATTR_LOCALE = ComputedPropertyValueCacheImpl.class.getName() + "__locale";
+
+    private static final String[] ITEM_NAMES = { "computedProperty", "hits", "misses", "hitRatio" };
+    private static final String[] ITEM_DESCRIPTIONS = { "Computed property name", "Number of values served from the cache", "Number of values computed", "Hit ratio" };
+    private static final OpenType<?>[] ITEM_TYPES = { SimpleType.STRING, SimpleType.LONG, SimpleType.LONG, SimpleType.DOUBLE };
+
+    private final ConcurrentMap<String, AtomicLong[]> statistics = new ConcurrentHashMap<>();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private Cfg cfg;
+    private Set<String> computedPropertyNames = Collections.emptySet();
+    private Map<String, Entry> cache = new LinkedHashMap<>();
+
+    public ComputedPropertyValueCacheImpl() throws NotCompliantMBeanException {
+        super(ComputedPropertyValueCacheMBean.class);
+    }
+
+    @Override
+    public boolean accepts(final ComputedProperty computedProperty) {
+        return cfg.enabled()
+                && computedProperty.isCachable()
+                && computedPropertyNames.contains(computedProperty.getName());
+    }
+
+    @Override
+    public String getKeyPrefix(final Asset asset, final SlingHttpServletRequest request) {
+        final long lastModified = asset.getLastModified();
+
+        if (lastModified <= 0) {
+            // Without a last modified date, changes to the asset that were not observed (ie. on another instance) could never be picked up.
+            return null;
+        }
+
+        return asset.getPath() + KEY_DELIMITER + lastModified + KEY_DELIMITER + getLocale(request) + KEY_DELIMITER;
+    }
+
+    @Override
+    public Object get(final ComputedProperty computedProperty, final String keyPrefix, final String cacheId) {
+        final Entry entry;
+
+        synchronized (this) {
+            entry = cache.get(keyPrefix + cacheId);
+        }
+
+        getStatistics(computedProperty)[entry == null ? 1 : 0].incrementAndGet();
+
+        return entry == null ? null : entry.getValue();
+    }
+
+    @Override
+    public void put(final ComputedProperty computedProperty, final String keyPrefix, final String cacheId, final Object value) {
+        final Object shareableValue = toShareableValue(value);
+
+        if (shareableValue == null) {
+            if (value != null && log.isDebugEnabled()) {
+                log.debug("Not caching the value of computed property [ {} ] as its type [ {} ] cannot be shared across requests", computedProperty.getName(), value.getClass().getName());
+            }
+            return;
+        }
+
+        final Entry entry = new Entry(StringUtils.substringBefore(keyPrefix, KEY_DELIMITER), shareableValue);
+
+        synchronized (this) {
+            cache.put(keyPrefix + cacheId, entry);
+        }
+    }
+
+    @Override
+    public void onChange(final List<ResourceChange> changes) {
+        final Set<String> assetPaths = new HashSet<>();
+        boolean tagsChanged = false;
+
+        for (final ResourceChange change : changes) {
+            if (StringUtils.startsWith(change.getPath(), TAGS_ROOT)) {
+                tagsChanged = true;
+                break;
+            }
+
+            assetPaths.add(StringUtils.substringBefore(change.getPath(), JCR_CONTENT));
+        }
+
+        if (tagsChanged) {
+            // Tag titles are not part of the asset, so a change to any tag may change the tag titles of any asset.
+            log.debug("Invalidating all cached computed property values due to changes to tags");
+            invalidations.addAndGet(clearAndCount());
+            return;
+        }
+
+        long count = 0;
+
+        synchronized (this) {
+            final Iterator<Entry> entries = cache.values().iterator();
+
+            while (entries.hasNext()) {
+                final String path = entries.next().getPath();
+
+                // Also handles moves and deletions of folders, which only report the folder.
+                if (assetPaths.contains(path) || assetPaths.stream().anyMatch(assetPath -> StringUtils.startsWith(path, assetPath + "/"))) {
+                    entries.remove();
+                    count++;
+                }
+            }
+        }
+
+        invalidations.addAndGet(count);
+    }
+
+    private String getLocale(final SlingHttpServletRequest request) {
+        if (request == null) {
+            return "";
+        }
+
+        String locale = (String) request.getAttribute(REQUEST_ATTR_LOCALE);
+
+        if (locale == null) {
+            // Mirrors how locale-sensitive computed properties (ie. Tag Titles) select the locale.
+            final ComponentContext componentContext = WCMUtils.getComponentContext(request);
+            final Page currentPage = componentContext != null ? componentContext.getPage() : null;
+            final Locale requestLocale = currentPage == null ? request.getLocale() : currentPage.getLanguage(false);
+
+            locale = requestLocale == null ? "" : requestLocale.toString();
+            request.setAttribute(REQUEST_ATTR_LOCALE, locale);
+        }
+
+        return locale;
+    }
+
+    private AtomicLong[] getStatistics(final ComputedProperty computedProperty) {
+        return statistics.computeIfAbsent(computedProperty.getName(), key -> new AtomicLong[]{ new AtomicLong(), new AtomicLong() });
+    }
+
+    /**
+     * @param value the computed value.
+     * @return an immutable copy of the value, or null if the value cannot be shared safely across requests.
+     */
+    static Object toShareableValue(final Object value) {
+        if (isImmutable(value)) {
+            return value;
+        } else if (value instanceof Collection) {
+            final Collection<?> collection = (Collection<?>) value;
+
+            if (!collection.stream().allMatch(ComputedPropertyValueCacheImpl::isImmutable)) {
+                return null;
+            } else if (value instanceof Set) {
+                return Collections.unmodifiableSet(new LinkedHashSet<>(collection));
+            } else if (value instanceof List) {
+                return Collections.unmodifiableList(new ArrayList<>(collection));
+            }
+        }
+
+        return null;
+    }
+
+    private static boolean isImmutable(final Object value) {
+        return value instanceof String
+                || value instanceof Boolean
+                || value instanceof Enum
+                || value instanceof Long
+                || value instanceof Integer
+                || value instanceof Double
+                || value instanceof Float;
+    }
+
+    private synchronized long clearAndCount() {
+        final long count = cache.size();
+        cache.clear();
+        return count;
+    }
+
+    /** MBean **/
+
+    @Override
+    public synchronized long getSize() {
+        return cache.size();
+    }
+
+    @Override
+    public long getMaxSize() {
+        return cfg.max_entries();
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    @Override
+    public long getInvalidationCount() {
+        return invalidations.get();
+    }
+
+    @Override
+    public TabularData getComputedPropertyStatistics() throws OpenDataException {
+        final CompositeType rowType = new CompositeType("ComputedPropertyCacheStatistics", "Computed property cache statistics", ITEM_NAMES, ITEM_DESCRIPTIONS, ITEM_TYPES);
+        final TabularDataSupport tabularData = new TabularDataSupport(new TabularType("ComputedPropertiesCacheStatistics", "Computed properties cache statistics", rowType, new String[]{ "computedProperty" }));
+
+        for (final Map.Entry<String, AtomicLong[]> entry : new TreeMap<>(statistics).entrySet()) {
+            final long hits = entry.getValue()[0].get();
+            final long misses = entry.getValue()[1].get();
+
+            tabularData.put(new CompositeDataSupport(rowType, ITEM_NAMES, new Object[]{
+                    entry.getKey(), hits, misses, hits + misses == 0 ? 0d : (double) hits / (hits + misses)
+            }));
+        }
+
+        return tabularData;
+    }
+
+    @Override
+    public synchronized void clear() {
+        cache.clear();
+    }
+
+    @Override
+    public void resetStatistics() {
+        statistics.clear();
+        evictions.set(0);
+        invalidations.set(0);
+    }
+
+    @Activate
+    @Modified
+    protected void activate(Cfg cfg) {
+        this.cfg = cfg;
+        this.computedPropertyNames = ImmutableSet.copyOf(cfg.computed_properties());
+
+        final int maxEntries = Math.max(1, cfg.max_entries());
+
+        synchronized (this) {
+            // Access-ordered LinkedHashMap provides the LRU eviction.
+            cache = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<String, Entry> eldest) {
+                    if (size() > maxEntries) {
+                        evictions.incrementAndGet();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+    }
+
+    private static final class Entry {
+        private final String path;
+        private final Object value;
+
+        Entry(final String path, final Object value) {
+            this.path = path;
+            this.value = value;
+        }
+
+        String getPath() {
+            return path;
+        }
+
+        Object getValue() {
+            return value;
+        }
+    }
+
+    @ObjectClassDefinition(name = "Asset Share Commons - Computed Property Value Cache")
+    public @interface Cfg {
+        @AttributeDefinition(
+                name = "Enabled",
+                description = "Enables caching of computed property values across requests."
+        )
+        boolean enabled() default false;
+
+        @AttributeDefinition(
+                name = "Max entries",
+                description = "The maximum number of computed property values to cache. When full, the least recently used value is evicted."
+        )
+        int max_entries() default 20000;
+
+        @AttributeDefinition(
+                name = "Computed properties",
+                description = "The names of the (cachable) computed properties whose values are cached. Only list computed properties whose values depend solely on the asset's stored data, "
+                        + "the locale and tags, as the values are shared between all users and requests."
+        )
+        String[] computed_properties() default {
+                "tagTitles",
+                "smartTagTitles",
+                "resolution",
+                "width",
+                "height",
+                "content-type",
+                "type",
+                "fileExtension"
+        };
+    }
+}
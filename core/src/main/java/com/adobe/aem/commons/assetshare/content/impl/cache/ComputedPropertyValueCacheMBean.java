@@ -0,0 +1,50 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.adobe.aem.commons.assetshare.content.impl.cache;
+
+import com.adobe.granite.jmx.annotation.Description;
+
+import javax.management.openmbean.OpenDataException;
+import javax.management.openmbean.TabularData;
+
+@Description("Asset Share Commons - Computed Property Value Cache")
+public interface ComputedPropertyValueCacheMBean {
+    @Description("Number of cached values")
+    long getSize();
+
+    @Description("Maximum number of cached values")
+    long getMaxSize();
+
+    @Description("Number of values evicted as the cache was full")
+    long getEvictionCount();
+
+    @Description("Number of values invalidated by changes to assets or tags")
+    long getInvalidationCount();
+
+    @Description("Hits and misses per computed property")
+    TabularData getComputedPropertyStatistics() throws OpenDataException;
+
+    @Description("Removes all cached values")
+    void clear();
+
+    @Description("Resets all statistics")
+    void resetStatistics();
+}
@@ -0,0 +1,48 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.adobe.aem.commons.assetshare.content.impl.cache;
+
+import com.day.cq.tagging.Tag;
+import com.day.cq.tagging.TagManager;
+
+import java.util.Locale;
+
+/**
+ * Caches the localized titles of tags across requests, so that a taxonomy shared by all assets is not resolved again for every asset, details page and tags predicate option.
+ * <br>
+ * When caching is disabled, titles are resolved directly, so callers may always use this service.
+ */
+public interface TagTitleCache {
+    /**
+     * @param tagManager the tag manager of the requesting user; used to resolve the tag if its title is not cached.
+     * @param tagId the tag ID (or path) of the tag.
+     * @param locale the locale of the title; may be null for the default title.
+     * @return the title of the tag in the locale, or null if the tag cannot be resolved.
+     */
+    String getTitle(TagManager tagManager, String tagId, Locale locale);
+
+    /**
+     * @param tag the resolved tag.
+     * @param locale the locale of the title; may be null for the default title.
+     * @return the title of the tag in the locale.
+     */
+    String getTitle(Tag tag, Locale locale);
+}
@@ -0,0 +1,324 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.adobe.aem.commons.assetshare.content.impl.cache;
+
+import com.adobe.granite.jmx.annotation.AnnotatedStandardMBean;
+import com.day.cq.tagging.Tag;
+import com.day.cq.tagging.TagConstants;
+import com.day.cq.tagging.TagManager;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.sling.api.resource.observation.ExternalResourceChangeListener;
+import org.apache.sling.api.resource.observation.ResourceChange;
+import org.apache.sling.api.resource.observation.ResourceChangeListener;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Modified;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.DynamicMBean;
+import javax.management.NotCompliantMBeanException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component(
+        service = { TagTitleCache.class, ResourceChangeListener.class, DynamicMBean.class },
+        property = {
+                "jmx.objectname=com.adobe.aem.commons.assetshare:type=Tag Title Cache",
+                ResourceChangeListener.PATHS + "=" + TagTitleCacheImpl.TAGS_ROOT,
+                ResourceChangeListener.CHANGES + "=ADDED",
+                ResourceChangeListener.CHANGES + "=CHANGED",
+                ResourceChangeListener.CHANGES + "=REMOVED"
+        }
+)
+@Designate(ocd = TagTitleCacheImpl.Cfg.class)
+public class TagTitleCacheImpl extends AnnotatedStandardMBean implements TagTitleCache, TagTitleCacheMBean, ResourceChangeListener, ExternalResourceChangeListener {
+    private static final Logger log = LoggerFactory.getLogger(TagTitleCacheImpl.class);
+
+    static final String TAGS_ROOT = "/content/cq:tags";
+
+    private static final String DEFAULT_NAMESPACE = "default";
+
+    private static final char KEY_DELIMITER = '\n';
+
+    // The map entry, the key and title Strings and their backing arrays; the characters themselves are accounted for separately.
+    private static final long ENTRY_OVERHEAD_BYTES = 128;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private Cfg cfg;
+
+    private Map<String, String> cache = new LinkedHashMap<>();
+
+    private long estimatedMemory = 0;
+
+    public TagTitleCacheImpl() throws NotCompliantMBeanException {
+        super(TagTitleCacheMBean.class);
+    }
+
+    @Override
+    public String getTitle(final TagManager tagManager, final String tagId, final Locale locale) {
+        if (!cfg.enabled() || StringUtils.startsWith(tagId, "/")) {
+            // Tags referenced by path are rare, and would be cached separately from the same tag referenced by ID.
+            final Tag tag = tagManager.resolve(tagId);
+            return tag == null ? null : tag.getTitle(locale);
+        }
+
+        final String key = getKey(tagId, locale);
+        final String cached = get(key);
+
+        if (cached != null) {
+            return cached;
+        }
+
+        final Tag tag = tagManager.resolve(tagId);
+
+        if (tag == null) {
+            // Tags that cannot be resolved are not cached, as another user may be able to resolve them.
+            return null;
+        }
+
+        return put(key, tag.getTitle(locale));
+    }
+
+    @Override
+    public String getTitle(final Tag tag, final Locale locale) {
+        if (!cfg.enabled()) {
+            return tag.getTitle(locale);
+        }
+
+        final String key = getKey(tag.getTagID(), locale);
+        final String cached = get(key);
+
+        return cached != null ? cached : put(key, tag.getTitle(locale));
+    }
+
+    private String get(final String key) {
+        final String title;
+
+        synchronized (this) {
+            title = cache.get(key);
+        }
+
+        if (title == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+
+        return title;
+    }
+
+    private String put(final String key, final String title) {
+        if (title != null) {
+            synchronized (this) {
+                final String previous = cache.put(key, title);
+
+                estimatedMemory += getEstimatedMemory(key, title);
+                if (previous != null) {
+                    estimatedMemory -= getEstimatedMemory(key, previous);
+                }
+            }
+        }
+
+        return title;
+    }
+
+    @Override
+    public void onChange(final List<ResourceChange> changes) {
+        for (final ResourceChange change : changes) {
+            final String tagId = toTagId(change.getPath());
+
+            if (tagId == null) {
+                // Ie. the tags root or the default namespace changed, whose tags may be referenced without a namespace.
+                invalidations.addAndGet(clearAndCount());
+                continue;
+            }
+
+            // A change to a tag may also be its move or removal, which affects its descendants.
+            invalidations.addAndGet(invalidate(tagId));
+        }
+    }
+
+    private synchronized long invalidate(final String tagId) {
+        long count = 0;
+        final Iterator<Map.Entry<String, String>> iterator = cache.entrySet().iterator();
+
+        while (iterator.hasNext()) {
+            final Map.Entry<String, String> entry = iterator.next();
+            final String cachedTagId = StringUtils.substringBefore(entry.getKey(), String.valueOf(KEY_DELIMITER));
+
+            if (cachedTagId.equals(tagId) || cachedTagId.startsWith(tagId.endsWith(TagConstants.NAMESPACE_DELIMITER) ? tagId : tagId + TagConstants.SEPARATOR)) {
+                estimatedMemory -= getEstimatedMemory(entry.getKey(), entry.getValue());
+                iterator.remove();
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * @param path the path of a changed resource beneath the tags root.
+     * @return the tag ID of the tag (ie. namespace:parent/tag, or namespace: for a namespace), or null if the change is not to a tag of a namespace other than the default namespace.
+     */
+    static String toTagId(final String path) {
+        final String relativePath = StringUtils.removeStart(path, TAGS_ROOT + "/");
+
+        if (StringUtils.equals(path, relativePath) || StringUtils.isBlank(relativePath)) {
+            return null;
+        }
+
+        // Changes to the properties of a tag (ie. jcr:title.de) are reported against the tag itself.
+        final String namespace = StringUtils.substringBefore(relativePath, "/");
+
+        if (DEFAULT_NAMESPACE.equals(namespace)) {
+            return null;
+        }
+
+        return namespace + TagConstants.NAMESPACE_DELIMITER + StringUtils.substringAfter(relativePath, "/");
+    }
+
+    private String getKey(final String tagId, final Locale locale) {
+        return tagId + KEY_DELIMITER + (locale == null ? "" : locale.toString());
+    }
+
+    private long getEstimatedMemory(final String key, final String title) {
+        return ENTRY_OVERHEAD_BYTES + 2L * (key.length() + title.length());
+    }
+
+    private synchronized long clearAndCount() {
+        final long count = cache.size();
+        cache.clear();
+        estimatedMemory = 0;
+        return count;
+    }
+
+    /** MBean **/
+
+    @Override
+    public synchronized long getSize() {
+        return cache.size();
+    }
+
+    @Override
+    public long getMaxSize() {
+        return cfg.max_entries();
+    }
+
+    @Override
+    public synchronized long getEstimatedMemory() {
+        return estimatedMemory;
+    }
+
+    @Override
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    @Override
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    @Override
+    public double getHitRatio() {
+        final long total = hits.get() + misses.get();
+        return total == 0 ? 0 : (double) hits.get() / total;
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    @Override
+    public long getInvalidationCount() {
+        return invalidations.get();
+    }
+
+    @Override
+    public void clear() {
+        clearAndCount();
+    }
+
+    @Override
+    public void resetStatistics() {
+        hits.set(0);
+        misses.set(0);
+        evictions.set(0);
+        invalidations.set(0);
+    }
+
+    @Activate
+    @Modified
+    protected void activate(Cfg cfg) {
+        this.cfg = cfg;
+
+        final int maxEntries = Math.max(1, cfg.max_entries());
+
+        synchronized (this) {
+            // Access-ordered LinkedHashMap provides the LRU eviction.
+            cache = new LinkedHashMap<String, String>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<String, String> eldest) {
+                    if (size() > maxEntries) {
+                        estimatedMemory -= TagTitleCacheImpl.this.getEstimatedMemory(eldest.getKey(), eldest.getValue());
+                        evictions.incrementAndGet();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+            estimatedMemory = 0;
+        }
+
+        if (log.isDebugEnabled()) {
+            log.debug("Tag title cache [ {} ] with up to [ {} ] entries", cfg.enabled() ? "enabled" : "disabled", maxEntries);
+        }
+    }
+
+    @ObjectClassDefinition(name = "Asset Share Commons - Tag Title Cache")
+    public @interface Cfg {
+        @AttributeDefinition(
+                name = "Enabled",
+                description = "Caches the localized titles of tags across requests and users. Titles are loaded as they are requested, and invalidated when the tags beneath " + TAGS_ROOT + " change. "
+                        + "Only enable this if all users of Asset Share Commons may read the titles of all tags."
+        )
+        boolean enabled() default false;
+
+        @AttributeDefinition(
+                name = "Max entries",
+                description = "The maximum number of titles (per tag and locale) to cache. When full, the least recently used entry is evicted."
+        )
+        int max_entries() default 50000;
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.adobe.aem.commons.assetshare.content.impl.precomputed;
+
+import com.day.cq.dam.api.Asset;
+
+import java.util.Locale;
+
+/**
+ * Implemented by Computed Properties whose values depend on the locale, but not otherwise on the request, so they can be precomputed once per locale.
+ *
+ * @param <T> the type of the computed value.
+ */
+public interface LocalizedComputedProperty<T> {
+    /**
+     * @param asset the asset.
+     * @param locale the locale.
+     * @return the value of the computed property for the asset in the locale.
+     */
+    T get(Asset asset, Locale locale);
+}
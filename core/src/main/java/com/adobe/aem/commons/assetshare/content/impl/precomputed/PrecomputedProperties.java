@@ -0,0 +1,77 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.adobe.aem.commons.assetshare.content.impl.precomputed;
+
+import com.adobe.aem.commons.assetshare.content.properties.ComputedProperty;
+import com.day.cq.dam.api.Asset;
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.resource.PersistenceException;
+import org.apache.sling.api.resource.ValueMap;
+
+/**
+ * Stores the values of Computed Properties that are pure functions of an asset's stored data beneath the asset's metadata node, so they can be read
+ * (and indexed and sorted on by Oak) rather than computed on every render.
+ * <br>
+ * Values are written by the "Asset Share Commons - Precompute computed properties" workflow process, or for existing assets, by the backfill operation
+ * of the Precomputed Properties MBean.
+ */
+public interface PrecomputedProperties {
+    /**
+     * The name of the node, beneath the asset's jcr:content/metadata node, that holds the precomputed values.
+     */
+    String NN_PRECOMPUTED = "ascPrecomputed";
+
+    /**
+     * The asset's last modified time at the time the values were computed; stored values are only used while this matches the asset's last modified time.
+     */
+    String PN_SOURCE_LAST_MODIFIED = "sourceLastModified";
+
+    /**
+     * @param computedProperty the computed property.
+     * @param cacheId the normalized key (see CombinedProperties) the computed property's value is requested by.
+     * @return true if reading precomputed values is enabled, and the value for the key may be precomputed.
+     */
+    boolean accepts(ComputedProperty computedProperty, String cacheId);
+
+    /**
+     * @param asset the asset.
+     * @return the asset's precomputed values, or null if there are none or they were computed before the asset last changed.
+     */
+    ValueMap getPrecomputedValues(Asset asset);
+
+    /**
+     * @param precomputedValues the asset's precomputed values, as returned by {@link #getPrecomputedValues(Asset)}.
+     * @param computedProperty the computed property.
+     * @param cacheId the normalized key the computed property's value is requested by.
+     * @param request the request; used to select the locale of locale-sensitive values. May be null.
+     * @return the precomputed value, or null if the value was not precomputed.
+     */
+    Object get(ValueMap precomputedValues, ComputedProperty computedProperty, String cacheId, SlingHttpServletRequest request);
+
+    /**
+     * Computes and stores the configured computed properties of the asset, using the asset's resource resolver. The changes are not committed.
+     *
+     * @param asset the asset.
+     * @return true if values were written, false if the stored values were already current.
+     * @throws PersistenceException if the values could not be written.
+     */
+    boolean write(Asset asset) throws PersistenceException;
+}
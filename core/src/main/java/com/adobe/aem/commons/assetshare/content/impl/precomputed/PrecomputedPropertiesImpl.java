@@ -0,0 +1,461 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.adobe.aem.commons.assetshare.content.impl.precomputed;
+
+import com.adobe.aem.commons.assetshare.content.properties.ComputedProperties;
+import com.adobe.aem.commons.assetshare.content.properties.ComputedProperty;
+import com.adobe.granite.jmx.annotation.AnnotatedStandardMBean;
+import com.day.cq.commons.jcr.JcrConstants;
+import com.day.cq.dam.api.Asset;
+import com.day.cq.dam.api.DamConstants;
+import com.day.cq.dam.commons.util.DamUtil;
+import com.day.cq.wcm.api.Page;
+import com.day.cq.wcm.api.components.ComponentContext;
+import com.day.cq.wcm.commons.WCMUtils;
+import org.apache.commons.lang3.LocaleUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.resource.LoginException;
+import org.apache.sling.api.resource.ModifiableValueMap;
+import org.apache.sling.api.resource.PersistenceException;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.apache.sling.api.resource.ValueMap;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Modified;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.jcr.query.Query;
+import javax.management.DynamicMBean;
+import javax.management.NotCompliantMBeanException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component(
+        service = { PrecomputedProperties.class, DynamicMBean.class },
+        property = {
+                "jmx.objectname=com.adobe.aem.commons.assetshare:type=Precomputed Properties"
+        }
+)
+@Designate(ocd = PrecomputedPropertiesImpl.Cfg.class)
+public class PrecomputedPropertiesImpl extends AnnotatedStandardMBean implements PrecomputedProperties, PrecomputedPropertiesMBean {
+    private static final Logger log = LoggerFactory.getLogger(PrecomputedPropertiesImpl.class);
+
+    private static final String SERVICE_NAME = "precomputed-properties-writer";
+
+    private static final Map<String, Object> AUTH_INFO = Collections.singletonMap(ResourceResolverFactory.SUBSERVICE, SERVICE_NAME);
+
+    private static final String REL_PATH_METADATA = JcrConstants.JCR_CONTENT + "/" + DamConstants.METADATA_FOLDER;
+
+    private static final String LOCALE_DELIMITER = "_";
+
+    private static final String REQUEST_ATTR_LOCALE = PrecomputedPropertiesImpl.class.getName() + "__locale";
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong backfillVisited = new AtomicLong();
+    private final AtomicLong backfillWritten = new AtomicLong();
+    private final AtomicBoolean backfillRunning = new AtomicBoolean();
+
+    @Reference
+    private transient ResourceResolverFactory resourceResolverFactory;
+
+    @Reference
+    private transient ComputedProperties computedProperties;
+
+    private Cfg cfg;
+
+    private volatile Set<String> computedPropertyNames = Collections.emptySet();
+
+    private volatile List<Locale> locales = Collections.emptyList();
+
+    private volatile boolean backfillCancelled = false;
+
+    // Backfills are serialized on a single thread, so that at most one traverses the repository at a time.
+    private ExecutorService executorService;
+
+    public PrecomputedPropertiesImpl() throws NotCompliantMBeanException {
+        super(PrecomputedPropertiesMBean.class);
+    }
+
+    @Override
+    public boolean accepts(final ComputedProperty computedProperty, final String cacheId) {
+        // Only the unparameterized value of a computed property is precomputed.
+        return cfg.enabled()
+                && computedPropertyNames.contains(computedProperty.getName())
+                && StringUtils.equals(computedProperty.getName(), cacheId);
+    }
+
+    @Override
+    public ValueMap getPrecomputedValues(final Asset asset) {
+        final Resource precomputedResource = asset.adaptTo(Resource.class).getChild(REL_PATH_METADATA + "/" + NN_PRECOMPUTED);
+
+        if (precomputedResource == null || !isCurrent(asset, precomputedResource.getValueMap())) {
+            misses.incrementAndGet();
+            return null;
+        }
+
+        hits.incrementAndGet();
+        return precomputedResource.getValueMap();
+    }
+
+    @Override
+    public Object get(final ValueMap precomputedValues, final ComputedProperty computedProperty, final String cacheId, final SlingHttpServletRequest request) {
+        final String propertyName;
+
+        if (computedProperty instanceof LocalizedComputedProperty) {
+            final Locale locale = getLocale(request);
+            propertyName = locale == null ? null : getPropertyName(computedProperty.getName(), locale);
+        } else {
+            propertyName = computedProperty.getName();
+        }
+
+        if (propertyName == null) {
+            return null;
+        }
+
+        final Object value = precomputedValues.get(propertyName);
+
+        if (value instanceof Object[]) {
+            // Multi-valued values are computed as lists, but stored as arrays.
+            return Collections.unmodifiableList(Arrays.asList((Object[]) value));
+        }
+
+        return value;
+    }
+
+    @Override
+    public boolean write(final Asset asset) throws PersistenceException {
+        final Resource metadataResource = asset.adaptTo(Resource.class).getChild(REL_PATH_METADATA);
+
+        if (metadataResource == null) {
+            return false;
+        }
+
+        final Resource precomputedResource = metadataResource.getChild(NN_PRECOMPUTED);
+
+        if (precomputedResource != null && isCurrent(asset, precomputedResource.getValueMap())) {
+            return false;
+        }
+
+        final Map<String, Object> values = compute(asset);
+        values.put(PN_SOURCE_LAST_MODIFIED, asset.getLastModified());
+
+        if (precomputedResource == null) {
+            values.put(JcrConstants.JCR_PRIMARYTYPE, JcrConstants.NT_UNSTRUCTURED);
+            metadataResource.getResourceResolver().create(metadataResource, NN_PRECOMPUTED, values);
+        } else {
+            final ModifiableValueMap properties = precomputedResource.adaptTo(ModifiableValueMap.class);
+
+            if (properties == null) {
+                throw new PersistenceException(String.format("Cannot modify the precomputed values of asset [ %s ]", asset.getPath()));
+            }
+
+            // Values that are no longer computed (ie. a locale that was removed from the configuration) are removed.
+            for (final String key : new ArrayList<>(properties.keySet())) {
+                if (!values.containsKey(key) && !StringUtils.startsWith(key, "jcr:")) {
+                    properties.remove(key);
+                }
+            }
+
+            properties.putAll(values);
+        }
+
+        return true;
+    }
+
+    private Map<String, Object> compute(final Asset asset) {
+        final Map<String, Object> values = new HashMap<>();
+        final Map<String, ComputedProperty> computedPropertiesByName = computedProperties.getComputedPropertiesByName();
+
+        for (final String name : computedPropertyNames) {
+            final ComputedProperty computedProperty = computedPropertiesByName.get(name);
+
+            if (computedProperty == null) {
+                continue;
+            }
+
+            try {
+                if (computedProperty instanceof LocalizedComputedProperty) {
+                    for (final Locale locale : locales) {
+                        putStorable(values, getPropertyName(name, locale), ((LocalizedComputedProperty<?>) computedProperty).get(asset, locale));
+                    }
+                } else if (computedProperty.accepts(asset, null, name)) {
+                    putStorable(values, name, computedProperty.get(asset, null, ValueMap.EMPTY));
+                }
+            } catch (RuntimeException e) {
+                // Computed properties that require a request cannot be precomputed, and are computed on render instead.
+                log.warn("Could not precompute [ {} ] for asset [ {} ]", name, asset.getPath(), e);
+            }
+        }
+
+        return values;
+    }
+
+    private void putStorable(final Map<String, Object> values, final String propertyName, final Object value) {
+        if (value instanceof Collection) {
+            final List<String> strings = new ArrayList<>();
+            for (final Object item : (Collection<?>) value) {
+                strings.add(String.valueOf(item));
+            }
+            values.put(propertyName, strings.toArray(new String[0]));
+        } else if (value instanceof String || value instanceof Long || value instanceof Boolean
+                || value instanceof Double || value instanceof Calendar) {
+            values.put(propertyName, value);
+        } else if (value instanceof Integer) {
+            values.put(propertyName, ((Integer) value).longValue());
+        } else if (value != null) {
+            log.debug("The value of [ {} ] of type [ {} ] cannot be stored", propertyName, value.getClass().getName());
+        }
+    }
+
+    private boolean isCurrent(final Asset asset, final ValueMap precomputedValues) {
+        final long lastModified = asset.getLastModified();
+        return lastModified > 0 && lastModified == precomputedValues.get(PN_SOURCE_LAST_MODIFIED, 0L);
+    }
+
+    private String getPropertyName(final String name, final Locale locale) {
+        return name + LOCALE_DELIMITER + locale.toString();
+    }
+
+    private Locale getLocale(final SlingHttpServletRequest request) {
+        if (request == null) {
+            return null;
+        }
+
+        Locale locale = (Locale) request.getAttribute(REQUEST_ATTR_LOCALE);
+
+        if (locale == null) {
+            // Mirrors how locale-sensitive computed properties (ie. Tag Titles) select the locale.
+            final ComponentContext componentContext = WCMUtils.getComponentContext(request);
+            final Page currentPage = componentContext != null ? componentContext.getPage() : null;
+
+            locale = currentPage == null ? request.getLocale() : currentPage.getLanguage(false);
+
+            if (locale != null) {
+                request.setAttribute(REQUEST_ATTR_LOCALE, locale);
+            }
+        }
+
+        return locale;
+    }
+
+    private void runBackfill(final String path) {
+        final long start = System.currentTimeMillis();
+        final int batchSize = Math.max(1, cfg.backfill_batch_size());
+
+        try (ResourceResolver resourceResolver = resourceResolverFactory.getServiceResourceResolver(AUTH_INFO)) {
+            final Iterator<Resource> resources = resourceResolver.findResources(
+                    "SELECT * FROM [dam:Asset] AS a WHERE ISDESCENDANTNODE(a, '" + StringUtils.replace(path, "'", "''") + "')",
+                    Query.JCR_SQL2);
+
+            int pending = 0;
+
+            while (resources.hasNext() && !backfillCancelled && !Thread.currentThread().isInterrupted()) {
+                final Asset asset = DamUtil.resolveToAsset(resources.next());
+                backfillVisited.incrementAndGet();
+
+                try {
+                    if (asset != null && write(asset)) {
+                        backfillWritten.incrementAndGet();
+                        pending++;
+                    }
+                } catch (PersistenceException e) {
+                    log.warn("Could not write the precomputed values of asset [ {} ]", asset.getPath(), e);
+                }
+
+                if (pending >= batchSize) {
+                    resourceResolver.commit();
+                    pending = 0;
+                }
+            }
+
+            if (pending > 0) {
+                resourceResolver.commit();
+            }
+
+            log.info("Backfilled the precomputed values of [ {} / {} ] assets beneath [ {} ] in [ {} ms ]",
+                    backfillWritten.get(), backfillVisited.get(), path, System.currentTimeMillis() - start);
+        } catch (LoginException e) {
+            log.error("Could not obtain the Asset Share Commons service user [ {} ]", SERVICE_NAME, e);
+        } catch (PersistenceException e) {
+            log.error("Could not commit the precomputed values of the assets beneath [ {} ]", path, e);
+        }
+    }
+
+    /** MBean **/
+
+    @Override
+    public boolean isEnabled() {
+        return cfg.enabled();
+    }
+
+    @Override
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    @Override
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    @Override
+    public boolean isBackfillRunning() {
+        return backfillRunning.get();
+    }
+
+    @Override
+    public long getBackfillVisitedCount() {
+        return backfillVisited.get();
+    }
+
+    @Override
+    public long getBackfillWrittenCount() {
+        return backfillWritten.get();
+    }
+
+    @Override
+    public String backfill(final String path) {
+        final ExecutorService executor = this.executorService;
+
+        if (!StringUtils.startsWith(path, DamConstants.MOUNTPOINT_ASSETS)) {
+            return String.format("The path [ %s ] must be beneath [ %s ]", path, DamConstants.MOUNTPOINT_ASSETS);
+        } else if (executor == null) {
+            return "The Precomputed Properties service is not active";
+        } else if (!backfillRunning.compareAndSet(false, true)) {
+            return "A backfill is already running";
+        }
+
+        backfillCancelled = false;
+        backfillVisited.set(0);
+        backfillWritten.set(0);
+
+        executor.submit(() -> {
+            try {
+                runBackfill(path);
+            } finally {
+                backfillRunning.set(false);
+            }
+        });
+
+        return String.format("Started the backfill of the assets beneath [ %s ]", path);
+    }
+
+    @Override
+    public void cancelBackfill() {
+        backfillCancelled = true;
+    }
+
+    @Override
+    public void resetStatistics() {
+        hits.set(0);
+        misses.set(0);
+    }
+
+    @Activate
+    @Modified
+    protected void activate(Cfg cfg) {
+        this.cfg = cfg;
+        this.computedPropertyNames = Collections.unmodifiableSet(new LinkedHashSet<>(Arrays.asList(cfg.computed_properties())));
+
+        final List<Locale> tmp = new ArrayList<>();
+        for (final String locale : cfg.locales()) {
+            try {
+                tmp.add(LocaleUtils.toLocale(StringUtils.trim(locale)));
+            } catch (IllegalArgumentException e) {
+                log.warn("Ignoring invalid locale [ {} ]", locale);
+            }
+        }
+        this.locales = Collections.unmodifiableList(tmp);
+
+        if (executorService == null) {
+            executorService = Executors.newSingleThreadExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, "asset-share-commons-precomputed-properties");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    @Deactivate
+    protected void deactivate() {
+        backfillCancelled = true;
+
+        if (executorService != null) {
+            executorService.shutdownNow();
+            executorService = null;
+        }
+    }
+
+    @ObjectClassDefinition(name = "Asset Share Commons - Precomputed Properties")
+    public @interface Cfg {
+        @AttributeDefinition(
+                name = "Enabled",
+                description = "Serves the values of the configured computed properties from the values stored beneath each asset's jcr:content/metadata/" + NN_PRECOMPUTED + " node, while they are current. "
+                        + "Values are written by the 'Asset Share Commons - Precompute computed properties' workflow process, and the backfill operation of the Precomputed Properties MBean, regardless of this setting. "
+                        + "Values are only written on author, where the service user that writes them is provisioned, and reach publish as part of the replicated assets."
+        )
+        boolean enabled() default false;
+
+        @AttributeDefinition(
+                name = "Computed properties",
+                description = "The names of the computed properties to precompute. Only computed properties whose values are derived solely from the asset's stored data may be listed; "
+                        + "ie. Resolution is formatted for the request's locale, and Expired depends on the current time, so neither can be precomputed. "
+                        + "Stored values are current until the asset is modified; changes to tag titles are not picked up until the values are backfilled again."
+        )
+        String[] computed_properties() default { "content-type", "fileExtension", "type", "width", "height", "tagTitles" };
+
+        @AttributeDefinition(
+                name = "Locales",
+                description = "The locales (ie. en, de_CH) locale-sensitive computed properties (ie. Tag Titles) are precomputed for. Requests in other locales compute the value on render."
+        )
+        String[] locales() default { "en" };
+
+        @AttributeDefinition(
+                name = "Backfill batch size",
+                description = "The number of assets whose values are written per commit during a backfill."
+        )
+        int backfill_batch_size() default 200;
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.adobe.aem.commons.assetshare.content.impl.precomputed;
+
+import com.adobe.granite.jmx.annotation.Description;
+import com.adobe.granite.jmx.annotation.Name;
+
+@Description("Asset Share Commons - Precomputed Properties")
+public interface PrecomputedPropertiesMBean {
+    @Description("True if reading precomputed values is enabled")
+    boolean isEnabled();
+
+    @Description("Number of assets whose stored values were current when read")
+    long getHitCount();
+
+    @Description("Number of assets whose stored values were missing or stale when read")
+    long getMissCount();
+
+    @Description("True while a backfill is running")
+    boolean isBackfillRunning();
+
+    @Description("Number of assets visited by the current (or last) backfill")
+    long getBackfillVisitedCount();
+
+    @Description("Number of assets whose values were written by the current (or last) backfill")
+    long getBackfillWrittenCount();
+
+    @Description("Computes and stores the values of all assets beneath the path (ie. /content/dam) whose values are missing or stale, in the background")
+    String backfill(@Name("path") @Description("The folder to backfill") String path);
+
+    @Description("Stops the running backfill after the current batch")
+    void cancelBackfill();
+
+    @Description("Resets the hit/miss counters")
+    void resetStatistics();
+}
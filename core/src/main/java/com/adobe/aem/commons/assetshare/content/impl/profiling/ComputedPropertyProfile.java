@@ -0,0 +1,85 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.adobe.aem.commons.assetshare.content.impl.profiling;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A point-in-time view of the cost of evaluating a Computed Property.
+ * <br>
+ * All evaluations are counted, but only the sampled evaluations contribute to the timings; the total time is estimated from the sampled evaluations.
+ */
+public final class ComputedPropertyProfile {
+    private final String name;
+    private final String className;
+    private final long calls;
+    private final long sampledCalls;
+    private final long sampledNanos;
+    private final long maxNanos;
+    private final long slowCalls;
+
+    ComputedPropertyProfile(final String name, final String className, final long calls, final long sampledCalls,
+                            final long sampledNanos, final long maxNanos, final long slowCalls) {
+        this.name = name;
+        this.className = className;
+        this.calls = calls;
+        this.sampledCalls = sampledCalls;
+        this.sampledNanos = sampledNanos;
+        this.maxNanos = maxNanos;
+        this.slowCalls = slowCalls;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    public long getCalls() {
+        return calls;
+    }
+
+    public long getSampledCalls() {
+        return sampledCalls;
+    }
+
+    public double getAverageMillis() {
+        return sampledCalls == 0 ? 0d : toMillis(sampledNanos) / sampledCalls;
+    }
+
+    public double getMaxMillis() {
+        return toMillis(maxNanos);
+    }
+
+    public double getEstimatedTotalMillis() {
+        return getAverageMillis() * calls;
+    }
+
+    public long getSlowCalls() {
+        return slowCalls;
+    }
+
+    private static double toMillis(final long nanos) {
+        return (double) nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.adobe.aem.commons.assetshare.content.impl.profiling;
+
+import com.adobe.aem.commons.assetshare.content.properties.ComputedProperty;
+import com.day.cq.dam.api.Asset;
+
+import java.util.List;
+
+/**
+ * Collects the cost of evaluating Computed Properties, so that the ones dominating render time can be identified.
+ */
+public interface ComputedPropertyProfiler {
+    /**
+     * @return true if evaluations should be timed and passed to {@link #record(ComputedProperty, Asset, long)}.
+     */
+    boolean isEnabled();
+
+    /**
+     * @param computedProperty the evaluated computed property.
+     * @param asset the asset the computed property was evaluated for.
+     * @param durationNanos the duration of the evaluation, in nanoseconds.
+     */
+    void record(ComputedProperty computedProperty, Asset asset, long durationNanos);
+
+    /**
+     * @return the profiles of the evaluated computed properties, ordered by their estimated total time, most expensive first.
+     */
+    List<ComputedPropertyProfile> getProfiles();
+}
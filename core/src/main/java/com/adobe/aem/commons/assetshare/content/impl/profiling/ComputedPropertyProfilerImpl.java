@@ -0,0 +1,190 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.adobe.aem.commons.assetshare.content.impl.profiling;
+
+import com.adobe.aem.commons.assetshare.content.properties.ComputedProperty;
+import com.adobe.granite.jmx.annotation.AnnotatedStandardMBean;
+import com.day.cq.dam.api.Asset;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Modified;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.DynamicMBean;
+import javax.management.NotCompliantMBeanException;
+import javax.management.openmbean.CompositeDataSupport;
+import javax.management.openmbean.CompositeType;
+import javax.management.openmbean.OpenDataException;
+import javax.management.openmbean.OpenType;
+import javax.management.openmbean.SimpleType;
+import javax.management.openmbean.TabularData;
+import javax.management.openmbean.TabularDataSupport;
+import javax.management.openmbean.TabularType;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+@Component(
+        service = { ComputedPropertyProfiler.class, DynamicMBean.class },
+        property = {
+                "jmx.objectname=com.adobe.aem.commons.assetshare:type=Computed Property Profiler"
+        }
+)
+@Designate(ocd = ComputedPropertyProfilerImpl.Cfg.class)
+public class ComputedPropertyProfilerImpl extends AnnotatedStandardMBean implements ComputedPropertyProfiler, ComputedPropertyProfilerMBean {
+    private static final Logger log = LoggerFactory.getLogger(ComputedPropertyProfilerImpl.class);
+
+    private static final String[] ITEM_NAMES = { "computedProperty", "className", "calls", "sampledCalls", "averageMillis", "maxMillis", "estimatedTotalMillis", "slowCalls" };
+    private static final String[] ITEM_DESCRIPTIONS = { "Computed property name", "Implementation", "Number of evaluations", "Number of timed evaluations",
+            "Average time of the timed evaluations (ms)", "Longest timed evaluation (ms)", "Estimated total time of all evaluations (ms)", "Number of evaluations over the slow threshold" };
+    private static final OpenType<?>[] ITEM_TYPES = { SimpleType.STRING, SimpleType.STRING, SimpleType.LONG, SimpleType.LONG,
+            SimpleType.DOUBLE, SimpleType.DOUBLE, SimpleType.DOUBLE, SimpleType.LONG };
+
+    private final ConcurrentMap<String, Statistics> statistics = new ConcurrentHashMap<>();
+
+    private Cfg cfg;
+
+    private long slowThresholdNanos;
+
+    public ComputedPropertyProfilerImpl() throws NotCompliantMBeanException {
+        super(ComputedPropertyProfilerMBean.class);
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return cfg.enabled();
+    }
+
+    @Override
+    public void record(final ComputedProperty computedProperty, final Asset asset, final long durationNanos) {
+        final Statistics stats = statistics.computeIfAbsent(computedProperty.getName(), name -> new Statistics(computedProperty.getClass().getName()));
+
+        // Counting is cheap, so all evaluations are counted; only the sampled ones update the shared timings.
+        stats.calls.increment();
+
+        if (cfg.sample_rate() <= 1 || ThreadLocalRandom.current().nextInt(cfg.sample_rate()) == 0) {
+            stats.sampledCalls.incrementAndGet();
+            stats.sampledNanos.addAndGet(durationNanos);
+            stats.maxNanos.accumulateAndGet(durationNanos, Math::max);
+        }
+
+        if (slowThresholdNanos > 0 && durationNanos > slowThresholdNanos) {
+            stats.slowCalls.increment();
+            log.warn("Computed property [ {} ] using [ {} ] took [ {} ms ] to evaluate for asset [ {} ]",
+                    computedProperty.getName(), computedProperty.getClass().getName(), TimeUnit.NANOSECONDS.toMillis(durationNanos), asset.getPath());
+        }
+    }
+
+    @Override
+    public List<ComputedPropertyProfile> getProfiles() {
+        final List<ComputedPropertyProfile> profiles = new ArrayList<>();
+
+        statistics.forEach((name, stats) -> profiles.add(new ComputedPropertyProfile(name, stats.className,
+                stats.calls.sum(), stats.sampledCalls.get(), stats.sampledNanos.get(), stats.maxNanos.get(), stats.slowCalls.sum())));
+
+        profiles.sort(Comparator.comparingDouble(ComputedPropertyProfile::getEstimatedTotalMillis).reversed());
+
+        return profiles;
+    }
+
+    /** MBean **/
+
+    @Override
+    public int getSampleRate() {
+        return cfg.sample_rate();
+    }
+
+    @Override
+    public long getSlowThresholdMillis() {
+        return cfg.slow_threshold_ms();
+    }
+
+    @Override
+    public TabularData getComputedPropertyStatistics() throws OpenDataException {
+        final CompositeType rowType = new CompositeType("ComputedPropertyProfile", "Computed property profile", ITEM_NAMES, ITEM_DESCRIPTIONS, ITEM_TYPES);
+        final TabularDataSupport tabularData = new TabularDataSupport(new TabularType("ComputedPropertyProfiles", "Computed property profiles", rowType, new String[]{ "computedProperty" }));
+
+        for (final ComputedPropertyProfile profile : getProfiles()) {
+            tabularData.put(new CompositeDataSupport(rowType, ITEM_NAMES, new Object[]{
+                    profile.getName(), profile.getClassName(), profile.getCalls(), profile.getSampledCalls(),
+                    profile.getAverageMillis(), profile.getMaxMillis(), profile.getEstimatedTotalMillis(), profile.getSlowCalls()
+            }));
+        }
+
+        return tabularData;
+    }
+
+    @Override
+    public void reset() {
+        statistics.clear();
+    }
+
+    @Activate
+    @Modified
+    protected void activate(Cfg cfg) {
+        this.cfg = cfg;
+        this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, cfg.slow_threshold_ms()));
+    }
+
+    private static final class Statistics {
+        private final String className;
+        private final LongAdder calls = new LongAdder();
+        private final AtomicLong sampledCalls = new AtomicLong();
+        private final AtomicLong sampledNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final LongAdder slowCalls = new LongAdder();
+
+        Statistics(final String className) {
+            this.className = className;
+        }
+    }
+
+    @ObjectClassDefinition(name = "Asset Share Commons - Computed Property Profiler")
+    public @interface Cfg {
+        @AttributeDefinition(
+                name = "Enabled",
+                description = "Times the evaluation of computed properties. The profiles are available via JMX and the 'Asset Share Commons - Computed Properties' Web Console page."
+        )
+        boolean enabled() default false;
+
+        @AttributeDefinition(
+                name = "Sample rate",
+                description = "1 in this many evaluations contributes to the timings, to keep the overhead low; all evaluations are counted. Set to 1 to time every evaluation."
+        )
+        int sample_rate() default 10;
+
+        @AttributeDefinition(
+                name = "Slow threshold (in ms)",
+                description = "Any evaluation taking longer than this is logged as a warning, along with the asset's path. Set to 0 to disable."
+        )
+        long slow_threshold_ms() default 100;
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.adobe.aem.commons.assetshare.content.impl.profiling;
+
+import com.adobe.granite.jmx.annotation.Description;
+
+import javax.management.openmbean.OpenDataException;
+import javax.management.openmbean.TabularData;
+
+@Description("Asset Share Commons - Computed Property Profiler")
+public interface ComputedPropertyProfilerMBean {
+    @Description("True if computed property evaluations are profiled")
+    boolean isEnabled();
+
+    @Description("1 in this many evaluations is timed")
+    int getSampleRate();
+
+    @Description("Evaluations taking longer than this (in ms) are logged; 0 if disabled")
+    long getSlowThresholdMillis();
+
+    @Description("The cost of each computed property, most expensive (by estimated total time) first")
+    TabularData getComputedPropertyStatistics() throws OpenDataException;
+
+    @Description("Resets the collected profiles")
+    void reset();
+}
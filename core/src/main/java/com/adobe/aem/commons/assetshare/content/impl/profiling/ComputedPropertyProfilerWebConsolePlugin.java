@@ -0,0 +1,88 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.adobe.aem.commons.assetshare.content.impl.profiling;
+
+import org.apache.sling.xss.XSSAPI;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+
+import javax.servlet.Servlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Lists the computed property profiles, most expensive first, on the Felix Web Console at /system/console/asc-computed-properties.
+ */
+@Component(
+        service = Servlet.class,
+        property = {
+                "felix.webconsole.label=asc-computed-properties",
+                "felix.webconsole.title=Asset Share Commons - Computed Properties",
+                "felix.webconsole.category=Asset Share Commons"
+        }
+)
+public class ComputedPropertyProfilerWebConsolePlugin extends HttpServlet {
+    private static final long serialVersionUID = 1L;
+
+    @Reference
+    private transient ComputedPropertyProfiler computedPropertyProfiler;
+
+    @Reference
+    private transient XSSAPI xssAPI;
+
+    @Override
+    protected void doGet(final HttpServletRequest request, final HttpServletResponse response) throws IOException {
+        response.setContentType("text/html");
+        response.setCharacterEncoding("UTF-8");
+
+        final PrintWriter writer = response.getWriter();
+        final List<ComputedPropertyProfile> profiles = computedPropertyProfiler.getProfiles();
+
+        if (!computedPropertyProfiler.isEnabled()) {
+            writer.println("<p class='statline'>Profiling is disabled; enable it via the 'Asset Share Commons - Computed Property Profiler' OSGi configuration.</p>");
+        }
+
+        writer.println("<table class='nicetable'>");
+        writer.println("<thead><tr><th>Computed property</th><th>Implementation</th><th>Calls</th><th>Sampled calls</th>"
+                + "<th>Average (ms)</th><th>Max (ms)</th><th>Estimated total (ms)</th><th>Slow calls</th></tr></thead>");
+        writer.println("<tbody>");
+
+        for (final ComputedPropertyProfile profile : profiles) {
+            writer.println(String.format(Locale.ENGLISH,
+                    "<tr><td>%s</td><td>%s</td><td>%d</td><td>%d</td><td>%.3f</td><td>%.3f</td><td>%.1f</td><td>%d</td></tr>",
+                    xssAPI.encodeForHTML(profile.getName()), xssAPI.encodeForHTML(profile.getClassName()),
+                    profile.getCalls(), profile.getSampledCalls(), profile.getAverageMillis(), profile.getMaxMillis(),
+                    profile.getEstimatedTotalMillis(), profile.getSlowCalls()));
+        }
+
+        if (profiles.isEmpty()) {
+            writer.println("<tr><td colspan='8'>No computed properties have been profiled.</td></tr>");
+        }
+
+        writer.println("</tbody>");
+        writer.println("</table>");
+    }
+}
@@ -21,7 +21,10 @@ package com.adobe.aem.commons.assetshare.content.properties;
 
 import org.osgi.annotation.versioning.ProviderType;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * This OSGi Service exposes the active list of Computed Properties.
@@ -35,4 +38,19 @@ public interface ComputedProperties {
      * @return a list of the highest ranking (OSGi Service Ranking) Computed Properties by name (ComputedProperty.getName()).
      */
     List<ComputedProperty> getComputedProperties();
+
+    /**
+     * The returned map is immutable, and is intended to be shared by all consumers (ie. every AssetModel), so implementations should return the same instance until the set of Computed Properties changes.
+     *
+     * @return the highest ranking (OSGi Service Ranking) Computed Properties, indexed by name (ComputedProperty.getName()).
+     */
+    default Map<String, ComputedProperty> getComputedPropertiesByName() {
+        final Map<String, ComputedProperty> computedPropertiesByName = new LinkedHashMap<>();
+
+        for (final ComputedProperty computedProperty : getComputedProperties()) {
+            computedPropertiesByName.putIfAbsent(computedProperty.getName(), computedProperty);
+        }
+
+        return Collections.unmodifiableMap(computedPropertiesByName);
+    }
 }
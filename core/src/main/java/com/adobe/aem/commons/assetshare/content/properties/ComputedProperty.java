@@ -24,6 +24,10 @@ import org.apache.sling.api.SlingHttpServletRequest;
 import org.apache.sling.api.resource.ValueMap;
 import org.osgi.annotation.versioning.ConsumerType;
 
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 @ConsumerType
 public interface ComputedProperty<T> {
 
@@ -88,6 +92,29 @@ public interface ComputedProperty<T> {
      */
     default T get(Asset asset, SlingHttpServletRequest request, ValueMap parameters) { return get(asset, request); }
 
+    /**
+     * Declares the computed properties this computed property's value is derived from.
+     * <br>
+     * When evaluated via AssetModel's CombinedProperties, the values of the dependencies are provided to get(asset, request, parameters, dependencies),
+     * and each dependency is computed at most once per asset, regardless of how many computed properties (or templates) request it.
+     *
+     * @return the names of the computed properties this computed property depends on.
+     */
+    default String[] getDependencies() { return new String[0]; }
+
+    /**
+     * Gets the computed value for the asset from the values of the computed properties it depends on (see {@link #getDependencies()}).
+     * <br>
+     * The default implementation ignores the dependencies and calls get(asset, request, parameters).
+     *
+     * @param asset the asset
+     * @param request the request
+     * @param parameters any parameters
+     * @param dependencies the values of the declared dependencies, keyed by computed property name; each value is computed when it is first requested.
+     * @return the computed value.
+     */
+    default T get(Asset asset, SlingHttpServletRequest request, ValueMap parameters, ValueMap dependencies) { return get(asset, request, parameters); }
+
     /**
      * Gets the computed value for the asset.
      *
@@ -114,6 +141,33 @@ public interface ComputedProperty<T> {
      */
      T get(Asset asset);
 
+    /**
+     * Gets the computed values for many assets (ie. all the assets of a page of search results) at once.
+     * <br>
+     * Implement this method if lookups can be shared across assets (ie. resolving the same tags), so the values of all the assets can be computed in one pass.
+     * The default implementation computes the value of each accepted asset, one at a time.
+     *
+     * @param assets the assets
+     * @param request the request
+     * @param parameters any parameters
+     * @return the computed values, keyed by asset path; assets that are not accepted, or have no value, may be omitted.
+     */
+    default Map<String, T> getAll(List<Asset> assets, SlingHttpServletRequest request, ValueMap parameters) {
+        final Map<String, T> values = new LinkedHashMap<>();
+
+        for (final Asset asset : assets) {
+            if (accepts(asset, request, getName())) {
+                final T value = get(asset, request, parameters);
+
+                if (value != null) {
+                    values.put(asset.getPath(), value);
+                }
+            }
+        }
+
+        return values;
+    }
+
      final class Types {
         public static final String METADATA = "metadata";
         public static final String RENDITION = "rendition";
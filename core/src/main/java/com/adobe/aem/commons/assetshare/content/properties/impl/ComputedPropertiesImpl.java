@@ -21,6 +21,8 @@ package com.adobe.aem.commons.assetshare.content.properties.impl;
 
 import com.adobe.aem.commons.assetshare.content.properties.ComputedProperties;
 import com.adobe.aem.commons.assetshare.content.properties.ComputedProperty;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import org.apache.sling.api.wrappers.ValueMapDecorator;
 import org.osgi.framework.Constants;
 import org.osgi.service.component.annotations.Component;
@@ -32,12 +34,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
@@ -59,9 +62,12 @@ public final class ComputedPropertiesImpl implements ComputedProperties {
 
     private final Object lock = new Object();
     private transient Map<ComputedProperty, RankedComputedProperty> allComputedProperties = new ConcurrentHashMap<>();
-    private transient List<ComputedProperty> rankedComputedProperties = new CopyOnWriteArrayList();
+    // Replaced (never modified) when Computed Properties are bound or unbound, so it can be shared by all consumers without copying.
+    private volatile Snapshot snapshot = new Snapshot(Collections.emptyList());
 
     public List<ComputedProperty> getComputedProperties() {
+        final List<ComputedProperty> rankedComputedProperties = snapshot.getComputedProperties();
+
         if (log.isTraceEnabled()) {
             log.trace("Returning this list of highest ranking Computed Properties by label");
             rankedComputedProperties.stream().forEach(computedProperty -> {
@@ -72,6 +78,11 @@ public final class ComputedPropertiesImpl implements ComputedProperties {
         return new ArrayList<>(rankedComputedProperties);
     }
 
+    @Override
+    public Map<String, ComputedProperty> getComputedPropertiesByName() {
+        return snapshot.getComputedPropertiesByName();
+    }
+
     @SuppressWarnings("AEM Rules:AEM-15")
     void bindComputedProperty(ComputedProperty computedProperty, Map<String, Object> props) {
         final RankedComputedProperty rankedComputedProperty = new RankedComputedProperty(computedProperty, props);
@@ -82,7 +93,7 @@ public final class ComputedPropertiesImpl implements ComputedProperties {
         allComputedProperties.put(computedProperty, rankedComputedProperty);
 
         synchronized (lock) {
-            rankedComputedProperties = getHighestRankingByLabel();
+            snapshot = new Snapshot(getHighestRankingByLabel());
         }
     }
 
@@ -96,12 +107,12 @@ public final class ComputedPropertiesImpl implements ComputedProperties {
         allComputedProperties.remove(computedProperty);
 
         synchronized (lock) {
-            rankedComputedProperties = getHighestRankingByLabel();
+            snapshot = new Snapshot(getHighestRankingByLabel());
         }
     }
 
-    private CopyOnWriteArrayList<ComputedProperty> getHighestRankingByLabel() {
-        return new CopyOnWriteArrayList<>(allComputedProperties.values().stream()
+    private List<ComputedProperty> getHighestRankingByLabel() {
+        return ImmutableList.copyOf(allComputedProperties.values().stream()
                 .sorted(Comparator.comparing(RankedComputedProperty::getRank).reversed())
                 .peek(rankedComputedProperty -> log.trace("Computed Property by Rank: [ name: {} ] - [ rank: {} ] - [ label: {} ]",
                         new String[]{ rankedComputedProperty.getName(), String.valueOf(rankedComputedProperty.getRank()), rankedComputedProperty.getComputedProperty().getLabel()}))
@@ -113,6 +124,30 @@ public final class ComputedPropertiesImpl implements ComputedProperties {
                 .collect(Collectors.toList()));
     }
 
+    private static final class Snapshot {
+        private final List<ComputedProperty> computedProperties;
+        private final Map<String, ComputedProperty> computedPropertiesByName;
+
+        Snapshot(final List<ComputedProperty> computedProperties) {
+            final Map<String, ComputedProperty> byName = new LinkedHashMap<>();
+
+            for (final ComputedProperty computedProperty : computedProperties) {
+                byName.putIfAbsent(computedProperty.getName(), computedProperty);
+            }
+
+            this.computedProperties = ImmutableList.copyOf(computedProperties);
+            this.computedPropertiesByName = ImmutableMap.copyOf(byName);
+        }
+
+        List<ComputedProperty> getComputedProperties() {
+            return computedProperties;
+        }
+
+        Map<String, ComputedProperty> getComputedPropertiesByName() {
+            return computedPropertiesByName;
+        }
+    }
+
     private class RankedComputedProperty {
         private final String name;
         private final ComputedProperty computedProperty;
@@ -24,6 +24,8 @@ import com.adobe.aem.commons.assetshare.content.properties.ComputedProperty;
 import com.day.cq.dam.api.Asset;
 import com.day.cq.dam.commons.util.UIHelper;
 import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.resource.ValueMap;
+import org.apache.sling.api.wrappers.ValueMapDecorator;
 import org.osgi.framework.Constants;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
@@ -32,6 +34,9 @@ import org.osgi.service.metatype.annotations.AttributeDefinition;
 import org.osgi.service.metatype.annotations.Designate;
 import org.osgi.service.metatype.annotations.ObjectClassDefinition;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import static com.adobe.aem.commons.assetshare.content.properties.ComputedProperty.DEFAULT_ASC_COMPUTED_PROPERTY_SERVICE_RANKING;
 
 @Component(
@@ -69,16 +74,32 @@ public class ResolutionImpl extends AbstractComputedProperty<String> {
         return cfg.types();
     }
 
+    @Override
+    public String[] getDependencies() {
+        return new String[]{ WidthImpl.NAME, HeightImpl.NAME };
+    }
+
     @Override
     public String get(Asset asset, SlingHttpServletRequest request) {
-        String resolution = "";
+        // CombinedProperties provides the dependencies itself; this serves direct invocations.
+        final Map<String, Object> dependencies = new HashMap<>();
+
         if (width != null && height != null) {
-            Long widthLong = width.get(asset, request);
-            Long heightLong = height.get(asset, request);
-            if (widthLong != null && heightLong != null) {
-                resolution = UIHelper.getResolutionLabel(widthLong, heightLong, request);
-                resolution = resolution.replaceAll(",", "");
-            }
+            dependencies.put(WidthImpl.NAME, width.get(asset, request));
+            dependencies.put(HeightImpl.NAME, height.get(asset, request));
+        }
+
+        return get(asset, request, ValueMap.EMPTY, new ValueMapDecorator(dependencies));
+    }
+
+    @Override
+    public String get(Asset asset, SlingHttpServletRequest request, ValueMap parameters, ValueMap dependencies) {
+        String resolution = "";
+        Long widthLong = dependencies.get(WidthImpl.NAME, Long.class);
+        Long heightLong = dependencies.get(HeightImpl.NAME, Long.class);
+        if (widthLong != null && heightLong != null) {
+            resolution = UIHelper.getResolutionLabel(widthLong, heightLong, request);
+            resolution = resolution.replaceAll(",", "");
         }
 
         return resolution;
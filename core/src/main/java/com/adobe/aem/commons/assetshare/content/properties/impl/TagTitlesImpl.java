@@ -19,26 +19,37 @@
 
 package com.adobe.aem.commons.assetshare.content.properties.impl;
 
+import com.adobe.aem.commons.assetshare.content.impl.cache.TagTitleCache;
+import com.adobe.aem.commons.assetshare.content.impl.precomputed.LocalizedComputedProperty;
 import com.adobe.aem.commons.assetshare.content.properties.AbstractComputedProperty;
 import com.adobe.aem.commons.assetshare.content.properties.ComputedProperty;
 import com.day.cq.dam.api.Asset;
 import com.day.cq.tagging.Tag;
+import com.day.cq.tagging.TagConstants;
 import com.day.cq.tagging.TagManager;
 import com.day.cq.wcm.api.Page;
 import com.day.cq.wcm.api.components.ComponentContext;
 import org.apache.sling.api.SlingHttpServletRequest;
 import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ValueMap;
 import org.osgi.framework.Constants;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferenceCardinality;
+import org.osgi.service.component.annotations.ReferencePolicy;
 import org.osgi.service.metatype.annotations.AttributeDefinition;
 import org.osgi.service.metatype.annotations.Designate;
 import org.osgi.service.metatype.annotations.ObjectClassDefinition;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
 
 import static com.adobe.aem.commons.assetshare.content.properties.ComputedProperty.DEFAULT_ASC_COMPUTED_PROPERTY_SERVICE_RANKING;
 
@@ -49,11 +60,14 @@ import static com.adobe.aem.commons.assetshare.content.properties.ComputedProper
         }
 )
 @Designate(ocd = TagTitlesImpl.Cfg.class)
-public class TagTitlesImpl extends AbstractComputedProperty<List<String>> {
+public class TagTitlesImpl extends AbstractComputedProperty<List<String>> implements LocalizedComputedProperty<List<String>> {
     public static final String LABEL = "Tag Titles";
     public static final String NAME = "tagTitles";
     private Cfg cfg;
 
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL, policy = ReferencePolicy.DYNAMIC)
+    private volatile TagTitleCache tagTitleCache;
+
     @Override
     public String getName() {
         return NAME;
@@ -71,23 +85,23 @@ public class TagTitlesImpl extends AbstractComputedProperty<List<String>> {
 
     @Override
     public List<String> get(Asset asset, SlingHttpServletRequest request) {
+        return get(asset, getLocale(request));
+    }
+
+    @Override
+    public List<String> get(Asset asset, Locale locale) {
         final List<String> tagLabels = new ArrayList<>();
-        final Resource metadataResource = asset.adaptTo(Resource.class).getChild("jcr:content/metadata");
-        final TagManager tagManager = metadataResource.getResourceResolver().adaptTo(TagManager.class);
+        final TagManager tagManager = asset.adaptTo(Resource.class).getResourceResolver().adaptTo(TagManager.class);
 
-        if (metadataResource == null || tagManager == null) {
+        if (tagManager == null) {
             return tagLabels;
         }
 
-        final Tag[] tags = tagManager.getTags(metadataResource);
+        for (final String tagId : getMetadataProperties(asset).get(TagConstants.PN_TAGS, new String[0])) {
+            final String title = getTitle(tagManager, tagId, locale);
 
-        if (tags != null) {
-            final ComponentContext componentContext = getComponentContext(request);
-            final Page currentPage = componentContext != null ? componentContext.getPage() : null;
-            final Locale locale = currentPage == null ? request.getLocale() : currentPage.getLanguage(false);
-
-            for (final Tag tag : tags) {
-                tagLabels.add(tag.getTitle(locale));
+            if (title != null) {
+                tagLabels.add(title);
             }
         }
 
@@ -96,6 +110,58 @@ public class TagTitlesImpl extends AbstractComputedProperty<List<String>> {
         return tagLabels;
     }
 
+    /**
+     * Resolves each distinct tag once for all the assets, rather than once per asset.
+     */
+    @Override
+    public Map<String, List<String>> getAll(List<Asset> assets, SlingHttpServletRequest request, ValueMap parameters) {
+        final Map<String, List<String>> values = new LinkedHashMap<>();
+
+        if (assets.isEmpty()) {
+            return values;
+        }
+
+        final TagManager tagManager = assets.get(0).adaptTo(Resource.class).getResourceResolver().adaptTo(TagManager.class);
+
+        if (tagManager == null) {
+            return values;
+        }
+
+        final Locale locale = getLocale(request);
+        final Map<String, Optional<String>> tagTitles = new HashMap<>();
+
+        for (final Asset asset : assets) {
+            final String[] tagIds = getMetadataProperties(asset).get(TagConstants.PN_TAGS, new String[0]);
+            final List<String> tagLabels = new ArrayList<>(tagIds.length);
+
+            for (final String tagId : tagIds) {
+                tagTitles.computeIfAbsent(tagId, key -> Optional.ofNullable(getTitle(tagManager, key, locale))).ifPresent(tagLabels::add);
+            }
+
+            Collections.sort(tagLabels);
+            values.put(asset.getPath(), tagLabels);
+        }
+
+        return values;
+    }
+
+    private String getTitle(TagManager tagManager, String tagId, Locale locale) {
+        final TagTitleCache cache = tagTitleCache;
+
+        if (cache != null) {
+            return cache.getTitle(tagManager, tagId, locale);
+        }
+
+        final Tag tag = tagManager.resolve(tagId);
+        return tag == null ? null : tag.getTitle(locale);
+    }
+
+    private Locale getLocale(SlingHttpServletRequest request) {
+        final ComponentContext componentContext = getComponentContext(request);
+        final Page currentPage = componentContext != null ? componentContext.getPage() : null;
+        return currentPage == null ? request.getLocale() : currentPage.getLanguage(false);
+    }
+
     @Activate
     protected void activate(Cfg cfg) {
         this.cfg = cfg;
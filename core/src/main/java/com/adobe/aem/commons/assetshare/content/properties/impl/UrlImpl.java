@@ -24,6 +24,8 @@ import com.adobe.aem.commons.assetshare.content.properties.ComputedProperty;
 import com.day.cq.dam.api.Asset;
 import com.day.text.Text;
 import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.resource.ValueMap;
+import org.apache.sling.api.wrappers.ValueMapDecorator;
 import org.osgi.framework.Constants;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
@@ -32,12 +34,15 @@ import org.osgi.service.metatype.annotations.AttributeDefinition;
 import org.osgi.service.metatype.annotations.Designate;
 import org.osgi.service.metatype.annotations.ObjectClassDefinition;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import static com.adobe.aem.commons.assetshare.content.properties.ComputedProperty.DEFAULT_ASC_COMPUTED_PROPERTY_SERVICE_RANKING;
 
 /**
  * This Computed Property returns a escaped path usable as a URL for the asset.
  **
- * The asset path is collected via the PathImpl Computed Property.
+ * The asset path is collected via the Path Computed Property, which this declares as its dependency.
  */
 @Component(
         service = ComputedProperty.class,
@@ -69,11 +74,25 @@ public class UrlImpl extends AbstractComputedProperty<String> {
         return cfg.types();
     }
 
+    @Override
+    public String[] getDependencies() {
+        return new String[]{ PathImpl.NAME };
+    }
+
     @Override
     public String get(final Asset asset, final SlingHttpServletRequest request) {
-        final String path = pathComputedProperty.get(asset, request);
+        // CombinedProperties provides the dependencies itself; this serves direct invocations.
+        final Map<String, Object> dependencies = new HashMap<>();
+        dependencies.put(PathImpl.NAME, pathComputedProperty.get(asset, request));
+
+        return get(asset, request, ValueMap.EMPTY, new ValueMapDecorator(dependencies));
+    }
+
+    @Override
+    public String get(final Asset asset, final SlingHttpServletRequest request, final ValueMap parameters, final ValueMap dependencies) {
+        final String path = dependencies.get(PathImpl.NAME, String.class);
 
-        return Text.escapePath(path);
+        return path == null ? null : Text.escapePath(path);
     }
 
     @Activate
@@ -14,7 +14,7 @@
  *
  */
 
-@Version("1.3.0")
+@Version("1.6.0")
 package com.adobe.aem.commons.assetshare.content.properties;
 
 import org.osgi.annotation.versioning.Version;
@@ -22,6 +22,7 @@ package com.adobe.aem.commons.assetshare.content.renditions;
 import org.osgi.annotation.versioning.ProviderType;
 
 import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  *
@@ -33,6 +34,18 @@ public interface AssetRenditionDispatchers {
      */
     List<AssetRenditionDispatcher> getAssetRenditionDispatchers();
 
+    /**
+     * The returned AssetRenditionDispatchers are only candidates; callers must still check {@link AssetRenditionDispatcher#accepts(com.adobe.aem.commons.assetshare.content.AssetModel, String)} before dispatching.
+     *
+     * @param renditionName the asset rendition name.
+     * @return a list of the registered AssetRenditionDispatchers whose rendition names include the provided rendition name, ordered in Descending order by service.ranking.
+     */
+    default List<AssetRenditionDispatcher> getAssetRenditionDispatchers(String renditionName) {
+        return getAssetRenditionDispatchers().stream()
+                .filter(dispatcher -> dispatcher.getRenditionNames() != null && dispatcher.getRenditionNames().contains(renditionName))
+                .collect(Collectors.toList());
+    }
+
     /**
      * Checks if the provided asset rendition name is a valid, registered asset rendition.
      * @param name the asset rendition name.
@@ -108,8 +108,10 @@ public class AssetRenditionStreamerImpl implements AssetRenditionStreamer {
                 new StringWriter(),
                 new ByteArrayOutputStream());
 
-        for (final AssetRenditionDispatcher assetRenditionDispatcher : assetRenditionDispatchers.getAssetRenditionDispatchers()) {
-            if (acceptedByAssetRenditionDispatcher(assetRenditionDispatcher, new AssetRenditionParameters(assetRenditionRequest))) {
+        final AssetRenditionParameters parameters = new AssetRenditionParameters(assetRenditionRequest);
+
+        for (final AssetRenditionDispatcher assetRenditionDispatcher : assetRenditionDispatchers.getAssetRenditionDispatchers(parameters.getRenditionName())) {
+            if (acceptedByAssetRenditionDispatcher(assetRenditionDispatcher, parameters)) {
                 assetRenditionDispatcher.dispatch(assetRenditionRequest, assetRenditionResponse);
                 break;
             }
@@ -22,6 +22,7 @@ package com.adobe.aem.commons.assetshare.content.renditions.impl;
 import com.adobe.aem.commons.assetshare.content.renditions.AssetRenditionDispatcher;
 import com.adobe.aem.commons.assetshare.content.renditions.AssetRenditionDispatchers;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import org.apache.sling.commons.osgi.Order;
 import org.apache.sling.commons.osgi.RankedServices;
 import org.osgi.service.component.annotations.Component;
@@ -33,9 +34,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 
 @Component(
         reference = {
@@ -55,35 +56,93 @@ public class AssetRenditionDispatchersImpl implements AssetRenditionDispatchers
 
     private final RankedServices<AssetRenditionDispatcher> assetRenditionDispatchers = new RankedServices<>(Order.DESCENDING);
 
+    // Rebuilt on every bind/unbind, so lookups on the request path never copy or scan the ranked dispatchers.
+    private volatile RoutingTable routingTable = RoutingTable.EMPTY;
+
     protected void bindAssetRenditionDispatcher(AssetRenditionDispatcher service, Map<String, Object> props) {
         if (log.isDebugEnabled()) {
             log.debug("Binding AssetRenditionDispatcher [ {} ]", service.getClass().getName());
         }
-        assetRenditionDispatchers.bind(service, props);
+        synchronized (assetRenditionDispatchers) {
+            assetRenditionDispatchers.bind(service, props);
+            routingTable = new RoutingTable(assetRenditionDispatchers.getList());
+        }
     }
 
     protected void unbindAssetRenditionDispatcher(AssetRenditionDispatcher service, Map<String, Object> props) {
         if (log.isDebugEnabled()) {
             log.debug("Unbinding AssetRenditionDispatcher [ {} ]", service.getClass().getName());
         }
-        assetRenditionDispatchers.unbind(service, props);
+        synchronized (assetRenditionDispatchers) {
+            assetRenditionDispatchers.unbind(service, props);
+            routingTable = new RoutingTable(assetRenditionDispatchers.getList());
+        }
     }
 
     @Override
     public List<AssetRenditionDispatcher> getAssetRenditionDispatchers() {
-        if (assetRenditionDispatchers == null || assetRenditionDispatchers.getList() == null) {
-            return Collections.EMPTY_LIST;
-        } else {
-            return ImmutableList.copyOf(assetRenditionDispatchers.getList());
-        }
+        return routingTable.getAssetRenditionDispatchers();
+    }
+
+    @Override
+    public List<AssetRenditionDispatcher> getAssetRenditionDispatchers(final String renditionName) {
+        return routingTable.getAssetRenditionDispatchers(renditionName);
     }
 
     @Override
     public boolean isValidAssetRenditionName(final String name) {
-        final Optional<AssetRenditionDispatcher> found = getAssetRenditionDispatchers().stream()
-                .filter(dispatcher -> dispatcher.getRenditionNames().contains(name))
-                .findAny();
+        return routingTable.contains(name);
+    }
+
+    /**
+     * An immutable snapshot of the ranked AssetRenditionDispatchers, and of the ranked AssetRenditionDispatchers that handle each rendition name.
+     */
+    private static final class RoutingTable {
+        static final RoutingTable EMPTY = new RoutingTable(Collections.emptyList());
+
+        private final List<AssetRenditionDispatcher> all;
+        private final Map<String, List<AssetRenditionDispatcher>> byRenditionName;
+
+        RoutingTable(final List<AssetRenditionDispatcher> rankedAssetRenditionDispatchers) {
+            final Map<String, ImmutableList.Builder<AssetRenditionDispatcher>> builders = new LinkedHashMap<>();
 
-        return found.isPresent();
+            if (rankedAssetRenditionDispatchers == null) {
+                this.all = ImmutableList.of();
+            } else {
+                this.all = ImmutableList.copyOf(rankedAssetRenditionDispatchers);
+            }
+
+            for (final AssetRenditionDispatcher assetRenditionDispatcher : all) {
+                if (assetRenditionDispatcher.getRenditionNames() == null) {
+                    continue;
+                }
+
+                for (final String renditionName : assetRenditionDispatcher.getRenditionNames()) {
+                    if (renditionName != null) {
+                        builders.computeIfAbsent(renditionName, key -> ImmutableList.builder()).add(assetRenditionDispatcher);
+                    }
+                }
+            }
+
+            final ImmutableMap.Builder<String, List<AssetRenditionDispatcher>> byRenditionNameBuilder = ImmutableMap.builder();
+            builders.forEach((renditionName, builder) -> byRenditionNameBuilder.put(renditionName, builder.build()));
+            this.byRenditionName = byRenditionNameBuilder.build();
+        }
+
+        List<AssetRenditionDispatcher> getAssetRenditionDispatchers() {
+            return all;
+        }
+
+        List<AssetRenditionDispatcher> getAssetRenditionDispatchers(final String renditionName) {
+            if (renditionName == null) {
+                return ImmutableList.of();
+            }
+
+            return byRenditionName.getOrDefault(renditionName, ImmutableList.of());
+        }
+
+        boolean contains(final String renditionName) {
+            return renditionName != null && byRenditionName.containsKey(renditionName);
+        }
     }
 }
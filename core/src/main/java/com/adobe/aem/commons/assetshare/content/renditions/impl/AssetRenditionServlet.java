@@ -46,6 +46,7 @@ import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -102,12 +103,14 @@ public class AssetRenditionServlet extends SlingSafeMethodsServlet {
                     return;
                 }
 
+                final List<AssetRenditionDispatcher> candidates = assetRenditionDispatchers.getAssetRenditionDispatchers(parameters.getRenditionName());
+
                 if (log.isDebugEnabled()) {
                     log.debug("Looking for first accepting AssetRenditionDispatcher from ordered list of [ {} ] to dispatch asset [ {} ]",
-                        assetRenditionDispatchers.getAssetRenditionDispatchers().stream().map(AssetRenditionDispatcher::getName).collect(Collectors.joining(", ")), assetModel.getPath());
+                        candidates.stream().map(AssetRenditionDispatcher::getName).collect(Collectors.joining(", ")), assetModel.getPath());
                 }
 
-                for (final AssetRenditionDispatcher assetRenditionDispatcher : assetRenditionDispatchers.getAssetRenditionDispatchers()) {
+                for (final AssetRenditionDispatcher assetRenditionDispatcher : candidates) {
                     if (acceptedByAssetRenditionDispatcher(request, assetModel, assetRenditionDispatcher, parameters)) {
                         if (log.isDebugEnabled()) {
                             log.debug("Asset Rendition Dispatcher [ {} ] accepted for asset [ {} ]", assetRenditionDispatcher.getName(), assetModel.getPath());
@@ -52,4 +52,13 @@ public interface Search {
      * @return the {@link Results} object, that represents the results of the search. {@link Results} contains a list of all results as well as heuristics and other metadata about the search.
      */
     Results getResults();
+
+    /**
+     * The canonical URL requests the results of this search via a cacheable GET URL that does not depend on parameter order or on parameters that do not affect the results.
+     *
+     * @return the canonical URL of this search's results, or null if canonical search URLs are not enabled (or this search has none).
+     */
+    default String getCanonicalUrl() {
+        return null;
+    }
 }
@@ -23,6 +23,10 @@ import com.adobe.aem.commons.assetshare.components.search.SearchConfig;
 import com.adobe.aem.commons.assetshare.search.Constants;
 import com.adobe.aem.commons.assetshare.search.Search;
 import com.adobe.aem.commons.assetshare.search.UnsafeSearchException;
+import com.adobe.aem.commons.assetshare.search.impl.canonical.CanonicalSearchUrls;
+import com.adobe.aem.commons.assetshare.search.impl.metrics.SearchMetrics;
+import com.adobe.aem.commons.assetshare.search.impl.metrics.SearchPhase;
+import com.adobe.aem.commons.assetshare.search.impl.metrics.SearchTimings;
 import com.adobe.aem.commons.assetshare.search.providers.SearchProvider;
 import com.adobe.aem.commons.assetshare.search.results.Results;
 import com.adobe.aem.commons.assetshare.search.results.impl.results.EmptyResultsImpl;
@@ -33,6 +37,7 @@ import org.apache.sling.api.SlingHttpServletRequest;
 import org.apache.sling.api.resource.Resource;
 import org.apache.sling.api.resource.ValueMap;
 import org.apache.sling.models.annotations.Model;
+import org.apache.sling.models.annotations.injectorspecific.InjectionStrategy;
 import org.apache.sling.models.annotations.Required;
 import org.apache.sling.models.annotations.injectorspecific.OSGiService;
 import org.apache.sling.models.annotations.injectorspecific.ScriptVariable;
@@ -60,6 +65,12 @@ public class SearchImpl implements Search {
     @OSGiService
     List<SearchProvider> searchProviders;
 
+    @OSGiService(injectionStrategy = InjectionStrategy.OPTIONAL)
+    private SearchMetrics searchMetrics;
+
+    @OSGiService(injectionStrategy = InjectionStrategy.OPTIONAL)
+    private CanonicalSearchUrls canonicalSearchUrls;
+
     @Self
     @Required
     private SlingHttpServletRequest request;
@@ -93,6 +104,9 @@ public class SearchImpl implements Search {
 
             for (final SearchProvider searchProvider : searchProviders) {
                 if (searchProvider.accepts(request)) {
+                    final SearchTimings searchTimings = SearchTimings.start(request, searchProvider.getClass().getSimpleName());
+                    final long searchStart = searchTimings.start();
+
                     try {
                         results = searchProvider.getResults(request);
                     } catch (UnsafeSearchException e) {
@@ -101,6 +115,12 @@ public class SearchImpl implements Search {
                     } catch (RepositoryException e) {
                         log.error("An issue occurred while executing the query. Returning zero results.", e);
                         results = Results.ERRING_RESULTS;
+                    } finally {
+                        searchTimings.stop(SearchPhase.SEARCH, searchStart);
+
+                        if (searchMetrics != null) {
+                            searchMetrics.record(request, searchTimings);
+                        }
                     }
                     break;
                 }
@@ -123,4 +143,13 @@ public class SearchImpl implements Search {
 
         return StringUtils.defaultIfBlank(value, searchConfig.getLayout());
     }
+
+    @Override
+    public String getCanonicalUrl() {
+        if (canonicalSearchUrls == null || !canonicalSearchUrls.isEnabled()) {
+            return null;
+        }
+
+        return canonicalSearchUrls.getUrl(currentPage.getPath(), request.getParameterMap());
+    }
 }
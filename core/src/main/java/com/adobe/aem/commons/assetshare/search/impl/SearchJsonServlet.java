@@ -0,0 +1,269 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.adobe.aem.commons.assetshare.search.impl;
+
+import com.adobe.aem.commons.assetshare.content.properties.ComputedProperties;
+import com.adobe.aem.commons.assetshare.search.Search;
+import com.adobe.aem.commons.assetshare.search.providers.impl.QuerySearchProviderImpl;
+import com.adobe.aem.commons.assetshare.search.results.AssetResult;
+import com.adobe.aem.commons.assetshare.search.results.Result;
+import com.adobe.aem.commons.assetshare.search.results.Results;
+import com.adobe.aem.commons.assetshare.util.ServletHelper;
+import com.google.common.collect.ImmutableList;
+import com.google.gson.stream.JsonWriter;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.jackrabbit.util.ISO8601;
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.SlingHttpServletResponse;
+import org.apache.sling.api.servlets.SlingSafeMethodsServlet;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Modified;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.Servlet;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Exposes the search of a Search Results component as JSON, ie. /content/asset-share-commons/en/light/jcr:content/root/search-results.search.json?fulltext=cats&amp;fields=title,thumbnail
+ * <br>
+ * The search is executed using the same SearchProvider chain, and accepts the same parameters, as the HTML search results. Hits are adapted one at a time and written straight to the response as they are read,
+ * and only the CombinedProperties keys listed in the fields parameter are computed for each asset; this keeps large result sets (ie. exports) in constant memory.
+ * <br>
+ * The fields parameter is supplied by the client, so only the names of registered computed properties and of the configured properties are accepted.
+ */
+@Component(service = Servlet.class,
+        property = {
+                "sling.servlet.methods=GET",
+                "sling.servlet.resourceTypes=" + SearchJsonServlet.RESOURCE_TYPE,
+                "sling.servlet.selectors=" + SearchJsonServlet.SELECTOR,
+                "sling.servlet.extensions=json"
+        }
+)
+@Designate(ocd = SearchJsonServlet.Cfg.class)
+public class SearchJsonServlet extends SlingSafeMethodsServlet {
+    private static final Logger log = LoggerFactory.getLogger(SearchJsonServlet.class);
+
+    protected static final String RESOURCE_TYPE = "asset-share-commons/components/search/results";
+    protected static final String SELECTOR = "search";
+
+    public static final String FIELDS_PARAMETER = "fields";
+    protected static final List<String> DEFAULT_FIELDS = ImmutableList.of("path", "title");
+
+    @Reference
+    private transient ServletHelper servletHelper;
+
+    @Reference
+    private transient ComputedProperties computedProperties;
+
+    private transient Cfg cfg;
+
+    private transient Set<String> allowedProperties;
+
+    @Override
+    protected final void doGet(final SlingHttpServletRequest request, final SlingHttpServletResponse response) throws IOException {
+        // Models such as Search and SearchConfig are written for use from HTL, so the bindings HTL would provide are added to the request.
+        servletHelper.addWcmBindings(request, response);
+
+        // Only hit paths are held by the search; each hit is adapted as it is written.
+        request.setAttribute(QuerySearchProviderImpl.REQUEST_ATTR_ADAPTATION_LAZY, true);
+
+        final Search search = request.adaptTo(Search.class);
+
+        if (search == null) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "The resource does not resolve to a search.");
+            return;
+        }
+
+        final Results results = search.getResults();
+        final List<String> fields = getFields(request);
+
+        response.setContentType("application/json");
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+
+        if (Results.Status.ERROR.equals(results.getStatus())) {
+            response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+        }
+
+        final JsonWriter json = new JsonWriter(response.getWriter());
+
+        json.beginObject();
+        json.name("status").value(String.valueOf(results.getStatus()));
+        json.name("total").value(results.getTotal());
+        json.name("runningTotal").value(results.getRunningTotal());
+        json.name("more").value(results.isMore());
+        json.name("nextOffset").value(results.getNextOffset());
+        if (results.getNextCursor() != null) {
+            json.name("nextCursor").value(results.getNextCursor());
+        }
+        json.name("timeTaken").value(results.getTimeTaken());
+
+        json.name("results").beginArray();
+        for (final Result result : results.getResults()) {
+            if (result instanceof AssetResult) {
+                writeResult(json, (AssetResult) result, fields);
+            }
+        }
+        json.endArray();
+
+        json.endObject();
+        json.flush();
+    }
+
+    private void writeResult(final JsonWriter json, final AssetResult assetResult, final List<String> fields) throws IOException {
+        json.beginObject();
+
+        for (final String field : fields) {
+            final Object value;
+
+            try {
+                value = assetResult.getProperties().get(field);
+            } catch (RuntimeException e) {
+                // A failing computed property must not truncate the response mid-stream.
+                log.warn("Could not compute field [ {} ] for asset [ {} ]", field, assetResult.getPath(), e);
+                continue;
+            }
+
+            json.name(field);
+            writeValue(json, value);
+        }
+
+        json.endObject();
+    }
+
+    private void writeValue(final JsonWriter json, final Object value) throws IOException {
+        if (value == null) {
+            json.nullValue();
+        } else if (value instanceof Boolean) {
+            json.value((Boolean) value);
+        } else if (value instanceof Number) {
+            json.value((Number) value);
+        } else if (value instanceof Calendar) {
+            json.value(ISO8601.format((Calendar) value));
+        } else if (value instanceof Date) {
+            final Calendar calendar = Calendar.getInstance();
+            calendar.setTime((Date) value);
+            json.value(ISO8601.format(calendar));
+        } else if (value.getClass().isArray()) {
+            json.beginArray();
+            for (int i = 0; i < Array.getLength(value); i++) {
+                writeValue(json, Array.get(value, i));
+            }
+            json.endArray();
+        } else if (value instanceof Collection) {
+            json.beginArray();
+            for (final Object item : (Collection<?>) value) {
+                writeValue(json, item);
+            }
+            json.endArray();
+        } else {
+            json.value(value.toString());
+        }
+    }
+
+    /**
+     * @param request the request.
+     * @return the de-duplicated, allowed fields requested via the fields parameter (up to the configured maximum), or the default fields if none are requested.
+     */
+    protected List<String> getFields(final SlingHttpServletRequest request) {
+        final String[] values = request.getParameterValues(FIELDS_PARAMETER);
+
+        if (values == null) {
+            return DEFAULT_FIELDS;
+        }
+
+        final Set<String> fields = Arrays.stream(values)
+                .flatMap(value -> Arrays.stream(StringUtils.split(value, ",")))
+                .map(StringUtils::trimToNull)
+                .filter(Objects::nonNull)
+                .filter(this::isAllowedField)
+                .limit(Math.max(1, cfg.max_fields()))
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+
+        return fields.isEmpty() ? DEFAULT_FIELDS : new ArrayList<>(fields);
+    }
+
+    /**
+     * @param field the requested field.
+     * @return true if the field is a (optionally parameterized) registered computed property, or one of the configured properties.
+     */
+    private boolean isAllowedField(final String field) {
+        final String name = StringUtils.substringBefore(field, "?");
+
+        if (computedProperties.getComputedPropertiesByName().containsKey(name)) {
+            return true;
+        } else if (allowedProperties.contains(field)) {
+            return true;
+        }
+
+        log.debug("Ignoring requested field [ {} ] as it is neither a computed property nor an allowed property", field);
+        return false;
+    }
+
+    @Activate
+    @Modified
+    protected void activate(Cfg cfg) {
+        this.cfg = cfg;
+        this.allowedProperties = cfg.allowed_properties() != null ? new HashSet<>(Arrays.asList(cfg.allowed_properties())) : Collections.emptySet();
+    }
+
+    @ObjectClassDefinition(name = "Asset Share Commons - Search JSON Servlet")
+    public @interface Cfg {
+        @AttributeDefinition(
+                name = "Allowed properties",
+                description = "The asset and metadata property names (ie. dc:title) that may be requested via the fields parameter, in addition to the names of the registered computed properties."
+        )
+        String[] allowed_properties() default {
+                "dc:title",
+                "dc:description",
+                "dc:format",
+                "dam:size",
+                "jcr:created",
+                "jcr:lastModified"
+        };
+
+        @AttributeDefinition(
+                name = "Max fields",
+                description = "The maximum number of fields a single request may ask for. Further fields are ignored."
+        )
+        int max_fields() default 25;
+    }
+}
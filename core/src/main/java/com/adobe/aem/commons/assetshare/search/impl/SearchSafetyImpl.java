@@ -20,15 +20,81 @@
 package com.adobe.aem.commons.assetshare.search.impl;
 
 import com.adobe.aem.commons.assetshare.search.SearchSafety;
+import com.adobe.aem.commons.assetshare.search.providers.impl.cache.CanonicalQuery;
+import com.adobe.granite.jmx.annotation.AnnotatedStandardMBean;
+import com.day.cq.search.Predicate;
 import com.day.cq.search.PredicateGroup;
+import com.day.cq.search.Query;
+import com.day.cq.search.QueryBuilder;
+import com.day.cq.search.result.Hit;
+import com.day.cq.search.result.SearchResult;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.sling.api.resource.ResourceResolver;
+import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Modified;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.query.QueryManager;
+import javax.jcr.query.Row;
+import javax.jcr.query.RowIterator;
+import javax.management.DynamicMBean;
+import javax.management.NotCompliantMBeanException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import java.util.stream.Collectors;
 
-@Component
-public class SearchSafetyImpl implements SearchSafety {
+/**
+ * Checks queries for safety using Oak's explain, rejecting queries whose plan matches any of the configured deny patterns (by default, traversals).
+ * <br>
+ * Explaining a query is not free, so verdicts are cached. For Query Builder queries the verdict is cached per query shape (see {@link CanonicalQuery#toShapeKey(PredicateGroup)}),
+ * as the values being searched for do not change the plan, and the cost of explaining is only paid once per shape. Only verdicts derived from an actual plan are cached, so a failure
+ * to probe or explain a query (which may be transient) only affects the search at hand.
+ */
+@Component(
+        service = { SearchSafety.class, DynamicMBean.class },
+        property = {
+                "jmx.objectname=com.adobe.aem.commons.assetshare:type=Search Safety"
+        }
+)
+@Designate(ocd = SearchSafetyImpl.Cfg.class)
+public class SearchSafetyImpl extends AnnotatedStandardMBean implements SearchSafety, SearchSafetyMBean {
+    private static final Logger log = LoggerFactory.getLogger(SearchSafetyImpl.class);
+
+    private static final String EXPLAIN = "explain ";
+    private static final String PLAN = "plan";
+
+    @Reference
+    private transient QueryBuilder queryBuilder;
+
+    private final AtomicLong checks = new AtomicLong();
+    private final AtomicLong rejections = new AtomicLong();
+    private final AtomicLong verdictHits = new AtomicLong();
+    private final AtomicLong explainFailures = new AtomicLong();
+
+    private Cfg cfg;
+
+    private List<Pattern> denyPatterns = Collections.emptyList();
+    private List<Pattern> allowPatterns = Collections.emptyList();
+
+    private Map<String, Boolean> verdicts = new LinkedHashMap<>();
+
+    public SearchSafetyImpl() throws NotCompliantMBeanException {
+        super(SearchSafetyMBean.class);
+    }
 
     @Override
     public boolean isSafe(ResourceResolver resourceResolver, Map<String, String> queryBuilderParams) throws RepositoryException {
@@ -37,20 +103,298 @@ public class SearchSafetyImpl implements SearchSafety {
 
     @Override
     public boolean isSafe(ResourceResolver resourceResolver, PredicateGroup predicateGroup) throws RepositoryException {
-        /**
-         * Unfortunately because Oak explain cannot handle UNIONs in AEM 6.3 SP1, this time (fix in AEM 6.4) we cannot consistently check for safe queries, so for now we will not check at all.
-         * In the future this hook will be implemented to help ensure only safe queries are allow.
-         */
+        if (!cfg.enabled()) {
+            return true;
+        }
+
+        final String key = "querybuilder::" + CanonicalQuery.toShapeKey(predicateGroup);
+
+        final Boolean verdict = getVerdict(key);
+
+        if (verdict != null) {
+            return record(verdict);
+        }
 
-         return true;
+        return record(putVerdict(key, explain(resourceResolver, predicateGroup)));
     }
 
     @Override
     public boolean isSafe(ResourceResolver resourceResolver, String language, String statement) throws RepositoryException {
-        /**
-         * Unfortunately because Oak explain cannot handle UNIONs in AEM 6.3 SP1, (fix in AEM 6.4) we cannot consistently check for safe queries, so for now we will not check at all.
-         * In the future this hook will be implemented to help ensure only safe queries are allow.
-         */
+        if (!cfg.enabled()) {
+            return true;
+        }
+
+        final String key = language + "::" + statement;
+
+        final Boolean verdict = getVerdict(key);
+
+        if (verdict != null) {
+            return record(verdict);
+        }
+
+        return record(putVerdict(key, explain(resourceResolver, language, statement)));
+    }
+
+    /**
+     * Query Builder does not expose the statement it generates without executing the query, so a probe of the query that reads at most a single row, and fails rather than traverses, is executed to obtain it.
+     */
+    private Verdict explain(final ResourceResolver resourceResolver, final PredicateGroup predicateGroup) {
+        final PredicateGroup probe = predicateGroup.clone();
+        probe.set(Predicate.PARAM_OFFSET, "0");
+        probe.set(Predicate.PARAM_LIMIT, "1");
+        probe.set(Predicate.PARAM_GUESS_TOTAL, Boolean.TRUE.toString());
+        probe.set(Predicate.PARAM_OPTIONS_TRAVERSAL, Predicate.TRAVERSAL_FAIL);
+
+        final SearchResult searchResult;
+
+        try {
+            final Query query = queryBuilder.createQuery(probe, resourceResolver.adaptTo(Session.class));
+            searchResult = query.getResult();
+            closeLeakingResourceResolver(searchResult);
+        } catch (RuntimeException | RepositoryException e) {
+            // Oak fails the probe if it would traverse; any other failure is just as much a reason not to run the query.
+            // As the cause cannot be told apart from a transient failure, the verdict is not cached.
+            log.warn("Rejecting search as its Query Builder query could not be executed safely", e);
+            return Verdict.unplanned(false);
+        }
+
+        final String statement = searchResult.getQueryStatement();
+
+        if (StringUtils.isBlank(statement)) {
+            explainFailures.incrementAndGet();
+            return Verdict.unplanned(cfg.allow_unexplainable());
+        }
+
+        return explain(resourceResolver, getLanguage(statement), statement);
+    }
+
+    private Verdict explain(final ResourceResolver resourceResolver, final String language, final String statement) {
+        final String plan;
+
+        try {
+            plan = getPlan(resourceResolver, language, statement);
+        } catch (RepositoryException | RuntimeException e) {
+            explainFailures.incrementAndGet();
+            log.warn("Could not explain query [ {} ]. Treating it as {}.", statement, cfg.allow_unexplainable() ? "safe" : "unsafe", e);
+            return Verdict.unplanned(cfg.allow_unexplainable());
+        }
+
+        return Verdict.planned(isSafePlan(plan, statement));
+    }
+
+    String getPlan(final ResourceResolver resourceResolver, final String language, final String statement) throws RepositoryException {
+        final Session session = resourceResolver.adaptTo(Session.class);
+
+        if (session == null) {
+            throw new RepositoryException("Resource resolver is not backed by a JCR session");
+        }
+
+        final QueryManager queryManager = session.getWorkspace().getQueryManager();
+        final RowIterator rows = queryManager.createQuery(EXPLAIN + statement, language).execute().getRows();
+
+        if (!rows.hasNext()) {
+            throw new RepositoryException("Oak explain did not return a plan");
+        }
+
+        final Row row = rows.nextRow();
+        return row.getValue(PLAN).getString();
+    }
+
+    boolean isSafePlan(final String plan, final String statement) {
+        if (allowPatterns.stream().anyMatch(pattern -> pattern.matcher(plan).find())) {
+            return true;
+        }
+
+        final Pattern deny = denyPatterns.stream().filter(pattern -> pattern.matcher(plan).find()).findFirst().orElse(null);
+
+        if (deny != null) {
+            log.warn("Rejecting search as its query plan matches deny pattern [ {} ]\nStatement: {}\nPlan: {}", deny.pattern(), statement, plan);
+            return false;
+        }
+
         return true;
     }
-}
\ No newline at end of file
+
+    @SuppressWarnings("deprecation")
+    private String getLanguage(final String statement) {
+        return StringUtils.startsWithIgnoreCase(StringUtils.trim(statement), "select") ? javax.jcr.query.Query.JCR_SQL2 : javax.jcr.query.Query.XPATH;
+    }
+
+    private void closeLeakingResourceResolver(final SearchResult searchResult) throws RepositoryException {
+        for (final Hit hit : searchResult.getHits()) {
+            // The resource resolver of the hits is opened by Query Builder, and must be closed by the caller
+            hit.getResource().getResourceResolver().close();
+            break;
+        }
+    }
+
+    private boolean record(final boolean verdict) {
+        checks.incrementAndGet();
+
+        if (!verdict) {
+            rejections.incrementAndGet();
+        }
+
+        return verdict;
+    }
+
+    private synchronized Boolean getVerdict(final String key) {
+        final Boolean verdict = verdicts.get(key);
+
+        if (verdict != null) {
+            verdictHits.incrementAndGet();
+        }
+
+        return verdict;
+    }
+
+    private synchronized boolean putVerdict(final String key, final Verdict verdict) {
+        if (verdict.isPlanned()) {
+            verdicts.put(key, verdict.isSafe());
+        }
+
+        return verdict.isSafe();
+    }
+
+    /** MBean **/
+
+    @Override
+    public long getCheckCount() {
+        return checks.get();
+    }
+
+    @Override
+    public long getRejectedCount() {
+        return rejections.get();
+    }
+
+    @Override
+    public long getVerdictHitCount() {
+        return verdictHits.get();
+    }
+
+    @Override
+    public long getExplainFailureCount() {
+        return explainFailures.get();
+    }
+
+    @Override
+    public synchronized long getVerdictCount() {
+        return verdicts.size();
+    }
+
+    @Override
+    public synchronized void clear() {
+        verdicts.clear();
+    }
+
+    @Override
+    public void resetStatistics() {
+        checks.set(0);
+        rejections.set(0);
+        verdictHits.set(0);
+        explainFailures.set(0);
+    }
+
+    @Activate
+    @Modified
+    protected void activate(Cfg cfg) {
+        this.cfg = cfg;
+        this.denyPatterns = toPatterns(cfg.deny_plan_patterns());
+        this.allowPatterns = toPatterns(cfg.allow_plan_patterns());
+
+        final int maxVerdicts = Math.max(1, cfg.max_verdicts());
+
+        synchronized (this) {
+            // Access-ordered LinkedHashMap provides the LRU eviction.
+            verdicts = new LinkedHashMap<String, Boolean>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<String, Boolean> eldest) {
+                    return size() > maxVerdicts;
+                }
+            };
+        }
+    }
+
+    private List<Pattern> toPatterns(final String[] regexes) {
+        if (regexes == null) {
+            return Collections.emptyList();
+        }
+
+        return Arrays.stream(regexes)
+                .filter(StringUtils::isNotBlank)
+                .map(regex -> {
+                    try {
+                        return Pattern.compile(regex);
+                    } catch (PatternSyntaxException e) {
+                        log.error("Ignoring invalid query plan pattern [ {} ]", regex, e);
+                        return null;
+                    }
+                })
+                .filter(pattern -> pattern != null)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * The outcome of checking a query, and whether it was derived from the query's plan (and so may be cached).
+     */
+    private static final class Verdict {
+        private final boolean safe;
+        private final boolean planned;
+
+        private Verdict(final boolean safe, final boolean planned) {
+            this.safe = safe;
+            this.planned = planned;
+        }
+
+        static Verdict planned(final boolean safe) {
+            return new Verdict(safe, true);
+        }
+
+        static Verdict unplanned(final boolean safe) {
+            return new Verdict(safe, false);
+        }
+
+        boolean isSafe() {
+            return safe;
+        }
+
+        boolean isPlanned() {
+            return planned;
+        }
+    }
+
+    @ObjectClassDefinition(name = "Asset Share Commons - Search Safety")
+    public @interface Cfg {
+        @AttributeDefinition(
+                name = "Enabled",
+                description = "Checks the Oak query plan of each search before it is executed, and rejects unsafe searches. "
+                        + "Note that with the default deny plan patterns, searches without a suitable index are then rejected, rather than executed."
+        )
+        boolean enabled() default false;
+
+        @AttributeDefinition(
+                name = "Deny plan patterns",
+                description = "Regular expressions matched against the Oak query plan. A search whose plan matches any of these is rejected. By default, traversing queries and queries without an index are rejected."
+        )
+        String[] deny_plan_patterns() default { "/\\* traverse ", "/\\* no-index " };
+
+        @AttributeDefinition(
+                name = "Allow plan patterns",
+                description = "Regular expressions matched against the Oak query plan. A search whose plan matches any of these is allowed, even if it matches a deny plan pattern (ex. a traversal of a small, known tree)."
+        )
+        String[] allow_plan_patterns() default {};
+
+        @AttributeDefinition(
+                name = "Allow unexplainable queries",
+                description = "Allows searches whose query cannot be explained by Oak (ex. UNIONs on older versions of Oak). Uncheck to reject them."
+        )
+        boolean allow_unexplainable() default true;
+
+        @AttributeDefinition(
+                name = "Max cached verdicts",
+                description = "The maximum number of query shapes whose verdict is cached. When full, the least recently used verdict is evicted."
+        )
+        int max_verdicts() default 1000;
+    }
+}
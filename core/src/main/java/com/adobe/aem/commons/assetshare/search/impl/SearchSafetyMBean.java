@@ -0,0 +1,46 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.adobe.aem.commons.assetshare.search.impl;
+
+import com.adobe.granite.jmx.annotation.Description;
+
+@Description("Asset Share Commons - Search Safety")
+public interface SearchSafetyMBean {
+    @Description("Number of searches checked for safety")
+    long getCheckCount();
+
+    @Description("Number of searches rejected as unsafe")
+    long getRejectedCount();
+
+    @Description("Number of checks answered by a cached verdict, without running Oak explain")
+    long getVerdictHitCount();
+
+    @Description("Number of queries that could not be explained")
+    long getExplainFailureCount();
+
+    @Description("Number of cached verdicts")
+    long getVerdictCount();
+
+    @Description("Removes all cached verdicts, forcing queries to be explained again (ie. after index changes)")
+    void clear();
+
+    @Description("Resets the counters")
+    void resetStatistics();
+}
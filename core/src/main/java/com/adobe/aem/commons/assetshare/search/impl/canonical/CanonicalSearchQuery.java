@@ -0,0 +1,189 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.adobe.aem.commons.assetshare.search.impl.canonical;
+
+import com.google.common.collect.ImmutableSet;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Encodes search parameters into the canonical suffix of a results URL, and decodes them back.
+ * <br>
+ * The canonical query string sorts the parameters by name (keeping the order of the values of a parameter, as only the first value is used for searching),
+ * drops empty values and parameters that do not change the results, and percent-encodes names and values exactly as JavaScript's encodeURIComponent does,
+ * so that the same URL can be built in the browser (see search-form.js).
+ */
+final class CanonicalSearchQuery {
+    static final String EXTENSION = ".html";
+
+    // Keeps each path segment well under common file system name limits, as the dispatcher stores the response in a file of the same path.
+    static final int SEGMENT_LENGTH = 128;
+
+    // Parameters that never change the search results; mode and layout are kept, as they change the rendered results.
+    static final Set<String> IGNORED_PARAMETERS = ImmutableSet.of(
+            "_",
+            "_charset_",
+            "p.guessTotal",
+            "wcmmode",
+            "forceeditcontext");
+
+    private static final String UNRESERVED = "-_.!~*'()";
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+    private static final Pattern BASE64URL = Pattern.compile("[A-Za-z0-9_-]+");
+
+    private CanonicalSearchQuery() {
+    }
+
+    /**
+     * @param parameters the search parameters.
+     * @return the canonical query string of the parameters; this is empty if there are no parameters that affect the results.
+     */
+    static String toQueryString(final Map<String, String[]> parameters) {
+        final List<String[]> pairs = new ArrayList<>();
+
+        for (final Map.Entry<String, String[]> entry : parameters.entrySet()) {
+            if (StringUtils.isEmpty(entry.getKey()) || IGNORED_PARAMETERS.contains(entry.getKey()) || entry.getValue() == null) {
+                continue;
+            }
+
+            for (final String value : entry.getValue()) {
+                if (StringUtils.isNotEmpty(value)) {
+                    pairs.add(new String[]{ entry.getKey(), value });
+                }
+            }
+        }
+
+        // The sort is stable, so the values of a parameter keep their order.
+        pairs.sort(Comparator.comparing(pair -> pair[0]));
+
+        final StringBuilder sb = new StringBuilder();
+        for (final String[] pair : pairs) {
+            if (sb.length() > 0) {
+                sb.append('&');
+            }
+            sb.append(encodeComponent(pair[0])).append('=').append(encodeComponent(pair[1]));
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * @param queryString the canonical query string.
+     * @return the canonical suffix (ie. /{segment}/{segment}.html) of the query string, or null if the query string is empty.
+     */
+    static String toSuffix(final String queryString) {
+        if (StringUtils.isEmpty(queryString)) {
+            return null;
+        }
+
+        final String encoded = Base64.getUrlEncoder().withoutPadding().encodeToString(queryString.getBytes(StandardCharsets.UTF_8));
+        final StringBuilder sb = new StringBuilder(encoded.length() + encoded.length() / SEGMENT_LENGTH + EXTENSION.length() + 1);
+
+        for (int i = 0; i < encoded.length(); i += SEGMENT_LENGTH) {
+            sb.append('/').append(encoded, i, Math.min(encoded.length(), i + SEGMENT_LENGTH));
+        }
+
+        return sb.append(EXTENSION).toString();
+    }
+
+    /**
+     * @param suffix the suffix of a results request.
+     * @return the parameters encoded in the suffix, or null if the suffix is not an encoded query.
+     */
+    static Map<String, String[]> fromSuffix(final String suffix) {
+        if (!StringUtils.startsWith(suffix, "/") || !StringUtils.endsWith(suffix, EXTENSION)) {
+            return null;
+        }
+
+        final String encoded = StringUtils.remove(StringUtils.removeEnd(suffix, EXTENSION), '/');
+        if (!BASE64URL.matcher(encoded).matches()) {
+            return null;
+        }
+
+        final String queryString;
+        try {
+            queryString = new String(Base64.getUrlDecoder().decode(encoded), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+
+        final Map<String, List<String>> values = new LinkedHashMap<>();
+
+        for (final String pair : StringUtils.split(queryString, '&')) {
+            final String name = decodeComponent(StringUtils.substringBefore(pair, "="));
+            final String value = decodeComponent(StringUtils.substringAfter(pair, "="));
+
+            if (name == null || value == null) {
+                return null;
+            }
+
+            values.computeIfAbsent(name, key -> new ArrayList<>()).add(value);
+        }
+
+        if (values.isEmpty()) {
+            return null;
+        }
+
+        final Map<String, String[]> parameters = new LinkedHashMap<>();
+        values.forEach((name, list) -> parameters.put(name, list.toArray(new String[0])));
+
+        return Collections.unmodifiableMap(parameters);
+    }
+
+    /**
+     * Equivalent to JavaScript's encodeURIComponent.
+     */
+    static String encodeComponent(final String value) {
+        final StringBuilder sb = new StringBuilder(value.length());
+
+        for (final byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            final char c = (char) (b & 0xFF);
+
+            if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || UNRESERVED.indexOf(c) >= 0) {
+                sb.append(c);
+            } else {
+                sb.append('%').append(HEX[c >> 4]).append(HEX[c & 0xF]);
+            }
+        }
+
+        return sb.toString();
+    }
+
+    private static String decodeComponent(final String value) {
+        try {
+            return URLDecoder.decode(value, StandardCharsets.UTF_8.name());
+        } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.adobe.aem.commons.assetshare.search.impl.canonical;
+
+import java.util.Map;
+
+/**
+ * Maps search requests to canonical, cacheable GET URLs of the form {page}.results.html/{encoded query}.html.
+ * <br>
+ * The encoded query is the base64url encoding of the sorted search parameters (without parameters that do not affect the results), split into path segments.
+ * As the query is encoded in the URL path, rather than in the query string, the responses can be cached by the dispatcher.
+ */
+public interface CanonicalSearchUrls {
+    /**
+     * @return true if canonical search URLs are enabled.
+     */
+    boolean isEnabled();
+
+    /**
+     * @param pagePath the path of the search page.
+     * @param parameters the search parameters.
+     * @return the canonical results URL of the search, or null if canonical search URLs are disabled or the URL would be too long. Searches without parameters are requested via {page}.results.html.
+     */
+    String getUrl(String pagePath, Map<String, String[]> parameters);
+}
@@ -0,0 +1,197 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.adobe.aem.commons.assetshare.search.impl.canonical;
+
+import com.adobe.aem.commons.assetshare.util.impl.requests.ParameterOverrideRequestWrapper;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.SlingHttpServletResponse;
+import org.apache.sling.api.request.RequestPathInfo;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Modified;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Serves search results requests made via canonical URLs (see {@link CanonicalSearchUrls}), ie. /content/asset-share-commons/en/light.results.html/Zn...Q.html
+ * <br>
+ * - Results requests with an encoded query suffix are executed with the decoded parameters, and are marked as cacheable (for the configured TTL) for anonymous users.
+ * - Results requests with a non-canonical suffix, or with a suffix and a query string, are redirected to the canonical URL.
+ * - Anonymous results requests with a query string are redirected to the canonical URL, so that the dispatcher can cache them.
+ */
+@Component(
+        service = { Filter.class, CanonicalSearchUrls.class },
+        property = {
+                "sling.filter.scope=REQUEST",
+                "sling.filter.methods=GET",
+                "sling.filter.selectors=" + CanonicalSearchUrlsImpl.SELECTOR,
+                "sling.filter.extensions=html"
+        }
+)
+@Designate(ocd = CanonicalSearchUrlsImpl.Cfg.class)
+public class CanonicalSearchUrlsImpl implements CanonicalSearchUrls, Filter {
+    private static final Logger log = LoggerFactory.getLogger(CanonicalSearchUrlsImpl.class);
+
+    static final String SELECTOR = "results";
+
+    private static final String ANONYMOUS = "anonymous";
+
+    private Cfg cfg;
+
+    @Override
+    public boolean isEnabled() {
+        return cfg.enabled();
+    }
+
+    @Override
+    public String getUrl(final String pagePath, final Map<String, String[]> parameters) {
+        if (!isEnabled() || StringUtils.isBlank(pagePath) || parameters == null) {
+            return null;
+        }
+
+        final String suffix = CanonicalSearchQuery.toSuffix(CanonicalSearchQuery.toQueryString(parameters));
+        if (suffix != null && suffix.length() > cfg.max_suffix_length()) {
+            return null;
+        }
+
+        return toUrl(pagePath, suffix);
+    }
+
+    private String toUrl(final String pagePath, final String suffix) {
+        return pagePath + "." + SELECTOR + CanonicalSearchQuery.EXTENSION + StringUtils.defaultString(suffix);
+    }
+
+    @Override
+    public void init(final FilterConfig filterConfig) {
+        // Do nothing
+    }
+
+    @Override
+    public void doFilter(final ServletRequest servletRequest, final ServletResponse servletResponse, final FilterChain chain) throws IOException, ServletException {
+        if (!isEnabled() || !(servletRequest instanceof SlingHttpServletRequest) || !(servletResponse instanceof SlingHttpServletResponse)) {
+            chain.doFilter(servletRequest, servletResponse);
+            return;
+        }
+
+        final SlingHttpServletRequest request = (SlingHttpServletRequest) servletRequest;
+        final SlingHttpServletResponse response = (SlingHttpServletResponse) servletResponse;
+        final RequestPathInfo requestPathInfo = request.getRequestPathInfo();
+
+        if (!"GET".equals(request.getMethod()) || !Arrays.equals(new String[]{ SELECTOR }, requestPathInfo.getSelectors())) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        final boolean anonymous = ANONYMOUS.equals(request.getResourceResolver().getUserID());
+        final String suffix = requestPathInfo.getSuffix();
+
+        if (suffix == null) {
+            if (anonymous && StringUtils.isNotBlank(request.getQueryString())) {
+                final String url = getUrl(requestPathInfo.getResourcePath(), request.getParameterMap());
+
+                if (url != null) {
+                    redirect(request, response, url);
+                    return;
+                }
+            }
+
+            chain.doFilter(request, response);
+            return;
+        }
+
+        final Map<String, String[]> parameters = CanonicalSearchQuery.fromSuffix(suffix);
+
+        if (parameters == null) {
+            log.debug("Could not decode the search parameters from the suffix [ {} ]", suffix);
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        final String canonicalSuffix = CanonicalSearchQuery.toSuffix(CanonicalSearchQuery.toQueryString(parameters));
+
+        if (StringUtils.isNotBlank(request.getQueryString()) || !StringUtils.equals(canonicalSuffix, suffix)) {
+            redirect(request, response, toUrl(requestPathInfo.getResourcePath(), canonicalSuffix));
+            return;
+        }
+
+        // Overly long queries are still served, but are not marked as cacheable.
+        if (anonymous && cfg.ttl_seconds() > 0 && suffix.length() <= cfg.max_suffix_length()) {
+            response.setHeader("Cache-Control", "max-age=" + cfg.ttl_seconds());
+        }
+
+        chain.doFilter(new ParameterOverrideRequestWrapper(request, parameters), response);
+    }
+
+    private void redirect(final SlingHttpServletRequest request, final SlingHttpServletResponse response, final String url) throws IOException {
+        if (log.isDebugEnabled()) {
+            log.debug("Redirecting search results request [ {} ] to its canonical URL [ {} ]", request.getRequestURI(), url);
+        }
+
+        response.sendRedirect(request.getResourceResolver().map(request, url));
+    }
+
+    @Override
+    public void destroy() {
+        // Do nothing
+    }
+
+    @Activate
+    @Modified
+    protected void activate(Cfg cfg) {
+        this.cfg = cfg;
+    }
+
+    @ObjectClassDefinition(name = "Asset Share Commons - Canonical Search URLs")
+    public @interface Cfg {
+        @AttributeDefinition(
+                name = "Enabled",
+                description = "Search results are requested via canonical URLs ({page}.results.html/{encoded query}.html) that the dispatcher can cache, and anonymous results requests with query strings are redirected to them."
+        )
+        boolean enabled() default false;
+
+        @AttributeDefinition(
+                name = "TTL (in seconds)",
+                description = "The max-age of anonymous search results served via canonical URLs. The dispatcher must have /enableTTL set to honor it. Set to 0 to not send a Cache-Control header."
+        )
+        long ttl_seconds() default 300;
+
+        @AttributeDefinition(
+                name = "Max suffix length",
+                description = "Searches whose encoded query is longer than this are still served, but are not redirected to, nor marked as cacheable."
+        )
+        int max_suffix_length() default 2048;
+    }
+}
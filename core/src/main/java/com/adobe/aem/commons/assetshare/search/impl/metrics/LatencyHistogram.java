@@ -0,0 +1,120 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.adobe.aem.commons.assetshare.search.impl.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free latency histogram with exponentially sized buckets, from 50 microseconds up to 2 minutes.
+ * <br>
+ * Recording is a couple of atomic increments, which keeps it cheap enough to be always on. Percentiles are approximated by the upper bound of the bucket they fall in,
+ * which is at most 20% above the actual value.
+ */
+final class LatencyHistogram {
+    private static final long MIN_BOUND_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    private static final long MAX_BOUND_NANOS = TimeUnit.MINUTES.toNanos(2);
+    private static final double GROWTH = 1.2;
+
+    private static final long[] BOUNDS = createBounds();
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BOUNDS.length + 1);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    private static long[] createBounds() {
+        final int size = (int) Math.ceil(Math.log((double) MAX_BOUND_NANOS / MIN_BOUND_NANOS) / Math.log(GROWTH)) + 1;
+        final long[] bounds = new long[size];
+
+        double bound = MIN_BOUND_NANOS;
+        for (int i = 0; i < size; i++) {
+            bounds[i] = (long) bound;
+            bound *= GROWTH;
+        }
+
+        return bounds;
+    }
+
+    void record(final long nanos) {
+        buckets.incrementAndGet(indexOf(nanos));
+        count.incrementAndGet();
+        max.accumulateAndGet(nanos, Math::max);
+    }
+
+    long getCount() {
+        return count.get();
+    }
+
+    long getMax() {
+        return max.get();
+    }
+
+    /**
+     * @param percentile the percentile, between 0 and 1 (ie. 0.95).
+     * @return the approximate latency in nanoseconds at the percentile, or 0 if nothing has been recorded.
+     */
+    long getPercentile(final double percentile) {
+        final long total = count.get();
+
+        if (total == 0) {
+            return 0;
+        }
+
+        final long rank = (long) Math.ceil(percentile * total);
+        long cumulative = 0;
+
+        for (int i = 0; i < buckets.length(); i++) {
+            cumulative += buckets.get(i);
+
+            if (cumulative >= rank) {
+                // Never report more than the largest latency actually recorded.
+                return i < BOUNDS.length ? Math.min(BOUNDS[i], max.get()) : max.get();
+            }
+        }
+
+        return max.get();
+    }
+
+    void reset() {
+        for (int i = 0; i < buckets.length(); i++) {
+            buckets.set(i, 0);
+        }
+        count.set(0);
+        max.set(0);
+    }
+
+    private static int indexOf(final long nanos) {
+        int low = 0;
+        int high = BOUNDS.length;
+
+        // The first bucket whose upper bound is >= nanos; the last bucket catches everything above the max bound.
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (BOUNDS[mid] < nanos) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        return low;
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.adobe.aem.commons.assetshare.search.impl.metrics;
+
+import org.apache.sling.api.SlingHttpServletRequest;
+
+/**
+ * Aggregates the per-phase latencies of searches.
+ */
+public interface SearchMetrics {
+    /**
+     * Records the timed phases of a completed search and, if enabled, exposes them to the client via the Server-Timing response header.
+     *
+     * @param request the request the search was executed for.
+     * @param searchTimings the timings of the search.
+     */
+    void record(SlingHttpServletRequest request, SearchTimings searchTimings);
+
+    /**
+     * @param searchProvider the name of the search provider.
+     * @param phase the phase.
+     * @param nanos the time spent in the phase.
+     */
+    void record(String searchProvider, SearchPhase phase, long nanos);
+}
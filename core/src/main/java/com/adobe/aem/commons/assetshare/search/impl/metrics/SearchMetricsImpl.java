@@ -0,0 +1,184 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.adobe.aem.commons.assetshare.search.impl.metrics;
+
+import com.adobe.granite.jmx.annotation.AnnotatedStandardMBean;
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.SlingHttpServletResponse;
+import org.apache.sling.api.scripting.SlingBindings;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Modified;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.DynamicMBean;
+import javax.management.NotCompliantMBeanException;
+import javax.management.openmbean.CompositeDataSupport;
+import javax.management.openmbean.CompositeType;
+import javax.management.openmbean.OpenDataException;
+import javax.management.openmbean.OpenType;
+import javax.management.openmbean.SimpleType;
+import javax.management.openmbean.TabularData;
+import javax.management.openmbean.TabularDataSupport;
+import javax.management.openmbean.TabularType;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+@Component(
+        service = { SearchMetrics.class, DynamicMBean.class },
+        property = {
+                "jmx.objectname=com.adobe.aem.commons.assetshare:type=Search Metrics"
+        }
+)
+@Designate(ocd = SearchMetricsImpl.Cfg.class)
+public class SearchMetricsImpl extends AnnotatedStandardMBean implements SearchMetrics, SearchMetricsMBean {
+    private static final Logger log = LoggerFactory.getLogger(SearchMetricsImpl.class);
+
+    static final String SERVER_TIMING_HEADER = "Server-Timing";
+    private static final String SERVER_TIMING_PREFIX = "asc-";
+
+    private static final double NANOS_PER_MILLI = 1000000d;
+
+    private static final String[] ITEM_NAMES = { "searchProvider", "phase", "count", "p50", "p95", "p99", "max" };
+    private static final String[] ITEM_DESCRIPTIONS = { "Search provider", "Search phase", "Number of searches", "50th percentile (ms)", "95th percentile (ms)", "99th percentile (ms)", "Max (ms)" };
+    private static final OpenType<?>[] ITEM_TYPES = { SimpleType.STRING, SimpleType.STRING, SimpleType.LONG, SimpleType.DOUBLE, SimpleType.DOUBLE, SimpleType.DOUBLE, SimpleType.DOUBLE };
+
+    private final ConcurrentMap<String, LatencyHistogram[]> histograms = new ConcurrentHashMap<>();
+
+    private Cfg cfg;
+
+    public SearchMetricsImpl() throws NotCompliantMBeanException {
+        super(SearchMetricsMBean.class);
+    }
+
+    @Override
+    public void record(final SlingHttpServletRequest request, final SearchTimings searchTimings) {
+        final StringBuilder serverTiming = new StringBuilder();
+
+        for (final SearchPhase phase : SearchPhase.values()) {
+            if (searchTimings.isTimed(phase)) {
+                record(searchTimings.getSearchProvider(), phase, searchTimings.getDuration(phase));
+
+                if (cfg.server_timing()) {
+                    if (serverTiming.length() > 0) {
+                        serverTiming.append(", ");
+                    }
+
+                    serverTiming.append(SERVER_TIMING_PREFIX).append(phase.getServerTimingName())
+                            .append(";dur=").append(String.format(Locale.ROOT, "%.1f", toMillis(searchTimings.getDuration(phase))))
+                            .append(";desc=\"").append(phase.getDescription()).append('"');
+                }
+            }
+        }
+
+        if (serverTiming.length() > 0) {
+            addServerTimingHeader(request, serverTiming.toString());
+        }
+    }
+
+    @Override
+    public void record(final String searchProvider, final SearchPhase phase, final long nanos) {
+        histograms.computeIfAbsent(searchProvider, key -> {
+            final LatencyHistogram[] phases = new LatencyHistogram[SearchPhase.values().length];
+            for (int i = 0; i < phases.length; i++) {
+                phases[i] = new LatencyHistogram();
+            }
+            return phases;
+        })[phase.ordinal()].record(nanos);
+    }
+
+    private void addServerTimingHeader(final SlingHttpServletRequest request, final String value) {
+        final SlingBindings bindings = (SlingBindings) request.getAttribute(SlingBindings.class.getName());
+        final SlingHttpServletResponse response = bindings != null ? bindings.getResponse() : null;
+
+        if (response == null) {
+            return;
+        } else if (response.isCommitted()) {
+            // Headers can no longer be sent once the response is committed (ie. the buffer has been flushed while rendering).
+            log.debug("Could not add the Server-Timing header as the response is already committed");
+            return;
+        }
+
+        response.addHeader(SERVER_TIMING_HEADER, value);
+    }
+
+    /** MBean **/
+
+    @Override
+    public TabularData getLatencies() throws OpenDataException {
+        final CompositeType rowType = new CompositeType("SearchPhaseLatency", "Search phase latency", ITEM_NAMES, ITEM_DESCRIPTIONS, ITEM_TYPES);
+        final TabularDataSupport tabularData = new TabularDataSupport(new TabularType("SearchPhaseLatencies", "Search phase latencies", rowType, new String[]{ "searchProvider", "phase" }));
+
+        for (final Map.Entry<String, LatencyHistogram[]> entry : new TreeMap<>(histograms).entrySet()) {
+            for (final SearchPhase phase : SearchPhase.values()) {
+                final LatencyHistogram histogram = entry.getValue()[phase.ordinal()];
+
+                if (histogram.getCount() > 0) {
+                    tabularData.put(new CompositeDataSupport(rowType, ITEM_NAMES, new Object[]{
+                            entry.getKey(),
+                            phase.name(),
+                            histogram.getCount(),
+                            toMillis(histogram.getPercentile(0.50)),
+                            toMillis(histogram.getPercentile(0.95)),
+                            toMillis(histogram.getPercentile(0.99)),
+                            toMillis(histogram.getMax())
+                    }));
+                }
+            }
+        }
+
+        return tabularData;
+    }
+
+    @Override
+    public void resetStatistics() {
+        for (final LatencyHistogram[] phases : histograms.values()) {
+            for (final LatencyHistogram histogram : phases) {
+                histogram.reset();
+            }
+        }
+    }
+
+    private static double toMillis(final long nanos) {
+        return nanos / NANOS_PER_MILLI;
+    }
+
+    @Activate
+    @Modified
+    protected void activate(Cfg cfg) {
+        this.cfg = cfg;
+    }
+
+    @ObjectClassDefinition(name = "Asset Share Commons - Search Metrics")
+    public @interface Cfg {
+        @AttributeDefinition(
+                name = "Server-Timing header",
+                description = "Adds the time spent in each search phase to the response as a Server-Timing header, so it can be inspected in the browser's developer tools. Only enable this where exposing these timings to clients is acceptable."
+        )
+        boolean server_timing() default false;
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.adobe.aem.commons.assetshare.search.impl.metrics;
+
+/**
+ * The phases of a search, in the order they are executed.
+ */
+public enum SearchPhase {
+    PARAMS("params", "Building the query parameters"),
+    PRE_PROCESS("pre", "Query pre-processor"),
+    SAFETY("safety", "Search safety check"),
+    QUERY("query", "Executing the query"),
+    ADAPTATION("adapt", "Adapting hits to results"),
+    POST_PROCESS("post", "Query post-processor"),
+    SEARCH("search", "Total search time"),
+    RENDER("render", "Rendering the results, excluding search time");
+
+    private final String serverTimingName;
+    private final String description;
+
+    SearchPhase(final String serverTimingName, final String description) {
+        this.serverTimingName = serverTimingName;
+        this.description = description;
+    }
+
+    /**
+     * @return the metric name used in the Server-Timing response header.
+     */
+    public String getServerTimingName() {
+        return serverTimingName;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
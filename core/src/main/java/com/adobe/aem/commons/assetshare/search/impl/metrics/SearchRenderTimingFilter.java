@@ -0,0 +1,77 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.adobe.aem.commons.assetshare.search.impl.metrics;
+
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import java.io.IOException;
+
+/**
+ * Times the rendering of the Search Results component, as the {@link SearchPhase#RENDER} phase.
+ * <br>
+ * The search is usually executed while the component renders, so the time spent searching is subtracted.
+ */
+@Component(
+        service = Filter.class,
+        property = {
+                "sling.filter.scope=COMPONENT",
+                "sling.filter.resourceTypes=asset-share-commons/components/search/results"
+        }
+)
+public class SearchRenderTimingFilter implements Filter {
+    @Reference
+    private transient SearchMetrics searchMetrics;
+
+    @Override
+    public void init(final FilterConfig filterConfig) {
+        // Do nothing
+    }
+
+    @Override
+    public void doFilter(final ServletRequest request, final ServletResponse response, final FilterChain chain) throws IOException, ServletException {
+        final SearchTimings before = SearchTimings.get(request);
+        final long searchNanosBefore = before.getDuration(SearchPhase.SEARCH);
+        final long start = System.nanoTime();
+
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            final long elapsed = System.nanoTime() - start;
+            final SearchTimings after = SearchTimings.get(request);
+
+            if (after.isTimed(SearchPhase.SEARCH)) {
+                final long searchNanos = after == before ? after.getDuration(SearchPhase.SEARCH) - searchNanosBefore : after.getDuration(SearchPhase.SEARCH);
+                searchMetrics.record(after.getSearchProvider(), SearchPhase.RENDER, Math.max(0L, elapsed - searchNanos));
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        // Do nothing
+    }
+}
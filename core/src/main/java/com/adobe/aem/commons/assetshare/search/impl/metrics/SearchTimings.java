@@ -0,0 +1,111 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.adobe.aem.commons.assetshare.search.impl.metrics;
+
+import javax.servlet.ServletRequest;
+import java.util.Arrays;
+
+/**
+ * Collects the time spent in each {@link SearchPhase} of a single search.
+ * <br>
+ * Instances are request-scoped and are not thread-safe; phases must be timed from the request thread.
+ */
+public final class SearchTimings {
+    private static final String REQUEST_ATTR_SEARCH_TIMINGS = SearchTimings.class.getName();
+
+    // Returned when no search is being timed for the request; it records nothing.
+    private static final SearchTimings NOOP = new SearchTimings(null);
+
+    private static final long NOT_TIMED = -1L;
+
+    private final String searchProvider;
+    private final long[] durations = new long[SearchPhase.values().length];
+
+    private SearchTimings(final String searchProvider) {
+        this.searchProvider = searchProvider;
+        Arrays.fill(durations, NOT_TIMED);
+    }
+
+    /**
+     * Starts timing a search for the request, replacing the timings of any previous search of the request.
+     *
+     * @param request the request.
+     * @param searchProvider the name of the search provider executing the search.
+     * @return the timings of the search.
+     */
+    public static SearchTimings start(final ServletRequest request, final String searchProvider) {
+        final SearchTimings searchTimings = new SearchTimings(searchProvider);
+        request.setAttribute(REQUEST_ATTR_SEARCH_TIMINGS, searchTimings);
+        return searchTimings;
+    }
+
+    /**
+     * @param request the request.
+     * @return the timings of the search being executed for the request, or a no-op instance if no search is being timed.
+     */
+    public static SearchTimings get(final ServletRequest request) {
+        final Object searchTimings = request.getAttribute(REQUEST_ATTR_SEARCH_TIMINGS);
+        return searchTimings instanceof SearchTimings ? (SearchTimings) searchTimings : NOOP;
+    }
+
+    /**
+     * @return a start time to pass to {@link #stop(SearchPhase, long)}.
+     */
+    public long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Adds the time elapsed since startNanos to the phase.
+     *
+     * @param phase the phase to add to.
+     * @param startNanos the value returned by {@link #start()} when the phase started.
+     */
+    public void stop(final SearchPhase phase, final long startNanos) {
+        if (this == NOOP) {
+            return;
+        }
+
+        final long elapsed = System.nanoTime() - startNanos;
+        final int index = phase.ordinal();
+
+        durations[index] = durations[index] == NOT_TIMED ? elapsed : durations[index] + elapsed;
+    }
+
+    public String getSearchProvider() {
+        return searchProvider;
+    }
+
+    /**
+     * @param phase the phase.
+     * @return true if the phase was executed (and timed) for this search.
+     */
+    public boolean isTimed(final SearchPhase phase) {
+        return durations[phase.ordinal()] != NOT_TIMED;
+    }
+
+    /**
+     * @param phase the phase.
+     * @return the time spent in the phase in nanoseconds, or 0 if it was not timed.
+     */
+    public long getDuration(final SearchPhase phase) {
+        return Math.max(0L, durations[phase.ordinal()]);
+    }
+}
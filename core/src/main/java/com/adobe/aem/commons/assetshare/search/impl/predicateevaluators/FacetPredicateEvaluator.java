@@ -0,0 +1,69 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.adobe.aem.commons.assetshare.search.impl.predicateevaluators;
+
+import com.day.cq.search.Predicate;
+import com.day.cq.search.eval.AbstractPredicateEvaluator;
+import com.day.cq.search.eval.EvaluationContext;
+import com.day.cq.search.eval.JcrPropertyPredicateEvaluator;
+import com.day.cq.search.facets.FacetExtractor;
+import com.day.cq.search.facets.extractors.DistinctValuesFacetExtractor;
+import org.apache.commons.lang3.StringUtils;
+import org.osgi.service.component.annotations.Component;
+
+/**
+ * A predicate that does not constrain the query, but only requests the distinct values (and their counts) of a property across the query's results.
+ * <p>
+ * facet.property=jcr:content/metadata/dc:format<br>
+ * <p>
+ * Facets are only computed when the query is executed with p.facetStrategy=oak, for which the property must be configured with facets=true in the Oak index used to execute the query.
+ */
+@Component(
+        factory = "com.day.cq.search.eval.PredicateEvaluator/" + FacetPredicateEvaluator.PREDICATE_NAME
+)
+public class FacetPredicateEvaluator extends AbstractPredicateEvaluator {
+    public static final String PREDICATE_NAME = "facet";
+
+    @Override
+    public boolean canXpath(final Predicate predicate, final EvaluationContext evaluationContext) {
+        return true;
+    }
+
+    @Override
+    public boolean canFilter(final Predicate predicate, final EvaluationContext evaluationContext) {
+        return false;
+    }
+
+    @Override
+    public FacetExtractor getFacetExtractor(final Predicate predicate, final EvaluationContext evaluationContext) {
+        final String property = StringUtils.removeStart(predicate.get(JcrPropertyPredicateEvaluator.PROPERTY), "./");
+
+        if (StringUtils.isBlank(property)) {
+            return null;
+        }
+
+        // Each bucket carries the property predicate that would narrow the query to the bucket's value.
+        final Predicate bucketPredicate = new Predicate(JcrPropertyPredicateEvaluator.PROPERTY, JcrPropertyPredicateEvaluator.PROPERTY);
+        bucketPredicate.set(JcrPropertyPredicateEvaluator.PROPERTY, property);
+
+        return new DistinctValuesFacetExtractor(property, null, bucketPredicate, JcrPropertyPredicateEvaluator.VALUE);
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.adobe.aem.commons.assetshare.search.impl.suggest;
+
+import com.adobe.aem.commons.assetshare.components.search.SearchConfig;
+import com.adobe.aem.commons.assetshare.util.ServletHelper;
+import com.google.gson.stream.JsonWriter;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.SlingHttpServletResponse;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.servlets.SlingSafeMethodsServlet;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.Servlet;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Completes the search term typed into a Search Bar or Freeform Text component, ie. /content/asset-share-commons/en/light/jcr:content/root/search-bar.suggest.json?q=mou
+ * <br>
+ * Completions are served from the in-memory {@link SuggestionIndex}, and only include texts of assets beneath the search page's paths that the user can read.
+ */
+@Component(service = Servlet.class,
+        property = {
+                "sling.servlet.methods=GET",
+                "sling.servlet.resourceTypes=asset-share-commons/components/search/search-bar",
+                "sling.servlet.resourceTypes=asset-share-commons/components/search/freeform-text",
+                "sling.servlet.selectors=" + SuggestServlet.SELECTOR,
+                "sling.servlet.extensions=json"
+        }
+)
+public class SuggestServlet extends SlingSafeMethodsServlet {
+    private static final Logger log = LoggerFactory.getLogger(SuggestServlet.class);
+
+    protected static final String SELECTOR = "suggest";
+
+    protected static final String PREFIX_PARAMETER = "q";
+    protected static final String LIMIT_PARAMETER = "limit";
+
+    protected static final int DEFAULT_LIMIT = 10;
+    protected static final int MAX_LIMIT = 25;
+
+    @Reference
+    private transient ServletHelper servletHelper;
+
+    @Reference
+    private transient SuggestionIndex suggestionIndex;
+
+    @Override
+    protected final void doGet(final SlingHttpServletRequest request, final SlingHttpServletResponse response) throws IOException {
+        final String prefix = StringUtils.trimToNull(request.getParameter(PREFIX_PARAMETER));
+        final int limit = Math.min(MAX_LIMIT, Math.max(1, getLimit(request)));
+
+        final List<String> suggestions;
+
+        if (prefix == null || !suggestionIndex.isReady()) {
+            suggestions = Collections.emptyList();
+        } else {
+            suggestions = suggestionIndex.suggest(prefix, limit, getPathFilter(request, response));
+        }
+
+        response.setContentType("application/json");
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+
+        final JsonWriter json = new JsonWriter(response.getWriter());
+
+        json.beginObject();
+        json.name("suggestions").beginArray();
+        for (final String suggestion : suggestions) {
+            json.value(suggestion);
+        }
+        json.endArray();
+        json.endObject();
+        json.flush();
+    }
+
+    /**
+     * @return a filter that accepts the paths of assets beneath the search page's paths, that the requesting user can read.
+     */
+    private Predicate<String> getPathFilter(final SlingHttpServletRequest request, final SlingHttpServletResponse response) {
+        final ResourceResolver resourceResolver = request.getResourceResolver();
+        final List<String> paths = getSearchPaths(request, response);
+
+        return path -> paths.stream().anyMatch(searchPath -> StringUtils.startsWith(path, StringUtils.removeEnd(searchPath, "/") + "/"))
+                && resourceResolver.getResource(path) != null;
+    }
+
+    private List<String> getSearchPaths(final SlingHttpServletRequest request, final SlingHttpServletResponse response) {
+        // SearchConfig is written for use from HTL, so the bindings HTL would provide are added to the request.
+        servletHelper.addWcmBindings(request, response);
+
+        try {
+            final SearchConfig searchConfig = request.adaptTo(SearchConfig.class);
+
+            if (searchConfig != null) {
+                return searchConfig.getPaths();
+            }
+        } catch (RuntimeException e) {
+            log.debug("Could not resolve the search configuration of [ {} ]", request.getResource().getPath(), e);
+        }
+
+        log.debug("Could not resolve the search configuration of [ {} ], so suggestions are not filtered by path", request.getResource().getPath());
+        return Collections.singletonList("/");
+    }
+
+    private int getLimit(final SlingHttpServletRequest request) {
+        try {
+            return Integer.parseInt(StringUtils.defaultIfBlank(request.getParameter(LIMIT_PARAMETER), String.valueOf(DEFAULT_LIMIT)));
+        } catch (NumberFormatException e) {
+            return DEFAULT_LIMIT;
+        }
+    }
+}
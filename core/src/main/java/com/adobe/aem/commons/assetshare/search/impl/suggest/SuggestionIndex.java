@@ -0,0 +1,41 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.adobe.aem.commons.assetshare.search.impl.suggest;
+
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * An in-memory index of suggestion texts (ie. asset titles, tag titles and configured metadata values) used to complete search terms as they are typed.
+ */
+public interface SuggestionIndex {
+    /**
+     * @return true if the index is enabled and has been built.
+     */
+    boolean isReady();
+
+    /**
+     * @param prefix the prefix to complete; this is case and whitespace insensitive.
+     * @param limit the maximum number of completions to return.
+     * @param pathFilter only completions indexed for at least one asset path accepted by this filter are returned; use this to filter by the user's permissions.
+     * @return the completions of the prefix, the most common first.
+     */
+    List<String> suggest(String prefix, int limit, Predicate<String> pathFilter);
+}
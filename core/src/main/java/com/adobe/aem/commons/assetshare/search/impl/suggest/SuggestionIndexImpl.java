@@ -0,0 +1,424 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.adobe.aem.commons.assetshare.search.impl.suggest;
+
+import com.day.cq.dam.commons.util.DamUtil;
+import com.day.cq.tagging.Tag;
+import com.day.cq.tagging.TagManager;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.sling.api.resource.LoginException;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.apache.sling.api.resource.ValueMap;
+import org.apache.sling.api.resource.observation.ExternalResourceChangeListener;
+import org.apache.sling.api.resource.observation.ResourceChange;
+import org.apache.sling.api.resource.observation.ResourceChangeListener;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Modified;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.jcr.query.Query;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+@Component(
+        service = { SuggestionIndex.class, ResourceChangeListener.class },
+        property = {
+                ResourceChangeListener.PATHS + "=/content/dam",
+                ResourceChangeListener.CHANGES + "=ADDED",
+                ResourceChangeListener.CHANGES + "=CHANGED",
+                ResourceChangeListener.CHANGES + "=REMOVED"
+        }
+)
+@Designate(ocd = SuggestionIndexImpl.Cfg.class)
+public class SuggestionIndexImpl implements SuggestionIndex, ResourceChangeListener, ExternalResourceChangeListener {
+    private static final Logger log = LoggerFactory.getLogger(SuggestionIndexImpl.class);
+
+    private static final String SERVICE_NAME = "suggestion-index-reader";
+
+    private static final Map<String, Object> AUTH_INFO = Collections.singletonMap(ResourceResolverFactory.SUBSERVICE, SERVICE_NAME);
+
+    private static final String JCR_CONTENT_SEGMENT = "/jcr:content";
+
+    private static final Pattern WORD_DELIMITER = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private static final int MIN_WORD_LENGTH = 3;
+
+    private static final int MAX_TEXT_LENGTH = 100;
+
+    // Bounds the permission checks per completion, so that a text indexed for many unreadable assets does not stall the completion.
+    private static final int MAX_PATH_CHECKS = 20;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @Reference
+    private transient ResourceResolverFactory resourceResolverFactory;
+
+    private Cfg cfg;
+
+    // All index updates are serialized on a single thread, so changes observed while the index is built are applied after it.
+    private ExecutorService executorService;
+
+    private SuggestionTrie trie;
+
+    // The texts indexed for each asset, so they can be removed when the asset changes.
+    private TreeMap<String, Set<String>> textsByPath;
+
+    private volatile boolean ready = false;
+
+    @Override
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Override
+    public List<String> suggest(final String prefix, final int limit, final Predicate<String> pathFilter) {
+        if (!ready || limit < 1) {
+            return Collections.emptyList();
+        }
+
+        final List<String> suggestions = new ArrayList<>(limit);
+
+        lock.readLock().lock();
+        try {
+            for (final SuggestionTrie.Term term : trie.complete(prefix)) {
+                if (isAccepted(term, pathFilter)) {
+                    suggestions.add(term.getText());
+
+                    if (suggestions.size() >= limit) {
+                        break;
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        return suggestions;
+    }
+
+    private boolean isAccepted(final SuggestionTrie.Term term, final Predicate<String> pathFilter) {
+        int checks = 0;
+
+        for (final String path : term.getPaths()) {
+            if (pathFilter.test(path)) {
+                return true;
+            } else if (++checks >= MAX_PATH_CHECKS) {
+                return false;
+            }
+        }
+
+        return false;
+    }
+
+    @Override
+    public void onChange(final List<ResourceChange> changes) {
+        final ExecutorService executor = this.executorService;
+
+        if (executor == null) {
+            return;
+        }
+
+        final Set<String> removed = new LinkedHashSet<>();
+        final Set<String> changed = new LinkedHashSet<>();
+
+        for (final ResourceChange change : changes) {
+            if (!isIndexedPath(change.getPath())) {
+                continue;
+            }
+
+            if (ResourceChange.ChangeType.REMOVED.equals(change.getType()) && !StringUtils.contains(change.getPath(), JCR_CONTENT_SEGMENT)) {
+                removed.add(change.getPath());
+            } else {
+                // Changes within an asset (ie. to its metadata) re-index the asset itself.
+                changed.add(StringUtils.substringBefore(change.getPath(), JCR_CONTENT_SEGMENT));
+            }
+        }
+
+        if (!removed.isEmpty() || !changed.isEmpty()) {
+            executor.submit(() -> update(removed, changed));
+        }
+    }
+
+    private void update(final Set<String> removed, final Set<String> changed) {
+        try (ResourceResolver resourceResolver = resourceResolverFactory.getServiceResourceResolver(AUTH_INFO)) {
+            final Map<String, Set<String>> reindexed = new TreeMap<>();
+
+            for (final String path : changed) {
+                final Resource resource = resourceResolver.getResource(path);
+
+                if (resource == null) {
+                    removed.add(path);
+                } else if (DamUtil.isAsset(resource)) {
+                    reindexed.put(path, getTexts(resource));
+                } else {
+                    // Ie. a folder was moved or copied in, so index all assets beneath it.
+                    removed.add(path);
+                    collectTexts(resource, reindexed);
+                }
+            }
+
+            lock.writeLock().lock();
+            try {
+                for (final String path : removed) {
+                    removeAll(path);
+                }
+
+                for (final Map.Entry<String, Set<String>> entry : reindexed.entrySet()) {
+                    removeAll(entry.getKey());
+                    index(entry.getKey(), entry.getValue());
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } catch (LoginException e) {
+            log.error("Could not obtain the Asset Share Commons service user [ {} ]", SERVICE_NAME, e);
+        }
+    }
+
+    private void build() {
+        final long start = System.currentTimeMillis();
+        final SuggestionTrie builtTrie = new SuggestionTrie(cfg.max_candidates());
+        final TreeMap<String, Set<String>> builtTextsByPath = new TreeMap<>();
+
+        try (ResourceResolver resourceResolver = resourceResolverFactory.getServiceResourceResolver(AUTH_INFO)) {
+            for (final String path : cfg.paths()) {
+                final Iterator<Resource> assets = resourceResolver.findResources(
+                        "SELECT * FROM [dam:Asset] AS a WHERE ISDESCENDANTNODE(a, '" + StringUtils.replace(path, "'", "''") + "')",
+                        Query.JCR_SQL2);
+
+                while (assets.hasNext()) {
+                    final Resource asset = assets.next();
+                    final Set<String> texts = getTexts(asset);
+
+                    builtTextsByPath.put(asset.getPath(), texts);
+                    for (final String text : texts) {
+                        builtTrie.load(text, asset.getPath());
+                    }
+                }
+            }
+        } catch (LoginException e) {
+            log.error("Could not obtain the Asset Share Commons service user [ {} ]", SERVICE_NAME, e);
+            return;
+        }
+
+        builtTrie.computeTops();
+
+        lock.writeLock().lock();
+        try {
+            trie = builtTrie;
+            textsByPath = builtTextsByPath;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        ready = true;
+
+        log.info("Built the suggestion index of [ {} ] texts for [ {} ] assets in [ {} ] ms",
+                builtTrie.size(), builtTextsByPath.size(), System.currentTimeMillis() - start);
+    }
+
+    private void collectTexts(final Resource resource, final Map<String, Set<String>> textsByAssetPath) {
+        for (final Resource child : resource.getChildren()) {
+            if (DamUtil.isAsset(child)) {
+                textsByAssetPath.put(child.getPath(), getTexts(child));
+            } else if (!StringUtils.equals(child.getName(), JCR_CONTENT_SEGMENT.substring(1))) {
+                collectTexts(child, textsByAssetPath);
+            }
+        }
+    }
+
+    /**
+     * @param asset the asset resource.
+     * @return the suggestion texts of the asset; the configured property values, the titles of its tags, and (optionally) the words of these.
+     */
+    private Set<String> getTexts(final Resource asset) {
+        final Set<String> values = new LinkedHashSet<>();
+        final ValueMap properties = asset.getValueMap();
+
+        for (final String property : cfg.properties()) {
+            Collections.addAll(values, properties.get(StringUtils.removeStart(property, "./"), new String[0]));
+        }
+
+        final TagManager tagManager = asset.getResourceResolver().adaptTo(TagManager.class);
+        if (tagManager != null) {
+            for (final String property : cfg.tag_properties()) {
+                for (final String tagId : properties.get(StringUtils.removeStart(property, "./"), new String[0])) {
+                    final Tag tag = tagManager.resolve(tagId);
+                    if (tag != null) {
+                        values.add(tag.getTitle());
+                    }
+                }
+            }
+        }
+
+        final Set<String> texts = new LinkedHashSet<>();
+
+        for (final String value : values) {
+            if (StringUtils.isBlank(value) || value.length() > MAX_TEXT_LENGTH) {
+                continue;
+            }
+
+            texts.add(value);
+
+            if (cfg.words()) {
+                for (final String word : WORD_DELIMITER.split(value)) {
+                    if (word.length() >= MIN_WORD_LENGTH && !word.equals(value)) {
+                        texts.add(word);
+                    }
+                }
+            }
+        }
+
+        return texts;
+    }
+
+    private void index(final String path, final Set<String> texts) {
+        textsByPath.put(path, texts);
+
+        for (final String text : texts) {
+            trie.add(text, path);
+        }
+    }
+
+    /**
+     * Removes the asset at the path, or all assets beneath it.
+     */
+    private void removeAll(final String path) {
+        final List<String> paths = new ArrayList<>();
+
+        if (textsByPath.containsKey(path)) {
+            paths.add(path);
+        }
+        paths.addAll(textsByPath.subMap(path + "/", path + "0").keySet());
+
+        for (final String assetPath : paths) {
+            for (final String text : textsByPath.remove(assetPath)) {
+                trie.remove(text, assetPath);
+            }
+        }
+    }
+
+    private boolean isIndexedPath(final String path) {
+        for (final String indexedPath : cfg.paths()) {
+            if (StringUtils.equals(path, indexedPath) || StringUtils.startsWith(path, StringUtils.removeEnd(indexedPath, "/") + "/")) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    @Activate
+    @Modified
+    protected void activate(Cfg cfg) {
+        deactivate();
+
+        this.cfg = cfg;
+
+        lock.writeLock().lock();
+        try {
+            trie = new SuggestionTrie(cfg.max_candidates());
+            textsByPath = new TreeMap<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        if (cfg.enabled()) {
+            executorService = Executors.newSingleThreadExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, "asset-share-commons-suggestion-index");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+            // The index is built in the background, so as not to delay the start up of the bundle.
+            executorService.submit(this::build);
+        }
+    }
+
+    @Deactivate
+    protected void deactivate() {
+        ready = false;
+
+        if (executorService != null) {
+            executorService.shutdownNow();
+            executorService = null;
+        }
+    }
+
+    @ObjectClassDefinition(name = "Asset Share Commons - Search Suggestion Index")
+    public @interface Cfg {
+        @AttributeDefinition(
+                name = "Enabled",
+                description = "Builds an in-memory index of the configured asset texts at start up, which is used to suggest search terms as they are typed. The index is kept current as assets change."
+        )
+        boolean enabled() default false;
+
+        @AttributeDefinition(
+                name = "Paths",
+                description = "The assets beneath these paths are indexed. This should cover the paths configured on the search pages that use suggestions; suggestions are further filtered by the search page's paths."
+        )
+        String[] paths() default { "/content/dam" };
+
+        @AttributeDefinition(
+                name = "Properties",
+                description = "The relative paths (from the asset) of the properties whose values are indexed."
+        )
+        String[] properties() default { "jcr:content/metadata/dc:title" };
+
+        @AttributeDefinition(
+                name = "Tag properties",
+                description = "The relative paths (from the asset) of the properties whose tags' titles are indexed."
+        )
+        String[] tag_properties() default { "jcr:content/metadata/cq:tags" };
+
+        @AttributeDefinition(
+                name = "Index words",
+                description = "In addition to the whole values, index the individual words of multi-word values, so that they can be completed from any of their words."
+        )
+        boolean words() default true;
+
+        @AttributeDefinition(
+                name = "Max candidates",
+                description = "The maximum number of completions held per prefix. Completions are filtered by the user's permissions, so this should comfortably exceed the number of suggestions displayed."
+        )
+        int max_candidates() default 50;
+    }
+}
@@ -0,0 +1,317 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.adobe.aem.commons.assetshare.search.impl.suggest;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * A prefix tree of suggestion texts, each weighted by the number of assets it was indexed for.
+ * <br>
+ * Every node holds the heaviest terms of its subtree, so completing a prefix is a walk down the prefix's characters and does not depend on the number of indexed terms.
+ * The top terms are kept current as terms are added and removed, by recomputing them along the changed term's path only.
+ * <br>
+ * This class is not thread-safe.
+ */
+final class SuggestionTrie {
+    private static final Node[] NO_CHILDREN = new Node[0];
+    private static final char[] NO_LABELS = new char[0];
+    private static final Term[] NO_TERMS = new Term[0];
+
+    // Heaviest first; ties are broken alphabetically so completions are stable.
+    private static final Comparator<Term> BY_WEIGHT = Comparator.comparingInt(Term::getWeight).reversed().thenComparing(Term::getKey);
+
+    private final int topSize;
+
+    private final Node root = new Node();
+
+    private int size = 0;
+
+    /**
+     * @param topSize the maximum number of terms a completion may return.
+     */
+    SuggestionTrie(final int topSize) {
+        this.topSize = Math.max(1, topSize);
+    }
+
+    /**
+     * @param text the text to normalize.
+     * @return the case and whitespace insensitive form of the text, or null if the text is blank.
+     */
+    static String normalize(final String text) {
+        return StringUtils.lowerCase(StringUtils.trimToNull(StringUtils.normalizeSpace(text)), Locale.ROOT);
+    }
+
+    /**
+     * @return the number of distinct terms in the trie.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @param text the suggestion text.
+     * @param path the path of the asset the text was indexed for.
+     */
+    void add(final String text, final String path) {
+        add(text, path, true);
+    }
+
+    /**
+     * Adds the text without updating the top terms; {@link #computeTops()} must be called before completing.
+     * Use this when bulk loading the trie.
+     *
+     * @param text the suggestion text.
+     * @param path the path of the asset the text was indexed for.
+     */
+    void load(final String text, final String path) {
+        add(text, path, false);
+    }
+
+    /**
+     * @param text the suggestion text.
+     * @param path the path of the asset the text is no longer indexed for.
+     */
+    void remove(final String text, final String path) {
+        final String key = normalize(text);
+
+        if (key == null) {
+            return;
+        }
+
+        final Node[] nodes = walk(key);
+
+        if (nodes == null) {
+            return;
+        }
+
+        final Node node = nodes[key.length()];
+
+        if (node.term == null || !node.term.paths.remove(path)) {
+            return;
+        }
+
+        if (node.term.paths.isEmpty()) {
+            node.term = null;
+            size--;
+        }
+
+        // Prune the nodes that no longer lead to any term.
+        for (int i = key.length(); i > 0 && nodes[i].term == null && nodes[i].children.length == 0; i--) {
+            nodes[i - 1].removeChild(key.charAt(i - 1));
+        }
+
+        for (int i = key.length(); i >= 0; i--) {
+            nodes[i].computeTop(topSize);
+        }
+    }
+
+    /**
+     * @param prefix the prefix to complete.
+     * @return the heaviest terms starting with the prefix, heaviest first.
+     */
+    List<Term> complete(final String prefix) {
+        final String key = normalize(prefix);
+
+        if (key == null) {
+            return Collections.emptyList();
+        }
+
+        Node node = root;
+        for (int i = 0; i < key.length() && node != null; i++) {
+            node = node.getChild(key.charAt(i));
+        }
+
+        return node == null ? Collections.emptyList() : Collections.unmodifiableList(Arrays.asList(node.top));
+    }
+
+    /**
+     * Computes the top terms of every node; call this once after bulk {@link #load(String, String) loading} the trie.
+     */
+    void computeTops() {
+        computeTops(root);
+    }
+
+    private void computeTops(final Node node) {
+        for (final Node child : node.children) {
+            computeTops(child);
+        }
+
+        node.computeTop(topSize);
+    }
+
+    private void add(final String text, final String path, final boolean updateTops) {
+        final String key = normalize(text);
+
+        if (key == null) {
+            return;
+        }
+
+        final Node[] nodes = new Node[key.length() + 1];
+        nodes[0] = root;
+
+        for (int i = 0; i < key.length(); i++) {
+            nodes[i + 1] = nodes[i].getOrAddChild(key.charAt(i));
+        }
+
+        final Node node = nodes[key.length()];
+
+        if (node.term == null) {
+            node.term = new Term(key, StringUtils.normalizeSpace(text).trim());
+            size++;
+        }
+
+        if (node.term.paths.add(path) && updateTops) {
+            for (int i = key.length(); i >= 0; i--) {
+                nodes[i].computeTop(topSize);
+            }
+        }
+    }
+
+    private Node[] walk(final String key) {
+        final Node[] nodes = new Node[key.length() + 1];
+        nodes[0] = root;
+
+        for (int i = 0; i < key.length(); i++) {
+            nodes[i + 1] = nodes[i].getChild(key.charAt(i));
+
+            if (nodes[i + 1] == null) {
+                return null;
+            }
+        }
+
+        return nodes;
+    }
+
+    static final class Term {
+        private final String key;
+        private final String text;
+        private final Set<String> paths = new HashSet<>(2);
+
+        Term(final String key, final String text) {
+            this.key = key;
+            this.text = text;
+        }
+
+        String getKey() {
+            return key;
+        }
+
+        /**
+         * @return the text as it was first indexed, ie. with its original casing.
+         */
+        String getText() {
+            return text;
+        }
+
+        int getWeight() {
+            return paths.size();
+        }
+
+        /**
+         * @return the paths of the assets the term was indexed for.
+         */
+        Set<String> getPaths() {
+            return Collections.unmodifiableSet(paths);
+        }
+    }
+
+    private static final class Node {
+        // Children are kept in parallel arrays sorted by label, which is considerably smaller than a Map per node.
+        private char[] labels = NO_LABELS;
+        private Node[] children = NO_CHILDREN;
+        private Term term;
+        private Term[] top = NO_TERMS;
+
+        Node getChild(final char label) {
+            final int index = Arrays.binarySearch(labels, label);
+            return index < 0 ? null : children[index];
+        }
+
+        Node getOrAddChild(final char label) {
+            int index = Arrays.binarySearch(labels, label);
+
+            if (index >= 0) {
+                return children[index];
+            }
+
+            index = -(index + 1);
+
+            final char[] newLabels = new char[labels.length + 1];
+            final Node[] newChildren = new Node[children.length + 1];
+
+            System.arraycopy(labels, 0, newLabels, 0, index);
+            System.arraycopy(children, 0, newChildren, 0, index);
+            System.arraycopy(labels, index, newLabels, index + 1, labels.length - index);
+            System.arraycopy(children, index, newChildren, index + 1, children.length - index);
+
+            newLabels[index] = label;
+            newChildren[index] = new Node();
+
+            labels = newLabels;
+            children = newChildren;
+
+            return newChildren[index];
+        }
+
+        void removeChild(final char label) {
+            final int index = Arrays.binarySearch(labels, label);
+
+            if (index < 0) {
+                return;
+            }
+
+            final char[] newLabels = new char[labels.length - 1];
+            final Node[] newChildren = new Node[children.length - 1];
+
+            System.arraycopy(labels, 0, newLabels, 0, index);
+            System.arraycopy(children, 0, newChildren, 0, index);
+            System.arraycopy(labels, index + 1, newLabels, index, labels.length - index - 1);
+            System.arraycopy(children, index + 1, newChildren, index, children.length - index - 1);
+
+            labels = newLabels;
+            children = newChildren;
+        }
+
+        void computeTop(final int topSize) {
+            final List<Term> candidates = new ArrayList<>();
+
+            if (term != null) {
+                candidates.add(term);
+            }
+
+            for (final Node child : children) {
+                candidates.addAll(Arrays.asList(child.top));
+            }
+
+            candidates.sort(BY_WEIGHT);
+
+            top = candidates.subList(0, Math.min(topSize, candidates.size())).toArray(NO_TERMS);
+        }
+    }
+}
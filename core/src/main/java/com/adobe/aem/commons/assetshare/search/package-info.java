@@ -17,7 +17,7 @@
  *
  */
 
-@Version("3.0.0")
+@Version("3.1.0")
 package com.adobe.aem.commons.assetshare.search;
 
 import org.osgi.annotation.versioning.Version;
@@ -26,7 +26,9 @@ public interface QuerySearchPostProcessor {
      *
      *
      * @param request the {@link SlingHttpServletRequest} object that initiates this search.
-     * @param query the QueryBuilder query executed to generate the results and searchResult.
+     * @param query the QueryBuilder query the results and searchResult were generated for. The query is only guaranteed to have been executed on the request's thread if the search results cache,
+     *              the prefetching of the next page, the coalescing of concurrent searches and the search time budget are all disabled; otherwise the hits may have been obtained without executing it,
+     *              in which case calling query.getResult() executes the query again. Use searchResult to access the hits.
      * @param results the results as created by {@link QuerySearchProviderImpl}
      * @param searchResult the "raw" QueryBuilder {@link SearchResult} object.
      * @return the adjusted results object (may be a brand new {@link Results} obj).
@@ -0,0 +1,222 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.adobe.aem.commons.assetshare.search.providers.impl;
+
+import com.adobe.aem.commons.assetshare.components.predicates.PagePredicate;
+import com.adobe.aem.commons.assetshare.search.UnsafeSearchException;
+import com.adobe.aem.commons.assetshare.search.impl.metrics.SearchPhase;
+import com.adobe.aem.commons.assetshare.search.impl.metrics.SearchTimings;
+import com.adobe.aem.commons.assetshare.search.providers.QuerySearchPostProcessor;
+import com.adobe.aem.commons.assetshare.search.providers.QuerySearchPreProcessor;
+import com.adobe.aem.commons.assetshare.search.providers.SearchProvider;
+import com.adobe.aem.commons.assetshare.search.providers.impl.bitmap.BitmapIndex;
+import com.adobe.aem.commons.assetshare.search.providers.impl.cache.CachedSearchResult;
+import com.adobe.aem.commons.assetshare.search.results.AssetResult;
+import com.adobe.aem.commons.assetshare.search.results.Result;
+import com.adobe.aem.commons.assetshare.search.results.Results;
+import com.adobe.aem.commons.assetshare.search.results.impl.results.QueryBuilderResultsImpl;
+import com.day.cq.search.Predicate;
+import com.day.cq.search.PredicateGroup;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.models.factory.ModelFactory;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Modified;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferenceCardinality;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.jcr.RepositoryException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.osgi.framework.Constants.SERVICE_RANKING;
+
+/**
+ * Answers searches from the {@link BitmapIndex}, a sidecar index of the assets' indexed properties, rather than querying Oak; this keeps searches fast while Oak's indexes are being rebuilt.
+ * <br>
+ * The index's matches are checked against the user's permissions as they are paged through; like p.guessTotal, counting stops once the guessed total, or at most the configured maximum total, is reached.
+ * Any search the index cannot answer (ie. unindexed properties, fulltext syntax beyond simple terms, keyset pagination or facets) is delegated to the {@link QuerySearchProviderImpl}.
+ */
+@Component(property = {
+        SERVICE_RANKING + ":Integer=" + (Integer.MIN_VALUE + 1)
+})
+@Designate(ocd = BitmapSearchProviderImpl.Cfg.class)
+public class BitmapSearchProviderImpl implements SearchProvider {
+    private static final Logger log = LoggerFactory.getLogger(BitmapSearchProviderImpl.class);
+
+    private static final long DEFAULT_LIMIT = 10;
+
+    private Cfg cfg;
+
+    @Reference
+    private transient BitmapIndex bitmapIndex;
+
+    @Reference
+    private transient ModelFactory modelFactory;
+
+    @Reference(target = "(component.name=com.adobe.aem.commons.assetshare.search.providers.impl.QuerySearchProviderImpl)")
+    private transient SearchProvider querySearchProvider;
+
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL)
+    private transient QuerySearchPreProcessor querySearchPreProcessor;
+
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL)
+    private transient QuerySearchPostProcessor querySearchPostProcessor;
+
+    @Override
+    public boolean accepts(final SlingHttpServletRequest request) {
+        return bitmapIndex.isReady();
+    }
+
+    @Override
+    public Results getResults(final SlingHttpServletRequest request) throws UnsafeSearchException, RepositoryException {
+        final SearchTimings searchTimings = SearchTimings.get(request);
+
+        long phaseStart = searchTimings.start();
+        final PagePredicate pagePredicate = request.adaptTo(PagePredicate.class);
+
+        // Post processors are handed the executed QueryBuilder query, and facets and keyset cursors are computed by Oak.
+        if (querySearchPostProcessor != null || pagePredicate.isKeysetPagination() || !pagePredicate.getFacetProperties().isEmpty()) {
+            return querySearchProvider.getResults(request);
+        }
+
+        final Map<String, String> params = QueryBuilderParams.getParams(request, pagePredicate);
+        searchTimings.stop(SearchPhase.PARAMS, phaseStart);
+
+        final PredicateGroup root;
+        if (querySearchPreProcessor != null) {
+            phaseStart = searchTimings.start();
+            root = querySearchPreProcessor.process(request, params);
+            searchTimings.stop(SearchPhase.PRE_PROCESS, phaseStart);
+        } else {
+            root = PredicateGroup.create(params);
+        }
+
+        return getResults(request, root);
+    }
+
+    /**
+     * @param request the request.
+     * @param root the query's root PredicateGroup.
+     * @return the page of results of the query, answered by the index if it can.
+     */
+    Results getResults(final SlingHttpServletRequest request, final PredicateGroup root) throws UnsafeSearchException, RepositoryException {
+        final SearchTimings searchTimings = SearchTimings.get(request);
+
+        long phaseStart = searchTimings.start();
+        final long queryStartTime = System.currentTimeMillis();
+        final List<String> matches = bitmapIndex.match(root);
+
+        if (matches == null) {
+            log.debug("The search bitmap index cannot answer the query, so it is executed by the query builder");
+            return querySearchProvider.getResults(request);
+        }
+
+        final long offset = Math.max(0, getLong(root.get(Predicate.PARAM_OFFSET), 0));
+        final long limit = getLong(root.get(Predicate.PARAM_LIMIT), DEFAULT_LIMIT);
+        final long guessTotal = getLong(root.get(Predicate.PARAM_GUESS_TOTAL), Long.MAX_VALUE);
+
+        if (limit < 0) {
+            // Unlimited pages are left to the query builder, which streams them.
+            return querySearchProvider.getResults(request);
+        }
+
+        // The total is counted up to the guessed total, but always past the requested page, so whether there are more readable matches is known.
+        final long countUpTo = Math.max(offset + limit, Math.min(guessTotal, Math.max(0, cfg.total_max())));
+
+        final ResourceResolver resourceResolver = request.getResourceResolver();
+        final List<Resource> hits = new ArrayList<>();
+        final List<String> hitPaths = new ArrayList<>();
+
+        long readable = 0;
+
+        // The index is built with a service user, so each match is checked against the user's permissions.
+        for (int index = 0; index < matches.size() && readable <= countUpTo; index++) {
+            final Resource resource = resourceResolver.getResource(matches.get(index));
+
+            if (resource == null) {
+                continue;
+            }
+
+            if (readable >= offset && readable < offset + limit) {
+                hits.add(resource);
+                hitPaths.add(resource.getPath());
+            }
+
+            readable++;
+        }
+
+        // Only a readable match past those counted means there are more matches than the total.
+        final boolean hasMore = readable > countUpTo;
+        final CachedSearchResult searchResult = CachedSearchResult.of(hitPaths, Math.min(readable, countUpTo), hasMore, offset, limit,
+                System.currentTimeMillis() - queryStartTime, "Search bitmap index [ " + matches.size() + " ] matches");
+        searchTimings.stop(SearchPhase.QUERY, phaseStart);
+
+        phaseStart = searchTimings.start();
+        final List<Result> results = new ArrayList<>(hits.size());
+        for (final Resource hit : hits) {
+            final AssetResult assetResult = modelFactory.getModelFromWrappedRequest(request, hit, AssetResult.class);
+
+            if (assetResult != null) {
+                results.add(assetResult);
+            }
+        }
+        searchTimings.stop(SearchPhase.ADAPTATION, phaseStart);
+
+        return new QueryBuilderResultsImpl(results, searchResult.toSearchResult(resourceResolver));
+    }
+
+    @Activate
+    @Modified
+    protected void activate(Cfg cfg) {
+        this.cfg = cfg;
+    }
+
+    private static long getLong(final String value, final long defaultValue) {
+        if (Boolean.TRUE.toString().equalsIgnoreCase(value)) {
+            // p.guessTotal=true only counts the matches of the requested page.
+            return 0;
+        }
+
+        try {
+            return StringUtils.isBlank(value) ? defaultValue : Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    @ObjectClassDefinition(name = "Asset Share Commons - Search Provider - Search Bitmap Index")
+    public @interface Cfg {
+        @AttributeDefinition(
+                name = "Maximum total",
+                description = "The maximum number of matches that are checked against the user's permissions to count the total, unless p.guessTotal requests fewer. Matches are always checked up to the first readable match past the requested page. Larger totals are reported as guessed totals."
+        )
+        long total_max() default 1000;
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.adobe.aem.commons.assetshare.search.providers.impl;
+
+import com.adobe.aem.commons.assetshare.search.impl.predicateevaluators.FacetPredicateEvaluator;
+import com.day.cq.search.Predicate;
+import com.day.cq.search.PredicateGroup;
+import com.day.cq.search.eval.JcrPropertyPredicateEvaluator;
+import com.day.cq.search.facets.Bucket;
+import com.day.cq.search.facets.Facet;
+import com.day.cq.search.result.SearchResult;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Requests facet counts for a set of properties as part of the search query itself, and maps the resulting facets back onto the properties.
+ * <br>
+ * Each property is added to the query as a non-constraining {@link FacetPredicateEvaluator} predicate, and the query is executed with the Oak facet strategy, so the counts are computed by the Oak index in the same query rather than by one query per option.
+ */
+final class FacetCounts {
+    private static final Logger log = LoggerFactory.getLogger(FacetCounts.class);
+
+    private static final String FACET_STRATEGY_OAK = "oak";
+    private static final int PREDICATE_NAME_OFFSET = 1000;
+
+    // Predicate name -> property
+    private final Map<String, String> properties;
+
+    private FacetCounts(final Map<String, String> properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * @param root the root predicate group of the query to request the facets with.
+     * @param facetProperties the relative paths of the properties to compute facet counts for.
+     * @return the facet counts requested with the query.
+     */
+    static FacetCounts apply(final PredicateGroup root, final Collection<String> facetProperties) {
+        final Map<String, String> properties = new LinkedHashMap<>();
+
+        int i = PREDICATE_NAME_OFFSET;
+        for (final String facetProperty : facetProperties) {
+            // Offset the predicate names so they do not collide with the numbered predicates already in the root group.
+            final String name = i++ + "_" + FacetPredicateEvaluator.PREDICATE_NAME;
+            final Predicate predicate = new Predicate(name, FacetPredicateEvaluator.PREDICATE_NAME);
+
+            predicate.set(JcrPropertyPredicateEvaluator.PROPERTY, facetProperty);
+            root.add(predicate);
+            properties.put(name, facetProperty);
+        }
+
+        if (!properties.isEmpty()) {
+            root.set(Predicate.PARAM_FACET_STRATEGY, FACET_STRATEGY_OAK);
+        }
+
+        return new FacetCounts(properties);
+    }
+
+    /**
+     * @return true if facets were requested for at least one property.
+     */
+    boolean isRequested() {
+        return !properties.isEmpty();
+    }
+
+    /**
+     * @param searchResult the result of the query the facets were requested with.
+     * @return the number of results per distinct value, keyed by property.
+     */
+    Map<String, Map<String, Long>> collect(final SearchResult searchResult) {
+        if (properties.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        final Map<String, Facet> facets;
+        try {
+            facets = searchResult.getFacets();
+        } catch (Exception e) {
+            // Facets are a nicety; a failure to compute them must not fail the search.
+            log.warn("Could not collect the facets of the search result", e);
+            return Collections.emptyMap();
+        }
+
+        final Map<String, Map<String, Long>> facetCounts = new HashMap<>();
+
+        if (facets == null) {
+            return facetCounts;
+        }
+
+        for (final Map.Entry<String, Facet> entry : facets.entrySet()) {
+            // Facets are keyed by the predicate's path in the predicate tree (ie. 1000_facet)
+            final String property = properties.get(StringUtils.substringAfterLast("." + entry.getKey(), "."));
+
+            if (property == null || entry.getValue() == null) {
+                continue;
+            }
+
+            final Map<String, Long> counts = new HashMap<>();
+            for (final Bucket bucket : entry.getValue().getBuckets()) {
+                counts.merge(bucket.getValue(), bucket.getCount(), Long::sum);
+            }
+
+            facetCounts.put(property, Collections.unmodifiableMap(counts));
+        }
+
+        return facetCounts;
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.adobe.aem.commons.assetshare.search.providers.impl;
+
+import com.day.cq.search.result.Hit;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.jcr.Node;
+import javax.jcr.Property;
+import javax.jcr.PropertyType;
+import javax.jcr.RepositoryException;
+import javax.jcr.Value;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Projects a fixed set of properties from the result rows of a query, using the query's own session.
+ * <br>
+ * This avoids resolving each hit to a Sling Resource, and constructing an AssetModel and its CombinedProperties (which read the asset's and its metadata's ValueMaps), for the handful of values result cards display.
+ * <br>
+ * Projections are configured as &lt;name&gt;=&lt;relative property path&gt; (ie. title=jcr:content/metadata/dc:title); the value is served under the name. Multi-valued properties are projected as their first value.
+ */
+final class HitProjection {
+    private static final Logger log = LoggerFactory.getLogger(HitProjection.class);
+
+    static final String EXCERPT = "excerpt";
+
+    private static final String MAPPING_DELIMITER = "=";
+
+    // Name -> relative property path
+    private final Map<String, String> projections;
+    private final boolean excerpt;
+
+    HitProjection(final String[] projections, final boolean excerpt) {
+        final Map<String, String> tmp = new LinkedHashMap<>();
+
+        if (projections != null) {
+            for (final String projection : projections) {
+                final String name = StringUtils.trimToNull(StringUtils.substringBefore(projection, MAPPING_DELIMITER));
+                final String relPath = StringUtils.trimToNull(StringUtils.removeStart(StringUtils.trimToEmpty(StringUtils.substringAfter(projection, MAPPING_DELIMITER)), "./"));
+
+                if (name != null && relPath != null) {
+                    tmp.put(name, relPath);
+                } else {
+                    log.warn("Ignoring invalid hit projection [ {} ]; projections must be in the format <name>=<relative property path>", projection);
+                }
+            }
+        }
+
+        this.projections = Collections.unmodifiableMap(tmp);
+        this.excerpt = excerpt;
+    }
+
+    /**
+     * @return true if the query must be executed with excerpts.
+     */
+    boolean isExcerpt() {
+        return excerpt;
+    }
+
+    /**
+     * @param hit the hit to project; this must be read before the query's resource resolver is closed.
+     * @return the projected values of the hit, keyed by name; properties the hit does not have are omitted.
+     */
+    Map<String, Object> project(final Hit hit) {
+        final Map<String, Object> values = new HashMap<>();
+
+        try {
+            final Node node = hit.getNode();
+
+            for (final Map.Entry<String, String> projection : projections.entrySet()) {
+                if (node.hasProperty(projection.getValue())) {
+                    final Object value = toObject(node.getProperty(projection.getValue()));
+                    if (value != null) {
+                        values.put(projection.getKey(), value);
+                    }
+                }
+            }
+
+            if (excerpt) {
+                final String hitExcerpt = hit.getExcerpt();
+                if (StringUtils.isNotBlank(hitExcerpt)) {
+                    values.put(EXCERPT, hitExcerpt);
+                }
+            }
+        } catch (RepositoryException e) {
+            // Anything not projected is read from the asset itself.
+            log.debug("Could not project the values of a search hit", e);
+        }
+
+        return values;
+    }
+
+    private Object toObject(final Property property) throws RepositoryException {
+        final Value value;
+
+        if (property.isMultiple()) {
+            final Value[] values = property.getValues();
+            value = values.length > 0 ? values[0] : null;
+        } else {
+            value = property.getValue();
+        }
+
+        if (value == null) {
+            return null;
+        }
+
+        switch (value.getType()) {
+            case PropertyType.LONG:
+                return value.getLong();
+            case PropertyType.DOUBLE:
+                return value.getDouble();
+            case PropertyType.DECIMAL:
+                return value.getDecimal();
+            case PropertyType.BOOLEAN:
+                return value.getBoolean();
+            case PropertyType.DATE:
+                return value.getDate();
+            case PropertyType.BINARY:
+                // Binaries are never projected.
+                return null;
+            default:
+                return value.getString();
+        }
+    }
+}
@@ -0,0 +1,443 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.adobe.aem.commons.assetshare.search.providers.impl;
+
+import com.day.cq.search.Predicate;
+import com.day.cq.search.PredicateGroup;
+import com.day.cq.search.eval.RangePropertyPredicateEvaluator;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.jackrabbit.util.ISO8601;
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.request.RequestParameter;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * An opaque cursor for keyset (search-after) pagination.
+ * <br>
+ * Rather than having Oak skip over all previously loaded rows (p.offset), the next page is expressed as an inclusive range predicate on the order by property, starting at the last sort value of the previous page.
+ * QueryBuilder cannot express a range over the node path, and Oak does not guarantee the order of hits that share a sort value, so the cursor carries the paths of the loaded hits that share the last sort value (the "ties").
+ * The next page's query reads that many more rows, and the ties are dropped from its hits by path (see {@link #filter(List, long)}), which keeps the cost of each page constant.
+ * <br>
+ * Keyset pagination only applies when ordering by a single-valued Date, numeric or String property (case-sensitively); otherwise paging falls back to p.offset. It also falls back to p.offset if there are too many ties
+ * to carry, and once the range of the cursor is exhausted before all matches are loaded, as hits that lack the sort property are never matched by the range.
+ */
+final class KeysetCursor {
+    static final String REQUEST_PARAMETER = "p.cursor";
+
+    private static final String TYPE_DATE = "date";
+    private static final String TYPE_DECIMAL = "decimal";
+    private static final String TYPE_STRING = "string";
+
+    private static final String DATE_RANGE = "daterange";
+    private static final String RANGE_PROPERTY = "rangeproperty";
+    private static final String KEYSET_PREDICATE_NAME = "keyset";
+
+    private static final String DELIMITER = "\n";
+    private static final int MIN_FIELD_COUNT = 7;
+
+    // QueryBuilder's default p.limit.
+    private static final long DEFAULT_LIMIT = 10;
+
+    // Cursors are passed as request parameters, so the ties they carry are bounded; past this, paging falls back to p.offset.
+    private static final int MAX_TIES = 25;
+    private static final int MAX_TIES_LENGTH = 2048;
+
+    private final String orderBy;
+    private final String sort;
+    private final String type;
+    private final String value;
+    private final List<String> ties;
+    private final long loaded;
+    private final long total;
+
+    KeysetCursor(final String orderBy, final String sort, final String type, final String value, final List<String> ties, final long loaded, final long total) {
+        this.orderBy = orderBy;
+        this.sort = sort;
+        this.type = type;
+        this.value = value;
+        this.ties = Collections.unmodifiableList(new ArrayList<>(ties));
+        // Cursors are supplied by the client, so the counts are kept consistent with each other.
+        this.total = Math.max(0, total);
+        this.loaded = Math.min(Math.max(ties.size(), loaded), this.total);
+    }
+
+    /**
+     * @return the number of hits loaded up to, and including, the page this cursor was issued for.
+     */
+    long getLoaded() {
+        return loaded;
+    }
+
+    /**
+     * @return the total number of matches, as known when this cursor was issued.
+     */
+    long getTotal() {
+        return total;
+    }
+
+    /**
+     * @return the number of loaded hits that share this cursor's sort value.
+     */
+    int getTieCount() {
+        return ties.size();
+    }
+
+    /**
+     * @param request the request.
+     * @return the cursor provided by the request, or null if none, or an invalid cursor was provided.
+     */
+    static KeysetCursor fromRequest(final SlingHttpServletRequest request) {
+        final RequestParameter requestParameter = request.getRequestParameter(REQUEST_PARAMETER);
+        return requestParameter == null ? null : decode(requestParameter.getString());
+    }
+
+    /**
+     * @param token the encoded cursor.
+     * @return the decoded cursor, or null if the token is not a valid cursor.
+     */
+    static KeysetCursor decode(final String token) {
+        if (StringUtils.isBlank(token)) {
+            return null;
+        }
+
+        try {
+            final String[] fields = StringUtils.splitPreserveAllTokens(new String(Base64.getUrlDecoder().decode(token.trim()), StandardCharsets.UTF_8), DELIMITER);
+
+            if (fields.length < MIN_FIELD_COUNT
+                    || fields.length - MIN_FIELD_COUNT + 1 > MAX_TIES
+                    || !StringUtils.equalsAny(fields[2], TYPE_DATE, TYPE_DECIMAL, TYPE_STRING)) {
+                return null;
+            }
+
+            final long loaded = Long.parseLong(fields[4]);
+            final long total = Long.parseLong(fields[5]);
+
+            if (loaded < 0 || total < 0) {
+                return null;
+            }
+
+            return new KeysetCursor(fields[0], fields[1], fields[2], fields[3],
+                    Arrays.asList(Arrays.copyOfRange(fields, 6, fields.length)), loaded, total);
+        } catch (IllegalArgumentException e) {
+            // Includes NumberFormatException
+            return null;
+        }
+    }
+
+    /**
+     * @return the opaque, URL-safe representation of this cursor.
+     */
+    String encode() {
+        final List<Object> fields = new ArrayList<>(Arrays.asList(orderBy, sort, type, value, loaded, total));
+        fields.addAll(ties);
+
+        final String raw = StringUtils.join(fields, DELIMITER);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+    /**
+     * @param root the root predicate group of the query.
+     * @return the primary order by predicate if keyset pagination can be used with it, else null.
+     */
+    static Predicate getKeysetOrderBy(final PredicateGroup root) {
+        for (final Predicate predicate : root) {
+            if (Predicate.ORDER_BY.equals(predicate.getType())) {
+                final String orderBy = predicate.get(Predicate.ORDER_BY);
+
+                if (!StringUtils.startsWith(orderBy, "@")
+                        || StringUtils.equals(orderBy, "@jcr:score")
+                        || Predicate.IGNORE_CASE.equals(predicate.get(Predicate.PARAM_CASE))) {
+                    return null;
+                }
+
+                return predicate;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * @param orderByPredicate the primary order by predicate of the query.
+     * @return true if this cursor was issued for the same ordering.
+     */
+    boolean matches(final Predicate orderByPredicate) {
+        return orderByPredicate != null
+                && StringUtils.equals(orderBy, orderByPredicate.get(Predicate.ORDER_BY))
+                && StringUtils.equals(sort, getSort(orderByPredicate));
+    }
+
+    /**
+     * Restricts the query to the hits at or after this cursor's sort value, and reads enough rows for the ties already loaded to be dropped from them.
+     *
+     * @param root the root predicate group of the query to restrict.
+     */
+    void apply(final PredicateGroup root) {
+        final boolean descending = Predicate.SORT_DESCENDING.equals(sort);
+        final Predicate range = new Predicate(KEYSET_PREDICATE_NAME, TYPE_DATE.equals(type) ? DATE_RANGE : RANGE_PROPERTY);
+
+        range.set(RangePropertyPredicateEvaluator.PROPERTY, StringUtils.removeStart(orderBy, "@"));
+
+        if (descending) {
+            range.set(RangePropertyPredicateEvaluator.UPPER_BOUND, value);
+            range.set(RangePropertyPredicateEvaluator.UPPER_OPERATION, "<=");
+        } else {
+            range.set(RangePropertyPredicateEvaluator.LOWER_BOUND, value);
+            range.set(RangePropertyPredicateEvaluator.LOWER_OPERATION, ">=");
+        }
+
+        if (TYPE_DECIMAL.equals(type)) {
+            range.set(RangePropertyPredicateEvaluator.PROPERTY_DECIMAL, Boolean.TRUE.toString());
+        }
+
+        root.add(range);
+        root.set(Predicate.PARAM_OFFSET, "0");
+
+        final long limit = getLimit(root);
+        if (limit >= 0) {
+            root.set(Predicate.PARAM_LIMIT, String.valueOf(limit + ties.size()));
+        }
+    }
+
+    /**
+     * @param root the root predicate group of the query, before this cursor is applied to it.
+     * @return the page size of the query; negative if unlimited.
+     */
+    static long getLimit(final PredicateGroup root) {
+        final String limit = root.get(Predicate.PARAM_LIMIT);
+
+        try {
+            return StringUtils.isBlank(limit) ? DEFAULT_LIMIT : Long.parseLong(limit);
+        } catch (NumberFormatException e) {
+            return DEFAULT_LIMIT;
+        }
+    }
+
+    /**
+     * @param hitPaths the paths of the hits of the query this cursor was applied to, in order.
+     * @param limit the page size; negative if unlimited.
+     * @return the paths of the hits of the page, without the ties already loaded.
+     */
+    List<String> filter(final List<String> hitPaths, final long limit) {
+        final List<String> page = new ArrayList<>(hitPaths.size());
+
+        for (final String hitPath : hitPaths) {
+            if (limit >= 0 && page.size() >= limit) {
+                break;
+            } else if (!ties.contains(hitPath)) {
+                page.add(hitPath);
+            }
+        }
+
+        return page;
+    }
+
+    /**
+     * Determines the pagination of the current page of a keyset paginated search.
+     *
+     * @param orderByPredicate the primary order by predicate of the query.
+     * @param previous the cursor the current page was requested with, or null if it was requested by offset.
+     * @param hitPaths the paths of the hits of the current page, in order (after {@link #filter(List, long)}).
+     * @param resourceResolver the resource resolver used to read the sort values of the hits.
+     * @param startIndex the offset of the current page's query.
+     * @param totalMatches the total matches of the current page's query.
+     * @param more true if the current page's query has more matches after the current page.
+     * @return the pagination of the current page.
+     */
+    static Pagination paginate(final Predicate orderByPredicate,
+                               final KeysetCursor previous,
+                               final List<String> hitPaths,
+                               final ResourceResolver resourceResolver,
+                               final long startIndex,
+                               final long totalMatches,
+                               final boolean more) {
+        final long loaded;
+        final long total;
+
+        if (previous != null) {
+            loaded = previous.getLoaded() + hitPaths.size();
+            // The query of a cursor-requested page matches the ties already loaded and the remainder of the range, which bounds the total from below.
+            final long remaining = Math.max(0, totalMatches - previous.getTieCount() - hitPaths.size());
+            total = Math.max(loaded + remaining, previous.getTotal());
+        } else {
+            loaded = startIndex + hitPaths.size();
+            total = Math.max(loaded, totalMatches);
+        }
+
+        // Once the range is exhausted, any hits not yet loaded lack the sort property, and can only be loaded by offset.
+        final KeysetCursor next = more ? next(orderByPredicate, previous, hitPaths, resourceResolver, loaded, total) : null;
+
+        return new Pagination(next != null ? next.encode() : null, loaded, total, more || loaded < total);
+    }
+
+    /**
+     * @param orderByPredicate the primary order by predicate of the query.
+     * @param previous the cursor the current page was requested with, or null if this is the first page.
+     * @param hitPaths the paths of the hits of the current page, in order.
+     * @param resourceResolver the resource resolver used to read the sort values of the hits.
+     * @param loaded the number of hits loaded up to, and including, the current page.
+     * @param total the total number of matches.
+     * @return the cursor for the page following the current page, or null if it cannot be expressed as a cursor (ie. the last hit has no single sort value, or there are too many ties).
+     */
+    static KeysetCursor next(final Predicate orderByPredicate,
+                             final KeysetCursor previous,
+                             final List<String> hitPaths,
+                             final ResourceResolver resourceResolver,
+                             final long loaded,
+                             final long total) {
+        if (orderByPredicate == null || hitPaths.isEmpty()) {
+            return null;
+        }
+
+        final String relPath = StringUtils.removeStart(orderByPredicate.get(Predicate.ORDER_BY), "@");
+        final TypedValue last = getSortValue(resourceResolver, hitPaths.get(hitPaths.size() - 1), relPath);
+
+        if (last == null || StringUtils.contains(last.value, DELIMITER)) {
+            return null;
+        }
+
+        final Set<String> ties = new LinkedHashSet<>();
+        for (int i = hitPaths.size() - 1; i >= 0; i--) {
+            if (i < hitPaths.size() - 1 && !last.equals(getSortValue(resourceResolver, hitPaths.get(i), relPath))) {
+                break;
+            }
+            ties.add(hitPaths.get(i));
+        }
+
+        if (ties.size() == hitPaths.size() && previous != null && previous.matches(orderByPredicate) && StringUtils.equals(previous.value, last.value)) {
+            // The entire page shares the previous page's last sort value, so the ties carry over.
+            ties.addAll(previous.ties);
+        }
+
+        if (ties.size() > MAX_TIES || StringUtils.join(ties, DELIMITER).length() > MAX_TIES_LENGTH) {
+            return null;
+        }
+
+        return new KeysetCursor(orderByPredicate.get(Predicate.ORDER_BY), getSort(orderByPredicate), last.type, last.value, new ArrayList<>(ties), loaded, total);
+    }
+
+    private static String getSort(final Predicate orderByPredicate) {
+        return StringUtils.defaultIfBlank(orderByPredicate.get(Predicate.PARAM_SORT), Predicate.SORT_ASCENDING);
+    }
+
+    private static TypedValue getSortValue(final ResourceResolver resourceResolver, final String hitPath, final String relPath) {
+        final Resource resource = resourceResolver.getResource(hitPath);
+
+        if (resource == null) {
+            return null;
+        }
+
+        final Resource propertyParent = StringUtils.contains(relPath, "/") ? resource.getChild(StringUtils.substringBeforeLast(relPath, "/")) : resource;
+
+        if (propertyParent == null) {
+            return null;
+        }
+
+        final Object value = propertyParent.getValueMap().get(StringUtils.substringAfterLast("/" + relPath, "/"));
+
+        if (value instanceof Calendar) {
+            return new TypedValue(TYPE_DATE, ISO8601.format((Calendar) value));
+        } else if (value instanceof Number) {
+            return new TypedValue(TYPE_DECIMAL, value.toString());
+        } else if (value instanceof String) {
+            return new TypedValue(TYPE_STRING, (String) value);
+        }
+
+        // Missing, multi-valued or otherwise unsupported sort values cannot be expressed as a range.
+        return null;
+    }
+
+    private static final class TypedValue {
+        private final String type;
+        private final String value;
+
+        TypedValue(final String type, final String value) {
+            this.type = type;
+            this.value = value;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            } else if (!(o instanceof TypedValue)) {
+                return false;
+            }
+
+            final TypedValue that = (TypedValue) o;
+            return type.equals(that.type) && value.equals(that.value);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(type, value);
+        }
+    }
+
+    /**
+     * The pagination of a page of a keyset paginated search.
+     */
+    static final class Pagination {
+        private final String nextCursor;
+        private final long loaded;
+        private final long total;
+        private final boolean more;
+
+        Pagination(final String nextCursor, final long loaded, final long total, final boolean more) {
+            this.nextCursor = nextCursor;
+            this.loaded = loaded;
+            this.total = total;
+            this.more = more;
+        }
+
+        /**
+         * @return the encoded cursor for the next page, or null if the next page must be loaded by offset.
+         */
+        String getNextCursor() {
+            return nextCursor;
+        }
+
+        /**
+         * @return the number of hits loaded up to, and including, the current page; this is also the offset of the next page.
+         */
+        long getLoaded() {
+            return loaded;
+        }
+
+        long getTotal() {
+            return total;
+        }
+
+        boolean isMore() {
+            return more;
+        }
+    }
+}
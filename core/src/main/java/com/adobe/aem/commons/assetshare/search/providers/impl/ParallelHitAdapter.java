@@ -0,0 +1,152 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.adobe.aem.commons.assetshare.search.providers.impl;
+
+import com.adobe.aem.commons.assetshare.search.results.AssetResult;
+import com.adobe.aem.commons.assetshare.search.results.Result;
+import com.adobe.aem.commons.assetshare.util.impl.RequestScopedResourceResolversFilter;
+import com.adobe.aem.commons.assetshare.util.impl.requests.ResourceResolverOverrideRequestWrapper;
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.resource.LoginException;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.models.factory.ModelFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Adapts search hits to AssetResults on a bounded pool of worker threads, preserving hit order.
+ * <br>
+ * ResourceResolvers are not thread-safe, so each worker adapts its contiguous slice of the hits using its own clone of the request's ResourceResolver (ie. the same user).
+ * Neither is the request, so each worker adapts its hits from its own detached view of the request (see {@link ResourceResolverOverrideRequestWrapper}); request attributes the models set while being adapted are not visible to the request.
+ * As the adapted models hold onto Resources of these clones, the clones are kept open until the request completes, at which point they are closed by the {@link RequestScopedResourceResolversFilter}.
+ * Hits can therefore only be adapted in parallel for requests processed by that filter (see {@link #isParallel(SlingHttpServletRequest, int)}).
+ */
+final class ParallelHitAdapter {
+    private static final Logger log = LoggerFactory.getLogger(ParallelHitAdapter.class);
+
+    private final ModelFactory modelFactory;
+    private final ExecutorService executorService;
+    private final int maxWorkers;
+    private final int minHitsPerWorker;
+
+    ParallelHitAdapter(final ModelFactory modelFactory, final ExecutorService executorService, final int maxWorkers, final int minHitsPerWorker) {
+        this.modelFactory = modelFactory;
+        this.executorService = executorService;
+        this.maxWorkers = Math.max(1, maxWorkers);
+        this.minHitsPerWorker = Math.max(1, minHitsPerWorker);
+    }
+
+    /**
+     * @param hitPaths the number of hits to adapt.
+     * @return the number of workers that will be used to adapt the hits.
+     */
+    int getWorkerCount(final int hitPaths) {
+        return Math.max(1, Math.min(maxWorkers, hitPaths / minHitsPerWorker));
+    }
+
+    /**
+     * @param request the request.
+     * @param hitPaths the number of hits to adapt.
+     * @return true if the hits can, and are worth being, adapted in parallel for the request.
+     */
+    boolean isParallel(final SlingHttpServletRequest request, final int hitPaths) {
+        return getWorkerCount(hitPaths) > 1 && RequestScopedResourceResolversFilter.isActive(request);
+    }
+
+    /**
+     * Must be called from the request thread, which is blocked until all hits are adapted, or the deadline has passed.
+     *
+     * @param request the request.
+     * @param hitPaths the paths of the hits to adapt, in order.
+     * @param deadline the time (in ms) after which no more hits are adapted.
+     * @return the adapted results, in hit order, with null for each hit that could not be adapted. If the deadline passed, only the results of the leading hits that were adapted in time are returned.
+     * @throws LoginException if the request's resource resolver could not be cloned.
+     */
+    List<Result> adapt(final SlingHttpServletRequest request, final List<String> hitPaths, final long deadline) throws LoginException {
+        final int workers = getWorkerCount(hitPaths.size());
+        final int sliceSize = (int) Math.ceil((double) hitPaths.size() / workers);
+
+        final List<Future<List<Result>>> futures = new ArrayList<>(workers);
+
+        for (int start = 0; start < hitPaths.size(); start += sliceSize) {
+            final List<String> slice = hitPaths.subList(start, Math.min(hitPaths.size(), start + sliceSize));
+
+            // Cloning, registering and detaching happen on the request thread, as neither the request's resource resolver nor the request are thread-safe.
+            final ResourceResolver resourceResolver = request.getResourceResolver().clone(null);
+            RequestScopedResourceResolversFilter.register(request, resourceResolver);
+
+            final SlingHttpServletRequest workerRequest = new ResourceResolverOverrideRequestWrapper(request, resourceResolver);
+            futures.add(executorService.submit(() -> adaptSlice(workerRequest, slice, deadline)));
+        }
+
+        final List<Result> results = new ArrayList<>(hitPaths.size());
+
+        for (int i = 0; i < futures.size(); i++) {
+            final int expected = Math.min(hitPaths.size(), (i + 1) * sliceSize) - i * sliceSize;
+            List<Result> sliceResults;
+
+            try {
+                sliceResults = futures.get(i).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.error("Interrupted while adapting search hits", e);
+                sliceResults = Collections.nCopies(expected, null);
+            } catch (ExecutionException e) {
+                log.error("Could not adapt a slice of the search hits", e.getCause());
+                sliceResults = Collections.nCopies(expected, null);
+            }
+
+            results.addAll(sliceResults);
+
+            if (sliceResults.size() < expected) {
+                // The slice ran out of time, so the results of the following slices would leave a gap.
+                break;
+            }
+        }
+
+        return results;
+    }
+
+    private List<Result> adaptSlice(final SlingHttpServletRequest workerRequest, final List<String> hitPaths, final long deadline) {
+        final ResourceResolver resourceResolver = workerRequest.getResourceResolver();
+        final List<Result> results = new ArrayList<>(hitPaths.size());
+
+        for (final String hitPath : hitPaths) {
+            if (System.currentTimeMillis() >= deadline) {
+                break;
+            }
+
+            final Resource hitResource = resourceResolver.getResource(hitPath);
+            final AssetResult assetResult = hitResource == null ? null : modelFactory.getModelFromWrappedRequest(workerRequest, hitResource, AssetResult.class);
+
+            results.add(assetResult);
+        }
+
+        return results;
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.adobe.aem.commons.assetshare.search.providers.impl;
+
+import com.adobe.aem.commons.assetshare.components.predicates.PagePredicate;
+import com.adobe.aem.commons.assetshare.search.impl.SearchJsonServlet;
+import com.adobe.aem.commons.assetshare.util.PredicateUtil;
+import com.day.cq.search.PredicateConverter;
+import com.day.cq.search.PredicateGroup;
+import com.day.cq.search.eval.PathPredicateEvaluator;
+import com.day.text.Text;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.request.RequestParameter;
+import org.apache.sling.api.resource.ValueMap;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.StreamSupport;
+
+/**
+ * Builds the QueryBuilder parameters of a search from the request and the search page's predicates; shared by the SearchProviders that interpret QueryBuilder predicates.
+ */
+final class QueryBuilderParams {
+    private QueryBuilderParams() {
+    }
+
+    /**
+     * Generates the QueryBuilder query params from the Page Predicate settings and the request attributes.
+     *
+     * @param request the request object.
+     * @param pagePredicate the page predicate of the request.
+     * @return the QueryBuilder parameter map.
+     */
+    static Map<String, String> getParams(final SlingHttpServletRequest request, final PagePredicate pagePredicate) {
+        Map<String, String> params = new HashMap<>();
+        // Copy over query params
+
+        for (final Map.Entry<String, RequestParameter[]> entry : request.getRequestParameterMap().entrySet()) {
+            params.put(entry.getKey(), entry.getValue()[0].getString().trim());
+        }
+
+        // Remove common junk params
+        cleanParams(params);
+
+        final PredicateGroup paramsPredicateGroup = PredicateConverter.createPredicates(params);
+
+        PagePredicate.ParamTypes[] excludeParamTypes = new PagePredicate.ParamTypes[]{};
+
+
+        // Paths are special case where user provided params must be under atleast 1 configured allowed path (assuming they are configured)
+        if (isPathsProvidedByRequestParams(pagePredicate, params)) {
+            String[] allowedPathPrefixes = pagePredicate.getPaths().stream().map(path -> StringUtils.removeEnd(path, "/") + "/").toArray(String[]::new);
+            Map<String, String> tmpParams = params;
+
+            PredicateUtil.findPredicate(params, PathPredicateEvaluator.PATH, PathPredicateEvaluator.PATH).entrySet().stream()
+                    .filter(entry -> !StringUtils.startsWithAny((String) entry.getValue(), allowedPathPrefixes))
+                    .forEach(entry -> tmpParams.remove(entry.getKey()));
+
+            params = tmpParams;
+        }
+
+        // Check again after checking the provided paths
+        if (isPathsProvidedByRequestParams(pagePredicate, params)) {
+            excludeParamTypes = new PagePredicate.ParamTypes[]{PagePredicate.ParamTypes.PATH};
+        }
+
+        // Combine the use-provided (HTTP Params) and the server-side params in a manner that will not accidentally replace/merge predicates that collide with Group Ids.
+        final PredicateGroup combinedPredicateGroup = safeMerge(paramsPredicateGroup,
+                pagePredicate.getPredicateGroup(excludeParamTypes));
+
+        params = PredicateConverter.createMap(combinedPredicateGroup);
+
+        return params;
+    }
+
+    private static boolean isPathsProvidedByRequestParams(final PagePredicate pagePredicate, final Map<String, String> requestParams) {
+        final ValueMap pathPredicates = PredicateUtil.findPredicate(requestParams, PathPredicateEvaluator.PATH, PathPredicateEvaluator.PATH);
+
+        if (pathPredicates.size() == 0) {
+            return false;
+        }
+
+        final List<String> allowedPaths = pagePredicate.getPaths();
+        final String[] allowedPathPrefixes = pagePredicate.getPaths().stream().map(path -> StringUtils.removeEnd(path, "/") + "/").toArray(String[]::new);
+
+        boolean hasAllowed = false;
+        for (final String key : pathPredicates.keySet()) {
+            final String path = Text.makeCanonicalPath(pathPredicates.get(key, String.class));
+
+            if (StringUtils.startsWithAny(path, allowedPathPrefixes) || allowedPaths.contains(path)) {
+                hasAllowed = true;
+            } else {
+                requestParams.remove(key);
+            }
+        }
+
+        return hasAllowed;
+    }
+
+    private static void cleanParams(Map<String, String> params) {
+        // Do not allow users to specify guessTotal
+        params.remove("p.guessTotal");
+
+        // The keyset cursor is translated into predicates after the query is built
+        params.remove(KeysetCursor.REQUEST_PARAMETER);
+
+        // Sparse fieldsets of the JSON search API
+        params.remove(SearchJsonServlet.FIELDS_PARAMETER);
+
+        // Common junk params
+        params.remove("mode");
+        params.remove("layout");
+        params.remove("wcmmode");
+        params.remove("forceeditcontext");
+    }
+
+    /**
+     * A utility method to safely combine 2 Predicate Groups without Group ID collisions.
+     * <p>
+     * Note that the parameter order is important. The src MUST NOT have any explicit group_# set and the dest will have any non-"p" group_#'s reset.
+     * If this is not respected, then the merge will be unsafe.
+     *
+     * @param src  the Predicates to merged into dest. These will overwrite what is in dest if there is a collision.
+     *             Typically the src are the HTTP Parameters (which have an "unknown" order).
+     * @param dest the Predicates to serve as a base for the merged.
+     * @return A combined PredicateGroup containing the Predicates from the 2 parameter Predicates Groups, such that there is no group collision.
+     */
+    private static PredicateGroup safeMerge(final PredicateGroup src, final PredicateGroup dest) {
+        final PredicateGroup merged = dest.clone();
+
+        StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(src.iterator(), Spliterator.ORDERED),
+                false).forEach(predicate -> {
+
+            if (!PredicateConverter.GROUP_PARAMETER_PREFIX.equals(predicate.getName()) &&
+                    PredicateGroup.TYPE.equals(predicate.getType())) {
+                // True = resets the predicate name, i.e. the group index.
+                // Merge all other and remove their name's to allow QB to automatically group them
+                merged.add(predicate.clone(true));
+            } else {
+                // If NOT a predicate group, OR is the 'p' predicate group, leave name alone.
+                merged.add(predicate.clone(false));
+            }
+        });
+
+        return merged;
+    }
+}
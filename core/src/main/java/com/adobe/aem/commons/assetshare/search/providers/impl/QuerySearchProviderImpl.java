@@ -20,56 +20,86 @@
 package com.adobe.aem.commons.assetshare.search.providers.impl;
 
 import com.adobe.aem.commons.assetshare.components.predicates.PagePredicate;
+import com.adobe.aem.commons.assetshare.content.impl.ComputedPropertyBatch;
+import com.adobe.aem.commons.assetshare.content.properties.ComputedProperties;
+import com.adobe.aem.commons.assetshare.search.FastProperties;
 import com.adobe.aem.commons.assetshare.search.SearchSafety;
 import com.adobe.aem.commons.assetshare.search.UnsafeSearchException;
+import com.adobe.aem.commons.assetshare.search.impl.metrics.SearchPhase;
+import com.adobe.aem.commons.assetshare.search.impl.metrics.SearchTimings;
 import com.adobe.aem.commons.assetshare.search.providers.QuerySearchPostProcessor;
 import com.adobe.aem.commons.assetshare.search.providers.QuerySearchPreProcessor;
 import com.adobe.aem.commons.assetshare.search.providers.SearchProvider;
+import com.adobe.aem.commons.assetshare.search.providers.impl.cache.CachedSearchResult;
+import com.adobe.aem.commons.assetshare.search.providers.impl.cache.SearchCoalescer;
+import com.adobe.aem.commons.assetshare.search.providers.impl.cache.SearchFlight;
+import com.adobe.aem.commons.assetshare.search.providers.impl.cache.SearchPrefetcher;
+import com.adobe.aem.commons.assetshare.search.providers.impl.cache.SearchResultsCache;
 import com.adobe.aem.commons.assetshare.search.results.AssetResult;
 import com.adobe.aem.commons.assetshare.search.results.Result;
 import com.adobe.aem.commons.assetshare.search.results.Results;
+import com.adobe.aem.commons.assetshare.search.results.impl.result.ProjectedAssetResultImpl;
+import com.adobe.aem.commons.assetshare.search.results.impl.results.LazyQueryBuilderResultsImpl;
 import com.adobe.aem.commons.assetshare.search.results.impl.results.QueryBuilderResultsImpl;
-import com.adobe.aem.commons.assetshare.util.PredicateUtil;
+import com.day.cq.dam.api.Asset;
+import com.day.cq.dam.commons.util.DamUtil;
+import com.day.cq.search.Predicate;
 import com.day.cq.search.PredicateConverter;
 import com.day.cq.search.PredicateGroup;
 import com.day.cq.search.Query;
 import com.day.cq.search.QueryBuilder;
-import com.day.cq.search.eval.PathPredicateEvaluator;
 import com.day.cq.search.result.Hit;
 import com.day.cq.search.result.SearchResult;
-import com.day.text.Text;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.apache.sling.api.SlingHttpServletRequest;
-import org.apache.sling.api.request.RequestParameter;
+import org.apache.sling.api.resource.LoginException;
 import org.apache.sling.api.resource.Resource;
 import org.apache.sling.api.resource.ResourceResolver;
-import org.apache.sling.api.resource.ValueMap;
 import org.apache.sling.models.factory.ModelFactory;
+import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
 import org.osgi.service.component.annotations.Reference;
 import org.osgi.service.component.annotations.ReferenceCardinality;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.jcr.RepositoryException;
 import javax.jcr.Session;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Spliterator;
-import java.util.Spliterators;
 import java.util.TreeMap;
-import java.util.stream.StreamSupport;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.osgi.framework.Constants.SERVICE_RANKING;
 
 @Component(property = {
         SERVICE_RANKING + ":Integer=" + Integer.MIN_VALUE
 })
+@Designate(ocd = QuerySearchProviderImpl.Cfg.class)
 public class QuerySearchProviderImpl implements SearchProvider {
     private static final Logger log = LoggerFactory.getLogger(QuerySearchProviderImpl.class);
 
+    private static final String FACETS_INDEX_FLAG = "facets";
+
+    /**
+     * Request attribute that, when set to true, requests lazy hit adaptation for the request's search regardless of the configuration; used by callers that only iterate over the results once.
+     */
+    public static final String REQUEST_ATTR_ADAPTATION_LAZY = QuerySearchProviderImpl.class.getName() + ".adaptation-lazy";
+
     @Reference
     private transient SearchSafety searchSafety;
 
@@ -85,181 +115,535 @@ public class QuerySearchProviderImpl implements SearchProvider {
     @Reference(cardinality = ReferenceCardinality.OPTIONAL)
     private transient QuerySearchPostProcessor querySearchPostProcessor;
 
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL)
+    private transient SearchResultsCache searchResultsCache;
+
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL)
+    private transient SearchCoalescer searchCoalescer;
+
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL)
+    private transient SearchPrefetcher searchPrefetcher;
+
+    @Reference
+    private transient FastProperties fastProperties;
+
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL)
+    private transient ComputedProperties computedProperties;
+
+    private transient ExecutorService executorService;
+
+    private transient ParallelHitAdapter parallelHitAdapter;
+
+    private transient ExecutorService budgetExecutorService;
+
+    private transient SearchBudget searchBudget;
+
+    private transient HitProjection hitProjection;
+
+    private transient Cfg cfg;
+
+    private transient volatile List<String> facetIndexedProperties;
+
+    private transient volatile long facetIndexedPropertiesExpiresAt;
+
     public boolean accepts(SlingHttpServletRequest request) {
         // This is the default with the lowest service ranking
         return true;
     }
 
     public Results getResults(final SlingHttpServletRequest request) throws UnsafeSearchException, RepositoryException {
-        final ResourceResolver resourceResolver = request.getResourceResolver();
+        final SearchTimings searchTimings = SearchTimings.get(request);
+
+        final SearchBudget budget = this.searchBudget;
+        final long deadline = budget != null ? budget.getDeadline(System.currentTimeMillis()) : Long.MAX_VALUE;
+
+        long phaseStart = searchTimings.start();
+        final PagePredicate pagePredicate = request.adaptTo(PagePredicate.class);
+        final Map<String, String> params = QueryBuilderParams.getParams(request, pagePredicate);
+        searchTimings.stop(SearchPhase.PARAMS, phaseStart);
 
         final PredicateGroup root;
         if (querySearchPreProcessor != null) {
-            root = querySearchPreProcessor.process(request, getParams(request));
+            phaseStart = searchTimings.start();
+            root = querySearchPreProcessor.process(request, params);
+            searchTimings.stop(SearchPhase.PRE_PROCESS, phaseStart);
         } else {
-            root = PredicateGroup.create(getParams(request));
+            root = PredicateGroup.create(params);
         }
 
-        if (!searchSafety.isSafe(request.getResourceResolver(), root)) {
+        return getResults(request, pagePredicate, root, deadline);
+    }
+
+    /**
+     * Executes the search described by the query builder predicates, and adapts its hits to results.
+     *
+     * @param request the request object.
+     * @param pagePredicate the page predicate of the request.
+     * @param root the query builder predicates of the search.
+     * @param deadline the time (in ms) at which the search runs out of its time budget.
+     * @return the results of the search.
+     * @throws UnsafeSearchException if the search would initiate a traversing query.
+     * @throws RepositoryException if the resource of a hit could not be retrieved, or the QuerySearchPostProcessor fails.
+     */
+    Results getResults(final SlingHttpServletRequest request, final PagePredicate pagePredicate, final PredicateGroup root, final long deadline)
+            throws UnsafeSearchException, RepositoryException {
+        final ResourceResolver resourceResolver = request.getResourceResolver();
+        final SearchTimings searchTimings = SearchTimings.get(request);
+
+        // Keyset pagination is applied last, as it depends on the final ordering of the query.
+        final Predicate keysetOrderBy = pagePredicate.isKeysetPagination() ? KeysetCursor.getKeysetOrderBy(root) : null;
+        final long pageLimit = KeysetCursor.getLimit(root);
+        final KeysetCursor keysetCursor = applyKeysetCursor(request, root, keysetOrderBy);
+
+        long phaseStart = searchTimings.start();
+        final boolean safe = searchSafety.isSafe(resourceResolver, root);
+        searchTimings.stop(SearchPhase.SAFETY, phaseStart);
+
+        if (!safe) {
             throw new UnsafeSearchException("Search query will initiate an traversing query");
         }
 
+        // Facets do not constrain the query, so they are requested after its safety has been checked.
+        final FacetCounts facetCounts = FacetCounts.apply(root, getFacetProperties(pagePredicate));
+
+        final HitProjection projection = this.hitProjection;
+        if (projection != null && projection.isExcerpt()) {
+            root.set(Predicate.PARAM_EXCERPT, Boolean.TRUE.toString());
+        }
+
         debugPreQuery(root);
 
+        phaseStart = searchTimings.start();
+
+        // Keyset pages depend on the last hit of the previous page, so only offset pages are prefetched.
+        final boolean usePrefetch = searchPrefetcher != null && searchPrefetcher.isEnabled() && keysetOrderBy == null;
+        final SearchHits searchHits = search(root, resourceResolver, projection, facetCounts, usePrefetch, deadline);
+
+        // The query of a cursor-requested page also matches the hits of the previous page(s) that share the cursor's sort value.
+        final List<String> hitPaths = keysetCursor != null ? keysetCursor.filter(searchHits.hitPaths, pageLimit) : searchHits.hitPaths;
+
+        searchTimings.stop(SearchPhase.QUERY, phaseStart);
+
+        phaseStart = searchTimings.start();
+        final QueryBuilderResultsImpl resultsImpl = buildResults(request, searchHits, hitPaths, keysetOrderBy, keysetCursor, deadline);
+        // With lazy hit adaptation, hits are adapted while rendering, which is then included in the render phase.
+        searchTimings.stop(SearchPhase.ADAPTATION, phaseStart);
+
+        // A search that ran out of time is not followed up on, as the repository is already under pressure.
+        if (usePrefetch && resultsImpl.isMore() && resultsImpl.getStatus() != Results.Status.PARTIAL) {
+            searchPrefetcher.prefetch(root, resultsImpl.getNextOffset(), resourceResolver);
+        }
+
+        if (querySearchPostProcessor != null) {
+            phaseStart = searchTimings.start();
+            // The hits may not have been obtained by executing the query (see QuerySearchPostProcessor).
+            final Results results = querySearchPostProcessor.process(request,
+                    searchHits.query != null ? searchHits.query : queryBuilder.createQuery(root, resourceResolver.adaptTo(Session.class)),
+                    resultsImpl, searchHits.searchResult);
+            searchTimings.stop(SearchPhase.POST_PROCESS, phaseStart);
+            return results;
+        } else {
+            return resultsImpl;
+        }
+    }
+
+    /**
+     * Applies the request's keyset cursor to the query, if it was issued for the query's ordering.
+     *
+     * @param request the request object.
+     * @param root the query builder predicates of the search.
+     * @param keysetOrderBy the primary order by predicate of the query, or null if the search is not keyset paginated.
+     * @return the applied cursor, or null if the page is requested by p.offset.
+     */
+    private KeysetCursor applyKeysetCursor(final SlingHttpServletRequest request, final PredicateGroup root, final Predicate keysetOrderBy) {
+        final KeysetCursor keysetCursor = keysetOrderBy != null ? KeysetCursor.fromRequest(request) : null;
+
+        if (keysetCursor == null || !keysetCursor.matches(keysetOrderBy)) {
+            return null;
+        }
+
+        keysetCursor.apply(root);
+        return keysetCursor;
+    }
+
+    /**
+     * Obtains the hits of the search from the prefetched pages, the search results cache or an identical, concurrently executing search, and only executes the query if none of these have them.
+     *
+     * @param root the query builder predicates of the search.
+     * @param resourceResolver the request's resource resolver.
+     * @param projection the hit projection, or null if hits are not projected.
+     * @param facetCounts the facet counts requested of the query.
+     * @param usePrefetch true if the search's page may have been prefetched.
+     * @param deadline the time (in ms) at which the search runs out of its time budget.
+     * @return the hits of the search.
+     * @throws RepositoryException if the resource of a hit of the executed query could not be retrieved.
+     */
+    private SearchHits search(final PredicateGroup root,
+                              final ResourceResolver resourceResolver,
+                              final HitProjection projection,
+                              final FacetCounts facetCounts,
+                              final boolean usePrefetch,
+                              final long deadline) throws RepositoryException {
+        final CachedSearchResult prefetchedSearchResult = usePrefetch ? searchPrefetcher.take(searchPrefetcher.getKey(root, resourceResolver)) : null;
+
+        final boolean useCache = searchResultsCache != null && searchResultsCache.isEnabled();
+        final String cacheKey = useCache ? searchResultsCache.getKey(root, resourceResolver) : null;
+        // Read before the query is executed, so that its result is not cached if the cache is invalidated in the meantime.
+        final long cacheGeneration = useCache ? searchResultsCache.getGeneration() : 0;
+        final CachedSearchResult cachedSearchResult = useCache && prefetchedSearchResult == null ? searchResultsCache.get(cacheKey) : prefetchedSearchResult;
+
+        // Identical searches that are executing concurrently share the hits of the first one (the leader).
+        final SearchFlight searchFlight = cachedSearchResult == null && searchCoalescer != null && searchCoalescer.isEnabled() ?
+                searchCoalescer.join(searchCoalescer.getKey(root, resourceResolver)) : null;
+        final CachedSearchResult sharedSearchResult = searchFlight != null && !searchFlight.isLeader() ? searchFlight.await() : cachedSearchResult;
+
+        SearchHits searchHits = null;
+
+        try {
+            if (sharedSearchResult != null) {
+                log.debug("Serving search result hits from the {}", prefetchedSearchResult != null ? "prefetched page" :
+                        cachedSearchResult != null ? "search results cache" : "identical, concurrently executed search");
+                // Shared hits are resolved via the request's resource resolver, and only retain hit paths, so their hits cannot be projected.
+                searchHits = collectHits(null, sharedSearchResult.toSearchResult(resourceResolver), null, null, facetCounts, false);
+            } else {
+                searchHits = executeQuery(root, resourceResolver, projection, facetCounts, useCache || searchFlight != null, deadline);
+            }
+        } finally {
+            if (searchFlight != null && searchFlight.isLeader()) {
+                // Waiting searches execute the query themselves if the leader failed to.
+                searchFlight.complete(searchHits != null ? searchHits.executedSearchResult : null);
+            }
+        }
+
+        if (useCache && searchHits.executedSearchResult != null) {
+            searchResultsCache.put(cacheKey, searchHits.executedSearchResult, cacheGeneration);
+        }
+
+        return searchHits;
+    }
+
+    /**
+     * Executes the query, on a time budget worker thread if a time budget is configured, or else on the request thread.
+     *
+     * @param root the query builder predicates of the search.
+     * @param resourceResolver the request's resource resolver.
+     * @param projection the hit projection, or null if hits are not projected.
+     * @param facetCounts the facet counts requested of the query.
+     * @param share true if the hits are shared with the search results cache or concurrently executing searches.
+     * @param deadline the time (in ms) at which the search runs out of its time budget.
+     * @return the hits of the query.
+     * @throws RepositoryException if the resource of a hit could not be retrieved.
+     */
+    private SearchHits executeQuery(final PredicateGroup root,
+                                    final ResourceResolver resourceResolver,
+                                    final HitProjection projection,
+                                    final FacetCounts facetCounts,
+                                    final boolean share,
+                                    final long deadline) throws RepositoryException {
+        final SearchBudget budget = this.searchBudget;
+
+        if (budget != null) {
+            final long queryStartTime = System.currentTimeMillis();
+            // The query is executed, and its hits projected, on a worker thread that the request thread stops waiting for at the deadline.
+            final Map<String, Map<String, Object>> projectedValues = projection != null ? new ConcurrentHashMap<>() : null;
+            final CachedSearchResult executedSearchResult = budget.execute(root, resourceResolver, projection, projectedValues, facetCounts.isRequested(), deadline);
+
+            if (executedSearchResult == null) {
+                // Timed out, or rejected as the time budget threads are saturated; the query's hits are not available either way.
+                final SearchResult searchResult = CachedSearchResult.of(Collections.emptyList(), 0, true, NumberUtils.toLong(root.get(Predicate.PARAM_OFFSET), 0),
+                        NumberUtils.toLong(root.get(Predicate.PARAM_LIMIT), 0), System.currentTimeMillis() - queryStartTime, null).toSearchResult(resourceResolver);
+                final SearchHits searchHits = collectHits(null, searchResult, projectedValues, null, facetCounts, false);
+                searchHits.timedOut = true;
+                return searchHits;
+            }
+
+            final SearchHits searchHits = collectHits(null, executedSearchResult.toSearchResult(resourceResolver), projectedValues, null, facetCounts, false);
+            searchHits.executedSearchResult = executedSearchResult;
+            return searchHits;
+        }
+
+        // The query is only created if it is executed on this thread, or passed to the QuerySearchPostProcessor.
         final Query query = queryBuilder.createQuery(root, resourceResolver.adaptTo(Session.class));
         final SearchResult searchResult = query.getResult();
+        final ResourceResolver resourceResolverLeakingReference = searchResult.getHits().isEmpty() ? null : searchResult.getHits().get(0).getResource().getResourceResolver();
+
+        try {
+            return collectHits(query, searchResult, projection != null ? new HashMap<>() : null, projection, facetCounts, share);
+        } finally {
+            // Facets are collected, and the hits retained, before the query's resource resolver is closed.
+            if (resourceResolverLeakingReference != null) {
+                resourceResolverLeakingReference.close();
+            }
+        }
+    }
 
+    /**
+     * Collects the paths, and the projected values, of the hits and the facet counts of the search result.
+     *
+     * @param query the query, or null if it was not executed on this thread.
+     * @param searchResult the search result.
+     * @param projectedValues the projected values of each hit, keyed by hit path, or null if hits are not projected.
+     * @param projection the hit projection to project the hits with, or null if their values are already projected.
+     * @param facetCounts the facet counts requested of the query.
+     * @param share true if the hits are shared with the search results cache or concurrently executing searches.
+     * @return the hits of the search result.
+     */
+    private SearchHits collectHits(final Query query,
+                                   final SearchResult searchResult,
+                                   final Map<String, Map<String, Object>> projectedValues,
+                                   final HitProjection projection,
+                                   final FacetCounts facetCounts,
+                                   final boolean share) {
         debugPostQuery(searchResult);
 
-        final List<Result> results = new ArrayList<>();
-
-        ResourceResolver resourceResolverLeakingReference = null;
+        final List<String> hitPaths = new ArrayList<>();
 
         for (final Hit hit : searchResult.getHits()) {
-            if (resourceResolverLeakingReference == null) {
-                resourceResolverLeakingReference = hit.getResource().getResourceResolver();
-            }
-
             try {
-                final Resource hitResource = resourceResolver.getResource(hit.getPath());
-                final AssetResult assetSearchResult = modelFactory.getModelFromWrappedRequest(request, hitResource, AssetResult.class);
-                if (assetSearchResult != null) {
-                    results.add(assetSearchResult);
+                final String hitPath = hit.getPath();
+                hitPaths.add(hitPath);
+
+                if (projection != null) {
+                    projectedValues.put(hitPath, projection.project(hit));
                 }
             } catch (RepositoryException e) {
                 log.error("Could not retrieve search result", e);
             }
         }
 
-        if (resourceResolverLeakingReference != null) {
-            resourceResolverLeakingReference.close();
-        }
-
-        debugPostAdaptation(results);
+        final SearchHits searchHits = new SearchHits(query, searchResult, hitPaths, projectedValues, facetCounts.collect(searchResult));
 
-        final QueryBuilderResultsImpl resultsImpl = new QueryBuilderResultsImpl(results, searchResult);
-
-        if (querySearchPostProcessor != null) {
-            return querySearchPostProcessor.process(request, query, resultsImpl, searchResult);
-        } else {
-            return resultsImpl;
+        if (share) {
+            searchHits.executedSearchResult = new CachedSearchResult(hitPaths, searchResult, !searchHits.facetCounts.isEmpty());
         }
+
+        return searchHits;
     }
 
     /**
-     * Generates the QueryBuilder query params from the Page Predicate settings and the request attributes.
+     * Builds the results from the hits, by projecting them, deferring their adaptation to rendering, or adapting them within the time budget.
      *
      * @param request the request object.
-     * @return the QueryBuilder parameter map.
+     * @param searchHits the hits of the search.
+     * @param hitPaths the paths of the hits of the current page.
+     * @param keysetOrderBy the primary order by predicate of the query, or null if the search is not keyset paginated.
+     * @param keysetCursor the cursor the current page was requested with, or null if it was requested by offset.
+     * @param deadline the time (in ms) after which no more hits are adapted.
+     * @return the results.
      */
-    private Map<String, String> getParams(final SlingHttpServletRequest request) {
-        Map<String, String> params = new HashMap<>();
-        // Copy over query params
+    private QueryBuilderResultsImpl buildResults(final SlingHttpServletRequest request,
+                                                 final SearchHits searchHits,
+                                                 final List<String> hitPaths,
+                                                 final Predicate keysetOrderBy,
+                                                 final KeysetCursor keysetCursor,
+                                                 final long deadline) throws RepositoryException {
+        final SearchResult searchResult = searchHits.searchResult;
+        final QueryBuilderResultsImpl resultsImpl;
+        // The number of leading hits that were adapted within the time budget.
+        int adapted = hitPaths.size();
+
+        if (searchHits.projectedValues != null) {
+            // Hits are only adapted if a value that was not projected is requested.
+            final List<Result> results = projectHits(request, hitPaths, searchHits.projectedValues);
+            debugPostAdaptation(request, results, hitPaths.size());
+            resultsImpl = new QueryBuilderResultsImpl(results, searchResult);
+        } else if (cfg.adaptation_lazy() || Boolean.TRUE.equals(request.getAttribute(REQUEST_ATTR_ADAPTATION_LAZY))) {
+            // Hits are adapted as they are iterated over during rendering, which is not covered by the time budget.
+            // Computed properties are not batched, as that would resolve every hit up front.
+            resultsImpl = new LazyQueryBuilderResultsImpl(hitPaths, hitPath -> adaptHit(request, hitPath), searchResult);
+            log.debug("Deferred the adaptation of [ {} ] hits to rendering - Adaptation mode [ lazy ]", hitPaths.size());
+        } else {
+            final List<Result> adaptedHits = adaptHits(request, hitPaths, deadline);
+            adapted = adaptedHits.size();
+
+            if (System.currentTimeMillis() < deadline) {
+                computeBatchedProperties(request, hitPaths.subList(0, adapted));
+            }
+
+            final List<Result> results = new ArrayList<>(adaptedHits.size());
+            for (final Result result : adaptedHits) {
+                if (result != null) {
+                    results.add(result);
+                }
+            }
 
-        for (final Map.Entry<String, RequestParameter[]> entry : request.getRequestParameterMap().entrySet()) {
-            params.put(entry.getKey(), entry.getValue()[0].getString().trim());
+            debugPostAdaptation(request, results, hitPaths.size());
+            resultsImpl = new QueryBuilderResultsImpl(results, searchResult);
         }
 
-        // Remove common junk params
-        cleanParams(params);
+        resultsImpl.setFacetCounts(searchHits.facetCounts);
 
-        final PagePredicate pagePredicate = request.adaptTo(PagePredicate.class);
-        final PredicateGroup paramsPredicateGroup = PredicateConverter.createPredicates(params);
+        if (searchHits.timedOut || adapted < hitPaths.size()) {
+            resultsImpl.setPartial(searchResult.getStartIndex() + adapted);
+        }
 
-        PagePredicate.ParamTypes[] excludeParamTypes = new PagePredicate.ParamTypes[]{};
+        if (keysetOrderBy != null) {
+            applyKeysetPagination(resultsImpl, keysetOrderBy, keysetCursor, hitPaths.subList(0, adapted), searchResult, request.getResourceResolver());
+        }
 
+        return resultsImpl;
+    }
 
-        // Paths are special case where user provided params must be under atleast 1 configured allowed path (assuming they are configured)
-        if (isPathsProvidedByRequestParams(pagePredicate, params)) {
-            String[] allowedPathPrefixes = pagePredicate.getPaths().stream().map(path -> StringUtils.removeEnd(path, "/") + "/").toArray(String[]::new);
-            Map<String, String> tmpParams = params;
+    /**
+     * Issues the cursor for the next page, and re-bases the totals onto the entire result set, as the query of a cursor-requested page only covers the remainder of it.
+     *
+     * @param resultsImpl the results of the current page.
+     * @param keysetOrderBy the primary order by predicate of the query.
+     * @param keysetCursor the cursor the current page was requested with, or null if it was requested by offset.
+     * @param hitPaths the paths of the hits of the current page.
+     * @param searchResult the search result of the current page.
+     * @param resourceResolver the resource resolver used to read the sort values of the hits.
+     */
+    private void applyKeysetPagination(final QueryBuilderResultsImpl resultsImpl,
+                                       final Predicate keysetOrderBy,
+                                       final KeysetCursor keysetCursor,
+                                       final List<String> hitPaths,
+                                       final SearchResult searchResult,
+                                       final ResourceResolver resourceResolver) {
+        final KeysetCursor.Pagination pagination = KeysetCursor.paginate(keysetOrderBy, keysetCursor, hitPaths, resourceResolver,
+                searchResult.getStartIndex(), searchResult.getTotalMatches(), resultsImpl.isMore());
+
+        resultsImpl.setKeysetPagination(pagination.getNextCursor(), pagination.getLoaded(), pagination.getTotal(), pagination.isMore());
+    }
 
-            PredicateUtil.findPredicate(params, PathPredicateEvaluator.PATH, PathPredicateEvaluator.PATH).entrySet().stream()
-                    .filter(entry -> !StringUtils.startsWithAny((String) entry.getValue(), allowedPathPrefixes))
-                    .forEach(entry -> tmpParams.remove(entry.getKey()));
+    /**
+     * @param pagePredicate the page predicate of the request.
+     * @return the facet properties of the page predicate that are indexed for facets; Oak cannot compute facets for any other property.
+     */
+    private List<String> getFacetProperties(final PagePredicate pagePredicate) {
+        final List<String> facetProperties = pagePredicate.getFacetProperties();
 
-            params = tmpParams;
+        if (facetProperties.isEmpty()) {
+            return facetProperties;
         }
 
-        // Check again after checking the provided paths
-        if (isPathsProvidedByRequestParams(pagePredicate, params)) {
-            excludeParamTypes = new PagePredicate.ParamTypes[]{PagePredicate.ParamTypes.PATH};
+        final List<String> indexedProperties = getFacetIndexedProperties();
+        final List<String> skipped = new ArrayList<>();
+        final List<String> accepted = new ArrayList<>();
+
+        for (final String facetProperty : facetProperties) {
+            if (indexedProperties.contains(facetProperty)) {
+                accepted.add(facetProperty);
+            } else {
+                skipped.add(facetProperty);
+            }
         }
 
-        // Combine the use-provided (HTTP Params) and the server-side params in a manner that will not accidentally replace/merge predicates that collide with Group Ids.
-        final PredicateGroup combinedPredicateGroup = safeMerge(paramsPredicateGroup,
-                pagePredicate.getPredicateGroup(excludeParamTypes));
+        if (!skipped.isEmpty()) {
+            log.debug("Skipping facet counts for properties that are not indexed for facets: {}", skipped);
+        }
 
-        params = PredicateConverter.createMap(combinedPredicateGroup);
+        return accepted;
+    }
 
-        return params;
+    /**
+     * Reading the Oak index definition is not free, so the facet-indexed properties are only re-read once the configured refresh interval has passed.
+     *
+     * @return the properties that are indexed with facets=true.
+     */
+    private List<String> getFacetIndexedProperties() {
+        final long now = System.currentTimeMillis();
+        List<String> properties = facetIndexedProperties;
+
+        if (properties == null || now >= facetIndexedPropertiesExpiresAt) {
+            properties = fastProperties.getFastProperties(FACETS_INDEX_FLAG);
+            facetIndexedProperties = properties;
+            facetIndexedPropertiesExpiresAt = now + TimeUnit.SECONDS.toMillis(cfg.facets_index_refresh_seconds());
+        }
+
+        return properties;
     }
 
-    private boolean isPathsProvidedByRequestParams(final PagePredicate pagePredicate, final Map<String, String> requestParams) {
-        final ValueMap pathPredicates = PredicateUtil.findPredicate(requestParams, PathPredicateEvaluator.PATH, PathPredicateEvaluator.PATH);
+    /**
+     * Adapts the hits to AssetResults, in hit order. Depending on the configuration and the number of hits, this is done serially on the request thread or in parallel on the hit adaptation thread pool.
+     *
+     * @param request the request object.
+     * @param hitPaths the paths of the hits to adapt.
+     * @param deadline the time (in ms) after which no more hits are adapted.
+     * @return the list of adapted results, with null for each hit that could not be adapted; if the deadline passed, only the leading hits adapted in time are included.
+     */
+    private List<Result> adaptHits(final SlingHttpServletRequest request, final List<String> hitPaths, final long deadline) {
+        if (parallelHitAdapter != null && parallelHitAdapter.isParallel(request, hitPaths.size())) {
+            try {
+                return parallelHitAdapter.adapt(request, hitPaths, deadline);
+            } catch (LoginException e) {
+                log.warn("Could not clone the request's resource resolver for parallel hit adaptation. Falling back to serial hit adaptation.", e);
+            }
+        }
+
+        final List<Result> results = new ArrayList<>(hitPaths.size());
+
+        for (final String hitPath : hitPaths) {
+            if (System.currentTimeMillis() >= deadline) {
+                break;
+            }
 
-        if (pathPredicates.size() == 0) {
-            return false;
+            results.add(adaptHit(request, hitPath));
         }
 
-        final List<String> allowedPaths = pagePredicate.getPaths();
-        final String[] allowedPathPrefixes = pagePredicate.getPaths().stream().map(path -> StringUtils.removeEnd(path, "/") + "/").toArray(String[]::new);
+        return results;
+    }
 
-        boolean hasAllowed = false;
-        for (final String key : pathPredicates.keySet()) {
-            final String path = Text.makeCanonicalPath(pathPredicates.get(key, String.class));
+    /**
+     * Computes the configured computed properties of all the hits at once, so the values are shared lookups (ie. tags) rather than computed for each hit as it is rendered.
+     *
+     * @param request the request object.
+     * @param hitPaths the paths of the hits.
+     */
+    private void computeBatchedProperties(final SlingHttpServletRequest request, final List<String> hitPaths) {
+        if (computedProperties == null || cfg.batch_computed_properties().length == 0 || hitPaths.isEmpty()) {
+            return;
+        }
 
-            if (StringUtils.startsWithAny(path, allowedPathPrefixes) || allowedPaths.contains(path)) {
-                hasAllowed = true;
-            } else {
-                requestParams.remove(key);
+        final ResourceResolver resourceResolver = request.getResourceResolver();
+        final List<Asset> assets = new ArrayList<>(hitPaths.size());
+
+        for (final String hitPath : hitPaths) {
+            final Resource resource = resourceResolver.getResource(hitPath);
+            final Asset asset = resource != null ? DamUtil.resolveToAsset(resource) : null;
+
+            if (asset != null) {
+                assets.add(asset);
             }
         }
 
-        return hasAllowed;
+        ComputedPropertyBatch.compute(request, computedProperties.getComputedPropertiesByName(), assets, Arrays.asList(cfg.batch_computed_properties()));
     }
 
-    private void cleanParams(Map<String, String> params) {
-        // Do not allow users to specify guessTotal
-        params.remove("p.guessTotal");
+    /**
+     * @param request the request object.
+     * @param hitPaths the paths of the hits, in hit order.
+     * @param projectedValues the projected values of each hit, keyed by hit path.
+     * @return the list of projected results.
+     */
+    private List<Result> projectHits(final SlingHttpServletRequest request, final List<String> hitPaths, final Map<String, Map<String, Object>> projectedValues) {
+        final List<Result> results = new ArrayList<>(hitPaths.size());
+
+        for (final String hitPath : hitPaths) {
+            results.add(new ProjectedAssetResultImpl(hitPath,
+                    projectedValues.getOrDefault(hitPath, Collections.emptyMap()),
+                    path -> {
+                        final Result result = adaptHit(request, path);
+                        return result instanceof AssetResult ? (AssetResult) result : null;
+                    }));
+        }
 
-        // Common junk params
-        params.remove("mode");
-        params.remove("layout");
-        params.remove("wcmmode");
-        params.remove("forceeditcontext");
+        return results;
     }
 
     /**
-     * A utility method to safely combine 2 Predicate Groups without Group ID collisions.
-     * <p>
-     * Note that the parameter order is important. The src MUST NOT have any explicit group_# set and the dest will have any non-"p" group_#'s reset.
-     * If this is not respected, then the merge will be unsafe.
-     *
-     * @param src  the Predicates to merged into dest. These will overwrite what is in dest if there is a collision.
-     *             Typically the src are the HTTP Parameters (which have an "unknown" order).
-     * @param dest the Predicates to serve as a base for the merged.
-     * @return A combined PredicateGroup containing the Predicates from the 2 parameter Predicates Groups, such that there is no group collision.
+     * @param request the request object.
+     * @param hitPath the path of the hit to adapt.
+     * @return the hit adapted to an AssetResult using the request's resource resolver, or null if it could not be resolved.
      */
-    private PredicateGroup safeMerge(final PredicateGroup src, final PredicateGroup dest) {
-        final PredicateGroup merged = dest.clone();
-
-        StreamSupport.stream(
-                Spliterators.spliteratorUnknownSize(src.iterator(), Spliterator.ORDERED),
-                false).forEach(predicate -> {
-
-            if (!PredicateConverter.GROUP_PARAMETER_PREFIX.equals(predicate.getName()) &&
-                    PredicateGroup.TYPE.equals(predicate.getType())) {
-                // True = resets the predicate name, i.e. the group index.
-                // Merge all other and remove their name's to allow QB to automatically group them
-                merged.add(predicate.clone(true));
-            } else {
-                // If NOT a predicate group, OR is the 'p' predicate group, leave name alone.
-                merged.add(predicate.clone(false));
-            }
-        });
+    private Result adaptHit(final SlingHttpServletRequest request, final String hitPath) {
+        final Resource hitResource = request.getResourceResolver().getResource(hitPath);
+
+        if (hitResource == null) {
+            return null;
+        }
 
-        return merged;
+        return modelFactory.getModelFromWrappedRequest(request, hitResource, AssetResult.class);
     }
 
     private void debugPreQuery(PredicateGroup predicateGroup) {
@@ -290,9 +674,176 @@ public class QuerySearchProviderImpl implements SearchProvider {
         }
     }
 
-    private void debugPostAdaptation(List<Result> results) {
+    private void debugPostAdaptation(SlingHttpServletRequest request, List<Result> results, int hits) {
+        // The time spent querying and adapting is recorded per search in the SearchTimings (see SearchMetrics).
         if (log.isDebugEnabled()) {
-            log.debug("Adapted [ {} ] results to Result models", results.size());
+            log.debug("Adapted [ {} ] results to Result models - Adaptation mode [ {} ]",
+                    results.size(),
+                    parallelHitAdapter != null && parallelHitAdapter.isParallel(request, hits) ? "parallel x " + parallelHitAdapter.getWorkerCount(hits) : "serial");
+        }
+    }
+
+    @Activate
+    protected void activate(Cfg cfg) {
+        this.cfg = cfg;
+        this.facetIndexedProperties = null;
+        this.hitProjection = cfg.projection_enabled() ? new HitProjection(cfg.projection_properties(), cfg.projection_excerpt()) : null;
+
+        if (cfg.adaptation_parallel() && !cfg.adaptation_lazy()) {
+            final int threads = Math.max(1, cfg.adaptation_parallel_threads());
+            final AtomicInteger threadCount = new AtomicInteger();
+
+            executorService = new ThreadPoolExecutor(threads, threads,
+                    60L, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(threads * 4),
+                    runnable -> {
+                        final Thread thread = new Thread(runnable, "asset-share-commons-hit-adaptation-" + threadCount.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    },
+                    // If the pool is saturated, the request thread adapts the slice itself rather than failing.
+                    new ThreadPoolExecutor.CallerRunsPolicy());
+
+            parallelHitAdapter = new ParallelHitAdapter(modelFactory, executorService, threads, cfg.adaptation_parallel_min_hits_per_thread());
         }
+
+        if (cfg.time_budget_ms() > 0) {
+            final int threads = Math.max(1, cfg.time_budget_threads());
+            final AtomicInteger threadCount = new AtomicInteger();
+
+            budgetExecutorService = new ThreadPoolExecutor(threads, threads,
+                    60L, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(threads * 4),
+                    runnable -> {
+                        final Thread thread = new Thread(runnable, "asset-share-commons-search-budget-" + threadCount.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    },
+                    // If the pool is saturated, the search is rejected and returned as PARTIAL, rather than executed on the request thread without a time budget.
+                    new ThreadPoolExecutor.AbortPolicy());
+
+            searchBudget = new SearchBudget(queryBuilder, budgetExecutorService, cfg.time_budget_ms());
+        }
+    }
+
+    @Deactivate
+    protected void deactivate() {
+        parallelHitAdapter = null;
+        searchBudget = null;
+
+        if (executorService != null) {
+            executorService.shutdownNow();
+            executorService = null;
+        }
+
+        if (budgetExecutorService != null) {
+            // Running queries are not interrupted, see SearchBudget.
+            budgetExecutorService.shutdown();
+            budgetExecutorService = null;
+        }
+    }
+
+    /**
+     * The hits of a search, and how they were obtained.
+     */
+    private static final class SearchHits {
+        // The query, if it was executed on the request thread.
+        private final Query query;
+        private final SearchResult searchResult;
+        private final List<String> hitPaths;
+        // The projected values of each hit, keyed by hit path, or null if the hits were not projected.
+        private final Map<String, Map<String, Object>> projectedValues;
+        private final Map<String, Map<String, Long>> facetCounts;
+        // The hits of the executed query, as shared with the search results cache and concurrently executing searches.
+        private CachedSearchResult executedSearchResult;
+        // True if the query ran out of its time budget.
+        private boolean timedOut;
+
+        private SearchHits(final Query query,
+                           final SearchResult searchResult,
+                           final List<String> hitPaths,
+                           final Map<String, Map<String, Object>> projectedValues,
+                           final Map<String, Map<String, Long>> facetCounts) {
+            this.query = query;
+            this.searchResult = searchResult;
+            this.hitPaths = hitPaths;
+            this.projectedValues = projectedValues;
+            this.facetCounts = facetCounts;
+        }
+    }
+
+    @ObjectClassDefinition(name = "Asset Share Commons - Search Provider - Query Builder")
+    public @interface Cfg {
+        @AttributeDefinition(
+                name = "Lazy hit adaptation",
+                description = "Only retains the hit paths, and adapts each hit to an AssetResult as the results are iterated over during rendering. This keeps the heap flat for large page sizes and lets rendering start sooner. The number of results is the number of hits, including any hit that can no longer be adapted when rendered. Computed properties are not batched. Takes precedence over parallel hit adaptation."
+        )
+        boolean adaptation_lazy() default false;
+
+        @AttributeDefinition(
+                name = "Parallel hit adaptation",
+                description = "Adapts search hits to AssetResults on a bounded thread pool rather than on the request thread. Each thread uses its own clone of the request's resource resolver."
+        )
+        boolean adaptation_parallel() default false;
+
+        @AttributeDefinition(
+                name = "Parallel hit adaptation threads",
+                description = "The maximum number of threads used to adapt the hits of a single search, and the size of the shared thread pool."
+        )
+        int adaptation_parallel_threads() default 4;
+
+        @AttributeDefinition(
+                name = "Min hits per thread",
+                description = "The minimum number of hits each thread adapts. Searches with fewer than twice this number of hits are adapted serially, as the cost of cloning resource resolvers outweighs the gain."
+        )
+        int adaptation_parallel_min_hits_per_thread() default 25;
+
+        @AttributeDefinition(
+                name = "Facet index refresh (in seconds)",
+                description = "How long the list of properties indexed with facets=true is re-used before the Oak index definition is read again. Facet counts are only requested for these properties."
+        )
+        long facets_index_refresh_seconds() default 300;
+
+        @AttributeDefinition(
+                name = "Projection",
+                description = "Builds lightweight results from the projected property values of the query's result rows, rather than adapting each hit's resource. A hit's asset is only fully adapted if a value that was not projected is requested. Takes precedence over lazy and parallel hit adaptation; results served from the search results cache are not projected."
+        )
+        boolean projection_enabled() default false;
+
+        @AttributeDefinition(
+                name = "Projected properties",
+                description = "The values to project, in the format <name>=<relative property path>, where <name> is the property name the value is served as (ie. via asset.properties['title']). Multi-valued properties are projected as their first value."
+        )
+        String[] projection_properties() default {
+                "title=jcr:content/metadata/dc:title",
+                "dc:format=jcr:content/metadata/dc:format",
+                "dam:size=jcr:content/metadata/dam:size"
+        };
+
+        @AttributeDefinition(
+                name = "Project excerpts",
+                description = "Requests excerpts from the query, and serves each hit's excerpt as the 'excerpt' property."
+        )
+        boolean projection_excerpt() default false;
+
+        @AttributeDefinition(
+                name = "Time budget (in ms)",
+                description = "The maximum time a search may take, from the start of the search until its hits are adapted. The query is executed on a worker thread; if it runs out of time, the search is returned with the PARTIAL status and no hits, and the query is left to complete in the background. "
+                        + "If hit adaptation runs out of time, the hits adapted so far are returned with the PARTIAL status and an approximate total. Lazily adapted hits are not covered. Set to 0 to disable."
+        )
+        long time_budget_ms() default 0;
+
+        @AttributeDefinition(
+                name = "Time budget threads",
+                description = "The number of threads that execute the queries of searches with a time budget. When all are busy and their queue is full, further searches are immediately returned with the PARTIAL status and no hits."
+        )
+        int time_budget_threads() default 8;
+
+        @AttributeDefinition(
+                name = "Batched computed properties",
+                description = "The computed property keys (ie. tagTitles or rendition?name=card) that the results layouts are known to use. Their values are computed for all hits of a page at once, which lets computed properties share lookups across hits. "
+                        + "Not applied to projected results."
+        )
+        String[] batch_computed_properties() default {};
     }
 }
@@ -0,0 +1,213 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.adobe.aem.commons.assetshare.search.providers.impl;
+
+import com.adobe.aem.commons.assetshare.search.providers.impl.cache.CachedSearchResult;
+import com.day.cq.search.PredicateGroup;
+import com.day.cq.search.Query;
+import com.day.cq.search.QueryBuilder;
+import com.day.cq.search.result.Hit;
+import com.day.cq.search.result.SearchResult;
+import org.apache.sling.api.resource.LoginException;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Executes QueryBuilder queries on a bounded pool of worker threads, so that the request thread can stop waiting for a query once the search's time budget is spent.
+ * <br>
+ * Oak cannot abort a running query (and interrupting a thread that reads from the segment store closes its files), so a timed out query runs to completion in the background,
+ * using its own clone of the request's ResourceResolver (ie. the same user), which it closes when done. A query that times out before it starts never runs, and its clone is closed on cancellation.
+ * <br>
+ * If the pool and its queue are saturated, the search is not queued at all, and is treated as having run out of time.
+ */
+final class SearchBudget {
+    private static final Logger log = LoggerFactory.getLogger(SearchBudget.class);
+
+    private final QueryBuilder queryBuilder;
+    private final ExecutorService executorService;
+    private final long budgetMillis;
+
+    SearchBudget(final QueryBuilder queryBuilder, final ExecutorService executorService, final long budgetMillis) {
+        this.queryBuilder = queryBuilder;
+        this.executorService = executorService;
+        this.budgetMillis = budgetMillis;
+    }
+
+    /**
+     * @param startTime the time the search started at, in ms.
+     * @return the time by which the search must complete, in ms.
+     */
+    long getDeadline(final long startTime) {
+        return startTime + budgetMillis;
+    }
+
+    /**
+     * Must be called from the request thread.
+     *
+     * @param root the query's root PredicateGroup.
+     * @param resourceResolver the request's resource resolver.
+     * @param projection the projection to apply to the hits, or null.
+     * @param projectedValues the map to collect the projected values of each hit into, keyed by hit path; must be thread-safe.
+     * @param retainFacets true if the facets of the query should be retained.
+     * @param deadline the time by which the query must complete, in ms.
+     * @return the query's result, or null if it did not complete by the deadline, or could not be queued as the pool is saturated.
+     * @throws RepositoryException if the query failed.
+     */
+    CachedSearchResult execute(final PredicateGroup root,
+                               final ResourceResolver resourceResolver,
+                               final HitProjection projection,
+                               final Map<String, Map<String, Object>> projectedValues,
+                               final boolean retainFacets,
+                               final long deadline) throws RepositoryException {
+        final ResourceResolver queryResourceResolver;
+
+        try {
+            queryResourceResolver = resourceResolver.clone(null);
+        } catch (LoginException e) {
+            throw new RepositoryException("Could not clone the request's resource resolver to execute the search with", e);
+        }
+
+        final BudgetedQuery future = new BudgetedQuery(root, queryResourceResolver, projection, projectedValues, retainFacets);
+        try {
+            executorService.execute(future);
+        } catch (RejectedExecutionException e) {
+            future.cancel(false);
+            log.warn("Search could not be queued as all [ {} ] ms time budget threads are busy, returning partial results", budgetMillis);
+            return null;
+        } catch (RuntimeException e) {
+            future.cancel(false);
+            throw e;
+        }
+
+        try {
+            return future.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // Only prevents queued queries from starting; a running query is left to complete, see the class' doc.
+            future.cancel(false);
+            log.warn("Search exceeded its time budget of [ {} ] ms, returning partial results", budgetMillis);
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while waiting for the search to complete, returning partial results", e);
+            return null;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RepositoryException) {
+                throw (RepositoryException) e.getCause();
+            } else if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RepositoryException("Could not execute the search", e.getCause());
+        }
+    }
+
+    private CachedSearchResult executeQuery(final PredicateGroup root,
+                                            final ResourceResolver queryResourceResolver,
+                                            final HitProjection projection,
+                                            final Map<String, Map<String, Object>> projectedValues,
+                                            final boolean retainFacets) throws RepositoryException {
+        ResourceResolver resourceResolverLeakingReference = null;
+
+        try {
+            final Query query = queryBuilder.createQuery(root, queryResourceResolver.adaptTo(Session.class));
+            final SearchResult searchResult = query.getResult();
+            final List<String> hitPaths = new ArrayList<>(searchResult.getHits().size());
+
+            for (final Hit hit : searchResult.getHits()) {
+                if (resourceResolverLeakingReference == null) {
+                    resourceResolverLeakingReference = hit.getResource().getResourceResolver();
+                }
+
+                try {
+                    final String hitPath = hit.getPath();
+                    hitPaths.add(hitPath);
+
+                    if (projection != null) {
+                        projectedValues.put(hitPath, projection.project(hit));
+                    }
+                } catch (RepositoryException e) {
+                    log.error("Could not retrieve search result", e);
+                }
+            }
+
+            // Facets must be collected before the query's resource resolver is closed.
+            return new CachedSearchResult(hitPaths, searchResult, retainFacets);
+        } finally {
+            if (resourceResolverLeakingReference != null) {
+                resourceResolverLeakingReference.close();
+            }
+            queryResourceResolver.close();
+        }
+    }
+
+    /**
+     * Exactly one of executing the query or cancelling it before it started owns, and closes, the query's resource resolver.
+     */
+    private final class BudgetedQuery extends FutureTask<CachedSearchResult> {
+        private final ResourceResolver queryResourceResolver;
+        private final AtomicBoolean claimed;
+
+        BudgetedQuery(final PredicateGroup root,
+                      final ResourceResolver queryResourceResolver,
+                      final HitProjection projection,
+                      final Map<String, Map<String, Object>> projectedValues,
+                      final boolean retainFacets) {
+            this(root, queryResourceResolver, projection, projectedValues, retainFacets, new AtomicBoolean());
+        }
+
+        private BudgetedQuery(final PredicateGroup root,
+                              final ResourceResolver queryResourceResolver,
+                              final HitProjection projection,
+                              final Map<String, Map<String, Object>> projectedValues,
+                              final boolean retainFacets,
+                              final AtomicBoolean claimed) {
+            super(() -> {
+                if (!claimed.compareAndSet(false, true)) {
+                    // Cancelled, and the resource resolver closed, before the query started.
+                    return null;
+                }
+                return executeQuery(root, queryResourceResolver, projection, projectedValues, retainFacets);
+            });
+
+            this.queryResourceResolver = queryResourceResolver;
+            this.claimed = claimed;
+        }
+
+        @Override
+        protected void done() {
+            if (isCancelled() && claimed.compareAndSet(false, true)) {
+                queryResourceResolver.close();
+            }
+        }
+    }
+}
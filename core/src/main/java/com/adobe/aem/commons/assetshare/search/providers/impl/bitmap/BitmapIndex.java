@@ -0,0 +1,42 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.adobe.aem.commons.assetshare.search.providers.impl.bitmap;
+
+import com.day.cq.search.PredicateGroup;
+
+import java.util.List;
+
+/**
+ * An in-memory index of per-value bitmaps of assets, for low-cardinality properties, which answers equality filters (and AND/OR/NOT combinations of them) without querying Oak.
+ * <br>
+ * The index is built with a service user, so its matches are not filtered by the user's permissions.
+ */
+public interface BitmapIndex {
+    /**
+     * @return true if the index is enabled and has been built.
+     */
+    boolean isReady();
+
+    /**
+     * @param predicateGroup the query's root PredicateGroup.
+     * @return the paths of all assets matching the query, in the query's order; or null if the query uses predicates the index cannot answer.
+     */
+    List<String> match(PredicateGroup predicateGroup);
+}
@@ -0,0 +1,645 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.adobe.aem.commons.assetshare.search.providers.impl.bitmap;
+
+import com.adobe.granite.jmx.annotation.AnnotatedStandardMBean;
+import com.day.cq.dam.commons.util.DamUtil;
+import com.day.cq.search.PredicateGroup;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.sling.api.resource.LoginException;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.apache.sling.api.resource.ValueMap;
+import org.apache.sling.api.resource.observation.ExternalResourceChangeListener;
+import org.apache.sling.api.resource.observation.ResourceChange;
+import org.apache.sling.api.resource.observation.ResourceChangeListener;
+import org.osgi.framework.BundleContext;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Modified;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.jcr.query.Query;
+import javax.management.DynamicMBean;
+import javax.management.NotCompliantMBeanException;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+@Component(
+        service = { BitmapIndex.class, ResourceChangeListener.class, DynamicMBean.class },
+        property = {
+                "jmx.objectname=com.adobe.aem.commons.assetshare:type=Search Bitmap Index",
+                ResourceChangeListener.PATHS + "=/content/dam",
+                ResourceChangeListener.CHANGES + "=ADDED",
+                ResourceChangeListener.CHANGES + "=CHANGED",
+                ResourceChangeListener.CHANGES + "=REMOVED"
+        }
+)
+@Designate(ocd = BitmapIndexImpl.Cfg.class)
+public class BitmapIndexImpl extends AnnotatedStandardMBean implements BitmapIndex, BitmapIndexMBean, ResourceChangeListener, ExternalResourceChangeListener {
+    private static final Logger log = LoggerFactory.getLogger(BitmapIndexImpl.class);
+
+    private static final String SERVICE_NAME = "bitmap-index-reader";
+
+    private static final Map<String, Object> AUTH_INFO = Collections.singletonMap(ResourceResolverFactory.SUBSERVICE, SERVICE_NAME);
+
+    private static final String JCR_CONTENT_SEGMENT = "/jcr:content";
+
+    private static final String SNAPSHOT_FILE_NAME = "search-bitmap-index.ser.gz";
+
+    private static final String LAST_MODIFIED = "jcr:content/jcr:lastModified";
+
+    // Observation events are delivered asynchronously, so changes made shortly before a snapshot was written may be missing from it.
+    private static final long SNAPSHOT_CHANGES_MARGIN_MS = 60000L;
+
+    private static final String BOOST_DELIMITER = "^";
+
+    // Only the JDK collection types Bitmaps is composed of may be read back from a snapshot.
+    private static final Pattern SNAPSHOT_CLASSES = Pattern.compile("^(\\[+L?)?(" + Pattern.quote(Bitmaps.class.getName())
+            + "|java\\.util\\.(ArrayList|BitSet|HashMap|LinkedHashMap|HashSet|LinkedHashSet|TreeMap|Collections\\$Unmodifiable\\w+)"
+            + "|java\\.lang\\.(String|Long|Double|Float|Number|Boolean|Integer)|[JZ]);?$");
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final AtomicLong matches = new AtomicLong();
+    private final AtomicLong unsupported = new AtomicLong();
+
+    @Reference
+    private transient ResourceResolverFactory resourceResolverFactory;
+
+    private Cfg cfg;
+
+    private File snapshotFile;
+
+    // All index updates are serialized on a single thread, so changes observed while the index is built are applied after it.
+    private ExecutorService executorService;
+
+    private volatile Bitmaps bitmaps;
+
+    private volatile boolean ready = false;
+
+    public BitmapIndexImpl() throws NotCompliantMBeanException {
+        super(BitmapIndexMBean.class);
+    }
+
+    @Override
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Override
+    public List<String> match(final PredicateGroup predicateGroup) {
+        if (!ready) {
+            return null;
+        }
+
+        final List<String> paths;
+
+        lock.readLock().lock();
+        try {
+            paths = BitmapQuery.match(bitmaps, predicateGroup);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        if (paths == null) {
+            unsupported.incrementAndGet();
+        } else {
+            matches.incrementAndGet();
+        }
+
+        return paths;
+    }
+
+    @Override
+    public void onChange(final List<ResourceChange> changes) {
+        final ExecutorService executor = this.executorService;
+
+        if (executor == null) {
+            return;
+        }
+
+        final Set<String> removed = new LinkedHashSet<>();
+        final Set<String> changed = new LinkedHashSet<>();
+
+        for (final ResourceChange change : changes) {
+            if (!bitmaps.covers(change.getPath())) {
+                continue;
+            }
+
+            if (ResourceChange.ChangeType.REMOVED.equals(change.getType()) && !StringUtils.contains(change.getPath(), JCR_CONTENT_SEGMENT)) {
+                removed.add(change.getPath());
+            } else {
+                // Changes within an asset (ie. to its metadata) re-index the asset itself.
+                changed.add(StringUtils.substringBefore(change.getPath(), JCR_CONTENT_SEGMENT));
+            }
+        }
+
+        if (!removed.isEmpty() || !changed.isEmpty()) {
+            executor.submit(() -> update(removed, changed));
+        }
+    }
+
+    private void update(final Set<String> removed, final Set<String> changed) {
+        try (ResourceResolver resourceResolver = resourceResolverFactory.getServiceResourceResolver(AUTH_INFO)) {
+            lock.writeLock().lock();
+            try {
+                for (final String path : removed) {
+                    bitmaps.remove(path);
+                }
+
+                for (final String path : changed) {
+                    final Resource resource = resourceResolver.getResource(path);
+
+                    if (resource == null) {
+                        bitmaps.remove(path);
+                    } else if (DamUtil.isAsset(resource)) {
+                        put(bitmaps, resource);
+                    } else {
+                        // Ie. a folder was moved or copied in, so index all assets beneath it.
+                        bitmaps.remove(path);
+                        putAll(bitmaps, resource);
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } catch (LoginException e) {
+            log.error("Could not obtain the Asset Share Commons service user [ {} ]", SERVICE_NAME, e);
+        }
+    }
+
+    private void build() {
+        final long start = System.currentTimeMillis();
+        final Bitmaps built = newBitmaps();
+
+        try (ResourceResolver resourceResolver = resourceResolverFactory.getServiceResourceResolver(AUTH_INFO)) {
+            for (final String path : cfg.paths()) {
+                final Iterator<Resource> assets = findAssets(resourceResolver, path);
+
+                while (assets.hasNext()) {
+                    put(built, assets.next());
+                }
+            }
+        } catch (LoginException e) {
+            log.error("Could not obtain the Asset Share Commons service user [ {} ]", SERVICE_NAME, e);
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            bitmaps = built;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        ready = true;
+        writeSnapshot();
+
+        log.info("Built the search bitmap index of [ {} ] values for [ {} ] assets (~[ {} ] bytes) in [ {} ] ms",
+                built.getValueCount(), built.size(), built.getEstimatedMemory(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Brings a snapshot up to date with the repository, and then serves it. Assets that were deleted since the snapshot was written are removed,
+     * and assets that were added, or modified (per jcr:content/jcr:lastModified) since, are re-indexed.
+     * Unlike a build, this only reads the last modified date of the unchanged assets.
+     *
+     * @param snapshot the snapshot.
+     * @param writtenAt the time the snapshot was written.
+     * @return true if the snapshot is served.
+     */
+    private boolean reconcile(final Bitmaps snapshot, final long writtenAt) {
+        final long start = System.currentTimeMillis();
+        final Set<String> existing = new HashSet<>();
+        int reindexed = 0;
+
+        try (ResourceResolver resourceResolver = resourceResolverFactory.getServiceResourceResolver(AUTH_INFO)) {
+            for (final String path : cfg.paths()) {
+                final Iterator<Resource> assets = findAssets(resourceResolver, path);
+
+                while (assets.hasNext()) {
+                    final Resource asset = assets.next();
+                    final Calendar lastModified = asset.getValueMap().get(LAST_MODIFIED, Calendar.class);
+
+                    existing.add(asset.getPath());
+
+                    if (!snapshot.contains(asset.getPath()) || lastModified == null || lastModified.getTimeInMillis() >= writtenAt - SNAPSHOT_CHANGES_MARGIN_MS) {
+                        put(snapshot, asset);
+                        reindexed++;
+                    }
+                }
+            }
+        } catch (LoginException e) {
+            log.error("Could not obtain the Asset Share Commons service user [ {} ]", SERVICE_NAME, e);
+            return false;
+        }
+
+        final List<String> removed = new ArrayList<>();
+        final BitSet all = snapshot.all();
+        for (int ordinal = all.nextSetBit(0); ordinal >= 0; ordinal = all.nextSetBit(ordinal + 1)) {
+            if (!existing.contains(snapshot.getPath(ordinal))) {
+                removed.add(snapshot.getPath(ordinal));
+            }
+        }
+        removed.forEach(snapshot::remove);
+
+        lock.writeLock().lock();
+        try {
+            bitmaps = snapshot;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        ready = true;
+        writeSnapshot();
+
+        log.info("Reconciled the search bitmap index snapshot of [ {} ] assets, re-indexing [ {} ] and removing [ {} ] assets, in [ {} ] ms",
+                snapshot.size(), reindexed, removed.size(), System.currentTimeMillis() - start);
+        return true;
+    }
+
+    private static Iterator<Resource> findAssets(final ResourceResolver resourceResolver, final String path) {
+        return resourceResolver.findResources(
+                "SELECT * FROM [dam:Asset] AS a WHERE ISDESCENDANTNODE(a, '" + StringUtils.replace(path, "'", "''") + "')",
+                Query.JCR_SQL2);
+    }
+
+    private void putAll(final Bitmaps target, final Resource resource) {
+        for (final Resource child : resource.getChildren()) {
+            if (DamUtil.isAsset(child)) {
+                put(target, child);
+            } else if (!StringUtils.equals(child.getName(), JCR_CONTENT_SEGMENT.substring(1))) {
+                putAll(target, child);
+            }
+        }
+    }
+
+    private void put(final Bitmaps target, final Resource asset) {
+        final ValueMap properties = asset.getValueMap();
+
+        final Map<String, String[]> values = new HashMap<>();
+        for (final String property : target.getProperties()) {
+            values.put(property, properties.get(property, String[].class));
+        }
+
+        final Map<String, Comparable<?>> sorts = new HashMap<>();
+        for (final String property : target.getSortProperties()) {
+            sorts.put(property, toSortValue(properties.get(property)));
+        }
+
+        final Map<String, String[]> texts = new HashMap<>();
+        for (final String property : target.getFulltextProperties().keySet()) {
+            texts.put(property, properties.get(property, String[].class));
+        }
+
+        target.put(asset.getPath(), values, sorts, texts);
+    }
+
+    /**
+     * Dates and numbers are sorted by their value, and everything else by its String representation.
+     */
+    private static Comparable<?> toSortValue(final Object value) {
+        if (value == null) {
+            return null;
+        } else if (value.getClass().isArray()) {
+            return java.lang.reflect.Array.getLength(value) == 0 ? null : toSortValue(java.lang.reflect.Array.get(value, 0));
+        } else if (value instanceof Calendar) {
+            return ((Calendar) value).getTimeInMillis();
+        } else if (value instanceof Date) {
+            return ((Date) value).getTime();
+        } else if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+
+        return value.toString();
+    }
+
+    private Bitmaps newBitmaps() {
+        return new Bitmaps(new LinkedHashSet<>(Arrays.asList(cfg.paths())),
+                toRelativePaths(cfg.properties()),
+                toRelativePaths(cfg.sort_properties()),
+                toBoostedRelativePaths(cfg.fulltext_properties()));
+    }
+
+    /**
+     * @param properties relative paths, each optionally suffixed with ^boost (ie. jcr:content/metadata/dc:title^2).
+     * @return the relative paths mapped to their boost, which defaults to 1.
+     */
+    private static Map<String, Float> toBoostedRelativePaths(final String[] properties) {
+        final Map<String, Float> boosts = new LinkedHashMap<>();
+
+        for (final String property : toRelativePaths(properties)) {
+            float boost = 1f;
+
+            if (StringUtils.contains(property, BOOST_DELIMITER)) {
+                try {
+                    boost = Float.parseFloat(StringUtils.substringAfterLast(property, BOOST_DELIMITER));
+                } catch (NumberFormatException e) {
+                    log.warn("Invalid boost for fulltext property [ {} ], using a boost of 1", property);
+                }
+            }
+
+            boosts.put(StringUtils.substringBeforeLast(property, BOOST_DELIMITER).trim(), boost);
+        }
+
+        return boosts;
+    }
+
+    /**
+     * Reads the snapshot, if one was written by an instance with the same configuration.
+     *
+     * @return the snapshot, or null if there is none that can be used.
+     */
+    private Bitmaps loadSnapshot() {
+        if (snapshotFile == null || !snapshotFile.isFile()) {
+            return null;
+        }
+
+        final long start = System.currentTimeMillis();
+        final Bitmaps loaded;
+
+        try (ObjectInputStream in = new SnapshotInputStream(new GZIPInputStream(new BufferedInputStream(Files.newInputStream(snapshotFile.toPath()))))) {
+            loaded = (Bitmaps) in.readObject();
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            log.warn("Could not read the search bitmap index snapshot [ {} ], it will be rebuilt", snapshotFile, e);
+            return null;
+        }
+
+        lock.readLock().lock();
+        try {
+            if (!bitmaps.hasSameLayout(loaded)) {
+                log.info("Ignoring the search bitmap index snapshot [ {} ], as the index's configuration has changed", snapshotFile);
+                return null;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        log.debug("Loaded the search bitmap index snapshot of [ {} ] assets in [ {} ] ms", loaded.size(), System.currentTimeMillis() - start);
+        return loaded;
+    }
+
+    /**
+     * Writes the index to local disk, so that it can be served as soon as the next activation loads it, rather than after a full repository scan.
+     */
+    private void writeSnapshot() {
+        if (snapshotFile == null || !ready) {
+            return;
+        }
+
+        final long start = System.currentTimeMillis();
+        final File tmpFile = new File(snapshotFile.getPath() + ".tmp");
+
+        // The read lock keeps updates out while the index is written; searches continue.
+        lock.readLock().lock();
+        try (ObjectOutputStream out = new ObjectOutputStream(new GZIPOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpFile.toPath()))))) {
+            out.writeObject(bitmaps);
+        } catch (IOException e) {
+            log.warn("Could not write the search bitmap index snapshot [ {} ]", tmpFile, e);
+            return;
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        try {
+            Files.move(tmpFile.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("Wrote the search bitmap index snapshot [ {} ] in [ {} ] ms", snapshotFile, System.currentTimeMillis() - start);
+        } catch (IOException e) {
+            log.warn("Could not replace the search bitmap index snapshot [ {} ]", snapshotFile, e);
+        }
+    }
+
+    private static Set<String> toRelativePaths(final String[] properties) {
+        return Arrays.stream(properties)
+                .map(StringUtils::trimToNull)
+                .filter(StringUtils::isNotEmpty)
+                .map(property -> StringUtils.removeStart(property, "./"))
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    /** MBean **/
+
+    @Override
+    public long getAssetCount() {
+        lock.readLock().lock();
+        try {
+            return bitmaps.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public long getValueCount() {
+        lock.readLock().lock();
+        try {
+            return bitmaps.getValueCount();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public long getEstimatedMemory() {
+        lock.readLock().lock();
+        try {
+            return bitmaps.getEstimatedMemory();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public long getMatchCount() {
+        return matches.get();
+    }
+
+    @Override
+    public long getUnsupportedCount() {
+        return unsupported.get();
+    }
+
+    @Override
+    public void rebuild() {
+        final ExecutorService executor = this.executorService;
+
+        if (executor != null) {
+            // The current index continues to serve queries until the rebuilt index replaces it.
+            executor.submit(this::build);
+        }
+    }
+
+    @Activate
+    @Modified
+    protected void activate(Cfg cfg, BundleContext bundleContext) {
+        deactivate();
+
+        this.cfg = cfg;
+        this.snapshotFile = cfg.snapshot() && bundleContext != null ? bundleContext.getDataFile(SNAPSHOT_FILE_NAME) : null;
+
+        lock.writeLock().lock();
+        try {
+            bitmaps = newBitmaps();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        if (cfg.enabled()) {
+            executorService = Executors.newSingleThreadExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, "asset-share-commons-bitmap-index");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+            // The index is built in the background, so as not to delay the start up of the bundle.
+            // A snapshot misses the changes made while this instance was stopped, so it is only served once it is reconciled with the repository, which is quicker than a build.
+            executorService.submit(() -> {
+                final long writtenAt = snapshotFile != null ? snapshotFile.lastModified() : 0;
+                final Bitmaps snapshot = loadSnapshot();
+
+                if (snapshot == null || !reconcile(snapshot, writtenAt)) {
+                    build();
+                }
+            });
+        }
+    }
+
+    @Deactivate
+    protected void deactivate() {
+        if (executorService != null) {
+            final int pending = executorService.shutdownNow().size();
+            executorService = null;
+
+            if (pending == 0) {
+                // Captures the changes applied since the index was built.
+                writeSnapshot();
+            } else {
+                // The changes of the pending updates would be missing from a snapshot, yet predate it; the previous snapshot is reconciled instead.
+                log.debug("Not writing the search bitmap index snapshot, as [ {} ] updates were pending", pending);
+            }
+        }
+
+        ready = false;
+    }
+
+    @ObjectClassDefinition(name = "Asset Share Commons - Search Bitmap Index")
+    public @interface Cfg {
+        @AttributeDefinition(
+                name = "Enabled",
+                description = "Builds in-memory bitmaps of the assets per value and term of the configured properties at start up, which the Bitmap Search Provider uses to answer searches without querying Oak. The index is kept current as assets change, including those replicated to publish."
+        )
+        boolean enabled() default false;
+
+        @AttributeDefinition(
+                name = "Paths",
+                description = "The assets beneath these paths are indexed. Queries that may match assets outside of these paths must not be answered by the index, so this should cover the paths of all search pages."
+        )
+        String[] paths() default { "/content/dam" };
+
+        @AttributeDefinition(
+                name = "Properties",
+                description = "The relative paths (from the asset) of the low-cardinality properties to keep bitmaps for. Only filters on these properties can be answered by the index."
+        )
+        String[] properties() default { "jcr:content/metadata/dc:format", "jcr:content/metadata/cq:tags" };
+
+        @AttributeDefinition(
+                name = "Sort properties",
+                description = "The relative paths (from the asset) of the properties results can be ordered by, besides relevance, and of the date properties that can be filtered by date range."
+        )
+        String[] sort_properties() default { "jcr:content/jcr:lastModified", "jcr:content/metadata/dc:title" };
+
+        @AttributeDefinition(
+                name = "Fulltext properties",
+                description = "The relative paths (from the asset) of the properties fulltext searches are matched against, each optionally suffixed with ^boost (ie. jcr:content/metadata/dc:title^2). "
+                        + "Unlike Oak, the index does not match the assets' extracted text or other properties, so only add entries if fulltext searches matching just these properties are acceptable. "
+                        + "When empty, fulltext searches are answered by Oak."
+        )
+        String[] fulltext_properties() default {};
+
+        @AttributeDefinition(
+                name = "Snapshot",
+                description = "Writes the index to the bundle's data area on local disk after it is built and on deactivation. On activation, the snapshot is reconciled with the repository rather than rebuilding the index: deleted assets are removed, and added assets and those with a newer jcr:content/jcr:lastModified are re-indexed. "
+                        + "Changes that did not update jcr:content/jcr:lastModified while the instance was stopped are only picked up by a rebuild (see the Search Bitmap Index MBean)."
+        )
+        boolean snapshot() default true;
+    }
+
+    /**
+     * Only resolves the classes a Bitmaps snapshot is composed of, so that a tampered snapshot cannot instantiate anything else.
+     */
+    private static final class SnapshotInputStream extends ObjectInputStream {
+        SnapshotInputStream(final InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected Class<?> resolveClass(final ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            if (!SNAPSHOT_CLASSES.matcher(desc.getName()).matches()) {
+                throw new InvalidClassException(desc.getName(), "Unexpected class in the search bitmap index snapshot");
+            }
+
+            if (Bitmaps.class.getName().equals(desc.getName())) {
+                return Bitmaps.class;
+            }
+
+            return super.resolveClass(desc);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.adobe.aem.commons.assetshare.search.providers.impl.bitmap;
+
+import com.adobe.granite.jmx.annotation.Description;
+
+@Description("Asset Share Commons - Search Bitmap Index")
+public interface BitmapIndexMBean {
+    @Description("True if the index has been built")
+    boolean isReady();
+
+    @Description("Number of indexed assets")
+    long getAssetCount();
+
+    @Description("Number of distinct property values (ie. bitmaps)")
+    long getValueCount();
+
+    @Description("Estimated heap used by the index, in bytes")
+    long getEstimatedMemory();
+
+    @Description("Number of queries answered by the index")
+    long getMatchCount();
+
+    @Description("Number of queries the index could not answer")
+    long getUnsupportedCount();
+
+    @Description("Rebuilds the index from a scan of the repository")
+    void rebuild();
+}
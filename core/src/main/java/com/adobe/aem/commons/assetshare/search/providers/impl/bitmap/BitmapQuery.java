@@ -0,0 +1,534 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.adobe.aem.commons.assetshare.search.providers.impl.bitmap;
+
+import com.adobe.aem.commons.assetshare.search.impl.predicateevaluators.PropertyValuesPredicateEvaluator;
+import com.day.cq.dam.api.DamConstants;
+import com.day.cq.search.Predicate;
+import com.day.cq.search.PredicateGroup;
+import com.day.cq.search.eval.DateRangePredicateEvaluator;
+import com.day.cq.search.eval.FulltextPredicateEvaluator;
+import com.day.cq.search.eval.JcrPropertyPredicateEvaluator;
+import com.day.cq.search.eval.PathPredicateEvaluator;
+import com.day.cq.search.eval.TypePredicateEvaluator;
+import com.day.text.Text;
+import org.apache.commons.lang3.StringUtils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.regex.Pattern;
+
+/**
+ * Evaluates a QueryBuilder PredicateGroup against {@link Bitmaps}.
+ * <br>
+ * Only the predicates the Asset Share Commons filters produce are supported: type (dam:Asset), path, property and propertyvalues (equals, on indexed properties),
+ * daterange (on sort properties), fulltext (simple terms, prefixes, OR and exclusions, matched against the fulltext properties) and nested groups (including p.or and p.not).
+ * Results can be ordered by @jcr:score or by a single sort property; scores are the boosted inverse document frequencies of the matched fulltext terms.
+ * Any other predicate makes the whole query unsupported, so that it is executed by Oak instead.
+ */
+final class BitmapQuery {
+    private static final String TYPE_GROUP = PredicateGroup.TYPE;
+    private static final String TYPE_PROPERTY = JcrPropertyPredicateEvaluator.PROPERTY;
+    private static final String TYPE_PROPERTY_VALUES = PropertyValuesPredicateEvaluator.PREDICATE_NAME;
+
+    private static final String ORDER_BY_SCORE = "@jcr:score";
+    private static final String OPERATION_EQUALS = JcrPropertyPredicateEvaluator.OP_EQUALS;
+    private static final String PARAM_DELIMITER = "delimiter";
+    // The PropertyValuesPredicateEvaluator's default delimiter; other delimiters (and delimiter mappings) are not supported.
+    private static final String DEFAULT_DELIMITER = ",";
+    private static final String DELIMITER_NONE = "__NONE";
+
+    private static final String TYPE_DATE_RANGE = "daterange";
+    private static final String OPERATION_INCLUSIVE = "=";
+    private static final String FULLTEXT_OR = "OR";
+    private static final String FULLTEXT_AND = "AND";
+    private static final String FULLTEXT_EXCLUDE = "-";
+    private static final String FULLTEXT_PREFIX = "*";
+    // Fulltext syntax beyond simple terms (ie. phrases, boosts, escapes and mid-term wildcards) is left to Oak.
+    private static final Pattern FULLTEXT_UNSUPPORTED = Pattern.compile("[\"'\\\\^?~:()\\[\\]{}]|\\*(?=\\S)");
+
+    private static final Pattern VALUE_PARAM = Pattern.compile("^(\\d+_)?" + JcrPropertyPredicateEvaluator.VALUE + "$");
+    private static final Pattern VALUES_PARAM = Pattern.compile("^(\\d+_)?" + PropertyValuesPredicateEvaluator.VALUES + "$");
+
+    // Marks a predicate that does not constrain the query, ie. a property predicate without values, which QueryBuilder ignores as well.
+    private static final BitSet IGNORED = new BitSet(0);
+
+    private static final String DAM_ROOT = DamConstants.MOUNTPOINT_ASSETS;
+
+    private final Bitmaps bitmaps;
+
+    private boolean pathConstrained = false;
+
+    private int negations = 0;
+
+    // The scoring terms (ie. those that are not excluded) of all fulltext predicates, mapped to whether they are prefixes.
+    private final Map<String, Boolean> scoringTerms = new LinkedHashMap<>();
+
+    private BitmapQuery(final Bitmaps bitmaps) {
+        this.bitmaps = bitmaps;
+    }
+
+    /**
+     * @param bitmaps the bitmaps to evaluate the query against.
+     * @param root the query's root PredicateGroup.
+     * @return the paths of the matching assets in the query's order, or null if the query is not supported.
+     */
+    static List<String> match(final Bitmaps bitmaps, final PredicateGroup root) {
+        try {
+            return new BitmapQuery(bitmaps).match(root);
+        } catch (UnsupportedPredicateException e) {
+            return null;
+        }
+    }
+
+    private List<String> match(final PredicateGroup root) throws UnsupportedPredicateException {
+        Predicate orderBy = null;
+        final PredicateGroup constraints = new PredicateGroup();
+        constraints.setAllRequired(root.allRequired());
+        constraints.setNegated(root.isNegated());
+
+        for (final Predicate predicate : root) {
+            if (Predicate.ORDER_BY.equals(predicate.getType())) {
+                if (orderBy != null) {
+                    throw new UnsupportedPredicateException();
+                }
+                orderBy = predicate;
+            } else {
+                constraints.add(predicate);
+            }
+        }
+
+        BitSet matches = evaluate(constraints);
+
+        if (!pathConstrained && !bitmaps.covers(DAM_ROOT)) {
+            // Without a path, the query may match assets that are not indexed.
+            throw new UnsupportedPredicateException();
+        }
+
+        if (matches == IGNORED) {
+            matches = bitmaps.all();
+        }
+
+        final List<Integer> ordinals = new ArrayList<>(matches.cardinality());
+        matches.stream().forEach(ordinals::add);
+
+        final Comparator<Integer> comparator = getComparator(orderBy);
+        if (comparator != null) {
+            ordinals.sort(comparator);
+        }
+
+        final List<String> paths = new ArrayList<>(ordinals.size());
+        for (final int ordinal : ordinals) {
+            paths.add(bitmaps.getPath(ordinal));
+        }
+
+        return paths;
+    }
+
+    private BitSet evaluate(final Predicate predicate) throws UnsupportedPredicateException {
+        final String type = predicate.getType();
+
+        if (predicate instanceof PredicateGroup) {
+            return evaluateGroup((PredicateGroup) predicate);
+        } else if (TypePredicateEvaluator.TYPE.equals(type)) {
+            // Only assets are indexed.
+            if (!DamConstants.NT_DAM_ASSET.equals(predicate.get(TypePredicateEvaluator.TYPE))) {
+                throw new UnsupportedPredicateException();
+            }
+            return IGNORED;
+        } else if (PathPredicateEvaluator.PATH.equals(type)) {
+            return evaluatePath(predicate);
+        } else if (TYPE_PROPERTY.equals(type) || TYPE_PROPERTY_VALUES.equals(type)) {
+            return evaluateProperty(predicate);
+        } else if (FulltextPredicateEvaluator.FULLTEXT.equals(type)) {
+            return evaluateFulltext(predicate);
+        } else if (TYPE_DATE_RANGE.equals(type)) {
+            return evaluateDateRange(predicate);
+        }
+
+        throw new UnsupportedPredicateException();
+    }
+
+    private BitSet evaluateGroup(final PredicateGroup group) throws UnsupportedPredicateException {
+        BitSet result = IGNORED;
+
+        if (group.isNegated()) {
+            negations++;
+        }
+
+        for (final Predicate child : group) {
+            final BitSet childResult = evaluate(child);
+
+            if (childResult == IGNORED) {
+                continue;
+            } else if (result == IGNORED) {
+                result = (BitSet) childResult.clone();
+            } else if (group.allRequired()) {
+                result.and(childResult);
+            } else {
+                result.or(childResult);
+            }
+        }
+
+        if (group.isNegated()) {
+            negations--;
+        }
+
+        if (group.isNegated() && result != IGNORED) {
+            final BitSet negated = (BitSet) bitmaps.all().clone();
+            negated.andNot(result);
+            result = negated;
+        }
+
+        return result;
+    }
+
+    private BitSet evaluatePath(final Predicate predicate) throws UnsupportedPredicateException {
+        if (predicate.getBool(PathPredicateEvaluator.SELF) || predicate.getBool(PathPredicateEvaluator.EXACT) || predicate.getBool(PathPredicateEvaluator.FLAT)) {
+            throw new UnsupportedPredicateException();
+        }
+
+        final String path = StringUtils.trimToNull(predicate.get(PathPredicateEvaluator.PATH));
+
+        if (path == null) {
+            return IGNORED;
+        } else if (!bitmaps.covers(Text.makeCanonicalPath(path))) {
+            // Assets beneath the path may not be indexed.
+            throw new UnsupportedPredicateException();
+        }
+
+        pathConstrained = true;
+        return bitmaps.beneath(Text.makeCanonicalPath(path));
+    }
+
+    private BitSet evaluateProperty(final Predicate predicate) throws UnsupportedPredicateException {
+        final String property = StringUtils.removeStart(StringUtils.trimToEmpty(predicate.get(JcrPropertyPredicateEvaluator.PROPERTY)), "./");
+        final String operation = StringUtils.defaultIfBlank(predicate.get(JcrPropertyPredicateEvaluator.OPERATION), OPERATION_EQUALS);
+
+        if (!bitmaps.getProperties().contains(property)
+                || !OPERATION_EQUALS.equals(operation)
+                || predicate.get(JcrPropertyPredicateEvaluator.DEPTH) != null) {
+            throw new UnsupportedPredicateException();
+        }
+
+        final List<String> values = getValues(predicate);
+
+        if (values.isEmpty()) {
+            return IGNORED;
+        }
+
+        final boolean and = predicate.getBool(JcrPropertyPredicateEvaluator.AND);
+        BitSet result = null;
+
+        for (final String value : values) {
+            final BitSet valueBitmap = bitmaps.get(property, value);
+
+            if (result == null) {
+                result = (BitSet) valueBitmap.clone();
+            } else if (and) {
+                result.and(valueBitmap);
+            } else {
+                result.or(valueBitmap);
+            }
+        }
+
+        return result;
+    }
+
+    private BitSet evaluateFulltext(final Predicate predicate) throws UnsupportedPredicateException {
+        final String fulltext = StringUtils.trimToNull(predicate.get(FulltextPredicateEvaluator.FULLTEXT));
+
+        if (fulltext == null) {
+            return IGNORED;
+        } else if (bitmaps.getFulltextProperties().isEmpty()
+                || StringUtils.isNotBlank(predicate.get(FulltextPredicateEvaluator.REL_PATH))
+                || FULLTEXT_UNSUPPORTED.matcher(fulltext).find()) {
+            throw new UnsupportedPredicateException();
+        }
+
+        // Whitespace separated terms are all required, unless they are joined by OR; terms prefixed by - are excluded.
+        final List<List<String>> required = new ArrayList<>();
+        final List<String> excluded = new ArrayList<>();
+        boolean or = false;
+
+        for (final String word : StringUtils.split(fulltext)) {
+            if (FULLTEXT_OR.equals(word)) {
+                if (or || required.isEmpty()) {
+                    throw new UnsupportedPredicateException();
+                }
+                or = true;
+            } else if (word.startsWith(FULLTEXT_EXCLUDE)) {
+                if (or) {
+                    throw new UnsupportedPredicateException();
+                }
+                excluded.add(toTerm(word.substring(FULLTEXT_EXCLUDE.length())));
+            } else if (or) {
+                required.get(required.size() - 1).add(toTerm(word));
+                or = false;
+            } else {
+                final List<String> alternatives = new ArrayList<>();
+                alternatives.add(toTerm(word));
+                required.add(alternatives);
+            }
+        }
+
+        if (or || required.isEmpty()) {
+            throw new UnsupportedPredicateException();
+        }
+
+        BitSet result = null;
+
+        for (final List<String> alternatives : required) {
+            final BitSet alternativesBitmap = new BitSet();
+
+            for (final String term : alternatives) {
+                alternativesBitmap.or(getTermBitmap(term));
+
+                if (negations == 0) {
+                    scoringTerms.put(StringUtils.removeEnd(term, FULLTEXT_PREFIX), term.endsWith(FULLTEXT_PREFIX));
+                }
+            }
+
+            if (result == null) {
+                result = alternativesBitmap;
+            } else {
+                result.and(alternativesBitmap);
+            }
+        }
+
+        for (final String term : excluded) {
+            result.andNot(getTermBitmap(term));
+        }
+
+        return result;
+    }
+
+    /**
+     * @param word a fulltext word, optionally ending with the prefix wildcard.
+     * @return the word's single lower-cased term, ending with the prefix wildcard if the word did.
+     */
+    private static String toTerm(final String word) throws UnsupportedPredicateException {
+        final boolean prefix = word.endsWith(FULLTEXT_PREFIX);
+        final Set<String> tokens = Bitmaps.tokenize(StringUtils.removeEnd(word, FULLTEXT_PREFIX));
+
+        if (tokens.size() != 1 || FULLTEXT_AND.equals(word)) {
+            // Words that are split into several terms are phrases in Oak.
+            throw new UnsupportedPredicateException();
+        }
+
+        return tokens.iterator().next() + (prefix ? FULLTEXT_PREFIX : "");
+    }
+
+    private BitSet getTermBitmap(final String term) {
+        final BitSet bitmap = new BitSet();
+
+        for (final String property : bitmaps.getFulltextProperties().keySet()) {
+            bitmap.or(getTermBitmap(property, term));
+        }
+
+        return bitmap;
+    }
+
+    private BitSet getTermBitmap(final String property, final String term) {
+        if (term.endsWith(FULLTEXT_PREFIX)) {
+            return bitmaps.getTermsStartingWith(property, StringUtils.removeEnd(term, FULLTEXT_PREFIX));
+        }
+        return bitmaps.getTerm(property, term);
+    }
+
+    private BitSet evaluateDateRange(final Predicate predicate) throws UnsupportedPredicateException {
+        final String property = StringUtils.removeStart(StringUtils.removeStart(StringUtils.trimToEmpty(predicate.get(DateRangePredicateEvaluator.PROPERTY)), "@"), "./");
+
+        if (!bitmaps.getSortProperties().contains(property)) {
+            throw new UnsupportedPredicateException();
+        }
+
+        final ZoneId zoneId = StringUtils.isBlank(predicate.get(DateRangePredicateEvaluator.TIME_ZONE))
+                ? ZoneId.systemDefault()
+                : TimeZone.getTimeZone(predicate.get(DateRangePredicateEvaluator.TIME_ZONE)).toZoneId();
+
+        final Double lowerBound = toEpochMillis(predicate.get(DateRangePredicateEvaluator.LOWER_BOUND), zoneId);
+        final Double upperBound = toEpochMillis(predicate.get(DateRangePredicateEvaluator.UPPER_BOUND), zoneId);
+
+        if (lowerBound == null && upperBound == null) {
+            return IGNORED;
+        }
+
+        return bitmaps.getRange(property,
+                lowerBound, StringUtils.endsWith(predicate.get(DateRangePredicateEvaluator.LOWER_OPERATION), OPERATION_INCLUSIVE),
+                upperBound, StringUtils.endsWith(predicate.get(DateRangePredicateEvaluator.UPPER_OPERATION), OPERATION_INCLUSIVE));
+    }
+
+    private static Double toEpochMillis(final String value, final ZoneId zoneId) throws UnsupportedPredicateException {
+        if (StringUtils.isBlank(value)) {
+            return null;
+        }
+
+        final String trimmed = value.trim();
+
+        try {
+            return (double) OffsetDateTime.parse(trimmed).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            // Try the next format
+        }
+
+        try {
+            return (double) LocalDateTime.parse(trimmed).atZone(zoneId).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            // Try the next format
+        }
+
+        try {
+            return (double) LocalDate.parse(trimmed).atStartOfDay(zoneId).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            // Try the next format
+        }
+
+        if (StringUtils.isNumeric(trimmed)) {
+            return Double.parseDouble(trimmed);
+        }
+
+        // ie. relative dates, which are left to Oak.
+        throw new UnsupportedPredicateException();
+    }
+
+    private List<String> getValues(final Predicate predicate) throws UnsupportedPredicateException {
+        final List<String> values = new ArrayList<>();
+        final String delimiter = StringUtils.defaultIfEmpty(predicate.get(PARAM_DELIMITER), DEFAULT_DELIMITER);
+
+        for (final Map.Entry<String, String> entry : predicate.getParameters().entrySet()) {
+            if (StringUtils.isBlank(entry.getValue())) {
+                continue;
+            }
+
+            if (VALUE_PARAM.matcher(entry.getKey()).matches()) {
+                values.add(entry.getValue());
+            } else if (VALUES_PARAM.matcher(entry.getKey()).matches()) {
+                if (DELIMITER_NONE.equals(delimiter)) {
+                    values.add(entry.getValue());
+                } else if (DEFAULT_DELIMITER.equals(delimiter)) {
+                    for (final String value : StringUtils.split(entry.getValue(), DEFAULT_DELIMITER)) {
+                        if (StringUtils.isNotBlank(value)) {
+                            values.add(value.trim());
+                        }
+                    }
+                } else {
+                    throw new UnsupportedPredicateException();
+                }
+            } else if (entry.getKey().matches("^\\d+_" + PARAM_DELIMITER + "$")) {
+                throw new UnsupportedPredicateException();
+            }
+        }
+
+        return values;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Comparator<Integer> getComparator(final Predicate orderBy) throws UnsupportedPredicateException {
+        final String orderByValue = orderBy == null ? null : StringUtils.trimToNull(orderBy.get(Predicate.ORDER_BY));
+
+        if (orderByValue == null || ORDER_BY_SCORE.equals(orderByValue)) {
+            // Without fulltext, all matches score the same. Without an orderby, Oak returns the most relevant matches first.
+            final boolean ascending = orderByValue != null && !Predicate.SORT_DESCENDING.equals(orderBy.get(Predicate.PARAM_SORT));
+            return scoringTerms.isEmpty() ? null : getScoreComparator(ascending);
+        }
+
+        final String property = StringUtils.removeStart(StringUtils.removeStart(orderByValue, "@"), "./");
+
+        if (!bitmaps.getSortProperties().contains(property)) {
+            throw new UnsupportedPredicateException();
+        }
+
+        final boolean ignoreCase = Predicate.IGNORE_CASE.equals(orderBy.get(Predicate.PARAM_CASE));
+        final boolean descending = Predicate.SORT_DESCENDING.equals(orderBy.get(Predicate.PARAM_SORT));
+
+        return (first, second) -> {
+            final Comparable firstValue = toComparable(bitmaps.getSortValue(property, first), ignoreCase);
+            final Comparable secondValue = toComparable(bitmaps.getSortValue(property, second), ignoreCase);
+
+            // Missing values sort last in either direction.
+            if (firstValue == null || secondValue == null) {
+                return firstValue == secondValue ? 0 : firstValue == null ? 1 : -1;
+            }
+
+            int result;
+            try {
+                result = firstValue.compareTo(secondValue);
+            } catch (ClassCastException e) {
+                // The property holds values of different types across assets.
+                result = firstValue.toString().compareTo(secondValue.toString());
+            }
+
+            return descending ? -result : result;
+        };
+    }
+
+    private Comparator<Integer> getScoreComparator(final boolean ascending) {
+        final Map<Integer, Double> scores = new HashMap<>();
+        final double assetCount = bitmaps.size();
+
+        for (final Map.Entry<String, Boolean> term : scoringTerms.entrySet()) {
+            final String lookup = term.getKey() + (term.getValue() ? FULLTEXT_PREFIX : "");
+            final Map<String, BitSet> propertyBitmaps = new HashMap<>();
+
+            for (final String property : bitmaps.getFulltextProperties().keySet()) {
+                propertyBitmaps.put(property, getTermBitmap(property, lookup));
+            }
+
+            final BitSet anyProperty = getTermBitmap(lookup);
+            // Rare terms are more relevant than common ones.
+            final double idf = Math.log(1 + assetCount / (anyProperty.cardinality() + 1));
+
+            for (final Map.Entry<String, BitSet> entry : propertyBitmaps.entrySet()) {
+                final double weight = idf * bitmaps.getFulltextProperties().get(entry.getKey());
+                entry.getValue().stream().forEach(ordinal -> scores.merge(ordinal, weight, Double::sum));
+            }
+        }
+
+        final Comparator<Integer> comparator = Comparator.comparingDouble(ordinal -> scores.getOrDefault(ordinal, 0d));
+        return ascending ? comparator : comparator.reversed();
+    }
+
+    private static Comparable toComparable(final Comparable<?> value, final boolean ignoreCase) {
+        if (ignoreCase && value instanceof String) {
+            return ((String) value).toLowerCase(Locale.ROOT);
+        }
+        return value;
+    }
+
+    private static final class UnsupportedPredicateException extends Exception {
+        UnsupportedPredicateException() {
+            super(null, null, false, false);
+        }
+    }
+}
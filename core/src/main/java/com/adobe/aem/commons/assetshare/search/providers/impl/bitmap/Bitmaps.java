@@ -0,0 +1,444 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.adobe.aem.commons.assetshare.search.providers.impl.bitmap;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * Per-value bitmaps of asset ordinals for a set of low-cardinality properties, and per-term bitmaps for a set of fulltext properties.
+ * <br>
+ * Each indexed asset is assigned an ordinal (a small int) for as long as it is indexed; a property value's bitmap has the bits of the ordinals of the assets with that value set.
+ * The ordinals of removed assets are re-used, which keeps the bitmaps dense.
+ * <br>
+ * Instances are Serializable, so that they can be snapshot to disk. This class is not thread-safe.
+ */
+final class Bitmaps implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private static final BitSet EMPTY = new BitSet(0);
+
+    private static final Pattern TOKEN_DELIMITER = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    // Rough per-entry overheads of the JVM's object headers, references and map entries; used for reporting only.
+    private static final int PATH_OVERHEAD_BYTES = 80;
+    private static final int VALUE_OVERHEAD_BYTES = 96;
+
+    private final Set<String> roots;
+    private final Set<String> properties;
+    private final Set<String> sortProperties;
+    private final Map<String, Float> fulltextProperties;
+
+    private final List<String> paths = new ArrayList<>();
+    private final TreeMap<String, Integer> ordinals = new TreeMap<>();
+    private final BitSet live = new BitSet();
+    private final BitSet free = new BitSet();
+
+    private final Map<String, Map<String, BitSet>> bitmaps = new HashMap<>();
+    private final Map<String, List<Comparable<?>>> sortValues = new HashMap<>();
+
+    // Per fulltext property, the bitmaps of each term, and the terms of each ordinal (so that an asset's terms can be cleared without scanning all terms).
+    private final Map<String, TreeMap<String, BitSet>> terms = new HashMap<>();
+    private final Map<String, List<String[]>> ordinalTerms = new HashMap<>();
+
+    /**
+     * @param roots the paths beneath which all assets are indexed.
+     * @param properties the relative paths (from the asset) of the properties to keep bitmaps for.
+     * @param sortProperties the relative paths (from the asset) of the properties to keep sort values for; these can also be used to filter by range.
+     * @param fulltextProperties the relative paths (from the asset) of the properties to keep term bitmaps for, and the boost of a term match in each.
+     */
+    Bitmaps(final Set<String> roots, final Set<String> properties, final Set<String> sortProperties, final Map<String, Float> fulltextProperties) {
+        this.roots = Collections.unmodifiableSet(roots);
+        this.properties = Collections.unmodifiableSet(properties);
+        this.sortProperties = Collections.unmodifiableSet(sortProperties);
+        this.fulltextProperties = Collections.unmodifiableMap(fulltextProperties);
+
+        for (final String property : properties) {
+            bitmaps.put(property, new HashMap<>());
+        }
+
+        for (final String property : sortProperties) {
+            sortValues.put(property, new ArrayList<>());
+        }
+
+        for (final String property : fulltextProperties.keySet()) {
+            terms.put(property, new TreeMap<>());
+            ordinalTerms.put(property, new ArrayList<>());
+        }
+    }
+
+    /**
+     * Splits text into lower-cased terms of letters and digits.
+     *
+     * @param text the text.
+     * @return the distinct terms of the text, in order of first occurrence.
+     */
+    static Set<String> tokenize(final String text) {
+        final Set<String> tokens = new LinkedHashSet<>();
+
+        if (StringUtils.isNotBlank(text)) {
+            for (final String token : TOKEN_DELIMITER.split(text.toLowerCase(Locale.ROOT))) {
+                if (!token.isEmpty()) {
+                    tokens.add(token);
+                }
+            }
+        }
+
+        return tokens;
+    }
+
+    /**
+     * @param other another instance.
+     * @return true if both instances index the same paths and properties, ie. a snapshot of the other instance can be used in place of this one.
+     */
+    boolean hasSameLayout(final Bitmaps other) {
+        return other != null
+                && Objects.equals(new ArrayList<>(roots), new ArrayList<>(other.roots))
+                && Objects.equals(properties, other.properties)
+                && Objects.equals(sortProperties, other.sortProperties)
+                && Objects.equals(fulltextProperties, other.fulltextProperties);
+    }
+
+    /**
+     * @param path a path.
+     * @return true if all assets beneath the path are indexed.
+     */
+    boolean covers(final String path) {
+        for (final String root : roots) {
+            if (StringUtils.equals(path, root) || StringUtils.startsWith(path, StringUtils.removeEnd(root, "/") + "/")) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @param path the path of an asset.
+     * @return true if the asset is indexed.
+     */
+    boolean contains(final String path) {
+        return ordinals.containsKey(path);
+    }
+
+    Set<String> getProperties() {
+        return properties;
+    }
+
+    Set<String> getSortProperties() {
+        return sortProperties;
+    }
+
+    Map<String, Float> getFulltextProperties() {
+        return fulltextProperties;
+    }
+
+    /**
+     * Indexes, or re-indexes, the asset.
+     *
+     * @param path the asset's path.
+     * @param values the asset's values of the indexed properties, keyed by property.
+     * @param sorts the asset's values of the sort properties, keyed by property.
+     * @param texts the asset's values of the fulltext properties, keyed by property.
+     */
+    void put(final String path, final Map<String, String[]> values, final Map<String, Comparable<?>> sorts, final Map<String, String[]> texts) {
+        Integer ordinal = ordinals.get(path);
+
+        if (ordinal == null) {
+            ordinal = free.isEmpty() ? paths.size() : free.nextSetBit(0);
+            free.clear(ordinal);
+
+            if (ordinal == paths.size()) {
+                paths.add(path);
+                for (final List<Comparable<?>> propertySortValues : sortValues.values()) {
+                    propertySortValues.add(null);
+                }
+                for (final List<String[]> propertyOrdinalTerms : ordinalTerms.values()) {
+                    propertyOrdinalTerms.add(null);
+                }
+            } else {
+                paths.set(ordinal, path);
+            }
+
+            ordinals.put(path, ordinal);
+            live.set(ordinal);
+        } else {
+            clearValues(ordinal);
+        }
+
+        for (final Map.Entry<String, String[]> entry : values.entrySet()) {
+            final Map<String, BitSet> valueBitmaps = bitmaps.get(entry.getKey());
+
+            if (valueBitmaps == null || entry.getValue() == null) {
+                continue;
+            }
+
+            for (final String value : entry.getValue()) {
+                if (value != null) {
+                    valueBitmaps.computeIfAbsent(value, v -> new BitSet()).set(ordinal);
+                }
+            }
+        }
+
+        for (final Map.Entry<String, List<Comparable<?>>> entry : sortValues.entrySet()) {
+            entry.getValue().set(ordinal, sorts.get(entry.getKey()));
+        }
+
+        for (final Map.Entry<String, TreeMap<String, BitSet>> entry : terms.entrySet()) {
+            final String[] text = texts.get(entry.getKey());
+
+            if (text == null) {
+                continue;
+            }
+
+            final Set<String> tokens = tokenize(StringUtils.join(text, ' '));
+            for (final String token : tokens) {
+                entry.getValue().computeIfAbsent(token, t -> new BitSet()).set(ordinal);
+            }
+
+            ordinalTerms.get(entry.getKey()).set(ordinal, tokens.toArray(new String[0]));
+        }
+    }
+
+    /**
+     * Removes the asset at the path, and all assets beneath it.
+     *
+     * @param path the path of an asset or folder.
+     * @return the number of assets removed.
+     */
+    int remove(final String path) {
+        final List<Integer> removed = new ArrayList<>(ordinals.subMap(path + "/", path + "0").values());
+
+        if (ordinals.containsKey(path)) {
+            removed.add(ordinals.get(path));
+        }
+
+        for (final int ordinal : removed) {
+            clearValues(ordinal);
+            ordinals.remove(paths.get(ordinal));
+            paths.set(ordinal, null);
+            live.clear(ordinal);
+            free.set(ordinal);
+
+            for (final List<Comparable<?>> propertySortValues : sortValues.values()) {
+                propertySortValues.set(ordinal, null);
+            }
+        }
+
+        return removed.size();
+    }
+
+    private void clearValues(final int ordinal) {
+        for (final Map<String, BitSet> valueBitmaps : bitmaps.values()) {
+            valueBitmaps.values().removeIf(bitmap -> {
+                bitmap.clear(ordinal);
+                return bitmap.isEmpty();
+            });
+        }
+
+        for (final Map.Entry<String, List<String[]>> entry : ordinalTerms.entrySet()) {
+            final String[] tokens = entry.getValue().get(ordinal);
+
+            if (tokens == null) {
+                continue;
+            }
+
+            final TreeMap<String, BitSet> termBitmaps = terms.get(entry.getKey());
+            for (final String token : tokens) {
+                final BitSet bitmap = termBitmaps.get(token);
+
+                if (bitmap != null) {
+                    bitmap.clear(ordinal);
+                    if (bitmap.isEmpty()) {
+                        termBitmaps.remove(token);
+                    }
+                }
+            }
+
+            entry.getValue().set(ordinal, null);
+        }
+    }
+
+    /**
+     * @return the ordinals of all indexed assets; the returned bitmap must not be modified.
+     */
+    BitSet all() {
+        return live;
+    }
+
+    /**
+     * @param property the relative path of an indexed property.
+     * @param value the value.
+     * @return the ordinals of the assets with the value; the returned bitmap must not be modified.
+     */
+    BitSet get(final String property, final String value) {
+        final Map<String, BitSet> valueBitmaps = bitmaps.get(property);
+        final BitSet bitmap = valueBitmaps == null ? null : valueBitmaps.get(value);
+
+        return bitmap == null ? EMPTY : bitmap;
+    }
+
+    /**
+     * @param path the path of a folder.
+     * @return a new bitmap of the ordinals of the assets beneath the path.
+     */
+    BitSet beneath(final String path) {
+        final BitSet bitmap = new BitSet();
+
+        for (final int ordinal : ordinals.subMap(StringUtils.removeEnd(path, "/") + "/", StringUtils.removeEnd(path, "/") + "0").values()) {
+            bitmap.set(ordinal);
+        }
+
+        return bitmap;
+    }
+
+    /**
+     * @param property the relative path of a fulltext property.
+     * @param term a lower-cased term.
+     * @return the ordinals of the assets whose property contains the term; the returned bitmap must not be modified.
+     */
+    BitSet getTerm(final String property, final String term) {
+        final TreeMap<String, BitSet> termBitmaps = terms.get(property);
+        final BitSet bitmap = termBitmaps == null ? null : termBitmaps.get(term);
+
+        return bitmap == null ? EMPTY : bitmap;
+    }
+
+    /**
+     * @param property the relative path of a fulltext property.
+     * @param prefix a lower-cased term prefix.
+     * @return a new bitmap of the ordinals of the assets whose property contains a term starting with the prefix.
+     */
+    BitSet getTermsStartingWith(final String property, final String prefix) {
+        final BitSet bitmap = new BitSet();
+        final TreeMap<String, BitSet> termBitmaps = terms.get(property);
+
+        if (termBitmaps != null) {
+            for (final BitSet termBitmap : termBitmaps.subMap(prefix, prefix + Character.MAX_VALUE).values()) {
+                bitmap.or(termBitmap);
+            }
+        }
+
+        return bitmap;
+    }
+
+    /**
+     * Scans the sort values of the property for numeric (ie. date) values within the range.
+     *
+     * @param property the relative path of a sort property.
+     * @param lowerBound the lower bound, or null for none.
+     * @param lowerInclusive true if the lower bound is inclusive.
+     * @param upperBound the upper bound, or null for none.
+     * @param upperInclusive true if the upper bound is inclusive.
+     * @return a new bitmap of the ordinals of the assets whose value is within the range.
+     */
+    BitSet getRange(final String property, final Double lowerBound, final boolean lowerInclusive, final Double upperBound, final boolean upperInclusive) {
+        final BitSet bitmap = new BitSet();
+        final List<Comparable<?>> propertySortValues = sortValues.get(property);
+
+        if (propertySortValues == null) {
+            return bitmap;
+        }
+
+        for (int ordinal = live.nextSetBit(0); ordinal >= 0; ordinal = live.nextSetBit(ordinal + 1)) {
+            final Comparable<?> value = propertySortValues.get(ordinal);
+
+            if (!(value instanceof Number)) {
+                continue;
+            }
+
+            final double number = ((Number) value).doubleValue();
+
+            if (lowerBound != null && (lowerInclusive ? number < lowerBound : number <= lowerBound)) {
+                continue;
+            } else if (upperBound != null && (upperInclusive ? number > upperBound : number >= upperBound)) {
+                continue;
+            }
+
+            bitmap.set(ordinal);
+        }
+
+        return bitmap;
+    }
+
+    String getPath(final int ordinal) {
+        return paths.get(ordinal);
+    }
+
+    Comparable<?> getSortValue(final String property, final int ordinal) {
+        return sortValues.get(property).get(ordinal);
+    }
+
+    /**
+     * @return the number of indexed assets.
+     */
+    int size() {
+        return ordinals.size();
+    }
+
+    /**
+     * @return the number of distinct values and terms (ie. bitmaps) across all properties.
+     */
+    int getValueCount() {
+        return bitmaps.values().stream().mapToInt(Map::size).sum() + terms.values().stream().mapToInt(Map::size).sum();
+    }
+
+    /**
+     * @return an estimate of the heap used by the bitmaps, the asset paths and the sort values, in bytes.
+     */
+    long getEstimatedMemory() {
+        long bytes = 0;
+
+        for (final Map<String, BitSet> valueBitmaps : bitmaps.values()) {
+            for (final Map.Entry<String, BitSet> entry : valueBitmaps.entrySet()) {
+                bytes += VALUE_OVERHEAD_BYTES + 2L * entry.getKey().length() + entry.getValue().size() / 8;
+            }
+        }
+
+        for (final Map<String, BitSet> termBitmaps : terms.values()) {
+            for (final Map.Entry<String, BitSet> entry : termBitmaps.entrySet()) {
+                // Each term is referenced by the term bitmap, and once per asset containing it.
+                bytes += VALUE_OVERHEAD_BYTES + 2L * entry.getKey().length() + entry.getValue().size() / 8 + 4L * entry.getValue().cardinality();
+            }
+        }
+
+        for (final String path : ordinals.keySet()) {
+            bytes += PATH_OVERHEAD_BYTES + 2L * path.length();
+        }
+
+        bytes += (long) sortValues.size() * paths.size() * VALUE_OVERHEAD_BYTES / 2;
+        bytes += (live.size() + free.size()) / 8;
+
+        return bytes;
+    }
+}
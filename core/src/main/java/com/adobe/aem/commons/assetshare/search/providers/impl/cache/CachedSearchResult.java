@@ -0,0 +1,395 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.adobe.aem.commons.assetshare.search.providers.impl.cache;
+
+import com.day.cq.search.facets.Bucket;
+import com.day.cq.search.facets.Facet;
+import com.day.cq.search.result.Hit;
+import com.day.cq.search.result.ResultPage;
+import com.day.cq.search.result.SearchResult;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ValueMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.jcr.Node;
+import javax.jcr.RepositoryException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * An immutable, ResourceResolver-independent snapshot of a QueryBuilder SearchResult.
+ * <br>
+ * Only the hit paths and the heuristics required by {@link com.adobe.aem.commons.assetshare.search.results.impl.results.QueryBuilderResultsImpl} (and optionally, the facets) are retained,
+ * which makes instances safe to share across requests. Use {@link #toSearchResult(ResourceResolver)} to re-materialize a SearchResult for a specific request.
+ */
+public final class CachedSearchResult {
+    private static final Logger log = LoggerFactory.getLogger(CachedSearchResult.class);
+
+    private final List<String> hitPaths;
+    private final long totalMatches;
+    private final boolean hasMore;
+    private final long startIndex;
+    private final long hitsPerPage;
+    private final long executionTimeMillis;
+    private final String queryStatement;
+    private final String filteringPredicates;
+    private final Map<String, Facet> facets;
+
+    public CachedSearchResult(final List<String> hitPaths, final SearchResult searchResult) {
+        this(hitPaths, searchResult, false);
+    }
+
+    /**
+     * @param hitPaths the paths of the search result's hits.
+     * @param searchResult the search result to snapshot.
+     * @param retainFacets true if the facets of the search result should be retained; only request this if the query requested facets, as they may be expensive to compute otherwise.
+     */
+    public CachedSearchResult(final List<String> hitPaths, final SearchResult searchResult, final boolean retainFacets) {
+        this.hitPaths = Collections.unmodifiableList(new ArrayList<>(hitPaths));
+        this.totalMatches = searchResult.getTotalMatches();
+        this.hasMore = searchResult.hasMore();
+        this.startIndex = searchResult.getStartIndex();
+        this.hitsPerPage = searchResult.getHitsPerPage();
+        this.executionTimeMillis = searchResult.getExecutionTimeMillis();
+        this.queryStatement = searchResult.getQueryStatement();
+        this.filteringPredicates = searchResult.getFilteringPredicates();
+        this.facets = retainFacets ? copyFacets(searchResult) : Collections.emptyMap();
+    }
+
+    private CachedSearchResult(final List<String> hitPaths, final long totalMatches, final boolean hasMore, final long startIndex,
+                               final long hitsPerPage, final long executionTimeMillis, final String queryStatement) {
+        this.hitPaths = Collections.unmodifiableList(new ArrayList<>(hitPaths));
+        this.totalMatches = totalMatches;
+        this.hasMore = hasMore;
+        this.startIndex = startIndex;
+        this.hitsPerPage = hitsPerPage;
+        this.executionTimeMillis = executionTimeMillis;
+        this.queryStatement = queryStatement;
+        this.filteringPredicates = null;
+        this.facets = Collections.emptyMap();
+    }
+
+    /**
+     * Creates a search result for hits that were not collected via QueryBuilder, so that they can be served via the same Results implementations.
+     *
+     * @param hitPaths the paths of the hits of the page.
+     * @param totalMatches the total number of matches (or the guessed total, if hasMore is true).
+     * @param hasMore true if there are more matches than totalMatches.
+     * @param startIndex the offset of the page.
+     * @param hitsPerPage the page size.
+     * @param executionTimeMillis the time taken to collect the hits.
+     * @param queryStatement a description of how the hits were collected.
+     * @return the search result.
+     */
+    public static CachedSearchResult of(final List<String> hitPaths, final long totalMatches, final boolean hasMore, final long startIndex,
+                                        final long hitsPerPage, final long executionTimeMillis, final String queryStatement) {
+        return new CachedSearchResult(hitPaths, totalMatches, hasMore, startIndex, hitsPerPage, executionTimeMillis, queryStatement);
+    }
+
+    private static Map<String, Facet> copyFacets(final SearchResult searchResult) {
+        final Map<String, Facet> copy = new LinkedHashMap<>();
+
+        try {
+            for (final Map.Entry<String, Facet> entry : searchResult.getFacets().entrySet()) {
+                copy.put(entry.getKey(), new FacetImpl(entry.getValue()));
+            }
+        } catch (Exception e) {
+            log.warn("Could not collect the facets of a search result for caching", e);
+        }
+
+        return Collections.unmodifiableMap(copy);
+    }
+
+    /**
+     * Collects the hit paths from the search result.
+     *
+     * @param searchResult the search result to snapshot.
+     * @return the snapshot.
+     */
+    public static CachedSearchResult of(final SearchResult searchResult) {
+        final List<String> hitPaths = new ArrayList<>(searchResult.getHits().size());
+
+        for (final Hit hit : searchResult.getHits()) {
+            try {
+                hitPaths.add(hit.getPath());
+            } catch (RepositoryException e) {
+                log.warn("Could not collect the path of a search hit for caching", e);
+            }
+        }
+
+        return new CachedSearchResult(hitPaths, searchResult);
+    }
+
+    public List<String> getHitPaths() {
+        return hitPaths;
+    }
+
+    public long getTotalMatches() {
+        return totalMatches;
+    }
+
+    /**
+     * @param resourceResolver the resource resolver used to resolve the hits of the returned search result; this should be the requesting user's resource resolver.
+     * @return a SearchResult view of this snapshot, whose hits are resolved using the provided resource resolver.
+     */
+    public SearchResult toSearchResult(final ResourceResolver resourceResolver) {
+        return new ResolvedSearchResult(resourceResolver);
+    }
+
+    private final class ResolvedSearchResult implements SearchResult {
+        private final ResourceResolver resourceResolver;
+        private final List<Hit> hits;
+
+        ResolvedSearchResult(final ResourceResolver resourceResolver) {
+            this.resourceResolver = resourceResolver;
+
+            final List<Hit> tmp = new ArrayList<>(hitPaths.size());
+            for (int i = 0; i < hitPaths.size(); i++) {
+                tmp.add(new PathHit(resourceResolver, hitPaths.get(i), startIndex + i));
+            }
+            this.hits = Collections.unmodifiableList(tmp);
+        }
+
+        @Override
+        public long getTotalMatches() {
+            return totalMatches;
+        }
+
+        @Override
+        public boolean hasMore() {
+            return hasMore;
+        }
+
+        @Override
+        public long getStartIndex() {
+            return startIndex;
+        }
+
+        @Override
+        public long getHitsPerPage() {
+            return hitsPerPage;
+        }
+
+        @Override
+        public List<Hit> getHits() {
+            return hits;
+        }
+
+        @Override
+        public Iterator<Node> getNodes() {
+            return hits.stream()
+                    .map(hit -> ((PathHit) hit).getResourceOrNull())
+                    .filter(Objects::nonNull)
+                    .map(resource -> resource.adaptTo(Node.class))
+                    .filter(Objects::nonNull)
+                    .iterator();
+        }
+
+        @Override
+        public Iterator<Resource> getResources() {
+            return hits.stream()
+                    .map(hit -> ((PathHit) hit).getResourceOrNull())
+                    .filter(Objects::nonNull)
+                    .iterator();
+        }
+
+        @Override
+        public List<ResultPage> getResultPages() {
+            final List<ResultPage> pages = new ArrayList<>();
+
+            if (hitsPerPage <= 0) {
+                pages.add(new ResultPageImpl(0, 0, true));
+                return pages;
+            }
+
+            final long pageCount = (long) Math.ceil((double) totalMatches / hitsPerPage);
+            for (long i = 0; i < pageCount; i++) {
+                pages.add(new ResultPageImpl(i, i * hitsPerPage, i * hitsPerPage == startIndex));
+            }
+
+            return pages;
+        }
+
+        @Override
+        public ResultPage getPreviousPage() {
+            if (hitsPerPage <= 0 || startIndex <= 0) {
+                return null;
+            }
+
+            final long start = Math.max(0, startIndex - hitsPerPage);
+            return new ResultPageImpl(start / hitsPerPage, start, false);
+        }
+
+        @Override
+        public ResultPage getNextPage() {
+            if (hitsPerPage <= 0 || !(hasMore || startIndex + hitsPerPage < totalMatches)) {
+                return null;
+            }
+
+            final long start = startIndex + hitsPerPage;
+            return new ResultPageImpl(start / hitsPerPage, start, false);
+        }
+
+        @Override
+        public String getExecutionTime() {
+            return String.valueOf(executionTimeMillis / 1000.0);
+        }
+
+        @Override
+        public long getExecutionTimeMillis() {
+            return executionTimeMillis;
+        }
+
+        @Override
+        public Map<String, Facet> getFacets() {
+            return facets;
+        }
+
+        @Override
+        public String getQueryStatement() {
+            return queryStatement;
+        }
+
+        @Override
+        public String getFilteringPredicates() {
+            return filteringPredicates;
+        }
+    }
+
+    private static final class PathHit implements Hit {
+        private final ResourceResolver resourceResolver;
+        private final String path;
+        private final long index;
+
+        PathHit(final ResourceResolver resourceResolver, final String path, final long index) {
+            this.resourceResolver = resourceResolver;
+            this.path = path;
+            this.index = index;
+        }
+
+        Resource getResourceOrNull() {
+            return resourceResolver.getResource(path);
+        }
+
+        @Override
+        public long getIndex() {
+            return index;
+        }
+
+        @Override
+        public Map<String, String> getExcerpts() {
+            return Collections.emptyMap();
+        }
+
+        @Override
+        public String getExcerpt() {
+            return null;
+        }
+
+        @Override
+        public Resource getResource() throws RepositoryException {
+            final Resource resource = getResourceOrNull();
+            if (resource == null) {
+                throw new RepositoryException("Could not resolve cached search hit [ " + path + " ]");
+            }
+            return resource;
+        }
+
+        @Override
+        public Node getNode() throws RepositoryException {
+            return getResource().adaptTo(Node.class);
+        }
+
+        @Override
+        public String getPath() {
+            return path;
+        }
+
+        @Override
+        public ValueMap getProperties() throws RepositoryException {
+            return getResource().getValueMap();
+        }
+
+        @Override
+        public String getTitle() throws RepositoryException {
+            return getResource().getName();
+        }
+
+        @Override
+        public double getScore() {
+            return 0;
+        }
+    }
+
+    private static final class FacetImpl implements Facet {
+        private final List<Bucket> buckets;
+        private final boolean containsHit;
+
+        FacetImpl(final Facet facet) {
+            // Buckets are plain values that do not hold on to the query's session, so they can be shared.
+            this.buckets = Collections.unmodifiableList(new ArrayList<>(facet.getBuckets()));
+            this.containsHit = facet.getContainsHit();
+        }
+
+        @Override
+        public List<Bucket> getBuckets() {
+            return buckets;
+        }
+
+        @Override
+        public boolean getContainsHit() {
+            return containsHit;
+        }
+    }
+
+    private static final class ResultPageImpl implements ResultPage {
+        private final long index;
+        private final long start;
+        private final boolean currentPage;
+
+        ResultPageImpl(final long index, final long start, final boolean currentPage) {
+            this.index = index;
+            this.start = start;
+            this.currentPage = currentPage;
+        }
+
+        @Override
+        public long getIndex() {
+            return index;
+        }
+
+        @Override
+        public long getStart() {
+            return start;
+        }
+
+        @Override
+        public boolean isCurrentPage() {
+            return currentPage;
+        }
+    }
+}
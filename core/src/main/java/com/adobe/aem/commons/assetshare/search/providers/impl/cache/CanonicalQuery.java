@@ -0,0 +1,239 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.adobe.aem.commons.assetshare.search.providers.impl.cache;
+
+import com.day.cq.search.Predicate;
+import com.day.cq.search.PredicateGroup;
+import com.day.cq.search.eval.FulltextPredicateEvaluator;
+import com.day.cq.search.eval.JcrPropertyPredicateEvaluator;
+import com.day.cq.search.eval.RangePropertyPredicateEvaluator;
+import com.google.common.collect.ImmutableSet;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.jackrabbit.api.JackrabbitSession;
+import org.apache.jackrabbit.api.security.user.Authorizable;
+import org.apache.jackrabbit.api.security.user.Group;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.WeakHashMap;
+
+/**
+ * Produces stable, canonical String representations of QueryBuilder PredicateGroups and of the principal set of a ResourceResolver.
+ * <br>
+ * Two PredicateGroups that would execute the same query produce the same canonical form, regardless of parameter order or group ids (ie. 1_group vs. 3_group).
+ * Absolute dates used in daterange predicates are rounded down to a configurable granularity, so that dates derived from "now" do not make every query unique.
+ * <br>
+ * The shape of a query additionally ignores the values being searched for, and paging.
+ */
+public final class CanonicalQuery {
+    private static final Logger log = LoggerFactory.getLogger(CanonicalQuery.class);
+
+    private static final String ORDER_BY = Predicate.ORDER_BY;
+    private static final String DATE_RANGE = "daterange";
+    private static final String TAG_ID = "tagid";
+    private static final String PRINCIPAL_DELIMITER = ",";
+    private static final String VALUE_PLACEHOLDER = "?";
+
+    // Parameters whose values do not change how Oak plans the query (ie. which index is used); only their presence does.
+    private static final Set<String> VALUE_PARAMETERS = ImmutableSet.of(
+            JcrPropertyPredicateEvaluator.VALUE,
+            RangePropertyPredicateEvaluator.LOWER_BOUND,
+            RangePropertyPredicateEvaluator.UPPER_BOUND,
+            FulltextPredicateEvaluator.FULLTEXT,
+            TAG_ID);
+
+    // Root parameters that do not change how Oak plans the query.
+    private static final Set<String> PAGING_PARAMETERS = ImmutableSet.of(
+            Predicate.PARAM_OFFSET,
+            Predicate.PARAM_LIMIT,
+            Predicate.PARAM_GUESS_TOTAL);
+
+    // A resource resolver's principals are fixed when it is opened, so its principal key is only computed once (ie. once per request, rather than once per search and cache).
+    private static final Map<ResourceResolver, String> PRINCIPAL_KEYS = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private CanonicalQuery() {
+    }
+
+    /**
+     * @param predicateGroup the root predicate group of the query.
+     * @param dateRoundingMillis the granularity (in ms) absolute daterange bounds are rounded down to; values less than 1 disable rounding.
+     * @return the canonical form of the predicate group.
+     */
+    public static String toKey(final PredicateGroup predicateGroup, final long dateRoundingMillis) {
+        final StringBuilder sb = new StringBuilder();
+        append(sb, predicateGroup, dateRoundingMillis, false);
+        return sb.toString();
+    }
+
+    /**
+     * The shape of a query is its canonical form without the values that are being searched for and without paging; all queries of the same shape result in the same Oak query plan.
+     *
+     * @param predicateGroup the root predicate group of the query.
+     * @return the canonical form of the shape of the predicate group.
+     */
+    public static String toShapeKey(final PredicateGroup predicateGroup) {
+        final StringBuilder sb = new StringBuilder();
+        append(sb, predicateGroup, 0, true);
+        return sb.toString();
+    }
+
+    /**
+     * @param resourceResolver the resource resolver whose principals should be collected.
+     * @return a stable representation of the user and all (inherited) group principals of the resource resolver's user; this is computed once per resource resolver.
+     */
+    public static String toPrincipalKey(final ResourceResolver resourceResolver) {
+        String principalKey = PRINCIPAL_KEYS.get(resourceResolver);
+
+        if (principalKey == null) {
+            principalKey = computePrincipalKey(resourceResolver);
+            PRINCIPAL_KEYS.put(resourceResolver, principalKey);
+        }
+
+        return principalKey;
+    }
+
+    private static String computePrincipalKey(final ResourceResolver resourceResolver) {
+        final Session session = resourceResolver.adaptTo(Session.class);
+        final TreeSet<String> principals = new TreeSet<>();
+
+        principals.add(StringUtils.defaultString(resourceResolver.getUserID()));
+
+        if (session instanceof JackrabbitSession) {
+            try {
+                final Authorizable authorizable = ((JackrabbitSession) session).getUserManager().getAuthorizable(session.getUserID());
+
+                if (authorizable != null) {
+                    principals.add(authorizable.getPrincipal().getName());
+
+                    final Iterator<Group> groups = authorizable.memberOf();
+                    while (groups.hasNext()) {
+                        principals.add(groups.next().getPrincipal().getName());
+                    }
+                }
+            } catch (RepositoryException e) {
+                log.warn("Could not collect the principals for user [ {} ]. Using the user id alone.", session.getUserID(), e);
+            }
+        }
+
+        return StringUtils.join(principals, PRINCIPAL_DELIMITER);
+    }
+
+    private static void append(final StringBuilder sb, final Predicate predicate, final long dateRoundingMillis, final boolean shapeOnly) {
+        if (predicate instanceof PredicateGroup) {
+            final PredicateGroup group = (PredicateGroup) predicate;
+
+            final List<String> orderBys = new ArrayList<>();
+            final List<String> children = new ArrayList<>();
+
+            for (final Predicate child : group) {
+                final StringBuilder childSb = new StringBuilder();
+                append(childSb, child, dateRoundingMillis, shapeOnly);
+
+                if (ORDER_BY.equals(child.getType())) {
+                    // Ordering is significant for multiple orderbys; preserve their relative order.
+                    orderBys.add(childSb.toString());
+                } else {
+                    children.add(childSb.toString());
+                }
+            }
+
+            // Group ids are not significant, so sorting the serialized children normalizes them away.
+            Collections.sort(children);
+
+            sb.append("group");
+            appendParameters(sb, group, dateRoundingMillis, shapeOnly);
+            sb.append('(');
+            sb.append(StringUtils.join(children, ';'));
+            if (!orderBys.isEmpty()) {
+                sb.append('|').append(StringUtils.join(orderBys, ';'));
+            }
+            sb.append(')');
+        } else {
+            sb.append(predicate.getType());
+            appendParameters(sb, predicate, dateRoundingMillis, shapeOnly);
+        }
+    }
+
+    private static void appendParameters(final StringBuilder sb, final Predicate predicate, final long dateRoundingMillis, final boolean shapeOnly) {
+        final Map<String, String> sortedParameters = new TreeMap<>(predicate.getParameters());
+
+        sb.append('{');
+        for (final Map.Entry<String, String> entry : sortedParameters.entrySet()) {
+            String value = entry.getValue();
+
+            if (shapeOnly) {
+                if (predicate instanceof PredicateGroup && PAGING_PARAMETERS.contains(entry.getKey())) {
+                    continue;
+                } else if (StringUtils.isNotEmpty(value) && VALUE_PARAMETERS.contains(entry.getKey().replaceFirst("^\\d+_", ""))) {
+                    value = VALUE_PLACEHOLDER;
+                }
+            } else if (DATE_RANGE.equals(predicate.getType())
+                    && (RangePropertyPredicateEvaluator.LOWER_BOUND.equals(entry.getKey()) || RangePropertyPredicateEvaluator.UPPER_BOUND.equals(entry.getKey()))) {
+                value = roundDate(value, dateRoundingMillis);
+            }
+
+            sb.append(entry.getKey()).append('=').append(value).append('&');
+        }
+        sb.append('}');
+    }
+
+    static String roundDate(final String value, final long dateRoundingMillis) {
+        if (dateRoundingMillis < 1 || StringUtils.isBlank(value)) {
+            return value;
+        }
+
+        Long epochMillis = null;
+
+        try {
+            epochMillis = OffsetDateTime.parse(value).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            try {
+                epochMillis = LocalDateTime.parse(value).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            } catch (DateTimeParseException ex) {
+                if (StringUtils.isNumeric(value)) {
+                    epochMillis = Long.parseLong(value);
+                }
+            }
+        }
+
+        if (epochMillis == null) {
+            // Not a recognizable absolute date, so leave it as is.
+            return value;
+        }
+
+        return Instant.ofEpochMilli(epochMillis - (epochMillis % dateRoundingMillis)).toString();
+    }
+}
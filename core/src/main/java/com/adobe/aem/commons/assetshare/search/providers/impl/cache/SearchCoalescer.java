@@ -0,0 +1,51 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.adobe.aem.commons.assetshare.search.providers.impl.cache;
+
+import com.day.cq.search.PredicateGroup;
+import org.apache.sling.api.resource.ResourceResolver;
+
+/**
+ * Coalesces identical, concurrently executing searches, such that only one of them (the leader) executes the query while the others (the followers) wait on, and share, its result.
+ */
+public interface SearchCoalescer {
+    /**
+     * @return true if searches should be coalesced.
+     */
+    boolean isEnabled();
+
+    /**
+     * @param predicateGroup the query's root PredicateGroup.
+     * @param resourceResolver the requesting user's resource resolver.
+     * @return the key identifying identical searches; searches are only identical if they are executed with the same set of principals.
+     */
+    String getKey(PredicateGroup predicateGroup, ResourceResolver resourceResolver);
+
+    /**
+     * Joins the in-flight search for the key, or starts a new one if there is none.
+     * <br>
+     * If the returned flight {@link SearchFlight#isLeader() is led} by the caller, the caller must execute the query and {@link SearchFlight#complete(CachedSearchResult) complete} the flight, regardless of the query's outcome.
+     * Otherwise the caller should {@link SearchFlight#await() await} the leader's result.
+     *
+     * @param key the key (see {@link #getKey(PredicateGroup, ResourceResolver)}).
+     * @return the flight of the search.
+     */
+    SearchFlight join(String key);
+}
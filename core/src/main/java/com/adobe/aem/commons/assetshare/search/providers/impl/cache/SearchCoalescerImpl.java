@@ -0,0 +1,210 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.adobe.aem.commons.assetshare.search.providers.impl.cache;
+
+import com.adobe.granite.jmx.annotation.AnnotatedStandardMBean;
+import com.day.cq.search.PredicateGroup;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Modified;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.DynamicMBean;
+import javax.management.NotCompliantMBeanException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component(
+        service = { SearchCoalescer.class, DynamicMBean.class },
+        property = {
+                "jmx.objectname=com.adobe.aem.commons.assetshare:type=Search Coalescer"
+        }
+)
+@Designate(ocd = SearchCoalescerImpl.Cfg.class)
+public class SearchCoalescerImpl extends AnnotatedStandardMBean implements SearchCoalescer, SearchCoalescerMBean {
+    private static final Logger log = LoggerFactory.getLogger(SearchCoalescerImpl.class);
+
+    private final ConcurrentMap<String, InFlight> inFlights = new ConcurrentHashMap<>();
+
+    private final AtomicLong leaders = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    private Cfg cfg;
+
+    public SearchCoalescerImpl() throws NotCompliantMBeanException {
+        super(SearchCoalescerMBean.class);
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return cfg.enabled();
+    }
+
+    @Override
+    public String getKey(final PredicateGroup predicateGroup, final ResourceResolver resourceResolver) {
+        // Only searches that are exactly the same are coalesced, so dates are not rounded.
+        return CanonicalQuery.toPrincipalKey(resourceResolver)
+                + "::"
+                + CanonicalQuery.toKey(predicateGroup, 0);
+    }
+
+    @Override
+    public SearchFlight join(final String key) {
+        final InFlight candidate = new InFlight(key);
+        final InFlight inFlight = inFlights.putIfAbsent(key, candidate);
+
+        if (inFlight == null) {
+            leaders.incrementAndGet();
+            return new Flight(candidate, true);
+        }
+
+        return new Flight(inFlight, false);
+    }
+
+    /** MBean **/
+
+    @Override
+    public long getInFlightCount() {
+        return inFlights.size();
+    }
+
+    @Override
+    public long getLeaderCount() {
+        return leaders.get();
+    }
+
+    @Override
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    @Override
+    public long getTimeoutCount() {
+        return timeouts.get();
+    }
+
+    @Override
+    public long getFailureCount() {
+        return failures.get();
+    }
+
+    @Override
+    public void resetStatistics() {
+        leaders.set(0);
+        coalesced.set(0);
+        timeouts.set(0);
+        failures.set(0);
+    }
+
+    @Activate
+    @Modified
+    protected void activate(Cfg cfg) {
+        this.cfg = cfg;
+    }
+
+    private final class Flight implements SearchFlight {
+        private final InFlight inFlight;
+        private final boolean leader;
+
+        Flight(final InFlight inFlight, final boolean leader) {
+            this.inFlight = inFlight;
+            this.leader = leader;
+        }
+
+        @Override
+        public boolean isLeader() {
+            return leader;
+        }
+
+        @Override
+        public CachedSearchResult await() {
+            if (leader) {
+                throw new IllegalStateException("The leader of a search flight cannot await its own result");
+            }
+
+            try {
+                if (!inFlight.latch.await(cfg.max_wait_ms(), TimeUnit.MILLISECONDS)) {
+                    log.debug("Timed out waiting on the identical search [ {} ]", inFlight.key);
+                    timeouts.incrementAndGet();
+                    return null;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                timeouts.incrementAndGet();
+                return null;
+            }
+
+            if (inFlight.cachedSearchResult == null) {
+                failures.incrementAndGet();
+                return null;
+            }
+
+            coalesced.incrementAndGet();
+            return inFlight.cachedSearchResult;
+        }
+
+        @Override
+        public void complete(final CachedSearchResult cachedSearchResult) {
+            if (!leader || inFlight.latch.getCount() == 0) {
+                return;
+            }
+
+            // Remove the flight first, so searches arriving from now on execute against the current state of the repository.
+            inFlights.remove(inFlight.key, inFlight);
+            inFlight.cachedSearchResult = cachedSearchResult;
+            inFlight.latch.countDown();
+        }
+    }
+
+    private static final class InFlight {
+        private final String key;
+        private final CountDownLatch latch = new CountDownLatch(1);
+        private volatile CachedSearchResult cachedSearchResult;
+
+        InFlight(final String key) {
+            this.key = key;
+        }
+    }
+
+    @ObjectClassDefinition(name = "Asset Share Commons - Search Coalescer")
+    public @interface Cfg {
+        @AttributeDefinition(
+                name = "Enabled",
+                description = "Coalesces identical searches that are executed concurrently, such that only one of them executes the query and the others share its hits. Searches are only coalesced between users with the same set of principals."
+        )
+        boolean enabled() default false;
+
+        @AttributeDefinition(
+                name = "Max wait (in milliseconds)",
+                description = "The maximum time a search waits on an identical, executing search before executing the query itself."
+        )
+        long max_wait_ms() default 2000;
+    }
+}
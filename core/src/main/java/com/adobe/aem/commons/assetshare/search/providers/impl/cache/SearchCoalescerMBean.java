@@ -0,0 +1,43 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.adobe.aem.commons.assetshare.search.providers.impl.cache;
+
+import com.adobe.granite.jmx.annotation.Description;
+
+@Description("Asset Share Commons - Search Coalescer")
+public interface SearchCoalescerMBean {
+    @Description("Number of searches currently executing on behalf of waiting identical searches")
+    long getInFlightCount();
+
+    @Description("Number of searches that executed the query")
+    long getLeaderCount();
+
+    @Description("Number of searches that were served the result of an identical, concurrently executing search")
+    long getCoalescedCount();
+
+    @Description("Number of searches that stopped waiting on an identical search, and executed the query themselves")
+    long getTimeoutCount();
+
+    @Description("Number of searches whose identical search failed, and executed the query themselves")
+    long getFailureCount();
+
+    @Description("Resets the counters")
+    void resetStatistics();
+}
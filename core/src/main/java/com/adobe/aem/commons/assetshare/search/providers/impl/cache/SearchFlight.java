@@ -0,0 +1,44 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.adobe.aem.commons.assetshare.search.providers.impl.cache;
+
+/**
+ * A single in-flight execution of a search, shared by all identical searches that were requested while it was executing.
+ */
+public interface SearchFlight {
+    /**
+     * @return true if the caller that joined this flight is responsible for executing the query.
+     */
+    boolean isLeader();
+
+    /**
+     * Waits, up to the configured maximum wait, for the leader to complete the flight.
+     *
+     * @return the leader's search result, or null if the leader failed or did not complete in time; in which case the caller must execute the query itself.
+     */
+    CachedSearchResult await();
+
+    /**
+     * Completes the flight, releasing all waiting followers. Only the first completion is effective.
+     *
+     * @param cachedSearchResult the leader's search result, or null if the leader failed to execute the query.
+     */
+    void complete(CachedSearchResult cachedSearchResult);
+}
@@ -0,0 +1,57 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.adobe.aem.commons.assetshare.search.providers.impl.cache;
+
+import com.day.cq.search.PredicateGroup;
+import org.apache.sling.api.resource.ResourceResolver;
+
+/**
+ * Prefetches the next page of a search in the background, under the requesting user's session, so that the subsequent "load more" request can be served without executing the query.
+ */
+public interface SearchPrefetcher {
+    /**
+     * @return true if next pages should be prefetched, and prefetched pages served.
+     */
+    boolean isEnabled();
+
+    /**
+     * @param predicateGroup the query's root PredicateGroup.
+     * @param resourceResolver the requesting user's resource resolver.
+     * @return the key of the query executed by the user.
+     */
+    String getKey(PredicateGroup predicateGroup, ResourceResolver resourceResolver);
+
+    /**
+     * Removes and returns the prefetched page for the key; prefetched pages are only ever served once.
+     *
+     * @param key the key (see {@link #getKey(PredicateGroup, ResourceResolver)}).
+     * @return the prefetched search result, or null if the page was not (or not yet) prefetched, or has expired.
+     */
+    CachedSearchResult take(String key);
+
+    /**
+     * Schedules the query for the page at the offset to be executed in the background. Prefetches are dropped, rather than queued, if the prefetcher is saturated.
+     *
+     * @param predicateGroup the root PredicateGroup of the query of the page that was just served; this is not modified.
+     * @param nextOffset the offset of the page to prefetch.
+     * @param resourceResolver the requesting user's resource resolver; this is cloned, as the request's resource resolver is closed when the request completes.
+     */
+    void prefetch(PredicateGroup predicateGroup, long nextOffset, ResourceResolver resourceResolver);
+}
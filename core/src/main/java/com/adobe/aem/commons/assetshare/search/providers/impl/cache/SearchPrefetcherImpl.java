@@ -0,0 +1,352 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.adobe.aem.commons.assetshare.search.providers.impl.cache;
+
+import com.adobe.granite.jmx.annotation.AnnotatedStandardMBean;
+import com.day.cq.search.Predicate;
+import com.day.cq.search.PredicateGroup;
+import com.day.cq.search.QueryBuilder;
+import com.day.cq.search.result.Hit;
+import com.day.cq.search.result.SearchResult;
+import org.apache.sling.api.resource.LoginException;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Modified;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.management.DynamicMBean;
+import javax.management.NotCompliantMBeanException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component(
+        service = { SearchPrefetcher.class, DynamicMBean.class },
+        property = {
+                "jmx.objectname=com.adobe.aem.commons.assetshare:type=Search Prefetcher"
+        }
+)
+@Designate(ocd = SearchPrefetcherImpl.Cfg.class)
+public class SearchPrefetcherImpl extends AnnotatedStandardMBean implements SearchPrefetcher, SearchPrefetcherMBean {
+    private static final Logger log = LoggerFactory.getLogger(SearchPrefetcherImpl.class);
+
+    private final AtomicLong prefetches = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong rejections = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+    @Reference
+    private transient QueryBuilder queryBuilder;
+
+    private Cfg cfg;
+
+    private ThreadPoolExecutor executorService;
+
+    private Map<String, Entry> prefetched = new LinkedHashMap<>();
+
+    public SearchPrefetcherImpl() throws NotCompliantMBeanException {
+        super(SearchPrefetcherMBean.class);
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return cfg.enabled() && executorService != null;
+    }
+
+    @Override
+    public String getKey(final PredicateGroup predicateGroup, final ResourceResolver resourceResolver) {
+        return CanonicalQuery.toPrincipalKey(resourceResolver)
+                + "::"
+                + CanonicalQuery.toKey(predicateGroup, 0);
+    }
+
+    @Override
+    public CachedSearchResult take(final String key) {
+        final Entry entry;
+
+        synchronized (this) {
+            entry = prefetched.remove(key);
+        }
+
+        if (entry == null) {
+            return null;
+        } else if (entry.isExpired()) {
+            expirations.incrementAndGet();
+            return null;
+        }
+
+        hits.incrementAndGet();
+        return entry.getCachedSearchResult();
+    }
+
+    @Override
+    public void prefetch(final PredicateGroup predicateGroup, final long nextOffset, final ResourceResolver resourceResolver) {
+        final ThreadPoolExecutor executor = this.executorService;
+
+        if (executor == null) {
+            return;
+        } else if (executor.getQueue().remainingCapacity() == 0) {
+            // Checked before cloning the resource resolver, as cloning is not free.
+            rejections.incrementAndGet();
+            return;
+        }
+
+        final PredicateGroup next = predicateGroup.clone();
+        next.set(Predicate.PARAM_OFFSET, String.valueOf(nextOffset));
+
+        final String key = getKey(next, resourceResolver);
+
+        synchronized (this) {
+            if (prefetched.containsKey(key)) {
+                return;
+            }
+        }
+
+        if (!pending.add(key)) {
+            return;
+        }
+
+        final ResourceResolver prefetchResourceResolver;
+        try {
+            prefetchResourceResolver = resourceResolver.clone(null);
+        } catch (LoginException e) {
+            log.warn("Could not clone the resource resolver of user [ {} ] to prefetch the next page of results", resourceResolver.getUserID(), e);
+            pending.remove(key);
+            return;
+        }
+
+        try {
+            executor.execute(() -> {
+                try {
+                    execute(key, next, prefetchResourceResolver);
+                } finally {
+                    prefetchResourceResolver.close();
+                    pending.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            prefetchResourceResolver.close();
+            pending.remove(key);
+            rejections.incrementAndGet();
+        }
+    }
+
+    private void execute(final String key, final PredicateGroup predicateGroup, final ResourceResolver resourceResolver) {
+        final SearchResult searchResult = queryBuilder.createQuery(predicateGroup, resourceResolver.adaptTo(Session.class)).getResult();
+        final List<String> hitPaths = new ArrayList<>();
+
+        ResourceResolver resourceResolverLeakingReference = null;
+
+        try {
+            for (final Hit hit : searchResult.getHits()) {
+                if (resourceResolverLeakingReference == null) {
+                    resourceResolverLeakingReference = hit.getResource().getResourceResolver();
+                }
+
+                hitPaths.add(hit.getPath());
+            }
+
+            final CachedSearchResult cachedSearchResult = new CachedSearchResult(hitPaths, searchResult,
+                    predicateGroup.get(Predicate.PARAM_FACET_STRATEGY) != null);
+            final long expiresAt = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(cfg.ttl_seconds());
+
+            synchronized (this) {
+                prefetched.put(key, new Entry(cachedSearchResult, expiresAt));
+            }
+
+            prefetches.incrementAndGet();
+        } catch (RepositoryException e) {
+            log.warn("Could not prefetch the next page of results", e);
+        } finally {
+            if (resourceResolverLeakingReference != null) {
+                resourceResolverLeakingReference.close();
+            }
+        }
+    }
+
+    /** MBean **/
+
+    @Override
+    public synchronized long getSize() {
+        return prefetched.size();
+    }
+
+    @Override
+    public long getPendingCount() {
+        return pending.size();
+    }
+
+    @Override
+    public long getPrefetchCount() {
+        return prefetches.get();
+    }
+
+    @Override
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    @Override
+    public long getRejectedCount() {
+        return rejections.get();
+    }
+
+    @Override
+    public long getExpirationCount() {
+        return expirations.get();
+    }
+
+    @Override
+    public synchronized void clear() {
+        prefetched.clear();
+    }
+
+    @Override
+    public void resetStatistics() {
+        prefetches.set(0);
+        hits.set(0);
+        rejections.set(0);
+        expirations.set(0);
+    }
+
+    @Activate
+    @Modified
+    protected void activate(Cfg cfg) {
+        deactivate();
+
+        this.cfg = cfg;
+
+        final int maxEntries = Math.max(1, cfg.max_entries());
+
+        synchronized (this) {
+            // Access-ordered LinkedHashMap provides the LRU eviction of prefetched pages that are never requested.
+            prefetched = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<String, Entry> eldest) {
+                    if (size() > maxEntries) {
+                        expirations.incrementAndGet();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        if (cfg.enabled()) {
+            final int threads = Math.max(1, cfg.threads());
+            final AtomicInteger threadCount = new AtomicInteger();
+
+            executorService = new ThreadPoolExecutor(threads, threads,
+                    60L, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(Math.max(1, cfg.queue_size())),
+                    runnable -> {
+                        final Thread thread = new Thread(runnable, "asset-share-commons-search-prefetch-" + threadCount.incrementAndGet());
+                        thread.setDaemon(true);
+                        // Prefetching is speculative, so it yields to request threads.
+                        thread.setPriority(Thread.MIN_PRIORITY);
+                        return thread;
+                    },
+                    // Unlike hit adaptation, the request thread must never do the work of a prefetch, so saturated prefetches are dropped.
+                    new ThreadPoolExecutor.AbortPolicy());
+            executorService.allowCoreThreadTimeOut(true);
+        }
+    }
+
+    @Deactivate
+    protected void deactivate() {
+        if (executorService != null) {
+            executorService.shutdownNow();
+            executorService = null;
+        }
+
+        pending.clear();
+    }
+
+    private static final class Entry {
+        private final CachedSearchResult cachedSearchResult;
+        private final long expiresAt;
+
+        Entry(final CachedSearchResult cachedSearchResult, final long expiresAt) {
+            this.cachedSearchResult = cachedSearchResult;
+            this.expiresAt = expiresAt;
+        }
+
+        CachedSearchResult getCachedSearchResult() {
+            return cachedSearchResult;
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() >= expiresAt;
+        }
+    }
+
+    @ObjectClassDefinition(name = "Asset Share Commons - Search Prefetcher")
+    public @interface Cfg {
+        @AttributeDefinition(
+                name = "Enabled",
+                description = "After a page of results is served, executes the query for the next page in the background under the same user's session, so that a subsequent \"load more\" can be served without executing the query. Only applies to offset-based pagination."
+        )
+        boolean enabled() default false;
+
+        @AttributeDefinition(
+                name = "TTL (in seconds)",
+                description = "The maximum time a prefetched page is held for its user."
+        )
+        long ttl_seconds() default 30;
+
+        @AttributeDefinition(
+                name = "Max entries",
+                description = "The maximum number of prefetched pages held across all users. When full, the least recently prefetched page is dropped."
+        )
+        int max_entries() default 200;
+
+        @AttributeDefinition(
+                name = "Threads",
+                description = "The number of low priority threads that execute prefetches. Keep this small, as each prefetch executes a query."
+        )
+        int threads() default 2;
+
+        @AttributeDefinition(
+                name = "Queue size",
+                description = "The number of prefetches that may wait for a thread. When the queue is full, further prefetches are dropped rather than delaying requests."
+        )
+        int queue_size() default 10;
+    }
+}
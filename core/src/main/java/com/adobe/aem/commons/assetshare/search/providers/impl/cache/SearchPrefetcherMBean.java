@@ -0,0 +1,49 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.adobe.aem.commons.assetshare.search.providers.impl.cache;
+
+import com.adobe.granite.jmx.annotation.Description;
+
+@Description("Asset Share Commons - Search Prefetcher")
+public interface SearchPrefetcherMBean {
+    @Description("Number of prefetched pages waiting to be served")
+    long getSize();
+
+    @Description("Number of prefetches currently executing or queued")
+    long getPendingCount();
+
+    @Description("Number of pages that were prefetched")
+    long getPrefetchCount();
+
+    @Description("Number of pages served from a prefetch")
+    long getHitCount();
+
+    @Description("Number of prefetches dropped because the prefetcher was saturated")
+    long getRejectedCount();
+
+    @Description("Number of prefetched pages that expired before being served")
+    long getExpirationCount();
+
+    @Description("Removes all prefetched pages")
+    void clear();
+
+    @Description("Resets the counters")
+    void resetStatistics();
+}
@@ -0,0 +1,62 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.adobe.aem.commons.assetshare.search.providers.impl.cache;
+
+import com.day.cq.search.PredicateGroup;
+import org.apache.sling.api.resource.ResourceResolver;
+
+/**
+ * A cross-request cache of QueryBuilder search results, used by the QuerySearchProviderImpl.
+ * <br>
+ * Entries are keyed by the canonical form of the query's PredicateGroup and the principal set of the requesting user,
+ * so that results are only ever shared between users that are guaranteed to have the same read access.
+ */
+public interface SearchResultsCache {
+    /**
+     * @return true if the cache is enabled and should be consulted.
+     */
+    boolean isEnabled();
+
+    /**
+     * @param predicateGroup the query's root PredicateGroup.
+     * @param resourceResolver the requesting user's resource resolver.
+     * @return the cache key for the query executed by the user.
+     */
+    String getKey(PredicateGroup predicateGroup, ResourceResolver resourceResolver);
+
+    /**
+     * @param key the cache key (see {@link #getKey(PredicateGroup, ResourceResolver)}).
+     * @return the cached search result, or null if no live entry exists.
+     */
+    CachedSearchResult get(String key);
+
+    /**
+     * @return the generation of the cache, which changes whenever the cache is invalidated.
+     */
+    long getGeneration();
+
+    /**
+     * @param key the cache key (see {@link #getKey(PredicateGroup, ResourceResolver)}).
+     * @param cachedSearchResult the search result to cache.
+     * @param generation the generation of the cache (see {@link #getGeneration()}) read before the search was executed;
+     *                   if the cache was invalidated since, the search result is not cached, as it may predate the change that invalidated the cache.
+     */
+    void put(String key, CachedSearchResult cachedSearchResult, long generation);
+}
@@ -0,0 +1,275 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.adobe.aem.commons.assetshare.search.providers.impl.cache;
+
+import com.adobe.granite.jmx.annotation.AnnotatedStandardMBean;
+import com.day.cq.search.PredicateGroup;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.observation.ExternalResourceChangeListener;
+import org.apache.sling.api.resource.observation.ResourceChange;
+import org.apache.sling.api.resource.observation.ResourceChangeListener;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Modified;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.DynamicMBean;
+import javax.management.NotCompliantMBeanException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component(
+        service = { SearchResultsCache.class, ResourceChangeListener.class, DynamicMBean.class },
+        property = {
+                "jmx.objectname=com.adobe.aem.commons.assetshare:type=Search Results Cache",
+                ResourceChangeListener.PATHS + "=/content/dam",
+                ResourceChangeListener.CHANGES + "=ADDED",
+                ResourceChangeListener.CHANGES + "=CHANGED",
+                ResourceChangeListener.CHANGES + "=REMOVED"
+        }
+)
+@Designate(ocd = SearchResultsCacheImpl.Cfg.class)
+public class SearchResultsCacheImpl extends AnnotatedStandardMBean implements SearchResultsCache, SearchResultsCacheMBean, ResourceChangeListener, ExternalResourceChangeListener {
+    private static final Logger log = LoggerFactory.getLogger(SearchResultsCacheImpl.class);
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    // Guarded by this, so that a search result is never put once the cache has been invalidated after the search started.
+    private long generation = 0;
+
+    private Cfg cfg;
+
+    private Map<String, Entry> cache = new LinkedHashMap<>();
+
+    public SearchResultsCacheImpl() throws NotCompliantMBeanException {
+        super(SearchResultsCacheMBean.class);
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return cfg.enabled();
+    }
+
+    @Override
+    public String getKey(final PredicateGroup predicateGroup, final ResourceResolver resourceResolver) {
+        return CanonicalQuery.toPrincipalKey(resourceResolver)
+                + "::"
+                + CanonicalQuery.toKey(predicateGroup, TimeUnit.SECONDS.toMillis(cfg.date_rounding_seconds()));
+    }
+
+    @Override
+    public CachedSearchResult get(final String key) {
+        final Entry entry;
+
+        synchronized (this) {
+            entry = cache.get(key);
+
+            if (entry != null && entry.isExpired()) {
+                cache.remove(key);
+                expirations.incrementAndGet();
+                misses.incrementAndGet();
+                return null;
+            }
+        }
+
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+
+        hits.incrementAndGet();
+        return entry.getCachedSearchResult();
+    }
+
+    @Override
+    public synchronized long getGeneration() {
+        return generation;
+    }
+
+    @Override
+    public void put(final String key, final CachedSearchResult cachedSearchResult, final long generation) {
+        final long expiresAt = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(cfg.ttl_seconds());
+
+        synchronized (this) {
+            if (generation != this.generation) {
+                log.debug("Not caching the search result for [ {} ], as the cache was invalidated while it was searched", key);
+                return;
+            }
+
+            cache.put(key, new Entry(cachedSearchResult, expiresAt));
+        }
+    }
+
+    @Override
+    public void onChange(final List<ResourceChange> changes) {
+        // Any change to the asset tree may change the result of any query, so there is no finer grained invalidation than dropping everything.
+        if (log.isDebugEnabled()) {
+            log.debug("Invalidating the search results cache due to [ {} ] resource changes starting with [ {} ]", changes.size(), changes.isEmpty() ? null : changes.get(0).getPath());
+        }
+
+        synchronized (this) {
+            generation++;
+            cache.clear();
+        }
+
+        invalidations.incrementAndGet();
+    }
+
+    /** MBean **/
+
+    @Override
+    public synchronized long getSize() {
+        return cache.size();
+    }
+
+    @Override
+    public long getMaxSize() {
+        return cfg.max_entries();
+    }
+
+    @Override
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    @Override
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    @Override
+    public double getHitRatio() {
+        final long total = hits.get() + misses.get();
+        return total == 0 ? 0 : (double) hits.get() / total;
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    @Override
+    public long getExpirationCount() {
+        return expirations.get();
+    }
+
+    @Override
+    public long getInvalidationCount() {
+        return invalidations.get();
+    }
+
+    @Override
+    public synchronized void clear() {
+        cache.clear();
+    }
+
+    @Override
+    public void resetStatistics() {
+        hits.set(0);
+        misses.set(0);
+        evictions.set(0);
+        expirations.set(0);
+        invalidations.set(0);
+    }
+
+    @Activate
+    @Modified
+    protected void activate(Cfg cfg) {
+        this.cfg = cfg;
+
+        final int maxEntries = Math.max(1, cfg.max_entries());
+
+        synchronized (this) {
+            // Access-ordered LinkedHashMap provides the LRU eviction.
+            cache = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<String, Entry> eldest) {
+                    if (size() > maxEntries) {
+                        evictions.incrementAndGet();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+    }
+
+    private static final class Entry {
+        private final CachedSearchResult cachedSearchResult;
+        private final long expiresAt;
+
+        Entry(final CachedSearchResult cachedSearchResult, final long expiresAt) {
+            this.cachedSearchResult = cachedSearchResult;
+            this.expiresAt = expiresAt;
+        }
+
+        CachedSearchResult getCachedSearchResult() {
+            return cachedSearchResult;
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() >= expiresAt;
+        }
+    }
+
+    @ObjectClassDefinition(name = "Asset Share Commons - Search Results Cache")
+    public @interface Cfg {
+        @AttributeDefinition(
+                name = "Enabled",
+                description = "Enables caching of search results across requests. Cached results are only shared between users with the same set of principals."
+        )
+        boolean enabled() default false;
+
+        @AttributeDefinition(
+                name = "Max entries",
+                description = "The maximum number of search results to cache. When full, the least recently used entry is evicted."
+        )
+        int max_entries() default 500;
+
+        @AttributeDefinition(
+                name = "TTL (in seconds)",
+                description = "The maximum time a search result is served from the cache."
+        )
+        long ttl_seconds() default 300;
+
+        @AttributeDefinition(
+                name = "Date rounding (in seconds)",
+                description = "Absolute dates in daterange predicates are rounded down to this granularity when computing the cache key. Set to 0 to disable."
+        )
+        long date_rounding_seconds() default 60;
+
+        @AttributeDefinition(
+                name = "Invalidation paths",
+                description = "Any resource change under these paths invalidates the entire cache."
+        )
+        String[] resource_paths() default { "/content/dam" };
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.adobe.aem.commons.assetshare.search.providers.impl.cache;
+
+import com.adobe.granite.jmx.annotation.Description;
+
+@Description("Asset Share Commons - Search Results Cache")
+public interface SearchResultsCacheMBean {
+    @Description("Number of live entries in the cache")
+    long getSize();
+
+    @Description("Maximum number of entries in the cache")
+    long getMaxSize();
+
+    @Description("Number of lookups served from the cache")
+    long getHitCount();
+
+    @Description("Number of lookups not served from the cache")
+    long getMissCount();
+
+    @Description("Ratio of hits to total lookups")
+    double getHitRatio();
+
+    @Description("Number of entries evicted because the cache was full (LRU)")
+    long getEvictionCount();
+
+    @Description("Number of entries evicted because their TTL expired")
+    long getExpirationCount();
+
+    @Description("Number of times the cache was invalidated by resource changes")
+    long getInvalidationCount();
+
+    @Description("Removes all entries from the cache")
+    void clear();
+
+    @Description("Resets the hit/miss/eviction counters")
+    void resetStatistics();
+}
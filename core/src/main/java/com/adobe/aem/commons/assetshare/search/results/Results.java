@@ -23,7 +23,9 @@ import com.adobe.aem.commons.assetshare.search.results.impl.results.ErringResult
 import org.apache.sling.api.resource.ValueMap;
 import org.osgi.annotation.versioning.ProviderType;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Interface that describes a result set; This is a common interface for results from any search provider.
@@ -34,7 +36,11 @@ public interface Results {
 
     enum Status {
         SUCCESS,
-        ERROR
+        ERROR,
+        /**
+         * The search ran out of its time budget; the results are those collected in time, and the total is approximate.
+         */
+        PARTIAL
     }
 
     /**
@@ -80,7 +86,21 @@ public interface Results {
     long getNextOffset();
 
     /**
-     * @return the status of the search (Success or Error)
+     * @return the opaque cursor to load the next page with when keyset pagination is enabled, else null (in which case getNextOffset() should be used).
+     */
+    default String getNextCursor() {
+        return null;
+    }
+
+    /**
+     * @return the number of results per distinct value, keyed by the relative path of the faceted property (ie. jcr:content/metadata/dc:format -&gt; image/jpeg -&gt; 1203). This is empty unless facet counts were requested for the search.
+     */
+    default Map<String, Map<String, Long>> getFacetCounts() {
+        return Collections.emptyMap();
+    }
+
+    /**
+     * @return the status of the search (Success, Error or Partial)
      */
     Status getStatus();
 
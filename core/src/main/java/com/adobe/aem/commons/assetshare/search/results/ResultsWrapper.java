@@ -3,6 +3,7 @@ package com.adobe.aem.commons.assetshare.search.results;
 import org.apache.sling.api.resource.ValueMap;
 
 import java.util.List;
+import java.util.Map;
 
 public class ResultsWrapper implements Results {
     private final Results wrappedResult;
@@ -50,6 +51,16 @@ public class ResultsWrapper implements Results {
         return getWrappedResult().getNextOffset();
     }
 
+    @Override
+    public String getNextCursor() {
+        return getWrappedResult().getNextCursor();
+    }
+
+    @Override
+    public Map<String, Map<String, Long>> getFacetCounts() {
+        return getWrappedResult().getFacetCounts();
+    }
+
     @Override
     public Status getStatus() {
         return getWrappedResult().getStatus();
@@ -0,0 +1,177 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.adobe.aem.commons.assetshare.search.results.impl.result;
+
+import com.adobe.aem.commons.assetshare.content.properties.impl.TitleImpl;
+import com.adobe.aem.commons.assetshare.search.results.AssetResult;
+import com.adobe.aem.commons.assetshare.util.UrlUtil;
+import com.day.cq.dam.api.Asset;
+import com.day.cq.dam.api.Rendition;
+import com.day.text.Text;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ValueMap;
+import org.apache.sling.api.wrappers.ValueMapDecorator;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * A lightweight AssetResult built from the values projected from a query's result rows, rather than from the asset's resource.
+ * <br>
+ * Projected properties are served as is; any other property, as well as anything that requires the asset itself (renditions, the resource, etc.), is served by the fully adapted AssetResult, which is only adapted on first use.
+ */
+public class ProjectedAssetResultImpl implements AssetResult {
+    private static final String UNSUPPORTED_OPERATION = "This operation is not permitted on the projected properties map.";
+
+    private final String path;
+    private final Map<String, Object> projectedProperties;
+    private final Function<String, AssetResult> adapter;
+
+    private AssetResult assetResult;
+    private boolean adapted = false;
+    private ValueMap properties;
+
+    /**
+     * @param path the path of the asset.
+     * @param projectedProperties the projected values, keyed by the property names they are served as.
+     * @param adapter adapts the asset's path to a full AssetResult; invoked at most once, when a non-projected value is requested.
+     */
+    public ProjectedAssetResultImpl(final String path, final Map<String, Object> projectedProperties, final Function<String, AssetResult> adapter) {
+        this.path = path;
+        this.projectedProperties = Collections.unmodifiableMap(new HashMap<>(projectedProperties));
+        this.adapter = adapter;
+    }
+
+    /**
+     * @return the fully adapted AssetResult, or null if the asset cannot be adapted.
+     */
+    private AssetResult getAssetResult() {
+        if (!adapted) {
+            assetResult = adapter.apply(path);
+            adapted = true;
+        }
+
+        return assetResult;
+    }
+
+    /**
+     * @return true if the asset has been fully adapted.
+     */
+    public boolean isAdapted() {
+        return adapted;
+    }
+
+    @Override
+    public String getType() {
+        return AssetResult.TYPE;
+    }
+
+    @Override
+    public String getPath() {
+        return path;
+    }
+
+    @Override
+    public String getName() {
+        return Text.getName(path);
+    }
+
+    @Override
+    public String getUrl() {
+        return UrlUtil.escape(getPath());
+    }
+
+    @Override
+    public Resource getResource() {
+        final AssetResult delegate = getAssetResult();
+        return delegate != null ? delegate.getResource() : null;
+    }
+
+    @Override
+    public Asset getAsset() {
+        final AssetResult delegate = getAssetResult();
+        return delegate != null ? delegate.getAsset() : null;
+    }
+
+    @Override
+    public String getAssetId() {
+        final AssetResult delegate = getAssetResult();
+        return delegate != null ? delegate.getAssetId() : null;
+    }
+
+    @Override
+    public String getTitle() {
+        return getProperties().get(TitleImpl.NAME, String.class);
+    }
+
+    @Override
+    public List<Rendition> getRenditions() {
+        final AssetResult delegate = getAssetResult();
+        return delegate != null ? delegate.getRenditions() : Collections.emptyList();
+    }
+
+    @Override
+    public ValueMap getProperties() {
+        if (properties == null) {
+            properties = new ValueMapDecorator(new ProjectedProperties());
+        }
+
+        return properties;
+    }
+
+    private final class ProjectedProperties extends AbstractMap<String, Object> {
+        @Override
+        public Object get(final Object key) {
+            if (projectedProperties.containsKey(key)) {
+                return projectedProperties.get(key);
+            }
+
+            final AssetResult delegate = getAssetResult();
+            return delegate != null ? delegate.getProperties().get(key) : null;
+        }
+
+        @Override
+        public boolean containsKey(final Object key) {
+            if (projectedProperties.containsKey(key)) {
+                return true;
+            }
+
+            final AssetResult delegate = getAssetResult();
+            return delegate != null && delegate.getProperties().containsKey(key);
+        }
+
+        @Override
+        public Object put(final String key, final Object value) {
+            throw new UnsupportedOperationException(UNSUPPORTED_OPERATION);
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            // As with CombinedProperties, non-projected values are computed, so they cannot be enumerated.
+            throw new UnsupportedOperationException(UNSUPPORTED_OPERATION);
+        }
+    }
+}
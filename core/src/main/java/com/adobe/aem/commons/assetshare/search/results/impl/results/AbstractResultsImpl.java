@@ -24,8 +24,10 @@ import com.adobe.aem.commons.assetshare.search.results.Results;
 import org.apache.sling.api.resource.ValueMap;
 import org.apache.sling.api.wrappers.ValueMapDecorator;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public abstract class AbstractResultsImpl implements Results {
     protected List<Result> results;
@@ -34,6 +36,8 @@ public abstract class AbstractResultsImpl implements Results {
     protected long total = 0;
     protected long size = 0;
     protected Long nextOffset;
+    protected String nextCursor;
+    protected Map<String, Map<String, Long>> facetCounts = Collections.emptyMap();
     protected Status status;
     protected long timeTaken = -1;
     protected long runningTotal;
@@ -79,6 +83,16 @@ public abstract class AbstractResultsImpl implements Results {
         return nextOffset;
     }
 
+    @Override
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    @Override
+    public Map<String, Map<String, Long>> getFacetCounts() {
+        return facetCounts;
+    }
+
     @Override
     public Status getStatus() {
         return status;
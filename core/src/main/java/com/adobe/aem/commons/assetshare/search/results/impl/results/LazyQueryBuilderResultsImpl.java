@@ -0,0 +1,50 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.adobe.aem.commons.assetshare.search.results.impl.results;
+
+import com.adobe.aem.commons.assetshare.search.results.Result;
+import com.adobe.aem.commons.assetshare.search.results.Results;
+import com.day.cq.search.result.SearchResult;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * QueryBuilder Results that only hold the hit paths, and adapt each hit to a Result as it is iterated over (typically while HTL renders the results).
+ * <br>
+ * getSize(), getTotal() and getRunningTotal() are derived from the hit paths and the SearchResult and do not force adaptation.
+ * As such, getSize() is the number of hits, which may exceed the number of Results iterated over should hits no longer be adaptable by the time they are rendered (see {@link LazyResultList}).
+ */
+public class LazyQueryBuilderResultsImpl extends QueryBuilderResultsImpl implements Results {
+
+    /**
+     * @param hitPaths the paths of the search hits, in order.
+     * @param adapter the function used to adapt a hit path to a Result; may return null if the hit cannot be adapted.
+     * @param searchResult the QueryBuilder search result.
+     */
+    public LazyQueryBuilderResultsImpl(final List<String> hitPaths,
+                                       final Function<String, Result> adapter,
+                                       final SearchResult searchResult) {
+        super(Collections.emptyList(), searchResult);
+        this.results = new LazyResultList(hitPaths, adapter);
+        this.size = hitPaths.size();
+    }
+}
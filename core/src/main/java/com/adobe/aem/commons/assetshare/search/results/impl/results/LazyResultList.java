@@ -0,0 +1,114 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.adobe.aem.commons.assetshare.search.results.impl.results;
+
+import com.adobe.aem.commons.assetshare.search.results.Result;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+
+/**
+ * A read-only list of the Results of the hits, which only holds the hit paths.
+ * <br>
+ * Iterating over the list adapts each hit as it is reached and skips the hits that cannot be adapted (ie. they were deleted or are no longer readable since the search), without retaining the adapted Results; this keeps its footprint flat regardless of the number of hits.
+ * As which hits can be adapted is only known once they are adapted, {@link #size()} is the number of hits, which is an upper bound of the number of Results iterated over.
+ * {@link #get(int)} adapts the remaining hits all at once, and the Results that could be adapted are retained from then on.
+ */
+final class LazyResultList extends AbstractList<Result> {
+    private final List<String> hitPaths;
+    private final Function<String, Result> adapter;
+
+    private List<Result> results;
+
+    LazyResultList(final List<String> hitPaths, final Function<String, Result> adapter) {
+        this.hitPaths = Collections.unmodifiableList(new ArrayList<>(hitPaths));
+        this.adapter = adapter;
+    }
+
+    /**
+     * @return the number of hits, or once the hits are adapted (see {@link #get(int)}), the number of Results; this does not adapt any hits.
+     */
+    @Override
+    public int size() {
+        return results != null ? results.size() : hitPaths.size();
+    }
+
+    /**
+     * @param index the index of the Result, amongst the hits that can be adapted.
+     * @return the Result; this adapts all the hits.
+     */
+    @Override
+    public Result get(final int index) {
+        return getResults().get(index);
+    }
+    @Override
+    public Iterator<Result> iterator() {
+        if (results != null) {
+            return results.iterator();
+        }
+
+        return new Iterator<Result>() {
+            private int index = 0;
+            private Result next = null;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null && index < hitPaths.size()) {
+                    next = adapter.apply(hitPaths.get(index++));
+                }
+
+                return next != null;
+            }
+
+            @Override
+            public Result next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                final Result result = next;
+                next = null;
+                return result;
+            }
+        };
+    }
+
+    private List<Result> getResults() {
+        if (results == null) {
+            final List<Result> adapted = new ArrayList<>(hitPaths.size());
+
+            for (final String hitPath : hitPaths) {
+                final Result result = adapter.apply(hitPath);
+                if (result != null) {
+                    adapted.add(result);
+                }
+            }
+
+            results = Collections.unmodifiableList(adapted);
+        }
+
+        return results;
+    }
+}
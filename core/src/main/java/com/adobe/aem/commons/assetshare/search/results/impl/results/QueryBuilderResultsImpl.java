@@ -51,6 +51,45 @@ public class QueryBuilderResultsImpl extends AbstractResultsImpl implements Resu
         this.status = Status.SUCCESS;
     }
 
+    /**
+     * With keyset pagination, the query of all but the first page only covers the remainder of the result set, so the totals are re-based onto the entire result set.
+     *
+     * @param nextCursor the cursor to load the next page with, or null if the next page must be loaded using the next offset.
+     * @param runningTotal the number of results loaded up to, and including, this page.
+     * @param total the total number of results of the entire result set.
+     * @param more true if there are more results after this page.
+     */
+    public void setKeysetPagination(final String nextCursor, final long runningTotal, final long total, final boolean more) {
+        this.nextCursor = nextCursor;
+        this.runningTotal = runningTotal;
+        this.total = total;
+        this.more = more;
+        // Offsets are absolute, so the next offset remains valid should the cursor be unusable.
+        this.nextOffset = this.more ? runningTotal : -1;
+    }
+
+    /**
+     * Marks the results as partial, as the search ran out of its time budget after collecting the results up to runningTotal.
+     * The next page is loaded from the first result that was not collected, and the total is reported as approximate.
+     *
+     * @param runningTotal the number of results loaded up to, and including, this page.
+     */
+    public void setPartial(final long runningTotal) {
+        this.status = Status.PARTIAL;
+        this.runningTotal = runningTotal;
+        this.total = Math.max(this.total, runningTotal);
+        this.more = true;
+        this.moreThanTotal = true;
+        this.nextOffset = runningTotal;
+    }
+
+    /**
+     * @param facetCounts the number of results per distinct value, keyed by the relative path of the faceted property.
+     */
+    public void setFacetCounts(final Map<String, Map<String, Long>> facetCounts) {
+        this.facetCounts = Collections.unmodifiableMap(facetCounts);
+    }
+
     final SearchResult getSearchResult() {
         return this.searchResult;
     }
@@ -17,7 +17,7 @@
  *
  */
 
-@Version("2.3.0")
+@Version("2.5.0")
 package com.adobe.aem.commons.assetshare.search.results;
 
 import org.osgi.annotation.versioning.Version;
@@ -31,4 +31,12 @@ public interface ServletHelper {
      * @param response the SlingHttpResponse object to create the SlingScriptHelper
      */
     void addSlingBindings(final SlingHttpServletRequest request, final SlingHttpServletResponse response);
+
+    /**
+     * Adds SlingBindings (see {@link #addSlingBindings(SlingHttpServletRequest, SlingHttpServletResponse)}) and the WCM bindings HTL provides for the request's resource (currentPage and properties)
+     * to the SlingHttpServletRequest object so it can be used to create Sling Models written for use from HTL.
+     * @param request the SlingHttpServletRequest object to add the bindings to
+     * @param response the SlingHttpResponse object to create the SlingScriptHelper
+     */
+    void addWcmBindings(final SlingHttpServletRequest request, final SlingHttpServletResponse response);
 }
@@ -0,0 +1,122 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.adobe.aem.commons.assetshare.util.impl;
+
+import org.apache.sling.api.resource.ResourceResolver;
+import org.osgi.service.component.annotations.Component;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Closes ResourceResolvers that were opened on behalf of a request (see {@link #register(ServletRequest, ResourceResolver)}) once the request has been fully processed.
+ * <br>
+ * This is required when objects created during the request (ie. Sling Models) hold onto Resources of a ResourceResolver other than the request's own,
+ * and are used until the request completes (ie. during HTL rendering).
+ * <br>
+ * This filter is only registered for the requests that search (HTML pages and JSON), so callers must check {@link #isActive(ServletRequest)} before opening ResourceResolvers on behalf of a request.
+ */
+@Component(
+        service = Filter.class,
+        property = {
+                "sling.filter.scope=REQUEST",
+                "sling.filter.extensions=html",
+                "sling.filter.extensions=json"
+        }
+)
+public class RequestScopedResourceResolversFilter implements Filter {
+    private static final Logger log = LoggerFactory.getLogger(RequestScopedResourceResolversFilter.class);
+
+    private static final String REQUEST_ATTR_RESOURCE_RESOLVERS = RequestScopedResourceResolversFilter.class.getName() + "__resource-resolvers";
+
+    /**
+     * @param request the request.
+     * @return true if this filter is processing the request, and resource resolvers registered for it will be closed when the request completes.
+     */
+    public static boolean isActive(final ServletRequest request) {
+        return request.getAttribute(REQUEST_ATTR_RESOURCE_RESOLVERS) instanceof List;
+    }
+
+    /**
+     * Registers the resource resolver to be closed when the request completes.
+     * This must be called from the request thread.
+     *
+     * @param request the request.
+     * @param resourceResolver the resource resolver to close when the request completes.
+     * @throws IllegalStateException if this filter is not processing the request, see {@link #isActive(ServletRequest)}.
+     */
+    @SuppressWarnings("unchecked")
+    public static void register(final ServletRequest request, final ResourceResolver resourceResolver) {
+        if (!isActive(request)) {
+            throw new IllegalStateException("Resource resolvers can only be registered for requests processed by the RequestScopedResourceResolversFilter");
+        }
+
+        ((List<ResourceResolver>) request.getAttribute(REQUEST_ATTR_RESOURCE_RESOLVERS)).add(resourceResolver);
+    }
+
+    @Override
+    public void init(final FilterConfig filterConfig) {
+        // Do nothing
+    }
+
+    @Override
+    public void doFilter(final ServletRequest request, final ServletResponse response, final FilterChain chain) throws IOException, ServletException {
+        if (isActive(request)) {
+            // The resource resolvers are closed by the outer invocation of this filter.
+            chain.doFilter(request, response);
+            return;
+        }
+
+        final List<ResourceResolver> resourceResolvers = new ArrayList<>();
+        request.setAttribute(REQUEST_ATTR_RESOURCE_RESOLVERS, resourceResolvers);
+
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            request.removeAttribute(REQUEST_ATTR_RESOURCE_RESOLVERS);
+
+            if (!resourceResolvers.isEmpty()) {
+                for (final ResourceResolver resourceResolver : resourceResolvers) {
+                    if (resourceResolver.isLive()) {
+                        resourceResolver.close();
+                    }
+                }
+
+                if (log.isTraceEnabled()) {
+                    log.trace("Closed [ {} ] request scoped resource resolvers", resourceResolvers.size());
+                }
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        // Do nothing
+    }
+}
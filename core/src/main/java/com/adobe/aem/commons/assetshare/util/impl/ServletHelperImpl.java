@@ -20,6 +20,8 @@
 package com.adobe.aem.commons.assetshare.util.impl;
 
 import com.adobe.aem.commons.assetshare.util.ServletHelper;
+import com.day.cq.wcm.api.Page;
+import com.day.cq.wcm.api.PageManager;
 import org.apache.sling.api.SlingHttpServletRequest;
 import org.apache.sling.api.SlingHttpServletResponse;
 import org.apache.sling.api.scripting.SlingBindings;
@@ -34,6 +36,10 @@ import static org.apache.sling.api.scripting.SlingBindings.*;
 
 @Component
 public class ServletHelperImpl implements ServletHelper {
+    // The names of the WCM bindings HTL provides.
+    static final String CURRENT_PAGE = "currentPage";
+    static final String PROPERTIES = "properties";
+
     private BundleContext bundleContext;
 
     public void addSlingBindings(final SlingHttpServletRequest request, final SlingHttpServletResponse response) {
@@ -52,6 +58,17 @@ public class ServletHelperImpl implements ServletHelper {
         request.setAttribute(SlingBindings.class.getName(), slingBindings);
     }
 
+    public void addWcmBindings(final SlingHttpServletRequest request, final SlingHttpServletResponse response) {
+        addSlingBindings(request, response);
+
+        final SlingBindings slingBindings = (SlingBindings) request.getAttribute(SlingBindings.class.getName());
+        final PageManager pageManager = request.getResourceResolver().adaptTo(PageManager.class);
+        final Page currentPage = pageManager != null ? pageManager.getContainingPage(request.getResource()) : null;
+
+        slingBindings.put(CURRENT_PAGE, currentPage);
+        slingBindings.put(PROPERTIES, request.getResource().getValueMap());
+    }
+
     @Activate
     protected void activate(final BundleContext bundleContext) {
         this.bundleContext = bundleContext;
@@ -0,0 +1,187 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.adobe.aem.commons.assetshare.util.impl.requests;
+
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.request.RequestParameter;
+import org.apache.sling.api.request.RequestParameterMap;
+import org.apache.sling.api.wrappers.SlingHttpServletRequestWrapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SlingHttpServletRequest Wrapper that replaces the original request's parameters with the provided parameters.
+ *
+ * This is useful when the parameters of a request are encoded elsewhere than in the query string (ie. in the suffix).
+ */
+public class ParameterOverrideRequestWrapper extends SlingHttpServletRequestWrapper {
+    private final Map<String, String[]> parameters;
+    private final RequestParameterMapImpl requestParameterMap = new RequestParameterMapImpl();
+
+    /**
+     * @param wrappedRequest the request to wrap.
+     * @param parameters the parameters to expose instead of the wrapped request's parameters.
+     */
+    public ParameterOverrideRequestWrapper(SlingHttpServletRequest wrappedRequest, Map<String, String[]> parameters) {
+        super(wrappedRequest);
+
+        final Map<String, String[]> tmp = new LinkedHashMap<>();
+        for (final Map.Entry<String, String[]> entry : parameters.entrySet()) {
+            tmp.put(entry.getKey(), entry.getValue().clone());
+
+            final RequestParameter[] requestParameters = new RequestParameter[entry.getValue().length];
+            for (int i = 0; i < requestParameters.length; i++) {
+                requestParameters[i] = new StringRequestParameter(entry.getKey(), entry.getValue()[i]);
+            }
+            requestParameterMap.put(entry.getKey(), requestParameters);
+        }
+
+        this.parameters = Collections.unmodifiableMap(tmp);
+    }
+
+    @Override
+    public String getParameter(String name) {
+        final String[] values = parameters.get(name);
+        return values == null || values.length == 0 ? null : values[0];
+    }
+
+    @Override
+    public String[] getParameterValues(String name) {
+        final String[] values = parameters.get(name);
+        return values == null ? null : values.clone();
+    }
+
+    @Override
+    public Map<String, String[]> getParameterMap() {
+        return parameters;
+    }
+
+    @Override
+    public Enumeration<String> getParameterNames() {
+        return Collections.enumeration(parameters.keySet());
+    }
+
+    @Override
+    public RequestParameter getRequestParameter(String name) {
+        return requestParameterMap.getValue(name);
+    }
+
+    @Override
+    public RequestParameter[] getRequestParameters(String name) {
+        return requestParameterMap.getValues(name);
+    }
+
+    @Override
+    public RequestParameterMap getRequestParameterMap() {
+        return requestParameterMap;
+    }
+
+    @Override
+    public List<RequestParameter> getRequestParameterList() {
+        final List<RequestParameter> list = new ArrayList<>();
+        for (final RequestParameter[] requestParameters : requestParameterMap.values()) {
+            Collections.addAll(list, requestParameters);
+        }
+        return list;
+    }
+
+    private static final class RequestParameterMapImpl extends LinkedHashMap<String, RequestParameter[]> implements RequestParameterMap {
+        @Override
+        public RequestParameter[] getValues(String name) {
+            return get(name);
+        }
+
+        @Override
+        public RequestParameter getValue(String name) {
+            final RequestParameter[] values = get(name);
+            return values == null || values.length == 0 ? null : values[0];
+        }
+    }
+
+    private static final class StringRequestParameter implements RequestParameter {
+        private final String name;
+        private final String value;
+
+        StringRequestParameter(String name, String value) {
+            this.name = name;
+            this.value = value;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public boolean isFormField() {
+            return true;
+        }
+
+        @Override
+        public String getContentType() {
+            return null;
+        }
+
+        @Override
+        public long getSize() {
+            return get().length;
+        }
+
+        @Override
+        public byte[] get() {
+            return value.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return new ByteArrayInputStream(get());
+        }
+
+        @Override
+        public String getFileName() {
+            return null;
+        }
+
+        @Override
+        public String getString() {
+            return value;
+        }
+
+        @Override
+        public String getString(String encoding) throws UnsupportedEncodingException {
+            return new String(get(), encoding);
+        }
+
+        @Override
+        public String toString() {
+            return value;
+        }
+    }
+}
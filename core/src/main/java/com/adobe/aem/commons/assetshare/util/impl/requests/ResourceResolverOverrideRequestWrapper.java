@@ -0,0 +1,244 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.adobe.aem.commons.assetshare.util.impl.requests;
+
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.request.RequestDispatcherOptions;
+import org.apache.sling.api.request.RequestParameter;
+import org.apache.sling.api.request.RequestParameterMap;
+import org.apache.sling.api.request.RequestPathInfo;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.scripting.SlingBindings;
+import org.apache.sling.api.wrappers.SlingHttpServletRequestWrapper;
+
+import javax.servlet.RequestDispatcher;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.Cookie;
+import java.io.BufferedReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * SlingHttpServletRequest Wrapper that exposes a different ResourceResolver than the wrapped request.
+ *
+ * This allows work done on behalf of a request to be performed on a thread other than the request thread, using a ResourceResolver owned by that thread (ie. a clone of the request's ResourceResolver).
+ * As the request is not thread-safe, the wrapper is a detached view of the request: it must be created on the request thread, at which point the request's attributes, parameters, path info, locales and cookies are copied.
+ * Attributes set on the wrapper are only visible via the wrapper. The attribute values themselves are shared with the request, and must therefore only be read.
+ * The request's resource, and the SlingBindings, are resolved via the exposed ResourceResolver. The request body and request dispatchers are not available.
+ */
+public class ResourceResolverOverrideRequestWrapper extends SlingHttpServletRequestWrapper {
+    private final ResourceResolver resourceResolver;
+    private final Resource resource;
+    private final RequestPathInfo requestPathInfo;
+    private final Map<String, Object> attributes;
+    private final Map<String, String[]> parameters;
+    private final RequestParameterMap requestParameterMap;
+    private final List<RequestParameter> requestParameterList;
+    private final Locale locale;
+    private final List<Locale> locales;
+    private final Cookie[] cookies;
+
+    /**
+     * Must be called from the request thread.
+     *
+     * @param wrappedRequest the request to wrap.
+     * @param resourceResolver the resource resolver to expose via getResourceResolver().
+     */
+    public ResourceResolverOverrideRequestWrapper(final SlingHttpServletRequest wrappedRequest, final ResourceResolver resourceResolver) {
+        super(wrappedRequest);
+        this.resourceResolver = resourceResolver;
+
+        final Resource requestResource = wrappedRequest.getResource();
+        final Resource resolvedResource = requestResource != null ? resourceResolver.getResource(requestResource.getPath()) : null;
+        // Synthetic resources (or resources the resource resolver cannot read) are served as is.
+        this.resource = resolvedResource != null ? resolvedResource : requestResource;
+        this.requestPathInfo = wrappedRequest.getRequestPathInfo();
+
+        this.attributes = new HashMap<>();
+        for (final String name : Collections.list(wrappedRequest.getAttributeNames())) {
+            this.attributes.put(name, wrappedRequest.getAttribute(name));
+        }
+
+        final Object bindings = this.attributes.get(SlingBindings.class.getName());
+        if (bindings instanceof SlingBindings) {
+            final SlingBindings detachedBindings = new SlingBindings();
+            detachedBindings.putAll((SlingBindings) bindings);
+            detachedBindings.setRequest(this);
+            detachedBindings.setResource(this.resource);
+            detachedBindings.setResourceResolver(resourceResolver);
+            this.attributes.put(SlingBindings.class.getName(), detachedBindings);
+        }
+
+        // Sling parses the parameters lazily, and not thread-safely; once parsed, they are not modified.
+        this.requestParameterMap = wrappedRequest.getRequestParameterMap();
+        this.requestParameterList = Collections.unmodifiableList(new ArrayList<>(wrappedRequest.getRequestParameterList()));
+        this.parameters = Collections.unmodifiableMap(new LinkedHashMap<>(wrappedRequest.getParameterMap()));
+
+        this.locale = wrappedRequest.getLocale();
+        this.locales = Collections.list(wrappedRequest.getLocales());
+        this.cookies = wrappedRequest.getCookies();
+    }
+
+    @Override
+    public ResourceResolver getResourceResolver() {
+        return resourceResolver;
+    }
+
+    @Override
+    public Resource getResource() {
+        return resource;
+    }
+
+    @Override
+    public RequestPathInfo getRequestPathInfo() {
+        return requestPathInfo;
+    }
+
+    @Override
+    public Object getAttribute(final String name) {
+        return attributes.get(name);
+    }
+
+    @Override
+    public Enumeration<String> getAttributeNames() {
+        return Collections.enumeration(new ArrayList<>(attributes.keySet()));
+    }
+
+    @Override
+    public void setAttribute(final String name, final Object o) {
+        if (o == null) {
+            attributes.remove(name);
+        } else {
+            attributes.put(name, o);
+        }
+    }
+
+    @Override
+    public void removeAttribute(final String name) {
+        attributes.remove(name);
+    }
+
+    @Override
+    public String getParameter(final String name) {
+        final String[] values = parameters.get(name);
+        return values == null || values.length == 0 ? null : values[0];
+    }
+
+    @Override
+    public String[] getParameterValues(final String name) {
+        final String[] values = parameters.get(name);
+        return values == null ? null : values.clone();
+    }
+
+    @Override
+    public Map<String, String[]> getParameterMap() {
+        return parameters;
+    }
+
+    @Override
+    public Enumeration<String> getParameterNames() {
+        return Collections.enumeration(parameters.keySet());
+    }
+
+    @Override
+    public RequestParameter getRequestParameter(final String name) {
+        return requestParameterMap.getValue(name);
+    }
+
+    @Override
+    public RequestParameter[] getRequestParameters(final String name) {
+        return requestParameterMap.getValues(name);
+    }
+
+    @Override
+    public RequestParameterMap getRequestParameterMap() {
+        return requestParameterMap;
+    }
+
+    @Override
+    public List<RequestParameter> getRequestParameterList() {
+        return requestParameterList;
+    }
+
+    @Override
+    public Locale getLocale() {
+        return locale;
+    }
+
+    @Override
+    public Enumeration<Locale> getLocales() {
+        return Collections.enumeration(locales);
+    }
+
+    @Override
+    public Cookie[] getCookies() {
+        return cookies == null ? null : cookies.clone();
+    }
+
+    @Override
+    public Cookie getCookie(final String name) {
+        if (cookies != null) {
+            for (final Cookie cookie : cookies) {
+                if (cookie.getName().equals(name)) {
+                    return cookie;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public ServletInputStream getInputStream() {
+        throw new UnsupportedOperationException("The request body is not available to a detached view of the request");
+    }
+
+    @Override
+    public BufferedReader getReader() {
+        throw new UnsupportedOperationException("The request body is not available to a detached view of the request");
+    }
+
+    @Override
+    public RequestDispatcher getRequestDispatcher(final String path) {
+        throw new UnsupportedOperationException("Request dispatchers are not available to a detached view of the request");
+    }
+
+    @Override
+    public RequestDispatcher getRequestDispatcher(final String path, final RequestDispatcherOptions options) {
+        throw new UnsupportedOperationException("Request dispatchers are not available to a detached view of the request");
+    }
+
+    @Override
+    public RequestDispatcher getRequestDispatcher(final Resource resource) {
+        throw new UnsupportedOperationException("Request dispatchers are not available to a detached view of the request");
+    }
+
+    @Override
+    public RequestDispatcher getRequestDispatcher(final Resource resource, final RequestDispatcherOptions options) {
+        throw new UnsupportedOperationException("Request dispatchers are not available to a detached view of the request");
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.adobe.aem.commons.assetshare.workflow.precomputed.impl;
+
+import com.adobe.aem.commons.assetshare.content.impl.precomputed.PrecomputedProperties;
+import com.adobe.granite.workflow.WorkflowException;
+import com.adobe.granite.workflow.WorkflowSession;
+import com.adobe.granite.workflow.exec.WorkItem;
+import com.adobe.granite.workflow.exec.WorkflowProcess;
+import com.adobe.granite.workflow.metadata.MetaDataMap;
+import com.day.cq.dam.api.Asset;
+import com.day.cq.dam.commons.util.DamUtil;
+import org.apache.sling.api.resource.PersistenceException;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Stores the values of the computed properties configured on the Precomputed Properties service with the payload asset.
+ * <br>
+ * This step should run after the steps that write the asset's metadata (ie. at the end of the DAM Update Asset workflow), as the stored values are
+ * only used while the asset is not modified afterwards.
+ */
+@Component(service = WorkflowProcess.class, property = {
+        "process.label=Asset Share Commons - Precompute computed properties",
+})
+public class PrecomputedPropertiesWorkflowProcess implements WorkflowProcess {
+    private static final Logger log = LoggerFactory.getLogger(PrecomputedPropertiesWorkflowProcess.class);
+
+    private static final String TYPE_JCR_PATH = "JCR_PATH";
+
+    @Reference
+    private transient PrecomputedProperties precomputedProperties;
+
+    @Override
+    public void execute(WorkItem workItem, WorkflowSession workflowSession, MetaDataMap metaDataMap) throws WorkflowException {
+        if (!TYPE_JCR_PATH.equals(workItem.getWorkflowData().getPayloadType())) {
+            return;
+        }
+
+        final ResourceResolver resourceResolver = workflowSession.adaptTo(ResourceResolver.class);
+        final String payloadPath = workItem.getWorkflowData().getPayload().toString();
+        final Resource payloadResource = resourceResolver.getResource(payloadPath);
+
+        // Resolves payloads of renditions or the original (ie. from DAM Update Asset) to their asset.
+        final Asset asset = payloadResource == null ? null : DamUtil.resolveToAsset(payloadResource);
+
+        if (asset == null) {
+            log.debug("Payload [ {} ] is not an asset; nothing to precompute", payloadPath);
+            return;
+        }
+
+        try {
+            if (precomputedProperties.write(asset)) {
+                resourceResolver.commit();
+            }
+        } catch (PersistenceException e) {
+            throw new WorkflowException(String.format("Failed to store the precomputed properties of asset [ %s ]", asset.getPath()), e);
+        }
+    }
+}
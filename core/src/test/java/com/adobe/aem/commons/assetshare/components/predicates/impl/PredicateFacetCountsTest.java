@@ -0,0 +1,123 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.adobe.aem.commons.assetshare.components.predicates.impl;
+
+import com.adobe.aem.commons.assetshare.components.predicates.PagePredicate;
+import com.adobe.aem.commons.assetshare.components.predicates.impl.options.FacetCountOptionItem;
+import com.adobe.aem.commons.assetshare.components.search.SearchConfig;
+import com.adobe.aem.commons.assetshare.search.Search;
+import com.adobe.aem.commons.assetshare.search.results.Results;
+import com.adobe.aem.commons.assetshare.util.ModelCache;
+import com.adobe.cq.wcm.core.components.models.form.OptionItem;
+import io.wcm.testing.mock.aem.junit.AemContext;
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class PredicateFacetCountsTest {
+    private static final String PROPERTY = "jcr:content/metadata/dc:format";
+
+    @Rule
+    public final AemContext ctx = new AemContext();
+
+    @Mock
+    SearchConfig searchConfig;
+
+    @Mock
+    PagePredicate pagePredicate;
+
+    @Mock
+    ModelCache modelCache;
+
+    @Mock
+    Search search;
+
+    @Mock
+    Results results;
+
+    @Mock
+    OptionItem pngOptionItem;
+
+    @Mock
+    OptionItem jpegOptionItem;
+
+    private List<OptionItem> optionItems;
+
+    @Before
+    public void setUp() {
+        optionItems = Arrays.asList(pngOptionItem, jpegOptionItem);
+
+        ctx.registerAdapter(SlingHttpServletRequest.class, SearchConfig.class, searchConfig);
+        ctx.registerAdapter(SlingHttpServletRequest.class, PagePredicate.class, pagePredicate);
+        ctx.registerAdapter(SlingHttpServletRequest.class, ModelCache.class, modelCache);
+
+        lenient().doReturn(true).when(searchConfig).isFacets();
+        lenient().doReturn(Collections.singletonList(PROPERTY)).when(pagePredicate).getFacetProperties();
+        lenient().doReturn(search).when(modelCache).get(Search.class);
+        lenient().doReturn(results).when(search).getResults();
+        lenient().doReturn(Collections.singletonMap(PROPERTY, Collections.singletonMap("image/png", 3L))).when(results).getFacetCounts();
+        lenient().doReturn("image/png").when(pngOptionItem).getValue();
+        lenient().doReturn("image/jpeg").when(jpegOptionItem).getValue();
+    }
+
+    @Test
+    public void decorate() {
+        final List<OptionItem> actual = PredicateFacetCounts.decorate(ctx.request(), "./" + PROPERTY, optionItems, Locale.ENGLISH);
+
+        assertEquals(2, actual.size());
+        assertEquals(3L, ((FacetCountOptionItem) actual.get(0)).getCount());
+        assertEquals(0L, ((FacetCountOptionItem) actual.get(1)).getCount());
+    }
+
+    @Test
+    public void decorate_FacetsDisabled() {
+        doReturn(false).when(searchConfig).isFacets();
+
+        assertSame(optionItems, PredicateFacetCounts.decorate(ctx.request(), PROPERTY, optionItems, Locale.ENGLISH));
+        verify(search, never()).getResults();
+    }
+
+    @Test
+    public void decorate_NotAFacetProperty() {
+        doReturn(Collections.emptyList()).when(pagePredicate).getFacetProperties();
+
+        // The page's search must not be executed for a predicate facet counts are not computed for.
+        assertSame(optionItems, PredicateFacetCounts.decorate(ctx.request(), PROPERTY, optionItems, Locale.ENGLISH));
+        verify(search, never()).getResults();
+    }
+}
@@ -20,6 +20,9 @@
 package com.adobe.aem.commons.assetshare.content.impl;
 
 
+import com.adobe.aem.commons.assetshare.content.impl.cache.ComputedPropertyValueCache;
+import com.adobe.aem.commons.assetshare.content.impl.cache.ComputedPropertyValueCacheImpl;
+import com.adobe.aem.commons.assetshare.content.impl.precomputed.PrecomputedProperties;
 import com.adobe.aem.commons.assetshare.content.properties.AbstractComputedProperty;
 import com.adobe.aem.commons.assetshare.content.properties.ComputedProperty;
 import com.adobe.aem.commons.assetshare.content.properties.impl.FileNameImpl;
@@ -29,6 +32,7 @@ import com.day.cq.dam.commons.util.DamUtil;
 import io.wcm.testing.mock.aem.junit.AemContext;
 import org.apache.sling.api.SlingHttpServletRequest;
 import org.apache.sling.api.resource.ValueMap;
+import org.apache.sling.api.wrappers.ValueMapDecorator;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -36,10 +40,14 @@ import org.junit.runner.RunWith;
 import org.mockito.junit.MockitoJUnitRunner;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.Assert.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
@@ -155,6 +163,118 @@ public class CombinedPropertiesTest {
         verify(titleComputedProperty, times(1)).get(eq(asset), eq(ctx.request()), any(ValueMap.class));
     }
 
+    @Test
+    public void get_SharedValueCache() throws Exception {
+        final ComputedPropertyValueCache valueCache = ctx.registerInjectActivateService(new ComputedPropertyValueCacheImpl(),
+                "enabled", true,
+                "computed.properties", new String[]{ TitleImpl.NAME });
+
+        assertEquals("Test Asset", new CombinedProperties(CombinedProperties.getComputedPropertiesMap(computedPropertiesList), ctx.request(), asset, new CombinedProperties.Collaborators().valueCache(valueCache)).get(TitleImpl.NAME));
+        assertEquals("Test Asset", new CombinedProperties(CombinedProperties.getComputedPropertiesMap(computedPropertiesList), ctx.request(), asset, new CombinedProperties.Collaborators().valueCache(valueCache)).get(TitleImpl.NAME));
+        assertEquals("test.png", new CombinedProperties(CombinedProperties.getComputedPropertiesMap(computedPropertiesList), ctx.request(), asset, new CombinedProperties.Collaborators().valueCache(valueCache)).get(FileNameImpl.NAME));
+        assertEquals("test.png", new CombinedProperties(CombinedProperties.getComputedPropertiesMap(computedPropertiesList), ctx.request(), asset, new CombinedProperties.Collaborators().valueCache(valueCache)).get(FileNameImpl.NAME));
+
+        verify(titleComputedProperty, times(1)).get(eq(asset), eq(ctx.request()), any(ValueMap.class));
+        verify(fileNameComputedProperty, times(2)).get(eq(asset), eq(ctx.request()), any(ValueMap.class));
+    }
+
+    @Test
+    public void get_Batched() {
+        final Map<String, ComputedProperty> computedPropertiesByName = CombinedProperties.getComputedPropertiesMap(computedPropertiesList);
+
+        ComputedPropertyBatch.compute(ctx.request(), computedPropertiesByName, Collections.singletonList(asset), Arrays.asList(TitleImpl.NAME, "unknown"));
+
+        verify(titleComputedProperty, times(1)).get(eq(asset), eq(ctx.request()), any(ValueMap.class));
+
+        assertEquals("Test Asset", new CombinedProperties(computedPropertiesByName, ctx.request(), asset, new CombinedProperties.Collaborators()).get(TitleImpl.NAME));
+        assertEquals("Test Asset", new CombinedProperties(computedPropertiesByName, ctx.request(), asset, new CombinedProperties.Collaborators()).get(TitleImpl.NAME));
+        assertEquals("test.png", new CombinedProperties(computedPropertiesByName, ctx.request(), asset, new CombinedProperties.Collaborators()).get(FileNameImpl.NAME));
+
+        verify(titleComputedProperty, times(1)).get(eq(asset), eq(ctx.request()), any(ValueMap.class));
+        verify(fileNameComputedProperty, times(1)).get(eq(asset), eq(ctx.request()), any(ValueMap.class));
+    }
+
+    @Test
+    public void get_Batched_NotAccepted() {
+        final ComputedProperty<String> rejecting = mock(ComputedProperty.class);
+        doReturn("test/rejecting").when(rejecting).getName();
+        doReturn(true).when(rejecting).isCachable();
+        doReturn(false).when(rejecting).accepts(eq(asset), eq(ctx.request()), eq("test/rejecting"));
+        computedPropertiesList.add(rejecting);
+
+        final Map<String, ComputedProperty> computedPropertiesByName = CombinedProperties.getComputedPropertiesMap(computedPropertiesList);
+
+        ComputedPropertyBatch.compute(ctx.request(), computedPropertiesByName, Collections.singletonList(asset), Collections.singletonList("test/rejecting"));
+
+        verify(rejecting, never()).getAll(anyList(), any(), any());
+        assertNull(ComputedPropertyBatch.get(ctx.request(), asset.getPath(), "test/rejecting"));
+        assertNull(new CombinedProperties(computedPropertiesByName, ctx.request(), asset, new CombinedProperties.Collaborators()).get("test/rejecting"));
+    }
+
+    @Test
+    public void get_Precomputed() {
+        final PrecomputedProperties precomputedProperties = mock(PrecomputedProperties.class);
+        final ValueMap precomputedValues = new ValueMapDecorator(Collections.singletonMap(TitleImpl.NAME, "Precomputed Title"));
+
+        doReturn(true).when(precomputedProperties).accepts(titleComputedProperty, TitleImpl.NAME);
+        doReturn(precomputedValues).when(precomputedProperties).getPrecomputedValues(asset);
+        doReturn("Precomputed Title").when(precomputedProperties).get(precomputedValues, titleComputedProperty, TitleImpl.NAME, ctx.request());
+
+        final CombinedProperties combinedProperties = new CombinedProperties(CombinedProperties.getComputedPropertiesMap(computedPropertiesList), ctx.request(), asset,
+                new CombinedProperties.Collaborators().precomputedProperties(precomputedProperties));
+
+        assertEquals("Precomputed Title", combinedProperties.get(TitleImpl.NAME));
+        assertEquals("test.png", combinedProperties.get(FileNameImpl.NAME));
+
+        verify(titleComputedProperty, times(0)).get(eq(asset), eq(ctx.request()), any(ValueMap.class));
+        verify(fileNameComputedProperty, times(1)).get(eq(asset), eq(ctx.request()), any(ValueMap.class));
+    }
+
+    @Test
+    public void get_Dependencies() {
+        final ComputedProperty<String> composite = spy(new TestCompositeComputedProperty("test/composite", TitleImpl.NAME, FileNameImpl.NAME));
+        computedPropertiesList.add(composite);
+
+        final CombinedProperties combinedProperties = new CombinedProperties(computedPropertiesList, ctx.request(), asset);
+
+        assertEquals("Test Asset", combinedProperties.get(TitleImpl.NAME));
+        assertEquals("Test Asset (test.png)", combinedProperties.get("test/composite"));
+        assertEquals("test.png", combinedProperties.get(FileNameImpl.NAME));
+
+        // Dependencies are served from the same cache as the values requested directly
+        verify(titleComputedProperty, times(1)).get(eq(asset), eq(ctx.request()), any(ValueMap.class));
+        verify(fileNameComputedProperty, times(1)).get(eq(asset), eq(ctx.request()), any(ValueMap.class));
+    }
+
+    @Test
+    public void get_CircularDependencies() {
+        computedPropertiesList.add(new TestCompositeComputedProperty("test/a", "test/b", TitleImpl.NAME));
+        computedPropertiesList.add(new TestCompositeComputedProperty("test/b", "test/a", TitleImpl.NAME));
+
+        final CombinedProperties combinedProperties = new CombinedProperties(computedPropertiesList, ctx.request(), asset);
+
+        // Values computed from a cycle are incomplete, so none are returned (or cached); the title property is unaffected.
+        assertNull(combinedProperties.get("test/a"));
+        assertNull(combinedProperties.get("test/b"));
+        assertNull(combinedProperties.get("test/a"));
+        assertEquals("Test Asset", combinedProperties.get(TitleImpl.NAME));
+    }
+
+    @Test
+    public void get_CircularDependencies_SharedValueCache() {
+        final ComputedPropertyValueCache valueCache = mock(ComputedPropertyValueCache.class);
+        doReturn(true).when(valueCache).accepts(any(ComputedProperty.class));
+        doReturn("prefix").when(valueCache).getKeyPrefix(asset, ctx.request());
+
+        computedPropertiesList.add(new TestCompositeComputedProperty("test/a", "test/b", TitleImpl.NAME));
+        computedPropertiesList.add(new TestCompositeComputedProperty("test/b", "test/a", TitleImpl.NAME));
+
+        assertNull(new CombinedProperties(CombinedProperties.getComputedPropertiesMap(computedPropertiesList), ctx.request(), asset, new CombinedProperties.Collaborators().valueCache(valueCache)).get("test/a"));
+
+        verify(valueCache, never()).put(any(ComputedProperty.class), eq("prefix"), eq("test/a"), any());
+        verify(valueCache, never()).put(any(ComputedProperty.class), eq("prefix"), eq("test/b"), any());
+    }
+
     @Test
     public void ComputedPropertyParameter_getName() {
         final String input = "test?a=b&c=d&e=f&g=";
@@ -230,6 +350,75 @@ public class CombinedPropertiesTest {
     }
 
 
+    @Test
+    public void ComputedPropertyParameter_parse() {
+        final Map<String, ComputedProperty> computedProperties = Collections.singletonMap("test", mock(ComputedProperty.class));
+
+        final CombinedProperties.ComputedPropertyParameter plain = CombinedProperties.ComputedPropertyParameter.parse("dc:title", computedProperties);
+        final CombinedProperties.ComputedPropertyParameter parameterized = CombinedProperties.ComputedPropertyParameter.parse("test?c=d&a=b", computedProperties);
+
+        assertSame(parameterized, CombinedProperties.ComputedPropertyParameter.parse("test?c=d&a=b", computedProperties));
+        // Keys that do not resolve to a registered computed property are not retained.
+        assertNotSame(plain, CombinedProperties.ComputedPropertyParameter.parse("dc:title", computedProperties));
+        assertNotSame(CombinedProperties.ComputedPropertyParameter.parse("junk?a=b", computedProperties),
+                CombinedProperties.ComputedPropertyParameter.parse("junk?a=b", computedProperties));
+        assertNotSame(CombinedProperties.ComputedPropertyParameter.parse("test?e=f"),
+                CombinedProperties.ComputedPropertyParameter.parse("test?e=f"));
+
+        assertEquals("dc:title", plain.getCacheId());
+        assertTrue(plain.getParameters().isEmpty());
+        assertEquals("test?a=b&c=d", parameterized.getCacheId());
+        assertEquals("b", parameterized.getParameters().get("a", String.class));
+        assertNull(CombinedProperties.ComputedPropertyParameter.parse(null).getName());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void ComputedPropertyParameter_parametersAreImmutable() {
+        CombinedProperties.ComputedPropertyParameter.parse("test?a=b").getParameters().put("a", "c");
+    }
+
+    class TestCompositeComputedProperty extends AbstractComputedProperty<String> {
+        private final String name;
+        private final String first;
+        private final String second;
+
+        TestCompositeComputedProperty(final String name, final String first, final String second) {
+            this.name = name;
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public String getLabel() {
+            return "Test Composite Computed Property";
+        }
+
+        @Override
+        public String[] getTypes() {
+            return new String[0];
+        }
+
+        @Override
+        public String[] getDependencies() {
+            return new String[]{ first, second };
+        }
+
+        @Override
+        public String get(Asset asset) {
+            return null;
+        }
+
+        @Override
+        public String get(Asset asset, SlingHttpServletRequest request, ValueMap parameters, ValueMap dependencies) {
+            return String.format("%s (%s)", dependencies.get(first, String.class), dependencies.get(second, String.class));
+        }
+    }
+
     class TestWithRequestComputedProperty extends AbstractComputedProperty<String> {
 
         @Override
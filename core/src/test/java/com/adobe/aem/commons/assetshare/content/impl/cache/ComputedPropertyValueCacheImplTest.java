@@ -0,0 +1,140 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.adobe.aem.commons.assetshare.content.impl.cache;
+
+import com.adobe.aem.commons.assetshare.content.properties.ComputedProperty;
+import com.day.cq.dam.api.Asset;
+import io.wcm.testing.mock.aem.junit.AemContext;
+import org.apache.sling.api.resource.observation.ResourceChange;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ComputedPropertyValueCacheImplTest {
+
+    @Rule
+    public AemContext ctx = new AemContext();
+
+    @Mock
+    ComputedProperty tagTitles;
+
+    @Mock
+    ComputedProperty expired;
+
+    @Before
+    public void setUp() {
+        lenient().doReturn("tagTitles").when(tagTitles).getName();
+        lenient().doReturn(true).when(tagTitles).isCachable();
+        lenient().doReturn("expired").when(expired).getName();
+        lenient().doReturn(true).when(expired).isCachable();
+    }
+
+    private Asset asset(final String path, final long lastModified) {
+        final Asset asset = mock(Asset.class);
+        lenient().doReturn(path).when(asset).getPath();
+        lenient().doReturn(lastModified).when(asset).getLastModified();
+        return asset;
+    }
+
+    @Test
+    public void accepts() throws Exception {
+        final ComputedPropertyValueCache cache = ctx.registerInjectActivateService(new ComputedPropertyValueCacheImpl(), "enabled", true);
+
+        assertTrue(cache.accepts(tagTitles));
+        assertFalse(cache.accepts(expired));
+
+        lenient().doReturn(false).when(tagTitles).isCachable();
+        assertFalse(cache.accepts(tagTitles));
+    }
+
+    @Test
+    public void getKeyPrefix() throws Exception {
+        final ComputedPropertyValueCache cache = ctx.registerInjectActivateService(new ComputedPropertyValueCacheImpl(), "enabled", true);
+
+        assertNull(cache.getKeyPrefix(asset("/content/dam/a.png", 0L), null));
+        assertEquals(cache.getKeyPrefix(asset("/content/dam/a.png", 1L), null), cache.getKeyPrefix(asset("/content/dam/a.png", 1L), null));
+        assertNotEquals(cache.getKeyPrefix(asset("/content/dam/a.png", 1L), null), cache.getKeyPrefix(asset("/content/dam/a.png", 2L), null));
+    }
+
+    @Test
+    public void put() throws Exception {
+        final ComputedPropertyValueCacheImpl cache = ctx.registerInjectActivateService(new ComputedPropertyValueCacheImpl(), "enabled", true);
+        final String keyPrefix = cache.getKeyPrefix(asset("/content/dam/a.png", 1L), null);
+
+        final List<String> titles = new ArrayList<>(Arrays.asList("Cat", "Dog"));
+        cache.put(tagTitles, keyPrefix, "tagTitles", titles);
+        titles.clear();
+
+        // The cached value is an immutable copy
+        assertEquals(Arrays.asList("Cat", "Dog"), cache.get(tagTitles, keyPrefix, "tagTitles"));
+        assertNull(cache.get(tagTitles, keyPrefix, "tagTitles?a=b"));
+
+        // Values that cannot be shared across requests are not cached
+        cache.put(tagTitles, keyPrefix, "tagTitles?a=b", Collections.singletonList(new StringBuilder("Cat")));
+        assertNull(cache.get(tagTitles, keyPrefix, "tagTitles?a=b"));
+
+        assertEquals(1L, cache.getSize());
+        assertEquals(1L, (long) cache.getComputedPropertyStatistics().get(new Object[]{ "tagTitles" }).get("hits"));
+        assertEquals(2L, (long) cache.getComputedPropertyStatistics().get(new Object[]{ "tagTitles" }).get("misses"));
+    }
+
+    @Test
+    public void onChange() throws Exception {
+        final ComputedPropertyValueCacheImpl cache = ctx.registerInjectActivateService(new ComputedPropertyValueCacheImpl(), "enabled", true);
+        final String a = cache.getKeyPrefix(asset("/content/dam/folder/a.png", 1L), null);
+        final String b = cache.getKeyPrefix(asset("/content/dam/folder/b.png", 1L), null);
+        final String c = cache.getKeyPrefix(asset("/content/dam/other/c.png", 1L), null);
+
+        cache.put(tagTitles, a, "tagTitles", "a");
+        cache.put(tagTitles, b, "tagTitles", "b");
+        cache.put(tagTitles, c, "tagTitles", "c");
+
+        cache.onChange(Collections.singletonList(new ResourceChange(ResourceChange.ChangeType.CHANGED, "/content/dam/folder/a.png/jcr:content/metadata", false)));
+        assertNull(cache.get(tagTitles, a, "tagTitles"));
+        assertEquals("b", cache.get(tagTitles, b, "tagTitles"));
+
+        cache.onChange(Collections.singletonList(new ResourceChange(ResourceChange.ChangeType.REMOVED, "/content/dam/folder", false)));
+        assertNull(cache.get(tagTitles, b, "tagTitles"));
+        assertEquals("c", cache.get(tagTitles, c, "tagTitles"));
+
+        cache.onChange(Collections.singletonList(new ResourceChange(ResourceChange.ChangeType.CHANGED, "/content/cq:tags/animals/cat", false)));
+        assertNull(cache.get(tagTitles, c, "tagTitles"));
+
+        assertEquals(3L, cache.getInvalidationCount());
+    }
+}
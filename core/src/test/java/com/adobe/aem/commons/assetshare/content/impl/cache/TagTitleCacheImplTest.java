@@ -0,0 +1,153 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.adobe.aem.commons.assetshare.content.impl.cache;
+
+import com.day.cq.tagging.Tag;
+import com.day.cq.tagging.TagManager;
+import io.wcm.testing.mock.aem.junit.AemContext;
+import org.apache.sling.api.resource.observation.ResourceChange;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.Collections;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class TagTitleCacheImplTest {
+
+    @Rule
+    public AemContext ctx = new AemContext();
+
+    @Mock
+    TagManager tagManager;
+
+    @Before
+    public void setUp() {
+        tag("animals:cat", "Cat", "Katze");
+        tag("animals:cat/lion", "Lion", "Löwe");
+        tag("colors:red", "Red", "Rot");
+    }
+
+    private Tag tag(final String tagId, final String title, final String germanTitle) {
+        final Tag tag = mock(Tag.class);
+        lenient().doReturn(tagId).when(tag).getTagID();
+        lenient().doReturn(title).when(tag).getTitle(Locale.ENGLISH);
+        lenient().doReturn(germanTitle).when(tag).getTitle(Locale.GERMAN);
+        lenient().doReturn(tag).when(tagManager).resolve(tagId);
+        return tag;
+    }
+
+    @Test
+    public void getTitle() throws Exception {
+        final TagTitleCacheImpl cache = ctx.registerInjectActivateService(new TagTitleCacheImpl(), "enabled", true);
+
+        assertEquals("Cat", cache.getTitle(tagManager, "animals:cat", Locale.ENGLISH));
+        assertEquals("Cat", cache.getTitle(tagManager, "animals:cat", Locale.ENGLISH));
+        assertEquals("Katze", cache.getTitle(tagManager, "animals:cat", Locale.GERMAN));
+        assertEquals("Katze", cache.getTitle(tagManager.resolve("animals:cat"), Locale.GERMAN));
+
+        // Tags that cannot be resolved are not cached
+        assertNull(cache.getTitle(tagManager, "animals:dog", Locale.ENGLISH));
+        assertNull(cache.getTitle(tagManager, "animals:dog", Locale.ENGLISH));
+
+        verify(tagManager, times(3)).resolve("animals:cat");
+        verify(tagManager, times(2)).resolve("animals:dog");
+
+        assertEquals(2L, cache.getSize());
+        assertEquals(2L, cache.getHitCount());
+        assertEquals(4L, cache.getMissCount());
+        assertTrue(cache.getEstimatedMemory() > 0);
+
+        cache.clear();
+        assertEquals(0L, cache.getEstimatedMemory());
+    }
+
+    @Test
+    public void getTitle_Disabled() throws Exception {
+        final TagTitleCacheImpl cache = ctx.registerInjectActivateService(new TagTitleCacheImpl(), "enabled", false);
+
+        assertEquals("Cat", cache.getTitle(tagManager, "animals:cat", Locale.ENGLISH));
+        assertEquals("Cat", cache.getTitle(tagManager, "animals:cat", Locale.ENGLISH));
+
+        verify(tagManager, times(2)).resolve("animals:cat");
+        assertEquals(0L, cache.getSize());
+    }
+
+    @Test
+    public void getTitle_Evicts() throws Exception {
+        final TagTitleCacheImpl cache = ctx.registerInjectActivateService(new TagTitleCacheImpl(), "enabled", true, "max.entries", 2);
+
+        cache.getTitle(tagManager, "animals:cat", Locale.ENGLISH);
+        cache.getTitle(tagManager, "animals:cat/lion", Locale.ENGLISH);
+        cache.getTitle(tagManager, "colors:red", Locale.ENGLISH);
+
+        assertEquals(2L, cache.getSize());
+        assertEquals(1L, cache.getEvictionCount());
+
+        // The evicted entry is no longer accounted for
+        final TagTitleCacheImpl expected = ctx.registerInjectActivateService(new TagTitleCacheImpl(), "enabled", true);
+        expected.getTitle(tagManager, "animals:cat/lion", Locale.ENGLISH);
+        expected.getTitle(tagManager, "colors:red", Locale.ENGLISH);
+        assertEquals(expected.getEstimatedMemory(), cache.getEstimatedMemory());
+    }
+
+    @Test
+    public void onChange() throws Exception {
+        final TagTitleCacheImpl cache = ctx.registerInjectActivateService(new TagTitleCacheImpl(), "enabled", true);
+
+        cache.getTitle(tagManager, "animals:cat", Locale.ENGLISH);
+        cache.getTitle(tagManager, "animals:cat/lion", Locale.ENGLISH);
+        cache.getTitle(tagManager, "colors:red", Locale.ENGLISH);
+
+        cache.onChange(Collections.singletonList(new ResourceChange(ResourceChange.ChangeType.CHANGED, "/content/cq:tags/animals/cat/lion", false)));
+        assertEquals(2L, cache.getSize());
+
+        // Moving or removing a tag affects its descendants
+        cache.getTitle(tagManager, "animals:cat/lion", Locale.ENGLISH);
+        cache.onChange(Collections.singletonList(new ResourceChange(ResourceChange.ChangeType.REMOVED, "/content/cq:tags/animals/cat", false)));
+        assertEquals(1L, cache.getSize());
+
+        cache.onChange(Collections.singletonList(new ResourceChange(ResourceChange.ChangeType.CHANGED, "/content/cq:tags/default/foo", false)));
+        assertEquals(0L, cache.getSize());
+
+        assertEquals(4L, cache.getInvalidationCount());
+    }
+
+    @Test
+    public void toTagId() {
+        assertEquals("animals:cat/lion", TagTitleCacheImpl.toTagId("/content/cq:tags/animals/cat/lion"));
+        assertEquals("animals:", TagTitleCacheImpl.toTagId("/content/cq:tags/animals"));
+        assertNull(TagTitleCacheImpl.toTagId("/content/cq:tags"));
+        assertNull(TagTitleCacheImpl.toTagId("/content/cq:tags/default/foo"));
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.adobe.aem.commons.assetshare.content.impl.precomputed;
+
+import com.adobe.aem.commons.assetshare.content.properties.ComputedProperties;
+import com.adobe.aem.commons.assetshare.content.properties.ComputedProperty;
+import com.adobe.aem.commons.assetshare.content.properties.impl.TagTitlesImpl;
+import com.day.cq.dam.api.Asset;
+import com.google.common.collect.ImmutableMap;
+import io.wcm.testing.mock.aem.junit.AemContext;
+import org.apache.sling.api.resource.ModifiableValueMap;
+import org.apache.sling.api.resource.ValueMap;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+
+@RunWith(MockitoJUnitRunner.class)
+public class PrecomputedPropertiesImplTest {
+    private static final String ASSET_PATH = "/content/dam/a.png";
+
+    @Rule
+    public AemContext ctx = new AemContext();
+
+    @Mock
+    ComputedProperties computedProperties;
+
+    @Mock
+    ComputedProperty fileExtension;
+
+    @Mock
+    TagTitlesImpl tagTitles;
+
+    @Before
+    public void setUp() {
+        lenient().doReturn("fileExtension").when(fileExtension).getName();
+        lenient().doReturn(true).when(fileExtension).accepts(any(Asset.class), eq(null), eq("fileExtension"));
+        lenient().doReturn("png").when(fileExtension).get(any(Asset.class), eq(null), eq(ValueMap.EMPTY));
+
+        lenient().doReturn("tagTitles").when(tagTitles).getName();
+        lenient().doReturn(Arrays.asList("Cat", "Dog")).when(tagTitles).get(any(Asset.class), eq(Locale.ENGLISH));
+
+        lenient().doReturn(ImmutableMap.of("fileExtension", fileExtension, "tagTitles", tagTitles)).when(computedProperties).getComputedPropertiesByName();
+
+        ctx.registerService(ComputedProperties.class, computedProperties);
+
+        final Calendar lastModified = Calendar.getInstance();
+        lastModified.setTimeInMillis(1000L);
+
+        ctx.build().resource(ASSET_PATH, "jcr:primaryType", "dam:Asset")
+                .resource(ASSET_PATH + "/jcr:content", "jcr:primaryType", "dam:AssetContent", "jcr:lastModified", lastModified)
+                .resource(ASSET_PATH + "/jcr:content/metadata", "jcr:primaryType", "nt:unstructured");
+    }
+
+    private Asset asset() {
+        return ctx.resourceResolver().getResource(ASSET_PATH).adaptTo(Asset.class);
+    }
+
+    @Test
+    public void accepts() throws Exception {
+        final PrecomputedProperties precomputedProperties = ctx.registerInjectActivateService(new PrecomputedPropertiesImpl(),
+                "enabled", true,
+                "computed.properties", new String[]{ "fileExtension", "tagTitles" });
+
+        assertTrue(precomputedProperties.accepts(fileExtension, "fileExtension"));
+        assertFalse(precomputedProperties.accepts(fileExtension, "fileExtension?a=b"));
+
+        final PrecomputedProperties disabled = ctx.registerInjectActivateService(new PrecomputedPropertiesImpl(), "enabled", false);
+        assertFalse(disabled.accepts(fileExtension, "fileExtension"));
+    }
+
+    @Test
+    public void write() throws Exception {
+        final PrecomputedProperties precomputedProperties = ctx.registerInjectActivateService(new PrecomputedPropertiesImpl(),
+                "enabled", true,
+                "computed.properties", new String[]{ "fileExtension", "tagTitles" },
+                "locales", new String[]{ "en" });
+
+        assertNull(precomputedProperties.getPrecomputedValues(asset()));
+
+        assertTrue(precomputedProperties.write(asset()));
+        // The stored values are current, so they are not written again
+        assertFalse(precomputedProperties.write(asset()));
+
+        final ValueMap stored = ctx.resourceResolver().getResource(ASSET_PATH + "/jcr:content/metadata/ascPrecomputed").getValueMap();
+        assertEquals("png", stored.get("fileExtension", String.class));
+        assertEquals(Arrays.asList("Cat", "Dog"), Arrays.asList(stored.get("tagTitles_en", String[].class)));
+
+        final ValueMap precomputedValues = precomputedProperties.getPrecomputedValues(asset());
+        assertNotNull(precomputedValues);
+        assertEquals("png", precomputedProperties.get(precomputedValues, fileExtension, "fileExtension", null));
+
+        ctx.request().setLocale(Locale.ENGLISH);
+        assertEquals(Arrays.asList("Cat", "Dog"), precomputedProperties.get(precomputedValues, tagTitles, "tagTitles", ctx.request()));
+        // Locale-sensitive values require the request's locale
+        assertNull(precomputedProperties.get(precomputedValues, tagTitles, "tagTitles", null));
+    }
+
+    @Test
+    public void getPrecomputedValues_Stale() throws Exception {
+        final PrecomputedProperties precomputedProperties = ctx.registerInjectActivateService(new PrecomputedPropertiesImpl(),
+                "enabled", true,
+                "computed.properties", new String[]{ "fileExtension" });
+
+        precomputedProperties.write(asset());
+        assertNotNull(precomputedProperties.getPrecomputedValues(asset()));
+
+        final Calendar lastModified = Calendar.getInstance();
+        lastModified.setTimeInMillis(2000L);
+        ctx.resourceResolver().getResource(ASSET_PATH + "/jcr:content").adaptTo(ModifiableValueMap.class).put("jcr:lastModified", lastModified);
+
+        assertNull(precomputedProperties.getPrecomputedValues(asset()));
+        assertTrue(precomputedProperties.write(asset()));
+        assertNotNull(precomputedProperties.getPrecomputedValues(asset()));
+    }
+}
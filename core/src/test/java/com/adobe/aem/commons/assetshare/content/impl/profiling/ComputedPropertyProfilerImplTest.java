@@ -0,0 +1,109 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.adobe.aem.commons.assetshare.content.impl.profiling;
+
+import com.adobe.aem.commons.assetshare.content.properties.ComputedProperty;
+import com.day.cq.dam.api.Asset;
+import io.wcm.testing.mock.aem.junit.AemContext;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.lenient;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ComputedPropertyProfilerImplTest {
+
+    @Rule
+    public AemContext ctx = new AemContext();
+
+    @Mock
+    ComputedProperty title;
+
+    @Mock
+    ComputedProperty tagTitles;
+
+    @Mock
+    Asset asset;
+
+    @Before
+    public void setUp() {
+        lenient().doReturn("title").when(title).getName();
+        lenient().doReturn("tagTitles").when(tagTitles).getName();
+        lenient().doReturn("/content/dam/a.png").when(asset).getPath();
+    }
+
+    @Test
+    public void getProfiles() throws Exception {
+        final ComputedPropertyProfilerImpl profiler = ctx.registerInjectActivateService(new ComputedPropertyProfilerImpl(),
+                "enabled", true,
+                "sample.rate", 1,
+                "slow.threshold.ms", 5L);
+
+        profiler.record(title, asset, TimeUnit.MILLISECONDS.toNanos(1));
+        profiler.record(title, asset, TimeUnit.MILLISECONDS.toNanos(3));
+        profiler.record(tagTitles, asset, TimeUnit.MILLISECONDS.toNanos(10));
+
+        final List<ComputedPropertyProfile> profiles = profiler.getProfiles();
+
+        // Ordered by total time, most expensive first
+        assertEquals("tagTitles", profiles.get(0).getName());
+        assertEquals(1L, profiles.get(0).getSlowCalls());
+
+        assertEquals("title", profiles.get(1).getName());
+        assertEquals(2L, profiles.get(1).getCalls());
+        assertEquals(2.0d, profiles.get(1).getAverageMillis(), 0.001d);
+        assertEquals(3.0d, profiles.get(1).getMaxMillis(), 0.001d);
+        assertEquals(4.0d, profiles.get(1).getEstimatedTotalMillis(), 0.001d);
+        assertEquals(0L, profiles.get(1).getSlowCalls());
+
+        assertEquals(2, profiler.getComputedPropertyStatistics().size());
+
+        profiler.reset();
+        assertTrue(profiler.getProfiles().isEmpty());
+    }
+
+    @Test
+    public void getProfiles_Sampled() throws Exception {
+        final ComputedPropertyProfilerImpl profiler = ctx.registerInjectActivateService(new ComputedPropertyProfilerImpl(),
+                "enabled", true,
+                "sample.rate", 10);
+
+        for (int i = 0; i < 1000; i++) {
+            profiler.record(title, asset, TimeUnit.MILLISECONDS.toNanos(2));
+        }
+
+        final ComputedPropertyProfile profile = profiler.getProfiles().get(0);
+
+        // All evaluations are counted, but only the sampled ones are timed
+        assertEquals(1000L, profile.getCalls());
+        assertTrue(profile.getSampledCalls() > 0 && profile.getSampledCalls() < 1000L);
+        assertEquals(2000d, profile.getEstimatedTotalMillis(), 0.001d);
+    }
+}
@@ -27,8 +27,11 @@ import org.junit.Test;
 import org.osgi.framework.Constants;
 
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 
 public class ComputedPropertiesImplTest {
     @Rule
@@ -89,4 +92,32 @@ public class ComputedPropertiesImplTest {
         assertEquals(1, actual.size());
         assertEquals(actual.get(0), title3);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void getComputedPropertiesByName() {
+        final TitleImpl title1 = new TitleImpl();
+        final TitleImpl title2 = new TitleImpl();
+        final FileSizeImpl fileSize = new FileSizeImpl();
+
+        final ComputedProperties computedProperties = new ComputedPropertiesImpl();
+
+        ctx.registerInjectActivateService(computedProperties);
+        ctx.registerInjectActivateService(title1, Constants.SERVICE_RANKING, "0");
+        ctx.registerInjectActivateService(title2, Constants.SERVICE_RANKING, "200");
+
+        final Map<String, ComputedProperty> actual = computedProperties.getComputedPropertiesByName();
+
+        assertEquals(1, actual.size());
+        assertSame(title2, actual.get(TitleImpl.NAME));
+
+        // The same snapshot is shared until the Computed Properties change
+        assertSame(actual, computedProperties.getComputedPropertiesByName());
+
+        ctx.registerInjectActivateService(fileSize, Constants.SERVICE_RANKING, "0");
+
+        assertNotSame(actual, computedProperties.getComputedPropertiesByName());
+        assertEquals(2, computedProperties.getComputedPropertiesByName().size());
+        assertSame(fileSize, computedProperties.getComputedPropertiesByName().get(FileSizeImpl.NAME));
+        assertEquals(1, actual.size());
+    }
+}
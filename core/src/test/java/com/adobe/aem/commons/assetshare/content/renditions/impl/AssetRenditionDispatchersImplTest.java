@@ -7,6 +7,7 @@ import com.adobe.aem.commons.assetshare.content.renditions.impl.dispatchers.Inte
 import com.adobe.aem.commons.assetshare.content.renditions.impl.dispatchers.StaticRenditionDispatcherImpl;
 import com.adobe.aem.commons.assetshare.testing.RequireAemMock;
 import com.adobe.aem.commons.assetshare.util.RequireAem;
+import com.google.common.collect.ImmutableMap;
 import io.wcm.testing.mock.aem.junit.AemContext;
 import org.junit.Before;
 import org.junit.Rule;
@@ -16,6 +17,7 @@ import org.mockito.junit.MockitoJUnitRunner;
 import org.osgi.framework.Constants;
 
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.Assert.*;
 
@@ -63,4 +65,48 @@ public class AssetRenditionDispatchersImplTest {
         assertTrue(assetRenditionDispatchers.isValidAssetRenditionName("test-rendition"));
         assertFalse(assetRenditionDispatchers.isValidAssetRenditionName("fake-rendition-name"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void getAssetRenditionDispatchers_ByRenditionName() {
+        AssetRenditionDispatcher one = new InternalRedirectRenditionDispatcherImpl();
+        AssetRenditionDispatcher two = new InternalRedirectRenditionDispatcherImpl();
+        AssetRenditionDispatcher three = new InternalRedirectRenditionDispatcherImpl();
+
+        ctx.registerInjectActivateService(two, Constants.SERVICE_RANKING, 90, "rendition.mappings", new String[] {"shared=two", "only-two=two"});
+        ctx.registerInjectActivateService(one, Constants.SERVICE_RANKING, 100, "rendition.mappings", new String[] {"shared=one"});
+        ctx.registerInjectActivateService(three, Constants.SERVICE_RANKING, 80, "rendition.mappings", new String[] {"only-three=three"});
+
+        final AssetRenditionDispatchers assetRenditionDispatchers = ctx.getService(AssetRenditionDispatchers.class);
+
+        final List<AssetRenditionDispatcher> shared = assetRenditionDispatchers.getAssetRenditionDispatchers("shared");
+        assertEquals(2, shared.size());
+        assertSame(one, shared.get(0));
+        assertSame(two, shared.get(1));
+
+        assertEquals(1, assetRenditionDispatchers.getAssetRenditionDispatchers("only-two").size());
+        assertSame(two, assetRenditionDispatchers.getAssetRenditionDispatchers("only-two").get(0));
+        assertSame(three, assetRenditionDispatchers.getAssetRenditionDispatchers("only-three").get(0));
+
+        assertTrue(assetRenditionDispatchers.getAssetRenditionDispatchers("fake-rendition-name").isEmpty());
+        assertTrue(assetRenditionDispatchers.getAssetRenditionDispatchers(null).isEmpty());
+        assertFalse(assetRenditionDispatchers.isValidAssetRenditionName(null));
+    }
+
+    @Test
+    public void getAssetRenditionDispatchers_ByRenditionNameAfterUnbind() {
+        final AssetRenditionDispatchersImpl assetRenditionDispatchers = new AssetRenditionDispatchersImpl();
+        final AssetRenditionDispatcher one = ctx.registerInjectActivateService(new InternalRedirectRenditionDispatcherImpl(),
+                "rendition.mappings", new String[] {"test-rendition=one"});
+
+        final Map<String, Object> props = ImmutableMap.of(Constants.SERVICE_ID, 1L, Constants.SERVICE_RANKING, 0);
+
+        assetRenditionDispatchers.bindAssetRenditionDispatcher(one, props);
+        assertTrue(assetRenditionDispatchers.isValidAssetRenditionName("test-rendition"));
+        assertSame(one, assetRenditionDispatchers.getAssetRenditionDispatchers("test-rendition").get(0));
+
+        assetRenditionDispatchers.unbindAssetRenditionDispatcher(one, props);
+        assertFalse(assetRenditionDispatchers.isValidAssetRenditionName("test-rendition"));
+        assertTrue(assetRenditionDispatchers.getAssetRenditionDispatchers("test-rendition").isEmpty());
+        assertTrue(assetRenditionDispatchers.getAssetRenditionDispatchers().isEmpty());
+    }
+}
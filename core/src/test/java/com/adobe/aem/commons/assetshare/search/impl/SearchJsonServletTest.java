@@ -0,0 +1,193 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.adobe.aem.commons.assetshare.search.impl;
+
+import com.adobe.aem.commons.assetshare.content.properties.ComputedProperties;
+import com.adobe.aem.commons.assetshare.content.properties.ComputedProperty;
+import com.adobe.aem.commons.assetshare.search.Search;
+import com.adobe.aem.commons.assetshare.search.providers.impl.QuerySearchProviderImpl;
+import com.adobe.aem.commons.assetshare.search.results.AssetResult;
+import com.adobe.aem.commons.assetshare.search.results.Result;
+import com.adobe.aem.commons.assetshare.search.results.Results;
+import com.adobe.aem.commons.assetshare.util.impl.ServletHelperImpl;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import io.wcm.testing.mock.aem.junit.AemContext;
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.resource.ValueMap;
+import org.apache.sling.api.wrappers.ValueMapDecorator;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class SearchJsonServletTest {
+    @Rule
+    public final AemContext ctx = new AemContext();
+
+    @Mock
+    private Search search;
+
+    @Mock
+    private Results results;
+
+    @Mock
+    private ComputedProperties computedProperties;
+
+    private ValueMap properties;
+
+    @Before
+    public void setUp() throws Exception {
+        ctx.create().page("/content/search");
+        ctx.create().resource("/content/search/jcr:content/results", "sling:resourceType", SearchJsonServlet.RESOURCE_TYPE);
+        ctx.currentResource("/content/search/jcr:content/results");
+
+        ctx.registerInjectActivateService(new ServletHelperImpl());
+
+        final Map<String, ComputedProperty> computedPropertiesByName = new HashMap<>();
+        for (final String name : new String[]{ "path", "title", "thumbnail", "tagTitles", "width" }) {
+            computedPropertiesByName.put(name, mock(ComputedProperty.class));
+        }
+        doReturn(computedPropertiesByName).when(computedProperties).getComputedPropertiesByName();
+        ctx.registerService(ComputedProperties.class, computedProperties);
+        ctx.registerAdapter(SlingHttpServletRequest.class, Search.class, search);
+
+        final Map<String, Object> map = new HashMap<>();
+        map.put("path", "/content/dam/test.png");
+        map.put("title", "Test");
+        map.put("thumbnail", "/content/dam/test.png.thumb.png");
+        map.put("tagTitles", new String[]{"Red", "Blue"});
+        map.put("width", 100L);
+        properties = spy(new ValueMapDecorator(map));
+
+        final AssetResult assetResult = mock(AssetResult.class);
+        doReturn(properties).when(assetResult).getProperties();
+
+        doReturn(results).when(search).getResults();
+        doReturn(Results.Status.SUCCESS).when(results).getStatus();
+        doReturn(ImmutableList.<Result>of(assetResult)).when(results).getResults();
+        doReturn(1L).when(results).getTotal();
+        doReturn(1L).when(results).getRunningTotal();
+        doReturn(-1L).when(results).getNextOffset();
+    }
+
+    private JsonObject doGet(final Object... properties) throws Exception {
+        final SearchJsonServlet servlet = ctx.registerInjectActivateService(new SearchJsonServlet(), properties);
+        servlet.doGet(ctx.request(), ctx.response());
+
+        assertEquals("application/json", ctx.response().getContentType().split(";")[0]);
+        return JsonParser.parseString(ctx.response().getOutputAsString()).getAsJsonObject();
+    }
+
+    @Test
+    public void doGet_DefaultFields() throws Exception {
+        final JsonObject json = doGet();
+
+        assertEquals("SUCCESS", json.get("status").getAsString());
+        assertEquals(1L, json.get("total").getAsLong());
+        assertFalse(json.get("more").getAsBoolean());
+
+        final JsonObject result = json.getAsJsonArray("results").get(0).getAsJsonObject();
+        assertEquals(2, result.size());
+        assertEquals("/content/dam/test.png", result.get("path").getAsString());
+        assertEquals("Test", result.get("title").getAsString());
+
+        verify(properties, never()).get("thumbnail");
+        assertEquals(true, ctx.request().getAttribute(QuerySearchProviderImpl.REQUEST_ATTR_ADAPTATION_LAZY));
+    }
+
+    @Test
+    public void doGet_Fields() throws Exception {
+        ctx.request().setParameterMap(ImmutableMap.of("fields", "title, tagTitles,width,title,dc:title"));
+
+        final JsonObject json = doGet();
+
+        final JsonObject result = json.getAsJsonArray("results").get(0).getAsJsonObject();
+        assertEquals(4, result.size());
+        assertEquals("Test", result.get("title").getAsString());
+        assertEquals(100L, result.get("width").getAsLong());
+        assertTrue(result.get("dc:title").isJsonNull());
+
+        final JsonArray tagTitles = result.getAsJsonArray("tagTitles");
+        assertEquals(2, tagTitles.size());
+        assertEquals("Blue", tagTitles.get(1).getAsString());
+
+        verify(properties, never()).get("path");
+        verify(properties, never()).get("thumbnail");
+    }
+
+    @Test
+    public void doGet_Error() throws Exception {
+        doReturn(Results.Status.ERROR).when(results).getStatus();
+        doReturn(ImmutableList.of()).when(results).getResults();
+
+        final JsonObject json = doGet();
+
+        assertEquals(500, ctx.response().getStatus());
+        assertEquals("ERROR", json.get("status").getAsString());
+        assertEquals(0, json.getAsJsonArray("results").size());
+    }
+
+    @Test
+    public void doGet_UnknownFields() throws Exception {
+        ctx.request().setParameterMap(ImmutableMap.of("fields", "junk,title,junk?a=b,dc:junk"));
+
+        final JsonObject json = doGet();
+
+        final JsonObject result = json.getAsJsonArray("results").get(0).getAsJsonObject();
+        assertEquals(1, result.size());
+        assertEquals("Test", result.get("title").getAsString());
+
+        verify(properties, never()).get("junk");
+        verify(properties, never()).get("junk?a=b");
+        verify(properties, never()).get("dc:junk");
+    }
+
+    @Test
+    public void doGet_MaxFields() throws Exception {
+        ctx.request().setParameterMap(ImmutableMap.of("fields", "title,width,path"));
+
+        final JsonObject json = doGet("max.fields", 2);
+
+        final JsonObject result = json.getAsJsonArray("results").get(0).getAsJsonObject();
+        assertEquals(2, result.size());
+        assertTrue(result.has("title"));
+        assertTrue(result.has("width"));
+    }
+}
@@ -0,0 +1,253 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.adobe.aem.commons.assetshare.search.impl;
+
+import com.day.cq.search.PredicateGroup;
+import com.day.cq.search.Query;
+import com.day.cq.search.QueryBuilder;
+import com.day.cq.search.result.SearchResult;
+import com.google.common.collect.ImmutableMap;
+import io.wcm.testing.mock.aem.junit.AemContext;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.Value;
+import javax.jcr.Workspace;
+import javax.jcr.query.QueryManager;
+import javax.jcr.query.QueryResult;
+import javax.jcr.query.Row;
+import javax.jcr.query.RowIterator;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class SearchSafetyImplTest {
+    private static final String STATEMENT = "/jcr:root/content/dam//element(*, dam:Asset)[(jcr:content/metadata/@dc:title = 'x')]";
+    private static final String INDEXED_PLAN = "[dam:Asset] as [a] /* lucene:damAssetLucene-9(/oak:index/damAssetLucene-9) +jcr:content/metadata/dc:title:x */";
+    private static final String TRAVERSING_PLAN = "[dam:Asset] as [a] /* traverse \"/content/dam//*\" where ([a].[jcr:content/metadata/dc:title] = 'x') */";
+
+    @Rule
+    public final AemContext ctx = new AemContext();
+
+    @Mock
+    QueryBuilder queryBuilder;
+
+    @Mock
+    Query query;
+
+    @Mock
+    SearchResult searchResult;
+
+    @Mock
+    ResourceResolver resourceResolver;
+
+    @Mock
+    Session session;
+
+    @Mock
+    Workspace workspace;
+
+    @Mock
+    QueryManager queryManager;
+
+    @Mock
+    javax.jcr.query.Query explainQuery;
+
+    @Mock
+    QueryResult queryResult;
+
+    @Mock
+    RowIterator rows;
+
+    @Mock
+    Row row;
+
+    @Mock
+    Value value;
+
+    @Before
+    public void setUp() throws Exception {
+        ctx.registerService(QueryBuilder.class, queryBuilder);
+
+        lenient().doReturn(session).when(resourceResolver).adaptTo(Session.class);
+        lenient().doReturn(query).when(queryBuilder).createQuery(any(PredicateGroup.class), any());
+        lenient().doReturn(searchResult).when(query).getResult();
+        lenient().doReturn(STATEMENT).when(searchResult).getQueryStatement();
+        lenient().doReturn(Collections.emptyList()).when(searchResult).getHits();
+
+        lenient().doReturn(workspace).when(session).getWorkspace();
+        lenient().doReturn(queryManager).when(workspace).getQueryManager();
+        lenient().doReturn(explainQuery).when(queryManager).createQuery(anyString(), anyString());
+        lenient().doReturn(queryResult).when(explainQuery).execute();
+        lenient().doReturn(rows).when(queryResult).getRows();
+        lenient().doReturn(true).when(rows).hasNext();
+        lenient().doReturn(row).when(rows).nextRow();
+        lenient().doReturn(value).when(row).getValue("plan");
+    }
+
+    private SearchSafetyImpl activate(final Object... properties) throws Exception {
+        final Map<String, Object> config = new HashMap<>();
+        config.put("enabled", true);
+        for (int i = 0; i < properties.length; i += 2) {
+            config.put((String) properties[i], properties[i + 1]);
+        }
+        return ctx.registerInjectActivateService(new SearchSafetyImpl(), config);
+    }
+
+    private void setPlan(final String plan) throws Exception {
+        doReturn(plan).when(value).getString();
+    }
+
+    private PredicateGroup titleQuery(final String title) {
+        return PredicateGroup.create(ImmutableMap.<String, String>builder()
+                .put("path", "/content/dam")
+                .put("type", "dam:Asset")
+                .put("property", "jcr:content/metadata/dc:title")
+                .put("property.value", title)
+                .put("p.offset", "0")
+                .build());
+    }
+
+    @Test
+    public void isSafe_IndexedPlan_ExplainedOncePerShape() throws Exception {
+        setPlan(INDEXED_PLAN);
+
+        final SearchSafetyImpl searchSafety = activate();
+
+        assertTrue(searchSafety.isSafe(resourceResolver, titleQuery("x")));
+        assertTrue(searchSafety.isSafe(resourceResolver, titleQuery("a completely different value")));
+
+        // javax.jcr.query.Query.XPATH is deprecated, so its value is used.
+        verify(queryManager, times(1)).createQuery("explain " + STATEMENT, "xpath");
+        assertEquals(2L, searchSafety.getCheckCount());
+        assertEquals(1L, searchSafety.getVerdictHitCount());
+        assertEquals(1L, searchSafety.getVerdictCount());
+        assertEquals(0L, searchSafety.getRejectedCount());
+    }
+
+    @Test
+    public void isSafe_TraversingPlan_IsRejected() throws Exception {
+        setPlan(TRAVERSING_PLAN);
+
+        final SearchSafetyImpl searchSafety = activate();
+
+        assertFalse(searchSafety.isSafe(resourceResolver, titleQuery("x")));
+        assertFalse(searchSafety.isSafe(resourceResolver, titleQuery("y")));
+
+        assertEquals(2L, searchSafety.getRejectedCount());
+    }
+
+    @Test
+    public void isSafe_AllowPatternOverridesDenyPattern() throws Exception {
+        setPlan(TRAVERSING_PLAN);
+
+        final SearchSafetyImpl searchSafety = activate("allow.plan.patterns", new String[]{ "traverse \"/content/dam//\\*\"" });
+
+        assertTrue(searchSafety.isSafe(resourceResolver, titleQuery("x")));
+    }
+
+    @Test
+    public void isSafe_FailedProbe_IsRejected() throws Exception {
+        doThrow(new RuntimeException("Traversal query (query without index)")).when(query).getResult();
+
+        final SearchSafetyImpl searchSafety = activate();
+
+        assertFalse(searchSafety.isSafe(resourceResolver, titleQuery("x")));
+        verify(queryManager, never()).createQuery(anyString(), anyString());
+    }
+
+    @Test
+    public void isSafe_FailedProbe_IsNotCached() throws Exception {
+        setPlan(INDEXED_PLAN);
+        doThrow(new RuntimeException("Transient failure")).doReturn(searchResult).when(query).getResult();
+
+        final SearchSafetyImpl searchSafety = activate();
+
+        assertFalse(searchSafety.isSafe(resourceResolver, titleQuery("x")));
+        assertEquals(0L, searchSafety.getVerdictCount());
+
+        assertTrue(searchSafety.isSafe(resourceResolver, titleQuery("x")));
+        assertEquals(1L, searchSafety.getVerdictCount());
+    }
+
+    @Test
+    public void isSafe_Unexplainable_IsNotCached() throws Exception {
+        doThrow(new RepositoryException("Cannot explain")).when(queryManager).createQuery(anyString(), anyString());
+
+        final SearchSafetyImpl searchSafety = activate();
+
+        assertTrue(searchSafety.isSafe(resourceResolver, titleQuery("x")));
+        assertEquals(0L, searchSafety.getVerdictCount());
+    }
+
+    @Test
+    public void isSafe_Unexplainable() throws Exception {
+        doThrow(new RepositoryException("Cannot explain")).when(queryManager).createQuery(anyString(), anyString());
+
+        assertTrue(activate().isSafe(resourceResolver, titleQuery("x")));
+        assertFalse(activate("allow.unexplainable", false).isSafe(resourceResolver, titleQuery("x")));
+    }
+
+    @Test
+    public void isSafe_Statement() throws Exception {
+        setPlan(TRAVERSING_PLAN);
+
+        final SearchSafetyImpl searchSafety = activate();
+
+        assertFalse(searchSafety.isSafe(resourceResolver, javax.jcr.query.Query.JCR_SQL2, "SELECT * FROM [dam:Asset]"));
+        verify(queryManager).createQuery("explain SELECT * FROM [dam:Asset]", javax.jcr.query.Query.JCR_SQL2);
+    }
+
+    @Test
+    public void isSafe_DisabledByDefault() throws Exception {
+        final SearchSafetyImpl searchSafety = ctx.registerInjectActivateService(new SearchSafetyImpl());
+
+        assertTrue(searchSafety.isSafe(resourceResolver, titleQuery("x")));
+        verify(queryBuilder, never()).createQuery(any(PredicateGroup.class), any());
+    }
+
+    @Test
+    public void isSafe_Disabled() throws Exception {
+        final SearchSafetyImpl searchSafety = activate("enabled", false);
+
+        assertTrue(searchSafety.isSafe(resourceResolver, titleQuery("x")));
+        verify(queryBuilder, never()).createQuery(any(PredicateGroup.class), any());
+    }
+}
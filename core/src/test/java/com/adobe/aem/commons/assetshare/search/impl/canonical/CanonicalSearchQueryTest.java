@@ -0,0 +1,102 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.adobe.aem.commons.assetshare.search.impl.canonical;
+
+import org.junit.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CanonicalSearchQueryTest {
+
+    @Test
+    public void toQueryString() {
+        final Map<String, String[]> parameters = new LinkedHashMap<>();
+        parameters.put("layout", new String[]{ "card" });
+        parameters.put("fulltext", new String[]{ "mountain bike é+&" });
+        parameters.put("_", new String[]{ "1234567890" });
+        parameters.put("p.guessTotal", new String[]{ "100" });
+        parameters.put("2_property.value", new String[]{ "" });
+        parameters.put("1_property", new String[]{ "dc:title" });
+
+        // Matches encodeURIComponent, and the sort order of search-form.js
+        assertEquals("1_property=dc%3Atitle&fulltext=mountain%20bike%20%C3%A9%2B%26&layout=card", CanonicalSearchQuery.toQueryString(parameters));
+        assertEquals("/MV9wcm9wZXJ0eT1kYyUzQXRpdGxlJmZ1bGx0ZXh0PW1vdW50YWluJTIwYmlrZSUyMCVDMyVBOSUyQiUyNiZsYXlvdXQ9Y2FyZA.html",
+                CanonicalSearchQuery.toSuffix(CanonicalSearchQuery.toQueryString(parameters)));
+    }
+
+    @Test
+    public void toQueryString_ParameterOrder() {
+        final Map<String, String[]> a = new LinkedHashMap<>();
+        a.put("b", new String[]{ "2", "1" });
+        a.put("a", new String[]{ "x" });
+
+        final Map<String, String[]> b = new LinkedHashMap<>();
+        b.put("a", new String[]{ "x" });
+        b.put("b", new String[]{ "2", "1" });
+
+        // Values of a parameter keep their order, as only the first is searched on.
+        assertEquals("a=x&b=2&b=1", CanonicalSearchQuery.toQueryString(a));
+        assertEquals(CanonicalSearchQuery.toQueryString(a), CanonicalSearchQuery.toQueryString(b));
+        assertNull(CanonicalSearchQuery.toSuffix(CanonicalSearchQuery.toQueryString(new LinkedHashMap<>())));
+    }
+
+    @Test
+    public void fromSuffix() {
+        final Map<String, String[]> parameters = new LinkedHashMap<>();
+        parameters.put("fulltext", new String[]{ "日本語 / ü" });
+        parameters.put("1_property", new String[]{ "jcr:content/metadata/dc:format" });
+        parameters.put("1_property.1_value", new String[]{ "image/png", "image/jpeg" });
+        for (int i = 0; i < 20; i++) {
+            parameters.put("path." + i, new String[]{ "/content/dam/asset-share-commons/en/public/pictures" });
+        }
+
+        final String suffix = CanonicalSearchQuery.toSuffix(CanonicalSearchQuery.toQueryString(parameters));
+
+        assertTrue(suffix.matches("(/[A-Za-z0-9_-]{1,128})+\\.html"));
+        assertTrue(suffix.split("/").length > 2);
+
+        final Map<String, String[]> decoded = CanonicalSearchQuery.fromSuffix(suffix);
+
+        assertEquals(parameters.size(), decoded.size());
+        for (final Map.Entry<String, String[]> entry : parameters.entrySet()) {
+            assertArrayEquals(entry.getValue(), decoded.get(entry.getKey()));
+        }
+
+        assertEquals(suffix, CanonicalSearchQuery.toSuffix(CanonicalSearchQuery.toQueryString(decoded)));
+    }
+
+    @Test
+    public void fromSuffix_Invalid() {
+        assertNull(CanonicalSearchQuery.fromSuffix(null));
+        assertNull(CanonicalSearchQuery.fromSuffix("/YT14.json"));
+        assertNull(CanonicalSearchQuery.fromSuffix("/YT1%.html"));
+        assertNull(CanonicalSearchQuery.fromSuffix("/Y.html"));
+        assertNull(CanonicalSearchQuery.fromSuffix("/.html"));
+        // a=%ZZ
+        assertNull(CanonicalSearchQuery.fromSuffix("/YT0lWlo.html"));
+    }
+}
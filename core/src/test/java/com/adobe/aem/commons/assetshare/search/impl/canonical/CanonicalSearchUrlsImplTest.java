@@ -0,0 +1,231 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.adobe.aem.commons.assetshare.search.impl.canonical;
+
+import com.adobe.aem.commons.assetshare.util.impl.requests.ResourceResolverOverrideRequestWrapper;
+import io.wcm.testing.mock.aem.junit.AemContext;
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CanonicalSearchUrlsImplTest {
+    private static final String PAGE_PATH = "/content/asset-share-commons/en/search";
+
+    @Rule
+    public final AemContext ctx = new AemContext();
+
+    @Mock
+    ResourceResolver resourceResolver;
+
+    @Mock
+    FilterChain chain;
+
+    private final Map<String, String[]> parameters = new LinkedHashMap<>();
+
+    @Before
+    public void setUp() {
+        parameters.put("fulltext", new String[]{ "bike" });
+        parameters.put("layout", new String[]{ "card" });
+
+        ctx.request().setMethod("GET");
+        ctx.requestPathInfo().setResourcePath(PAGE_PATH);
+        ctx.requestPathInfo().setSelectorString(CanonicalSearchUrlsImpl.SELECTOR);
+        ctx.requestPathInfo().setExtension("html");
+
+        lenient().doAnswer(invocation -> invocation.getArgument(1)).when(resourceResolver).map(any(), anyString());
+    }
+
+    @Test
+    public void doFilter_Disabled() throws Exception {
+        final CanonicalSearchUrlsImpl canonicalSearchUrls = activate("enabled", false);
+
+        ctx.requestPathInfo().setSuffix("/not-base64!.html");
+        canonicalSearchUrls.doFilter(request(true), ctx.response(), chain);
+
+        verify(chain).doFilter(any(), any());
+    }
+
+    @Test
+    public void doFilter_CanonicalSuffix() throws Exception {
+        final CanonicalSearchUrlsImpl canonicalSearchUrls = activate();
+        final ArgumentCaptor<ServletRequest> filteredRequest = ArgumentCaptor.forClass(ServletRequest.class);
+
+        ctx.requestPathInfo().setSuffix(getCanonicalSuffix());
+        canonicalSearchUrls.doFilter(request(true), ctx.response(), chain);
+
+        verify(chain).doFilter(filteredRequest.capture(), any());
+        assertEquals("bike", filteredRequest.getValue().getParameter("fulltext"));
+        assertEquals("card", filteredRequest.getValue().getParameter("layout"));
+        assertEquals("max-age=300", ctx.response().getHeader("Cache-Control"));
+    }
+
+    @Test
+    public void doFilter_CanonicalSuffix_Authenticated() throws Exception {
+        final CanonicalSearchUrlsImpl canonicalSearchUrls = activate();
+
+        ctx.requestPathInfo().setSuffix(getCanonicalSuffix());
+        canonicalSearchUrls.doFilter(request(false), ctx.response(), chain);
+
+        verify(chain).doFilter(any(), any());
+        assertNull(ctx.response().getHeader("Cache-Control"));
+    }
+
+    @Test
+    public void doFilter_NonCanonicalSuffix() throws Exception {
+        final CanonicalSearchUrlsImpl canonicalSearchUrls = activate();
+
+        // The parameters are not in their canonical order.
+        ctx.requestPathInfo().setSuffix(CanonicalSearchQuery.toSuffix("layout=card&fulltext=bike"));
+        canonicalSearchUrls.doFilter(request(false), ctx.response(), chain);
+
+        verify(chain, never()).doFilter(any(), any());
+        assertEquals(HttpServletResponse.SC_FOUND, ctx.response().getStatus());
+        assertEquals(PAGE_PATH + ".results.html" + getCanonicalSuffix(), ctx.response().getHeader("Location"));
+    }
+
+    @Test
+    public void doFilter_SuffixAndQueryString() throws Exception {
+        final CanonicalSearchUrlsImpl canonicalSearchUrls = activate();
+
+        ctx.requestPathInfo().setSuffix(getCanonicalSuffix());
+        ctx.request().setQueryString("fulltext=other");
+        canonicalSearchUrls.doFilter(request(false), ctx.response(), chain);
+
+        // The suffix takes precedence over the query string.
+        verify(chain, never()).doFilter(any(), any());
+        assertEquals(PAGE_PATH + ".results.html" + getCanonicalSuffix(), ctx.response().getHeader("Location"));
+    }
+
+    @Test
+    public void doFilter_BadBase64() throws Exception {
+        final CanonicalSearchUrlsImpl canonicalSearchUrls = activate();
+
+        ctx.requestPathInfo().setSuffix("/not-base64!.html");
+        canonicalSearchUrls.doFilter(request(true), ctx.response(), chain);
+
+        verify(chain, never()).doFilter(any(), any());
+        assertEquals(HttpServletResponse.SC_NOT_FOUND, ctx.response().getStatus());
+    }
+
+    @Test
+    public void doFilter_AnonymousQueryString() throws Exception {
+        final CanonicalSearchUrlsImpl canonicalSearchUrls = activate();
+
+        ctx.request().setQueryString("layout=card&fulltext=bike");
+        ctx.request().setParameterMap(new LinkedHashMap<>(parameters));
+        canonicalSearchUrls.doFilter(request(true), ctx.response(), chain);
+
+        verify(chain, never()).doFilter(any(), any());
+        assertEquals(PAGE_PATH + ".results.html" + getCanonicalSuffix(), ctx.response().getHeader("Location"));
+    }
+
+    @Test
+    public void doFilter_AuthenticatedQueryString() throws Exception {
+        final CanonicalSearchUrlsImpl canonicalSearchUrls = activate();
+
+        ctx.request().setQueryString("layout=card&fulltext=bike");
+        ctx.request().setParameterMap(new LinkedHashMap<>(parameters));
+        canonicalSearchUrls.doFilter(request(false), ctx.response(), chain);
+
+        // Only anonymous searches are cacheable, so authenticated searches are served as requested.
+        verify(chain).doFilter(any(), any());
+        assertNull(ctx.response().getHeader("Location"));
+    }
+
+    @Test
+    public void doFilter_MaxSuffixLength() throws Exception {
+        final CanonicalSearchUrlsImpl canonicalSearchUrls = activate("max.suffix.length", 10);
+
+        // Anonymous queries that would exceed the max suffix length are not redirected...
+        ctx.request().setQueryString("layout=card&fulltext=bike");
+        ctx.request().setParameterMap(new LinkedHashMap<>(parameters));
+        canonicalSearchUrls.doFilter(request(true), ctx.response(), chain);
+
+        verify(chain).doFilter(any(), any());
+        assertNull(ctx.response().getHeader("Location"));
+        assertNull(canonicalSearchUrls.getUrl(PAGE_PATH, parameters));
+    }
+
+    @Test
+    public void doFilter_MaxSuffixLength_NotCacheable() throws Exception {
+        final CanonicalSearchUrlsImpl canonicalSearchUrls = activate("max.suffix.length", 10);
+
+        // ...and canonical suffixes exceeding it are served, but not marked as cacheable.
+        ctx.requestPathInfo().setSuffix(getCanonicalSuffix());
+        canonicalSearchUrls.doFilter(request(true), ctx.response(), chain);
+
+        verify(chain).doFilter(any(), any());
+        assertNull(ctx.response().getHeader("Cache-Control"));
+    }
+
+    @Test
+    public void doFilter_OtherSelectors() throws Exception {
+        final CanonicalSearchUrlsImpl canonicalSearchUrls = activate();
+
+        ctx.requestPathInfo().setSelectorString("results.other");
+        ctx.requestPathInfo().setSuffix("/not-base64!.html");
+        canonicalSearchUrls.doFilter(request(true), ctx.response(), chain);
+
+        verify(chain).doFilter(any(), any());
+    }
+
+    private CanonicalSearchUrlsImpl activate(final Object... properties) {
+        final Map<String, Object> config = new LinkedHashMap<>();
+        config.put("enabled", true);
+
+        for (int i = 0; i < properties.length; i += 2) {
+            config.put((String) properties[i], properties[i + 1]);
+        }
+
+        return ctx.registerInjectActivateService(new CanonicalSearchUrlsImpl(), config);
+    }
+
+    private SlingHttpServletRequest request(final boolean anonymous) {
+        lenient().doAnswer(invocation -> anonymous ? "anonymous" : "admin").when(resourceResolver).getUserID();
+        return new ResourceResolverOverrideRequestWrapper(ctx.request(), resourceResolver);
+    }
+
+    private String getCanonicalSuffix() {
+        return CanonicalSearchQuery.toSuffix(CanonicalSearchQuery.toQueryString(parameters));
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.adobe.aem.commons.assetshare.search.impl.metrics;
+
+import io.wcm.testing.mock.aem.junit.AemContext;
+import org.apache.sling.api.scripting.SlingBindings;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SearchMetricsImplTest {
+    @Rule
+    public final AemContext ctx = new AemContext();
+
+    @Before
+    public void setUp() {
+        final SlingBindings slingBindings = new SlingBindings();
+        slingBindings.put(SlingBindings.RESPONSE, ctx.response());
+        ctx.request().setAttribute(SlingBindings.class.getName(), slingBindings);
+    }
+
+    private CompositeData getRow(final TabularData latencies, final String searchProvider, final SearchPhase phase) {
+        return latencies.get(new Object[]{ searchProvider, phase.name() });
+    }
+
+    @Test
+    public void getLatencies_Percentiles() throws Exception {
+        final SearchMetricsImpl searchMetrics = ctx.registerInjectActivateService(new SearchMetricsImpl());
+
+        for (int i = 1; i <= 100; i++) {
+            searchMetrics.record("QuerySearchProviderImpl", SearchPhase.QUERY, TimeUnit.MILLISECONDS.toNanos(i));
+        }
+
+        final CompositeData row = getRow(searchMetrics.getLatencies(), "QuerySearchProviderImpl", SearchPhase.QUERY);
+
+        assertNotNull(row);
+        assertEquals(100L, row.get("count"));
+        assertEquals(100d, (Double) row.get("max"), 0.001);
+
+        // Buckets are at most 20% wide
+        assertEquals(50d, (Double) row.get("p50"), 50 * 0.2);
+        assertEquals(95d, (Double) row.get("p95"), 95 * 0.2);
+        assertEquals(99d, (Double) row.get("p99"), 99 * 0.2);
+        assertTrue((Double) row.get("p50") >= 50d);
+
+        assertNull(getRow(searchMetrics.getLatencies(), "QuerySearchProviderImpl", SearchPhase.ADAPTATION));
+    }
+
+    @Test
+    public void record_PerSearchProvider() throws Exception {
+        final SearchMetricsImpl searchMetrics = ctx.registerInjectActivateService(new SearchMetricsImpl());
+
+        searchMetrics.record("A", SearchPhase.SEARCH, 1000);
+        searchMetrics.record("B", SearchPhase.SEARCH, 1000);
+        searchMetrics.record("B", SearchPhase.SEARCH, 1000);
+
+        assertEquals(1L, getRow(searchMetrics.getLatencies(), "A", SearchPhase.SEARCH).get("count"));
+        assertEquals(2L, getRow(searchMetrics.getLatencies(), "B", SearchPhase.SEARCH).get("count"));
+
+        searchMetrics.resetStatistics();
+        assertTrue(searchMetrics.getLatencies().isEmpty());
+    }
+
+    @Test
+    public void record_SearchTimings() throws Exception {
+        final SearchMetricsImpl searchMetrics = ctx.registerInjectActivateService(new SearchMetricsImpl());
+
+        final SearchTimings searchTimings = SearchTimings.start(ctx.request(), "QuerySearchProviderImpl");
+        searchTimings.stop(SearchPhase.PARAMS, searchTimings.start());
+        searchTimings.stop(SearchPhase.QUERY, searchTimings.start());
+
+        assertTrue(SearchTimings.get(ctx.request()) == searchTimings);
+
+        searchMetrics.record(ctx.request(), searchTimings);
+
+        final TabularData latencies = searchMetrics.getLatencies();
+        assertEquals(2, latencies.size());
+        assertNotNull(getRow(latencies, "QuerySearchProviderImpl", SearchPhase.PARAMS));
+        assertNotNull(getRow(latencies, "QuerySearchProviderImpl", SearchPhase.QUERY));
+
+        // Disabled by default
+        assertNull(ctx.response().getHeader(SearchMetricsImpl.SERVER_TIMING_HEADER));
+    }
+
+    @Test
+    public void record_ServerTimingHeader() throws Exception {
+        final SearchMetricsImpl searchMetrics = ctx.registerInjectActivateService(new SearchMetricsImpl(), "server.timing", true);
+
+        final SearchTimings searchTimings = SearchTimings.start(ctx.request(), "QuerySearchProviderImpl");
+        searchTimings.stop(SearchPhase.QUERY, searchTimings.start());
+        searchTimings.stop(SearchPhase.SEARCH, searchTimings.start());
+
+        searchMetrics.record(ctx.request(), searchTimings);
+
+        final String header = ctx.response().getHeader(SearchMetricsImpl.SERVER_TIMING_HEADER);
+        assertNotNull(header);
+        assertTrue(header.matches("asc-query;dur=\\d+\\.\\d;desc=\"[^\"]+\", asc-search;dur=\\d+\\.\\d;desc=\"[^\"]+\""));
+    }
+
+    @Test
+    public void searchTimings_NoopWhenNotStarted() {
+        final SearchTimings searchTimings = SearchTimings.get(ctx.request());
+
+        searchTimings.stop(SearchPhase.QUERY, searchTimings.start());
+
+        assertFalse(searchTimings.isTimed(SearchPhase.QUERY));
+        assertEquals(0L, searchTimings.getDuration(SearchPhase.QUERY));
+    }
+}
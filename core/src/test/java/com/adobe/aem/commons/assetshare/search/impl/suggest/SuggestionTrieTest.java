@@ -0,0 +1,107 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.adobe.aem.commons.assetshare.search.impl.suggest;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SuggestionTrieTest {
+
+    private static List<String> texts(final List<SuggestionTrie.Term> terms) {
+        return terms.stream().map(SuggestionTrie.Term::getText).collect(Collectors.toList());
+    }
+
+    @Test
+    public void complete() {
+        final SuggestionTrie trie = new SuggestionTrie(10);
+
+        trie.add("Mountain Lake", "/content/dam/a.png");
+        trie.add("Mountain", "/content/dam/a.png");
+        trie.add("Mountain", "/content/dam/b.png");
+        trie.add("Mouse", "/content/dam/c.png");
+        trie.add("Cat", "/content/dam/d.png");
+
+        assertEquals(4, trie.size());
+
+        // The heaviest completion comes first; ties are alphabetical.
+        assertEquals(Arrays.asList("Mountain", "Mountain Lake", "Mouse"), texts(trie.complete("mou")));
+        assertEquals(Arrays.asList("Mountain", "Mountain Lake"), texts(trie.complete("  MOUNT ")));
+        assertEquals(Collections.singletonList("Cat"), texts(trie.complete("c")));
+        assertTrue(trie.complete("dog").isEmpty());
+        assertTrue(trie.complete(" ").isEmpty());
+    }
+
+    @Test
+    public void complete_TopSize() {
+        final SuggestionTrie trie = new SuggestionTrie(2);
+
+        trie.add("aa", "/content/dam/a.png");
+        trie.add("ab", "/content/dam/a.png");
+        trie.add("ab", "/content/dam/b.png");
+        trie.add("ac", "/content/dam/a.png");
+        trie.add("ac", "/content/dam/b.png");
+        trie.add("ac", "/content/dam/c.png");
+
+        assertEquals(Arrays.asList("ac", "ab"), texts(trie.complete("a")));
+    }
+
+    @Test
+    public void remove() {
+        final SuggestionTrie trie = new SuggestionTrie(10);
+
+        trie.add("Mountain", "/content/dam/a.png");
+        trie.add("Mountain", "/content/dam/b.png");
+        trie.add("Mouse", "/content/dam/c.png");
+        trie.add("Mouse", "/content/dam/d.png");
+        trie.add("Mouse", "/content/dam/e.png");
+
+        assertEquals(Arrays.asList("Mouse", "Mountain"), texts(trie.complete("mou")));
+
+        trie.remove("Mouse", "/content/dam/c.png");
+        trie.remove("Mouse", "/content/dam/d.png");
+
+        assertEquals(Arrays.asList("Mountain", "Mouse"), texts(trie.complete("mou")));
+
+        trie.remove("mouse", "/content/dam/e.png");
+
+        assertEquals(1, trie.size());
+        assertEquals(Collections.singletonList("Mountain"), texts(trie.complete("mou")));
+        assertTrue(trie.complete("mous").isEmpty());
+    }
+
+    @Test
+    public void load() {
+        final SuggestionTrie trie = new SuggestionTrie(10);
+
+        trie.load("Mountain", "/content/dam/a.png");
+        trie.load("Mouse", "/content/dam/b.png");
+        trie.load("Mouse", "/content/dam/c.png");
+        trie.computeTops();
+
+        assertEquals(Arrays.asList("Mouse", "Mountain"), texts(trie.complete("m")));
+    }
+}
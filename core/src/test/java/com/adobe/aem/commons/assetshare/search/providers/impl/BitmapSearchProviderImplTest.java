@@ -0,0 +1,220 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.adobe.aem.commons.assetshare.search.providers.impl;
+
+import com.adobe.aem.commons.assetshare.components.predicates.PagePredicate;
+import com.adobe.aem.commons.assetshare.search.providers.SearchProvider;
+import com.adobe.aem.commons.assetshare.search.providers.impl.bitmap.BitmapIndex;
+import com.adobe.aem.commons.assetshare.search.results.AssetResult;
+import com.adobe.aem.commons.assetshare.search.results.Result;
+import com.adobe.aem.commons.assetshare.search.results.Results;
+import com.adobe.aem.commons.assetshare.util.impl.requests.ResourceResolverOverrideRequestWrapper;
+import com.day.cq.search.PredicateGroup;
+import com.google.common.collect.ImmutableMap;
+import io.wcm.testing.mock.aem.junit.AemContext;
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.models.factory.ModelFactory;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.osgi.framework.Constants;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class BitmapSearchProviderImplTest {
+    @Rule
+    public final AemContext ctx = new AemContext();
+
+    @Mock
+    BitmapIndex bitmapIndex;
+
+    @Mock
+    ModelFactory modelFactory;
+
+    @Mock
+    SearchProvider querySearchProvider;
+
+    @Mock
+    PagePredicate pagePredicate;
+
+    @Mock
+    ResourceResolver resourceResolver;
+
+    @Mock
+    Results queryResults;
+
+    private final Map<String, AssetResult> assetResults = new HashMap<>();
+
+    private SlingHttpServletRequest request;
+
+    @Before
+    public void setUp() throws Exception {
+        for (final String path : Arrays.asList("/content/dam/a.png", "/content/dam/b.png", "/content/dam/c.png", "/content/dam/d.png")) {
+            ctx.create().resource(path);
+
+            final AssetResult assetResult = mock(AssetResult.class);
+            lenient().doReturn(path).when(assetResult).getPath();
+            assetResults.put(path, assetResult);
+        }
+
+        // The user's resource resolver; matches that were not created above are not readable.
+        lenient().doAnswer(invocation -> ctx.resourceResolver().getResource((String) invocation.getArgument(0)))
+                .when(resourceResolver).getResource(anyString());
+        request = new ResourceResolverOverrideRequestWrapper(ctx.request(), resourceResolver);
+
+        lenient().doReturn(Collections.emptyList()).when(pagePredicate).getFacetProperties();
+        ctx.registerAdapter(SlingHttpServletRequest.class, PagePredicate.class, pagePredicate);
+
+        lenient().doAnswer(invocation -> assetResults.get(((Resource) invocation.getArgument(1)).getPath())).when(modelFactory).getModelFromWrappedRequest(any(SlingHttpServletRequest.class), any(Resource.class), eq(AssetResult.class));
+
+        lenient().doReturn(queryResults).when(querySearchProvider).getResults(any());
+
+        ctx.registerService(BitmapIndex.class, bitmapIndex);
+        ctx.registerService(ModelFactory.class, modelFactory, Constants.SERVICE_RANKING, Integer.MAX_VALUE);
+        ctx.registerService(SearchProvider.class, querySearchProvider, "component.name", QuerySearchProviderImpl.class.getName());
+    }
+
+    private BitmapSearchProviderImpl activate(final long totalMax) {
+        return ctx.registerInjectActivateService(new BitmapSearchProviderImpl(), "total.max", totalMax);
+    }
+
+    private static PredicateGroup query(final long offset, final long limit) {
+        return PredicateGroup.create(ImmutableMap.of("type", "dam:Asset", "p.offset", String.valueOf(offset), "p.limit", String.valueOf(limit)));
+    }
+
+    private static List<String> getPaths(final Results results) {
+        return results.getResults().stream().map(Result::getPath).collect(Collectors.toList());
+    }
+
+    @Test
+    public void accepts() {
+        final SearchProvider provider = activate(1000);
+
+        assertFalse(provider.accepts(request));
+
+        doReturn(true).when(bitmapIndex).isReady();
+        assertTrue(provider.accepts(request));
+    }
+
+    @Test
+    public void getResults_FiltersUnreadableMatches() throws Exception {
+        doReturn(Arrays.asList("/content/dam/a.png", "/content/dam/hidden.png", "/content/dam/b.png", "/content/dam/c.png"))
+                .when(bitmapIndex).match(any());
+
+        final Results results = activate(1000).getResults(request, query(0, 2));
+
+        assertEquals(Arrays.asList("/content/dam/a.png", "/content/dam/b.png"), getPaths(results));
+        assertEquals(3L, results.getTotal());
+        assertTrue(results.isMore());
+        verify(querySearchProvider, never()).getResults(any());
+    }
+
+    @Test
+    public void getResults_StopsCountingAtTotalMax() throws Exception {
+        final List<String> matches = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            matches.add(i % 2 == 0 ? "/content/dam/a.png" : "/content/dam/hidden-" + i + ".png");
+        }
+        doReturn(matches).when(bitmapIndex).match(any());
+
+        final Results results = activate(0).getResults(request, query(0, 2));
+
+        // Only the requested page and the first readable match past it are checked.
+        assertEquals(2, results.getResults().size());
+        assertEquals(2L, results.getTotal());
+        assertTrue(results.isMore());
+        verify(resourceResolver, times(5)).getResource(anyString());
+    }
+
+    @Test
+    public void getResults_NoMoreReadableMatches() throws Exception {
+        doReturn(Arrays.asList("/content/dam/a.png", "/content/dam/b.png", "/content/dam/hidden-1.png", "/content/dam/hidden-2.png"))
+                .when(bitmapIndex).match(any());
+
+        final Results results = activate(0).getResults(request, query(0, 2));
+
+        assertEquals(Arrays.asList("/content/dam/a.png", "/content/dam/b.png"), getPaths(results));
+        assertEquals(2L, results.getTotal());
+        assertFalse(results.isMore());
+    }
+
+    @Test
+    public void getResults_Offset() throws Exception {
+        doReturn(Arrays.asList("/content/dam/a.png", "/content/dam/hidden.png", "/content/dam/b.png", "/content/dam/c.png", "/content/dam/d.png"))
+                .when(bitmapIndex).match(any());
+
+        final Results results = activate(1000).getResults(request, query(2, 2));
+
+        assertEquals(Arrays.asList("/content/dam/c.png", "/content/dam/d.png"), getPaths(results));
+        assertEquals(4L, results.getTotal());
+        assertFalse(results.isMore());
+    }
+
+    @Test
+    public void getResults_UnsupportedQuery() throws Exception {
+        doReturn(null).when(bitmapIndex).match(any());
+
+        assertSame(queryResults, activate(1000).getResults(request, query(0, 2)));
+    }
+
+    @Test
+    public void getResults_UnlimitedQuery() throws Exception {
+        doReturn(Collections.singletonList("/content/dam/a.png")).when(bitmapIndex).match(any());
+
+        assertSame(queryResults, activate(1000).getResults(request, query(0, -1)));
+        verify(resourceResolver, never()).getResource(anyString());
+    }
+
+    @Test
+    public void getResults_Facets() throws Exception {
+        doReturn(Collections.singletonList("jcr:content/metadata/dc:format")).when(pagePredicate).getFacetProperties();
+
+        assertSame(queryResults, activate(1000).getResults(request));
+        verify(bitmapIndex, never()).match(any());
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.adobe.aem.commons.assetshare.search.providers.impl;
+
+import com.adobe.aem.commons.assetshare.search.impl.predicateevaluators.FacetPredicateEvaluator;
+import com.day.cq.search.Predicate;
+import com.day.cq.search.PredicateGroup;
+import com.day.cq.search.facets.Bucket;
+import com.day.cq.search.facets.Facet;
+import com.day.cq.search.result.SearchResult;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class FacetCountsTest {
+
+    private Facet facet(final Bucket... buckets) {
+        final Facet facet = mock(Facet.class);
+        doReturn(ImmutableList.copyOf(buckets)).when(facet).getBuckets();
+        return facet;
+    }
+
+    private Bucket bucket(final String value, final long count) {
+        final Bucket bucket = mock(Bucket.class);
+        doReturn(value).when(bucket).getValue();
+        doReturn(count).when(bucket).getCount();
+        return bucket;
+    }
+
+    @Test
+    public void apply() {
+        final PredicateGroup root = new PredicateGroup();
+
+        FacetCounts.apply(root, ImmutableList.of("jcr:content/metadata/dc:format", "jcr:content/metadata/cq:tags"));
+
+        assertEquals(2, root.size());
+        assertEquals("oak", root.get(Predicate.PARAM_FACET_STRATEGY));
+
+        final Predicate first = root.get(0);
+        assertEquals("1000_facet", first.getName());
+        assertEquals(FacetPredicateEvaluator.PREDICATE_NAME, first.getType());
+        assertEquals("jcr:content/metadata/dc:format", first.get("property"));
+        assertEquals("1001_facet", root.get(1).getName());
+    }
+
+    @Test
+    public void apply_NoProperties() throws Exception {
+        final PredicateGroup root = new PredicateGroup();
+        final SearchResult searchResult = mock(SearchResult.class);
+
+        final FacetCounts facetCounts = FacetCounts.apply(root, Collections.emptyList());
+
+        assertEquals(0, root.size());
+        assertNull(root.get(Predicate.PARAM_FACET_STRATEGY));
+        assertTrue(facetCounts.collect(searchResult).isEmpty());
+        verify(searchResult, never()).getFacets();
+    }
+
+    @Test
+    public void collect() throws Exception {
+        final FacetCounts facetCounts = FacetCounts.apply(new PredicateGroup(),
+                ImmutableList.of("jcr:content/metadata/dc:format", "jcr:content/metadata/cq:tags"));
+
+        final SearchResult searchResult = mock(SearchResult.class);
+        doReturn(ImmutableMap.of(
+                "1000_facet", facet(bucket("image/jpeg", 1203), bucket("image/png", 12)),
+                "1001_facet", facet(bucket("asset-share-commons:color/red", 7)),
+                "1_propertyvalues", facet(bucket("ignored", 1))
+        )).when(searchResult).getFacets();
+
+        final Map<String, Map<String, Long>> actual = facetCounts.collect(searchResult);
+
+        assertEquals(2, actual.size());
+        assertEquals(Long.valueOf(1203), actual.get("jcr:content/metadata/dc:format").get("image/jpeg"));
+        assertEquals(Long.valueOf(12), actual.get("jcr:content/metadata/dc:format").get("image/png"));
+        assertEquals(Long.valueOf(7), actual.get("jcr:content/metadata/cq:tags").get("asset-share-commons:color/red"));
+    }
+
+    @Test
+    public void collect_NestedPredicatePath() throws Exception {
+        final FacetCounts facetCounts = FacetCounts.apply(new PredicateGroup(), ImmutableList.of("jcr:content/metadata/dc:format"));
+
+        final SearchResult searchResult = mock(SearchResult.class);
+        doReturn(ImmutableMap.of("group.1000_facet", facet(bucket("image/jpeg", 3)))).when(searchResult).getFacets();
+
+        assertEquals(Long.valueOf(3), facetCounts.collect(searchResult).get("jcr:content/metadata/dc:format").get("image/jpeg"));
+    }
+
+    @Test
+    public void collect_FacetsFail() throws Exception {
+        final FacetCounts facetCounts = FacetCounts.apply(new PredicateGroup(), ImmutableList.of("jcr:content/metadata/dc:format"));
+
+        final SearchResult searchResult = mock(SearchResult.class);
+        doThrow(new IllegalStateException("Property is not indexed for facets")).when(searchResult).getFacets();
+
+        final List<String> properties = ImmutableList.copyOf(facetCounts.collect(searchResult).keySet());
+
+        assertTrue(properties.isEmpty());
+    }
+}
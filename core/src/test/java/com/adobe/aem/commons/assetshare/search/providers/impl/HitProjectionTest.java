@@ -0,0 +1,91 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.adobe.aem.commons.assetshare.search.providers.impl;
+
+import com.day.cq.search.result.Hit;
+import org.junit.Test;
+
+import javax.jcr.Node;
+import javax.jcr.Property;
+import javax.jcr.PropertyType;
+import javax.jcr.Value;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+public class HitProjectionTest {
+
+    private Property property(final boolean multiple, final Value... values) throws Exception {
+        final Property property = mock(Property.class);
+        doReturn(multiple).when(property).isMultiple();
+        if (multiple) {
+            doReturn(values).when(property).getValues();
+        } else {
+            doReturn(values[0]).when(property).getValue();
+        }
+        return property;
+    }
+
+    private Value value(final int type, final Object value) throws Exception {
+        final Value jcrValue = mock(Value.class);
+        doReturn(type).when(jcrValue).getType();
+        if (type == PropertyType.LONG) {
+            doReturn(value).when(jcrValue).getLong();
+        } else {
+            doReturn(value).when(jcrValue).getString();
+        }
+        return jcrValue;
+    }
+
+    @Test
+    public void project() throws Exception {
+        final HitProjection hitProjection = new HitProjection(new String[]{
+                "title=jcr:content/metadata/dc:title",
+                "dam:size = ./jcr:content/metadata/dam:size",
+                "format=jcr:content/metadata/dc:format",
+                "invalid"}, true);
+
+        final Node node = mock(Node.class);
+        final Property title = property(true, value(PropertyType.STRING, "First"), value(PropertyType.STRING, "Second"));
+        final Property size = property(false, value(PropertyType.LONG, 100L));
+        doReturn(true).when(node).hasProperty("jcr:content/metadata/dc:title");
+        doReturn(title).when(node).getProperty("jcr:content/metadata/dc:title");
+        doReturn(true).when(node).hasProperty("jcr:content/metadata/dam:size");
+        doReturn(size).when(node).getProperty("jcr:content/metadata/dam:size");
+
+        final Hit hit = mock(Hit.class);
+        doReturn(node).when(hit).getNode();
+        doReturn("A <strong>cat</strong>").when(hit).getExcerpt();
+
+        final Map<String, Object> actual = hitProjection.project(hit);
+
+        assertTrue(hitProjection.isExcerpt());
+        assertEquals(3, actual.size());
+        assertEquals("First", actual.get("title"));
+        assertEquals(100L, actual.get("dam:size"));
+        assertEquals("A <strong>cat</strong>", actual.get(HitProjection.EXCERPT));
+        assertFalse(actual.containsKey("format"));
+    }
+}
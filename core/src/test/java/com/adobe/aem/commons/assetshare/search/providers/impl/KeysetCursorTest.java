@@ -0,0 +1,278 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.adobe.aem.commons.assetshare.search.providers.impl;
+
+import com.day.cq.search.Predicate;
+import com.day.cq.search.PredicateGroup;
+import com.google.common.collect.ImmutableList;
+import io.wcm.testing.mock.aem.junit.AemContext;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class KeysetCursorTest {
+    @Rule
+    public final AemContext ctx = new AemContext();
+
+    private Predicate orderBy(final String property, final String sort) {
+        final Predicate predicate = new Predicate(Predicate.ORDER_BY, Predicate.ORDER_BY);
+        predicate.set(Predicate.ORDER_BY, property);
+        predicate.set(Predicate.PARAM_SORT, sort);
+        return predicate;
+    }
+
+    private Calendar date(final int day) {
+        final Calendar calendar = new GregorianCalendar(TimeZone.getTimeZone("UTC"));
+        calendar.clear();
+        calendar.set(2024, Calendar.JANUARY, day);
+        return calendar;
+    }
+
+    @Test
+    public void encodeAndDecode() {
+        final KeysetCursor expected = new KeysetCursor("@jcr:created", "desc", "date", "2024-01-01T00:00:00.000Z",
+                ImmutableList.of("/content/dam/a.png", "/content/dam/b.png"), 40, 200);
+
+        final KeysetCursor actual = KeysetCursor.decode(expected.encode());
+
+        assertNotNull(actual);
+        assertEquals(expected.encode(), actual.encode());
+        assertEquals(40L, actual.getLoaded());
+        assertEquals(200L, actual.getTotal());
+        assertEquals(2, actual.getTieCount());
+    }
+
+    @Test
+    public void decode_Invalid() {
+        assertNull(KeysetCursor.decode(null));
+        assertNull(KeysetCursor.decode("not a cursor!"));
+        assertNull(KeysetCursor.decode(new KeysetCursor("@jcr:created", "desc", "unknown", "x", ImmutableList.of("/content/dam/a.png"), 0, 0).encode()));
+
+        final String negative = Base64.getUrlEncoder().encodeToString("@jcr:created\ndesc\ndate\nx\n-1\n10\n/content/dam/a.png".getBytes(StandardCharsets.UTF_8));
+        assertNull(KeysetCursor.decode(negative));
+    }
+
+    @Test
+    public void decode_ClampsLoadedToTotal() {
+        final KeysetCursor actual = KeysetCursor.decode(new KeysetCursor("@jcr:created", "desc", "date", "x",
+                ImmutableList.of("/content/dam/a.png"), 1000, 10).encode());
+
+        assertNotNull(actual);
+        assertEquals(10L, actual.getLoaded());
+        assertEquals(10L, actual.getTotal());
+    }
+
+    @Test
+    public void getKeysetOrderBy() {
+        final PredicateGroup root = new PredicateGroup();
+        root.add(orderBy("@jcr:created", "desc"));
+        assertNotNull(KeysetCursor.getKeysetOrderBy(root));
+
+        final PredicateGroup score = new PredicateGroup();
+        score.add(orderBy("@jcr:score", "desc"));
+        assertNull(KeysetCursor.getKeysetOrderBy(score));
+
+        final PredicateGroup ignoreCase = new PredicateGroup();
+        final Predicate ignoreCaseOrderBy = orderBy("@jcr:content/metadata/dc:title", "asc");
+        ignoreCaseOrderBy.set(Predicate.PARAM_CASE, Predicate.IGNORE_CASE);
+        ignoreCase.add(ignoreCaseOrderBy);
+        assertNull(KeysetCursor.getKeysetOrderBy(ignoreCase));
+    }
+
+    @Test
+    public void apply_Descending() {
+        final PredicateGroup root = new PredicateGroup();
+        root.set(Predicate.PARAM_OFFSET, "40");
+        root.set(Predicate.PARAM_LIMIT, "20");
+
+        new KeysetCursor("@jcr:created", "desc", "date", "2024-01-01T00:00:00.000Z",
+                ImmutableList.of("/content/dam/a.png", "/content/dam/b.png"), 40, 200).apply(root);
+
+        final Predicate range = root.get(root.size() - 1);
+        assertEquals("daterange", range.getType());
+        assertEquals("jcr:created", range.get("property"));
+        assertEquals("2024-01-01T00:00:00.000Z", range.get("upperBound"));
+        assertEquals("<=", range.get("upperOperation"));
+        assertNull(range.get("lowerBound"));
+        assertEquals("0", root.get(Predicate.PARAM_OFFSET));
+        assertEquals("22", root.get(Predicate.PARAM_LIMIT));
+    }
+
+    @Test
+    public void apply_AscendingNumber() {
+        final PredicateGroup root = new PredicateGroup();
+
+        new KeysetCursor("@jcr:content/metadata/dam:size", "asc", "decimal", "1024", ImmutableList.of("/content/dam/a.png"), 40, 200).apply(root);
+
+        final Predicate range = root.get(root.size() - 1);
+        assertEquals("rangeproperty", range.getType());
+        assertEquals("jcr:content/metadata/dam:size", range.get("property"));
+        assertEquals("1024", range.get("lowerBound"));
+        assertEquals(">=", range.get("lowerOperation"));
+        assertEquals("true", range.get("decimal"));
+        assertEquals("0", root.get(Predicate.PARAM_OFFSET));
+        // QueryBuilder's default page size, plus the tie.
+        assertEquals("11", root.get(Predicate.PARAM_LIMIT));
+    }
+
+    @Test
+    public void next_CountsTies() {
+        ctx.create().resource("/content/dam/a.png", "jcr:created", date(3));
+        ctx.create().resource("/content/dam/b.png", "jcr:created", date(2));
+        ctx.create().resource("/content/dam/c.png", "jcr:created", date(2));
+
+        final Predicate orderBy = orderBy("@jcr:created", "desc");
+        final KeysetCursor next = KeysetCursor.next(orderBy, null,
+                ImmutableList.of("/content/dam/a.png", "/content/dam/b.png", "/content/dam/c.png"),
+                ctx.resourceResolver(), 3, 10);
+
+        assertNotNull(next);
+        assertTrue(next.matches(orderBy));
+
+        assertEquals(2, next.getTieCount());
+        assertEquals(3L, next.getLoaded());
+    }
+
+    @Test
+    public void next_CarriesOverTiesForAnAllTiedPage() {
+        ctx.create().resource("/content/dam/a.png/jcr:content/metadata", "dc:title", "same");
+        ctx.create().resource("/content/dam/b.png/jcr:content/metadata", "dc:title", "same");
+
+        final Predicate orderBy = orderBy("@jcr:content/metadata/dc:title", "asc");
+        final KeysetCursor previous = new KeysetCursor("@jcr:content/metadata/dc:title", "asc", "string", "same",
+                ImmutableList.of("/content/dam/x.png", "/content/dam/y.png"), 5, 20);
+
+        final KeysetCursor next = KeysetCursor.next(orderBy, previous,
+                ImmutableList.of("/content/dam/a.png", "/content/dam/b.png"),
+                ctx.resourceResolver(), 7, 20);
+
+        assertNotNull(next);
+        assertEquals(4, next.getTieCount());
+    }
+
+    @Test
+    public void next_MissingSortValue() {
+        ctx.create().resource("/content/dam/a.png");
+
+        assertNull(KeysetCursor.next(orderBy("@jcr:created", "desc"), null,
+                ImmutableList.of("/content/dam/a.png"),
+                ctx.resourceResolver(), 1, 10));
+    }
+
+    @Test
+    public void filter_DropsTiesRegardlessOfOrder() {
+        final KeysetCursor cursor = new KeysetCursor("@jcr:created", "desc", "date", "x",
+                ImmutableList.of("/content/dam/b.png", "/content/dam/c.png"), 3, 10);
+
+        // Oak may return the hits that share a sort value in any order.
+        assertEquals(ImmutableList.of("/content/dam/d.png", "/content/dam/e.png"),
+                cursor.filter(ImmutableList.of("/content/dam/c.png", "/content/dam/d.png", "/content/dam/b.png", "/content/dam/e.png"), 2));
+        assertEquals(ImmutableList.of("/content/dam/d.png", "/content/dam/e.png"),
+                cursor.filter(ImmutableList.of("/content/dam/d.png", "/content/dam/b.png", "/content/dam/c.png", "/content/dam/e.png"), 2));
+        assertEquals(ImmutableList.of("/content/dam/d.png"),
+                cursor.filter(ImmutableList.of("/content/dam/b.png", "/content/dam/d.png", "/content/dam/e.png"), 1));
+    }
+
+    @Test
+    public void next_TooManyTies() {
+        final List<String> hitPaths = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            ctx.create().resource("/content/dam/" + i + ".png", "jcr:created", date(2));
+            hitPaths.add("/content/dam/" + i + ".png");
+        }
+
+        // The next page is loaded by offset instead.
+        assertNull(KeysetCursor.next(orderBy("@jcr:created", "desc"), null, hitPaths, ctx.resourceResolver(), 30, 100));
+    }
+
+    @Test
+    public void paginate_FirstPage() {
+        ctx.create().resource("/content/dam/a.png", "jcr:created", date(3));
+        ctx.create().resource("/content/dam/b.png", "jcr:created", date(2));
+
+        final KeysetCursor.Pagination pagination = KeysetCursor.paginate(orderBy("@jcr:created", "desc"), null,
+                ImmutableList.of("/content/dam/a.png", "/content/dam/b.png"), ctx.resourceResolver(), 0, 10, true);
+
+        assertNotNull(pagination.getNextCursor());
+        assertEquals(2L, pagination.getLoaded());
+        assertEquals(10L, pagination.getTotal());
+        assertTrue(pagination.isMore());
+    }
+
+    @Test
+    public void paginate_RangeExhaustedFallsBackToOffset() {
+        ctx.create().resource("/content/dam/c.png", "jcr:created", date(1));
+
+        final Predicate orderBy = orderBy("@jcr:created", "desc");
+        final KeysetCursor previous = new KeysetCursor("@jcr:created", "desc", "date", "x", ImmutableList.of("/content/dam/b.png"), 2, 5);
+
+        // The range matched the tie and the last dated hit; the remaining 2 hits lack jcr:created.
+        final KeysetCursor.Pagination pagination = KeysetCursor.paginate(orderBy, previous,
+                ImmutableList.of("/content/dam/c.png"), ctx.resourceResolver(), 0, 2, false);
+
+        assertNull(pagination.getNextCursor());
+        assertEquals(3L, pagination.getLoaded());
+        assertEquals(5L, pagination.getTotal());
+        assertTrue(pagination.isMore());
+    }
+
+    @Test
+    public void paginate_AllLoaded() {
+        ctx.create().resource("/content/dam/c.png", "jcr:created", date(1));
+
+        final KeysetCursor previous = new KeysetCursor("@jcr:created", "desc", "date", "x", ImmutableList.of("/content/dam/b.png"), 2, 3);
+
+        final KeysetCursor.Pagination pagination = KeysetCursor.paginate(orderBy("@jcr:created", "desc"), previous,
+                ImmutableList.of("/content/dam/c.png"), ctx.resourceResolver(), 0, 2, false);
+
+        assertNull(pagination.getNextCursor());
+        assertEquals(3L, pagination.getLoaded());
+        assertFalse(pagination.isMore());
+    }
+
+    @Test
+    public void paginate_TotalIsBoundedByTheRange() {
+        ctx.create().resource("/content/dam/c.png", "jcr:created", date(1));
+
+        // A cursor claiming fewer matches than the range still has.
+        final KeysetCursor previous = new KeysetCursor("@jcr:created", "desc", "date", "x", ImmutableList.of("/content/dam/b.png"), 2, 2);
+
+        final KeysetCursor.Pagination pagination = KeysetCursor.paginate(orderBy("@jcr:created", "desc"), previous,
+                ImmutableList.of("/content/dam/c.png"), ctx.resourceResolver(), 0, 50, true);
+
+        assertEquals(3L, pagination.getLoaded());
+        // The 2 previously loaded hits, and the 49 hits of the range that are not the already loaded tie.
+        assertEquals(51L, pagination.getTotal());
+        assertTrue(pagination.isMore());
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.adobe.aem.commons.assetshare.search.providers.impl;
+
+import com.adobe.aem.commons.assetshare.search.results.AssetResult;
+import com.adobe.aem.commons.assetshare.search.results.Result;
+import com.adobe.aem.commons.assetshare.util.impl.RequestScopedResourceResolversFilter;
+import com.adobe.aem.commons.assetshare.util.impl.requests.ResourceResolverOverrideRequestWrapper;
+import io.wcm.testing.mock.aem.junit.AemContext;
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.models.factory.ModelFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import javax.servlet.FilterChain;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ParallelHitAdapterTest {
+    private static final List<String> HIT_PATHS = Arrays.asList("/content/dam/0.png", "/content/dam/1.png", "/content/dam/2.png",
+            "/content/dam/3.png", "/content/dam/4.png", "/content/dam/5.png");
+
+    @Rule
+    public final AemContext ctx = new AemContext();
+
+    @Mock
+    ModelFactory modelFactory;
+
+    @Mock
+    ResourceResolver resourceResolver;
+
+    @Mock
+    ResourceResolver clonedResourceResolver;
+
+    private final Map<String, AssetResult> assetResults = new HashMap<>();
+
+    private ExecutorService executorService;
+
+    private SlingHttpServletRequest request;
+
+    @Before
+    public void setUp() throws Exception {
+        executorService = Executors.newFixedThreadPool(3);
+        request = new ResourceResolverOverrideRequestWrapper(ctx.request(), resourceResolver);
+
+        lenient().doReturn(clonedResourceResolver).when(resourceResolver).clone(null);
+        lenient().doReturn(true).when(clonedResourceResolver).isLive();
+
+        for (final String hitPath : HIT_PATHS) {
+            final Resource resource = mock(Resource.class);
+            lenient().doReturn(hitPath).when(resource).getPath();
+            lenient().doReturn(resource).when(clonedResourceResolver).getResource(hitPath);
+            assetResults.put(hitPath, mock(AssetResult.class));
+        }
+
+        lenient().doAnswer(invocation -> assetResults.get(((Resource) invocation.getArgument(1)).getPath()))
+                .when(modelFactory).getModelFromWrappedRequest(any(SlingHttpServletRequest.class), any(Resource.class), eq(AssetResult.class));
+    }
+
+    @After
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void getWorkerCount() {
+        final ParallelHitAdapter parallelHitAdapter = new ParallelHitAdapter(modelFactory, executorService, 3, 2);
+
+        assertEquals(1, parallelHitAdapter.getWorkerCount(0));
+        assertEquals(1, parallelHitAdapter.getWorkerCount(3));
+        assertEquals(2, parallelHitAdapter.getWorkerCount(4));
+        assertEquals(3, parallelHitAdapter.getWorkerCount(100));
+    }
+
+    @Test
+    public void isParallel() throws Exception {
+        final ParallelHitAdapter parallelHitAdapter = new ParallelHitAdapter(modelFactory, executorService, 3, 1);
+        final List<Boolean> parallel = new ArrayList<>();
+
+        // Without the filter, the cloned resource resolvers could not be closed.
+        assertFalse(parallelHitAdapter.isParallel(request, HIT_PATHS.size()));
+
+        doFilter(() -> {
+            parallel.add(parallelHitAdapter.isParallel(request, HIT_PATHS.size()));
+            parallel.add(parallelHitAdapter.isParallel(request, 1));
+        });
+
+        assertEquals(Arrays.asList(true, false), parallel);
+    }
+
+    @Test
+    public void adapt_PreservesHitOrder() throws Exception {
+        final ParallelHitAdapter parallelHitAdapter = new ParallelHitAdapter(modelFactory, executorService, 3, 1);
+        final List<Result> results = new ArrayList<>();
+
+        doFilter(() -> results.addAll(parallelHitAdapter.adapt(request, HIT_PATHS, System.currentTimeMillis() + 10000)));
+
+        assertEquals(HIT_PATHS.size(), results.size());
+        for (int i = 0; i < HIT_PATHS.size(); i++) {
+            assertSame(assetResults.get(HIT_PATHS.get(i)), results.get(i));
+        }
+
+        // One clone per slice, which are closed when the request completes.
+        verify(resourceResolver, times(3)).clone(null);
+        verify(clonedResourceResolver, times(3)).close();
+    }
+
+    @Test
+    public void adapt_HitNotFound() throws Exception {
+        final ParallelHitAdapter parallelHitAdapter = new ParallelHitAdapter(modelFactory, executorService, 3, 1);
+        final List<Result> results = new ArrayList<>();
+
+        doReturn(null).when(clonedResourceResolver).getResource("/content/dam/1.png");
+
+        doFilter(() -> results.addAll(parallelHitAdapter.adapt(request, HIT_PATHS, System.currentTimeMillis() + 10000)));
+
+        assertEquals(HIT_PATHS.size(), results.size());
+        assertSame(assetResults.get("/content/dam/0.png"), results.get(0));
+        assertNull(results.get(1));
+        assertSame(assetResults.get("/content/dam/2.png"), results.get(2));
+    }
+
+    @Test
+    public void adapt_DeadlinePassed() throws Exception {
+        final ParallelHitAdapter parallelHitAdapter = new ParallelHitAdapter(modelFactory, executorService, 3, 1);
+        final List<Result> results = new ArrayList<>();
+
+        doFilter(() -> results.addAll(parallelHitAdapter.adapt(request, HIT_PATHS, System.currentTimeMillis() - 1)));
+
+        assertTrue(results.isEmpty());
+    }
+
+    @Test
+    public void adapt_DeadlinePassedDuringSlice() throws Exception {
+        final ParallelHitAdapter parallelHitAdapter = new ParallelHitAdapter(modelFactory, executorService, 3, 1);
+        final List<Result> results = new ArrayList<>();
+        final long deadline = System.currentTimeMillis() + 500;
+
+        // The second slice ([2, 3]) runs out of time after its first hit.
+        doAnswer(invocation -> {
+            Thread.sleep(Math.max(0, deadline - System.currentTimeMillis()) + 50);
+            return null;
+        }).when(clonedResourceResolver).getResource("/content/dam/2.png");
+
+        doFilter(() -> results.addAll(parallelHitAdapter.adapt(request, HIT_PATHS, deadline)));
+
+        // The leading hits that were adapted in time are kept; the complete third slice is dropped as it would leave a gap.
+        assertEquals(3, results.size());
+        assertSame(assetResults.get("/content/dam/0.png"), results.get(0));
+        assertSame(assetResults.get("/content/dam/1.png"), results.get(1));
+    }
+
+    private void doFilter(final ThrowingRunnable runnable) throws Exception {
+        final FilterChain chain = mock(FilterChain.class);
+
+        doAnswer(invocation -> {
+            runnable.run();
+            return null;
+        }).when(chain).doFilter(any(), any());
+
+        new RequestScopedResourceResolversFilter().doFilter(request, ctx.response(), chain);
+    }
+
+    @FunctionalInterface
+    private interface ThrowingRunnable {
+        void run() throws Exception;
+    }
+}
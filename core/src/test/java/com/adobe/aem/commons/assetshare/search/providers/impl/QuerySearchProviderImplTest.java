@@ -0,0 +1,329 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.adobe.aem.commons.assetshare.search.providers.impl;
+
+import com.adobe.aem.commons.assetshare.components.predicates.PagePredicate;
+import com.adobe.aem.commons.assetshare.content.properties.ComputedProperties;
+import com.adobe.aem.commons.assetshare.content.properties.ComputedProperty;
+import com.adobe.aem.commons.assetshare.search.FastProperties;
+import com.adobe.aem.commons.assetshare.search.SearchSafety;
+import com.adobe.aem.commons.assetshare.search.providers.impl.cache.CachedSearchResult;
+import com.adobe.aem.commons.assetshare.search.providers.impl.cache.SearchPrefetcher;
+import com.adobe.aem.commons.assetshare.search.providers.impl.cache.SearchResultsCache;
+import com.adobe.aem.commons.assetshare.search.results.AssetResult;
+import com.adobe.aem.commons.assetshare.search.results.Result;
+import com.adobe.aem.commons.assetshare.search.results.Results;
+import com.adobe.aem.commons.assetshare.util.impl.requests.ResourceResolverOverrideRequestWrapper;
+import com.day.cq.dam.api.Asset;
+import com.day.cq.search.Predicate;
+import com.day.cq.search.PredicateGroup;
+import com.day.cq.search.Query;
+import com.day.cq.search.QueryBuilder;
+import com.google.common.collect.ImmutableMap;
+import io.wcm.testing.mock.aem.junit.AemContext;
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.models.factory.ModelFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.osgi.framework.Constants;
+
+import javax.jcr.Session;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class QuerySearchProviderImplTest {
+    private static final String TITLE = "jcr:content/metadata/dc:title";
+    private static final List<String> PATHS = Arrays.asList("/content/dam/a.png", "/content/dam/b.png", "/content/dam/c.png");
+
+    @Rule
+    public final AemContext ctx = new AemContext();
+
+    @Mock
+    SearchSafety searchSafety;
+
+    @Mock
+    QueryBuilder queryBuilder;
+
+    @Mock
+    ModelFactory modelFactory;
+
+    @Mock
+    FastProperties fastProperties;
+
+    @Mock
+    SearchResultsCache searchResultsCache;
+
+    @Mock
+    SearchPrefetcher searchPrefetcher;
+
+    @Mock
+    ComputedProperties computedProperties;
+
+    @Mock
+    ComputedProperty<String> computedProperty;
+
+    @Mock
+    PagePredicate pagePredicate;
+
+    @Mock
+    ResourceResolver resourceResolver;
+
+    @Mock
+    ResourceResolver queryResourceResolver;
+
+    @Mock
+    Resource queryResource;
+
+    @Mock
+    Query query;
+
+    private final Map<String, AssetResult> assetResults = new HashMap<>();
+
+    // Holds the query executed on a time budget thread until the test completes.
+    private final CountDownLatch queryLatch = new CountDownLatch(1);
+
+    private SlingHttpServletRequest request;
+
+    @Before
+    public void setUp() throws Exception {
+        for (final String path : PATHS) {
+            ctx.create().asset(path, 10, 10, "image/png", ImmutableMap.of("dc:title", "A"));
+
+            final AssetResult assetResult = mock(AssetResult.class);
+            lenient().doReturn(path).when(assetResult).getPath();
+            assetResults.put(path, assetResult);
+        }
+
+        lenient().doAnswer(invocation -> ctx.resourceResolver().getResource((String) invocation.getArgument(0)))
+                .when(resourceResolver).getResource(anyString());
+        lenient().doReturn(mock(ResourceResolver.class)).when(resourceResolver).clone(any());
+
+        // The query resolves its hits via a resource resolver that is leaked to the caller.
+        lenient().doReturn(queryResourceResolver).when(queryResource).getResourceResolver();
+        lenient().doReturn(queryResource).when(queryResourceResolver).getResource(anyString());
+        lenient().doReturn(query).when(queryBuilder).createQuery(any(PredicateGroup.class), any());
+        lenient().doReturn(CachedSearchResult.of(PATHS, 4, false, 0, 3, 1, null).toSearchResult(queryResourceResolver)).when(query).getResult();
+
+        lenient().doReturn(true).when(searchSafety).isSafe(any(), any(PredicateGroup.class));
+        lenient().doReturn(Collections.emptyList()).when(pagePredicate).getFacetProperties();
+        lenient().doReturn(Collections.emptyList()).when(fastProperties).getFastProperties(anyString());
+
+        lenient().doAnswer(invocation -> assetResults.get(((Resource) invocation.getArgument(1)).getPath()))
+                .when(modelFactory).getModelFromWrappedRequest(any(SlingHttpServletRequest.class), any(Resource.class), eq(AssetResult.class));
+
+        lenient().doReturn(true).when(computedProperty).isCachable();
+        lenient().doReturn(true).when(computedProperty).accepts(any(Asset.class), any(SlingHttpServletRequest.class), anyString());
+        lenient().doReturn(Collections.emptyMap()).when(computedProperty).getAll(anyList(), any(), any());
+        lenient().doReturn(ImmutableMap.of("tagTitles", computedProperty)).when(computedProperties).getComputedPropertiesByName();
+
+        ctx.registerService(SearchSafety.class, searchSafety);
+        ctx.registerService(QueryBuilder.class, queryBuilder, Constants.SERVICE_RANKING, Integer.MAX_VALUE);
+        ctx.registerService(ModelFactory.class, modelFactory, Constants.SERVICE_RANKING, Integer.MAX_VALUE);
+        ctx.registerService(FastProperties.class, fastProperties);
+
+        request = new ResourceResolverOverrideRequestWrapper(ctx.request(), resourceResolver);
+    }
+
+    @After
+    public void tearDown() {
+        queryLatch.countDown();
+    }
+
+    private QuerySearchProviderImpl activate(final Object... properties) {
+        return ctx.registerInjectActivateService(new QuerySearchProviderImpl(), properties);
+    }
+
+    private static PredicateGroup query(final long limit) {
+        final PredicateGroup root = new PredicateGroup();
+        root.set(Predicate.PARAM_LIMIT, String.valueOf(limit));
+
+        final Predicate orderBy = new Predicate(Predicate.ORDER_BY, Predicate.ORDER_BY);
+        orderBy.set(Predicate.ORDER_BY, "@" + TITLE);
+        orderBy.set(Predicate.PARAM_SORT, Predicate.SORT_ASCENDING);
+        root.add(orderBy);
+
+        return root;
+    }
+
+    private static List<String> getPaths(final Results results) {
+        return results.getResults().stream().map(Result::getPath).collect(Collectors.toList());
+    }
+
+    @Test
+    public void getResults() throws Exception {
+        final Results results = activate().getResults(request, pagePredicate, query(3), Long.MAX_VALUE);
+
+        assertEquals(PATHS, getPaths(results));
+        assertEquals(Results.Status.SUCCESS, results.getStatus());
+        // The query's leaked resource resolver is closed once its hits are collected.
+        verify(queryResourceResolver).close();
+    }
+
+    @Test
+    public void getResults_CachesExecutedHits() throws Exception {
+        doReturn(true).when(searchResultsCache).isEnabled();
+        doReturn("key").when(searchResultsCache).getKey(any(), any());
+        doReturn(7L).when(searchResultsCache).getGeneration();
+        ctx.registerService(SearchResultsCache.class, searchResultsCache);
+
+        final Results results = activate().getResults(request, pagePredicate, query(3), Long.MAX_VALUE);
+
+        final ArgumentCaptor<CachedSearchResult> cachedSearchResult = ArgumentCaptor.forClass(CachedSearchResult.class);
+        verify(searchResultsCache).put(eq("key"), cachedSearchResult.capture(), eq(7L));
+        assertEquals(PATHS, cachedSearchResult.getValue().getHitPaths());
+        assertEquals(PATHS, getPaths(results));
+    }
+
+    @Test
+    public void getResults_ServesCachedHitsByKeyset() throws Exception {
+        // The cursor was issued for the first page, which ended on a, sharing its sort value with b and c.
+        ctx.request().setQueryString(KeysetCursor.REQUEST_PARAMETER + "="
+                + new KeysetCursor("@" + TITLE, Predicate.SORT_ASCENDING, "string", "A", Collections.singletonList(PATHS.get(0)), 1, 4).encode());
+        request = new ResourceResolverOverrideRequestWrapper(ctx.request(), resourceResolver);
+        doReturn(true).when(pagePredicate).isKeysetPagination();
+        doReturn(true).when(searchResultsCache).isEnabled();
+        doReturn("key").when(searchResultsCache).getKey(any(), any());
+        doReturn(CachedSearchResult.of(PATHS, 4, false, 0, 3, 1, null)).when(searchResultsCache).get("key");
+        ctx.registerService(SearchResultsCache.class, searchResultsCache);
+
+        final PredicateGroup root = query(2);
+        final Results results = activate().getResults(request, pagePredicate, root, Long.MAX_VALUE);
+
+        // The cache is keyed by the query with the cursor applied, and the tie already loaded is dropped from its hits.
+        assertEquals("rangeproperty", root.get(root.size() - 1).getType());
+        assertEquals(Arrays.asList(PATHS.get(1), PATHS.get(2)), getPaths(results));
+        assertEquals(3L, results.getRunningTotal());
+        assertNotNull(results.getNextCursor());
+        verify(queryBuilder, never()).createQuery(any(PredicateGroup.class), any(Session.class));
+        verify(searchResultsCache, never()).put(anyString(), any(), anyLong());
+    }
+
+    @Test
+    public void getResults_PrefetchesNextPage() throws Exception {
+        doReturn(true).when(searchPrefetcher).isEnabled();
+        ctx.registerService(SearchPrefetcher.class, searchPrefetcher);
+
+        final PredicateGroup root = query(3);
+        final Results results = activate().getResults(request, pagePredicate, root, Long.MAX_VALUE);
+
+        assertEquals(PATHS, getPaths(results));
+        verify(searchPrefetcher).prefetch(root, 3L, resourceResolver);
+    }
+
+    @Test
+    public void getResults_ServesPrefetchedPage() throws Exception {
+        doReturn(true).when(searchPrefetcher).isEnabled();
+        doReturn("key").when(searchPrefetcher).getKey(any(), any());
+        doReturn(CachedSearchResult.of(PATHS.subList(1, 3), 3, false, 1, 2, 1, null)).when(searchPrefetcher).take("key");
+        ctx.registerService(SearchPrefetcher.class, searchPrefetcher);
+
+        final Results results = activate().getResults(request, pagePredicate, query(2), Long.MAX_VALUE);
+
+        assertEquals(PATHS.subList(1, 3), getPaths(results));
+        verify(queryBuilder, never()).createQuery(any(PredicateGroup.class), any(Session.class));
+        // The prefetched page is the last page.
+        verify(searchPrefetcher, never()).prefetch(any(), anyLong(), any());
+    }
+
+    @Test
+    public void getResults_DoesNotPrefetchAfterPartialResults() throws Exception {
+        doAnswer(invocation -> {
+            queryLatch.await();
+            return query;
+        }).when(queryBuilder).createQuery(any(PredicateGroup.class), any());
+        doReturn(true).when(searchPrefetcher).isEnabled();
+        ctx.registerService(SearchPrefetcher.class, searchPrefetcher);
+
+        final PredicateGroup root = query(3);
+        final Results results = activate("time.budget.ms", 50L).getResults(request, pagePredicate, root, System.currentTimeMillis() + 50);
+
+        assertEquals(Results.Status.PARTIAL, results.getStatus());
+        assertTrue(results.getResults().isEmpty());
+        assertTrue(results.isMore());
+        verify(searchPrefetcher, never()).prefetch(any(), anyLong(), any());
+    }
+
+    @Test
+    public void getResults_BatchesComputedProperties() throws Exception {
+        ctx.registerService(ComputedProperties.class, computedProperties);
+
+        final Results results = activate("batch.computed.properties", new String[]{ "tagTitles" })
+                .getResults(request, pagePredicate, query(3), Long.MAX_VALUE);
+
+        assertEquals(PATHS, getPaths(results));
+        verify(computedProperty, times(1)).getAll(anyList(), eq(request), any());
+    }
+
+    @Test
+    public void getResults_LazyAdaptationDoesNotBatchComputedProperties() throws Exception {
+        ctx.registerService(ComputedProperties.class, computedProperties);
+
+        final Results results = activate("adaptation.lazy", true, "batch.computed.properties", new String[]{ "tagTitles" })
+                .getResults(request, pagePredicate, query(3), Long.MAX_VALUE);
+
+        // Hits are only adapted as they are iterated over.
+        assertEquals(3L, results.getSize());
+        verify(modelFactory, never()).getModelFromWrappedRequest(any(SlingHttpServletRequest.class), any(Resource.class), eq(AssetResult.class));
+
+        assertEquals(PATHS, getPaths(results));
+        verify(computedProperty, never()).getAll(anyList(), any(), any());
+    }
+
+    @Test
+    public void getResults_LazyAdaptationRequestedByRequest() throws Exception {
+        request.setAttribute(QuerySearchProviderImpl.REQUEST_ATTR_ADAPTATION_LAZY, true);
+
+        final Results results = activate().getResults(request, pagePredicate, query(3), Long.MAX_VALUE);
+
+        assertEquals(3L, results.getSize());
+        verify(modelFactory, never()).getModelFromWrappedRequest(any(SlingHttpServletRequest.class), any(Resource.class), eq(AssetResult.class));
+    }
+}
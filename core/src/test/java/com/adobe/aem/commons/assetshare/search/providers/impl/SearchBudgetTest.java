@@ -0,0 +1,184 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.adobe.aem.commons.assetshare.search.providers.impl;
+
+import com.adobe.aem.commons.assetshare.search.providers.impl.cache.CachedSearchResult;
+import com.day.cq.search.PredicateGroup;
+import com.day.cq.search.Query;
+import com.day.cq.search.QueryBuilder;
+import com.day.cq.search.result.Hit;
+import com.day.cq.search.result.SearchResult;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class SearchBudgetTest {
+
+    @Mock
+    QueryBuilder queryBuilder;
+
+    @Mock
+    Query query;
+
+    @Mock
+    SearchResult searchResult;
+
+    @Mock
+    Hit hit;
+
+    @Mock
+    Resource hitResource;
+
+    @Mock
+    ResourceResolver resourceResolver;
+
+    @Mock
+    ResourceResolver queryResourceResolver;
+
+    @Mock
+    ResourceResolver leakingResourceResolver;
+
+    private ExecutorService executorService;
+
+    @Before
+    public void setUp() throws Exception {
+        executorService = Executors.newSingleThreadExecutor();
+
+        lenient().doReturn(queryResourceResolver).when(resourceResolver).clone(null);
+        lenient().doReturn(query).when(queryBuilder).createQuery(any(PredicateGroup.class), any());
+        lenient().doReturn(Collections.singletonList(hit)).when(searchResult).getHits();
+        lenient().doReturn("/content/dam/a.png").when(hit).getPath();
+        lenient().doReturn(hitResource).when(hit).getResource();
+        lenient().doReturn(leakingResourceResolver).when(hitResource).getResourceResolver();
+    }
+
+    @After
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void execute() throws Exception {
+        doReturn(searchResult).when(query).getResult();
+
+        final SearchBudget searchBudget = new SearchBudget(queryBuilder, executorService, 5000);
+        final CachedSearchResult actual = searchBudget.execute(new PredicateGroup(), resourceResolver, null, null, false,
+                searchBudget.getDeadline(System.currentTimeMillis()));
+
+        assertNotNull(actual);
+        assertEquals(Collections.singletonList("/content/dam/a.png"), actual.getHitPaths());
+        verify(leakingResourceResolver).close();
+        verify(queryResourceResolver).close();
+    }
+
+    @Test
+    public void execute_OutOfTime() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+
+        doAnswer(invocation -> {
+            release.await();
+            return searchResult;
+        }).when(query).getResult();
+
+        final SearchBudget searchBudget = new SearchBudget(queryBuilder, executorService, 50);
+
+        assertNull(searchBudget.execute(new PredicateGroup(), resourceResolver, null, null, false,
+                searchBudget.getDeadline(System.currentTimeMillis())));
+
+        // The query is left to complete in the background, after which its resource resolver is closed.
+        verify(queryResourceResolver, never()).close();
+        release.countDown();
+        verify(queryResourceResolver, timeout(5000)).close();
+    }
+
+    @Test
+    public void execute_OutOfTimeWhileQueued() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+
+        // Occupies the only worker thread, so the search's query stays queued.
+        executorService.submit(() -> {
+            release.await();
+            return null;
+        });
+
+        final SearchBudget searchBudget = new SearchBudget(queryBuilder, executorService, 50);
+
+        assertNull(searchBudget.execute(new PredicateGroup(), resourceResolver, null, null, false,
+                searchBudget.getDeadline(System.currentTimeMillis())));
+
+        // The query never runs, so its resource resolver is closed on cancellation.
+        verify(queryResourceResolver).close();
+        release.countDown();
+        executorService.shutdown();
+        executorService.awaitTermination(5, TimeUnit.SECONDS);
+        verifyNoInteractions(queryBuilder);
+    }
+
+    @Test
+    public void execute_Saturated() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final ExecutorService saturatedExecutorService = new ThreadPoolExecutor(1, 1, 60L, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), new ThreadPoolExecutor.AbortPolicy());
+
+        try {
+            saturatedExecutorService.submit(() -> {
+                release.await();
+                return null;
+            });
+
+            final SearchBudget searchBudget = new SearchBudget(queryBuilder, saturatedExecutorService, 5000);
+
+            assertNull(searchBudget.execute(new PredicateGroup(), resourceResolver, null, null, false,
+                    searchBudget.getDeadline(System.currentTimeMillis())));
+
+            verify(queryResourceResolver).close();
+            verifyNoInteractions(queryBuilder);
+        } finally {
+            release.countDown();
+            saturatedExecutorService.shutdownNow();
+        }
+    }
+}
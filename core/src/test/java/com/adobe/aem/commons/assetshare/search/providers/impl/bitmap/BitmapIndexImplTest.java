@@ -0,0 +1,284 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.adobe.aem.commons.assetshare.search.providers.impl.bitmap;
+
+import com.day.cq.search.PredicateGroup;
+import com.google.common.collect.ImmutableMap;
+import io.wcm.testing.mock.aem.junit.AemContext;
+import org.apache.sling.api.resource.ModifiableValueMap;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.apache.sling.api.resource.observation.ResourceChange;
+import org.apache.sling.api.resource.observation.ResourceChange.ChangeType;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.osgi.framework.Constants;
+
+import javax.jcr.query.Query;
+import javax.management.NotCompliantMBeanException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.lenient;
+
+@RunWith(MockitoJUnitRunner.class)
+public class BitmapIndexImplTest {
+    private static final String FORMAT = "jcr:content/metadata/dc:format";
+
+    private static final Calendar LAST_MODIFIED = new GregorianCalendar(2024, Calendar.JANUARY, 15);
+
+    @Rule
+    public final AemContext ctx = new AemContext();
+
+    @Mock
+    ResourceResolverFactory resourceResolverFactory;
+
+    @Mock
+    ResourceResolver serviceResourceResolver;
+
+    private final List<String> assetPaths = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        createAsset("/content/dam/a/1.png", "image/png");
+        createAsset("/content/dam/a/2.jpg", "image/jpeg");
+        createAsset("/content/dam/b/3.png", "image/png");
+
+        // The service user's resource resolver; the mocked repository cannot execute queries, so the query for the assets of /content/dam returns the created assets.
+        lenient().doReturn(serviceResourceResolver).when(resourceResolverFactory).getServiceResourceResolver(any());
+        lenient().doAnswer(invocation -> ctx.resourceResolver().getResource((String) invocation.getArgument(0)))
+                .when(serviceResourceResolver).getResource(anyString());
+        lenient().doAnswer(invocation -> assetPaths.stream()
+                .map(path -> ctx.resourceResolver().getResource(path))
+                .filter(Objects::nonNull)
+                .collect(Collectors.<Resource>toList())
+                .iterator()).when(serviceResourceResolver).findResources(anyString(), eq(Query.JCR_SQL2));
+
+        ctx.registerService(ResourceResolverFactory.class, resourceResolverFactory, Constants.SERVICE_RANKING, Integer.MAX_VALUE);
+    }
+
+    private void createAsset(final String path, final String format) {
+        ctx.create().asset(path, 1, 1, format, ImmutableMap.of("dc:format", format));
+        setLastModified(path, LAST_MODIFIED);
+        assetPaths.add(path);
+    }
+
+    private void setLastModified(final String path, final Calendar lastModified) {
+        ctx.resourceResolver().getResource(path + "/jcr:content").adaptTo(ModifiableValueMap.class).put("jcr:lastModified", lastModified);
+    }
+
+    private void setFormat(final String path, final String format) {
+        ctx.resourceResolver().getResource(path + "/jcr:content/metadata").adaptTo(ModifiableValueMap.class).put("dc:format", format);
+    }
+
+    private File getSnapshotFile() {
+        return ctx.bundleContext().getDataFile("search-bitmap-index.ser.gz");
+    }
+
+    private BitmapIndexImpl activate(final Object... properties) throws NotCompliantMBeanException {
+        final List<Object> config = new ArrayList<>(Arrays.asList("enabled", true, "snapshot", false));
+        config.addAll(Arrays.asList(properties));
+
+        return ctx.registerInjectActivateService(new BitmapIndexImpl(), config.toArray());
+    }
+
+    private static PredicateGroup query(final String format) {
+        return PredicateGroup.create(ImmutableMap.of(
+                "path", "/content/dam",
+                "property", FORMAT,
+                "property.value", format));
+    }
+
+    private static void await(final BooleanSupplier condition) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 10000;
+
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Timed out waiting for the search bitmap index");
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void activate_Disabled() throws Exception {
+        final BitmapIndexImpl bitmapIndex = activate("enabled", false);
+
+        assertFalse(bitmapIndex.isReady());
+        assertNull(bitmapIndex.match(query("image/png")));
+    }
+
+    @Test
+    public void activate_BuildsIndex() throws Exception {
+        final BitmapIndexImpl bitmapIndex = activate();
+
+        await(bitmapIndex::isReady);
+
+        assertEquals(3, bitmapIndex.getAssetCount());
+        assertEquals(Arrays.asList("/content/dam/a/1.png", "/content/dam/b/3.png"), bitmapIndex.match(query("image/png")));
+        assertEquals(Collections.singletonList("/content/dam/a/2.jpg"), bitmapIndex.match(query("image/jpeg")));
+    }
+
+    @Test
+    public void match_Unsupported() throws Exception {
+        final BitmapIndexImpl bitmapIndex = activate();
+
+        await(bitmapIndex::isReady);
+
+        // The title is not an indexed property.
+        assertNull(bitmapIndex.match(PredicateGroup.create(ImmutableMap.of(
+                "path", "/content/dam",
+                "property", "jcr:content/metadata/dc:title",
+                "property.value", "Banana"))));
+        assertEquals(1, bitmapIndex.getUnsupportedCount());
+    }
+
+    @Test
+    public void onChange() throws Exception {
+        final BitmapIndexImpl bitmapIndex = activate();
+
+        await(bitmapIndex::isReady);
+
+        createAsset("/content/dam/a/4.png", "image/png");
+        setFormat("/content/dam/a/2.jpg", "image/png");
+        ctx.resourceResolver().delete(ctx.resourceResolver().getResource("/content/dam/b/3.png"));
+
+        bitmapIndex.onChange(Arrays.asList(
+                new ResourceChange(ChangeType.ADDED, "/content/dam/a/4.png", false),
+                new ResourceChange(ChangeType.CHANGED, "/content/dam/a/2.jpg/jcr:content/metadata", false),
+                new ResourceChange(ChangeType.REMOVED, "/content/dam/b/3.png", false),
+                // Outside of the indexed paths.
+                new ResourceChange(ChangeType.ADDED, "/content/other/5.png", false)));
+
+        await(() -> Arrays.asList("/content/dam/a/1.png", "/content/dam/a/2.jpg", "/content/dam/a/4.png").equals(bitmapIndex.match(query("image/png"))));
+        assertTrue(bitmapIndex.match(query("image/jpeg")).isEmpty());
+        assertEquals(3, bitmapIndex.getAssetCount());
+    }
+
+    @Test
+    public void onChange_Folder() throws Exception {
+        final BitmapIndexImpl bitmapIndex = activate();
+
+        await(bitmapIndex::isReady);
+
+        // Ie. a folder of assets was moved in.
+        createAsset("/content/dam/c/5.png", "image/png");
+        createAsset("/content/dam/c/d/6.png", "image/png");
+
+        bitmapIndex.onChange(Collections.singletonList(new ResourceChange(ChangeType.ADDED, "/content/dam/c", false)));
+
+        await(() -> bitmapIndex.getAssetCount() == 5);
+        assertEquals(Arrays.asList("/content/dam/a/1.png", "/content/dam/b/3.png", "/content/dam/c/5.png", "/content/dam/c/d/6.png"),
+                bitmapIndex.match(query("image/png")));
+    }
+
+    @Test
+    public void activate_ReconcilesSnapshot() throws Exception {
+        final BitmapIndexImpl snapshotIndex = activate("snapshot", true);
+        await(snapshotIndex::isReady);
+        snapshotIndex.deactivate();
+        assertTrue(getSnapshotFile().isFile());
+
+        // Changes made while the instance was stopped.
+        ctx.resourceResolver().delete(ctx.resourceResolver().getResource("/content/dam/b/3.png"));
+        createAsset("/content/dam/a/4.png", "image/png");
+        setFormat("/content/dam/a/2.jpg", "image/png");
+        setLastModified("/content/dam/a/2.jpg", Calendar.getInstance());
+        // Not reflected in jcr:lastModified.
+        setFormat("/content/dam/a/1.png", "image/gif");
+
+        final BitmapIndexImpl bitmapIndex = activate("snapshot", true);
+        await(bitmapIndex::isReady);
+
+        assertEquals(3, bitmapIndex.getAssetCount());
+        assertEquals(Arrays.asList("/content/dam/a/1.png", "/content/dam/a/2.jpg", "/content/dam/a/4.png"), bitmapIndex.match(query("image/png")));
+
+        // Only a rebuild reads the unchanged assets' properties.
+        bitmapIndex.rebuild();
+        await(() -> Arrays.asList("/content/dam/a/2.jpg", "/content/dam/a/4.png").equals(bitmapIndex.match(query("image/png"))));
+        assertEquals(Collections.singletonList("/content/dam/a/1.png"), bitmapIndex.match(query("image/gif")));
+    }
+
+    @Test
+    public void activate_IgnoresSnapshotOfOtherConfiguration() throws Exception {
+        final BitmapIndexImpl snapshotIndex = activate("snapshot", true);
+        await(snapshotIndex::isReady);
+        snapshotIndex.deactivate();
+
+        setFormat("/content/dam/a/1.png", "image/gif");
+
+        final BitmapIndexImpl bitmapIndex = activate("snapshot", true, "properties", new String[]{ FORMAT });
+        await(bitmapIndex::isReady);
+
+        // The index is built, rather than the snapshot reconciled.
+        assertEquals(Collections.singletonList("/content/dam/a/1.png"), bitmapIndex.match(query("image/gif")));
+    }
+
+    @Test
+    public void activate_RejectsSnapshotOfUnexpectedClasses() throws Exception {
+        // Only the classes Bitmaps is composed of may be read from a snapshot.
+        try (ObjectOutputStream out = new ObjectOutputStream(new GZIPOutputStream(new FileOutputStream(getSnapshotFile())))) {
+            out.writeObject(new HashMap<>(Collections.singletonMap("value", new AtomicLong(1))));
+        }
+
+        final BitmapIndexImpl bitmapIndex = activate("snapshot", true);
+        await(bitmapIndex::isReady);
+
+        assertEquals(Arrays.asList("/content/dam/a/1.png", "/content/dam/b/3.png"), bitmapIndex.match(query("image/png")));
+
+        // The rejected snapshot is replaced with one of the built index.
+        bitmapIndex.deactivate();
+        setFormat("/content/dam/a/1.png", "image/gif");
+
+        final BitmapIndexImpl reloadedIndex = activate("snapshot", true);
+        await(reloadedIndex::isReady);
+
+        assertEquals(Arrays.asList("/content/dam/a/1.png", "/content/dam/b/3.png"), reloadedIndex.match(query("image/png")));
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.adobe.aem.commons.assetshare.search.providers.impl.bitmap;
+
+import com.day.cq.search.PredicateGroup;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.time.OffsetDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class BitmapQueryTest {
+    private static final String FORMAT = "jcr:content/metadata/dc:format";
+    private static final String TAGS = "jcr:content/metadata/cq:tags";
+    private static final String TITLE = "jcr:content/metadata/dc:title";
+    private static final String DESCRIPTION = "jcr:content/metadata/dc:description";
+    private static final String MODIFIED = "jcr:content/jcr:lastModified";
+
+    private Bitmaps bitmaps;
+
+    @Before
+    public void setUp() {
+        bitmaps = new Bitmaps(ImmutableSet.of("/content/dam"), ImmutableSet.of(FORMAT, TAGS), ImmutableSet.of(TITLE, MODIFIED),
+                ImmutableMap.of(TITLE, 2f, DESCRIPTION, 1f));
+
+        put("/content/dam/a/1.png", "image/png", new String[]{ "brand:red", "region:emea" }, "Banana", "A ripe banana", "2024-01-15T10:00:00Z");
+        put("/content/dam/a/2.jpg", "image/jpeg", new String[]{ "brand:red" }, "apple", "An apple and a banana", "2024-02-15T10:00:00Z");
+        put("/content/dam/b/3.png", "image/png", new String[]{ "region:emea" }, "Cherry", "Bananas are not cherries", "2024-03-15T10:00:00Z");
+        put("/content/dam/b/4.pdf", "application/pdf", new String[0], null, null, null);
+    }
+
+    private void put(final String path, final String format, final String[] tags, final String title, final String description, final String modified) {
+        final Map<String, String[]> values = new HashMap<>();
+        values.put(FORMAT, new String[]{ format });
+        values.put(TAGS, tags);
+
+        final Map<String, Comparable<?>> sorts = new HashMap<>();
+        sorts.put(TITLE, title);
+        sorts.put(MODIFIED, modified == null ? null : OffsetDateTime.parse(modified).toInstant().toEpochMilli());
+
+        final Map<String, String[]> texts = new HashMap<>();
+        texts.put(TITLE, title == null ? null : new String[]{ title });
+        texts.put(DESCRIPTION, description == null ? null : new String[]{ description });
+
+        bitmaps.put(path, values, sorts, texts);
+    }
+
+    private static PredicateGroup query(final String... keyValues) {
+        final ImmutableMap.Builder<String, String> params = ImmutableMap.builder();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            params.put(keyValues[i], keyValues[i + 1]);
+        }
+        return PredicateGroup.create(params.build());
+    }
+
+    @Test
+    public void match_PropertyValues() {
+        assertEquals(Arrays.asList("/content/dam/a/1.png", "/content/dam/b/3.png"), BitmapQuery.match(bitmaps, query(
+                "type", "dam:Asset",
+                "path", "/content/dam",
+                "1_group.propertyvalues.property", "./" + FORMAT,
+                "1_group.propertyvalues.1_values", "image/png")));
+
+        // OR across values, AND across predicates.
+        assertEquals(Arrays.asList("/content/dam/a/1.png", "/content/dam/a/2.jpg"), BitmapQuery.match(bitmaps, query(
+                "path", "/content/dam/a",
+                "1_group.propertyvalues.property", FORMAT,
+                "1_group.propertyvalues.values", "image/png,image/jpeg",
+                "2_group.property", TAGS,
+                "2_group.property.1_value", "brand:red")));
+
+        assertEquals(Collections.singletonList("/content/dam/a/1.png"), BitmapQuery.match(bitmaps, query(
+                "path", "/content/dam",
+                "property", TAGS,
+                "property.and", "true",
+                "property.1_value", "brand:red",
+                "property.2_value", "region:emea")));
+    }
+
+    @Test
+    public void match_Groups() {
+        assertEquals(Arrays.asList("/content/dam/a/2.jpg", "/content/dam/b/3.png", "/content/dam/b/4.pdf"), BitmapQuery.match(bitmaps, query(
+                "path", "/content/dam",
+                "group.p.or", "true",
+                "group.1_property", FORMAT,
+                "group.1_property.value", "image/jpeg",
+                "group.2_group.p.not", "true",
+                "group.2_group.path", "/content/dam/a")));
+    }
+
+    @Test
+    public void match_OrderBy() {
+        // Missing values sort last in either direction.
+        assertEquals(Arrays.asList("/content/dam/a/2.jpg", "/content/dam/a/1.png", "/content/dam/b/3.png", "/content/dam/b/4.pdf"), BitmapQuery.match(bitmaps, query(
+                "path", "/content/dam",
+                "orderby", "@" + TITLE,
+                "orderby.case", "ignore")));
+
+        assertEquals(Arrays.asList("/content/dam/b/3.png", "/content/dam/a/1.png", "/content/dam/a/2.jpg", "/content/dam/b/4.pdf"), BitmapQuery.match(bitmaps, query(
+                "path", "/content/dam",
+                "orderby", "@" + TITLE,
+                "orderby.sort", "desc",
+                "orderby.case", "ignore")));
+    }
+
+    @Test
+    public void match_Fulltext() {
+        // Title matches are boosted above description matches.
+        assertEquals(Arrays.asList("/content/dam/a/1.png", "/content/dam/a/2.jpg"), BitmapQuery.match(bitmaps, query(
+                "path", "/content/dam",
+                "fulltext", "Banana",
+                "orderby", "@jcr:score",
+                "orderby.sort", "desc")));
+
+        assertEquals(Arrays.asList("/content/dam/a/1.png", "/content/dam/a/2.jpg", "/content/dam/b/3.png"), BitmapQuery.match(bitmaps, query(
+                "path", "/content/dam",
+                "fulltext", "banan*")));
+
+        // Equally relevant matches are in index order.
+        assertEquals(Arrays.asList("/content/dam/a/2.jpg", "/content/dam/b/3.png"), BitmapQuery.match(bitmaps, query(
+                "path", "/content/dam",
+                "fulltext", "cherry OR apple")));
+
+        assertEquals(Collections.singletonList("/content/dam/a/2.jpg"), BitmapQuery.match(bitmaps, query(
+                "path", "/content/dam",
+                "fulltext", "banana -ripe")));
+    }
+
+    @Test
+    public void match_DateRange() {
+        assertEquals(Arrays.asList("/content/dam/b/3.png", "/content/dam/a/2.jpg"), BitmapQuery.match(bitmaps, query(
+                "path", "/content/dam",
+                "daterange.property", "./" + MODIFIED,
+                "daterange.lowerBound", "2024-02-15T10:00:00.000Z",
+                "daterange.lowerOperation", ">=",
+                "orderby", "@" + MODIFIED,
+                "orderby.sort", "desc")));
+
+        assertEquals(Collections.singletonList("/content/dam/a/1.png"), BitmapQuery.match(bitmaps, query(
+                "path", "/content/dam",
+                "daterange.property", MODIFIED,
+                "daterange.upperBound", "2024-02-15T10:00:00.000Z")));
+    }
+
+    @Test
+    public void snapshot() throws Exception {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(bitmaps);
+        }
+
+        final Bitmaps read;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            read = (Bitmaps) in.readObject();
+        }
+
+        assertTrue(bitmaps.hasSameLayout(read));
+        assertEquals(BitmapQuery.match(bitmaps, query("path", "/content/dam", "fulltext", "banana")),
+                BitmapQuery.match(read, query("path", "/content/dam", "fulltext", "banana")));
+    }
+
+    @Test
+    public void match_Unsupported() {
+        assertNull(BitmapQuery.match(bitmaps, query("path", "/content/dam", "fulltext", "\"ripe banana\"")));
+        assertNull(BitmapQuery.match(bitmaps, query("path", "/content/dam", "fulltext", "ba*na")));
+        assertNull(BitmapQuery.match(bitmaps, query("path", "/content/dam", "daterange.property", MODIFIED, "daterange.lowerBound", "-1d")));
+        assertNull(BitmapQuery.match(bitmaps, query("path", "/content/dam", "property", "jcr:content/metadata/dc:creator", "property.value", "me")));
+        assertNull(BitmapQuery.match(bitmaps, query("path", "/content/dam", "property", FORMAT, "property.operation", "like", "property.value", "image/%")));
+        assertNull(BitmapQuery.match(bitmaps, query("path", "/content/dam", "orderby", "@jcr:content/metadata/dc:creator")));
+        assertNull(BitmapQuery.match(bitmaps, query("path", "/content/other")));
+        assertNull(BitmapQuery.match(bitmaps, query("type", "cq:Page")));
+    }
+
+    @Test
+    public void remove() {
+        assertEquals(2, bitmaps.remove("/content/dam/a"));
+        assertEquals(2, bitmaps.size());
+
+        assertEquals(Collections.singletonList("/content/dam/b/3.png"), BitmapQuery.match(bitmaps, query(
+                "path", "/content/dam",
+                "property", TAGS,
+                "property.value", "region:emea")));
+
+        // Ordinals of removed assets are re-used.
+        put("/content/dam/c/5.png", "image/png", new String[0], "Date", null, null);
+
+        assertEquals(Arrays.asList("/content/dam/c/5.png", "/content/dam/b/3.png"), BitmapQuery.match(bitmaps, query(
+                "path", "/content/dam",
+                "property", FORMAT,
+                "property.value", "image/png")));
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.adobe.aem.commons.assetshare.search.providers.impl.cache;
+
+import com.day.cq.search.result.SearchResult;
+import io.wcm.testing.mock.aem.junit.AemContext;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(MockitoJUnitRunner.class)
+public class SearchCoalescerImplTest {
+
+    @Rule
+    public AemContext ctx = new AemContext();
+
+    @Mock
+    SearchResult searchResult;
+
+    @Test
+    public void join() throws Exception {
+        final SearchCoalescerImpl coalescer = (SearchCoalescerImpl) ctx.registerInjectActivateService(new SearchCoalescerImpl(), "enabled", true);
+        final CachedSearchResult expected = new CachedSearchResult(Collections.singletonList("/content/dam/a.png"), searchResult);
+
+        final SearchFlight leader = coalescer.join("key");
+        final SearchFlight follower = coalescer.join("key");
+
+        assertTrue(leader.isLeader());
+        assertFalse(follower.isLeader());
+        assertEquals(1L, coalescer.getInFlightCount());
+
+        final ExecutorService executorService = Executors.newSingleThreadExecutor();
+        final CountDownLatch started = new CountDownLatch(1);
+
+        try {
+            final Future<CachedSearchResult> actual = executorService.submit(() -> {
+                started.countDown();
+                return follower.await();
+            });
+
+            started.await(1, TimeUnit.SECONDS);
+            leader.complete(expected);
+
+            assertSame(expected, actual.get(1, TimeUnit.SECONDS));
+        } finally {
+            executorService.shutdownNow();
+        }
+
+        assertEquals(0L, coalescer.getInFlightCount());
+        assertEquals(1L, coalescer.getLeaderCount());
+        assertEquals(1L, coalescer.getCoalescedCount());
+
+        // Once completed, the next identical search executes the query again.
+        assertTrue(coalescer.join("key").isLeader());
+    }
+
+    @Test
+    public void await_TimesOut() throws Exception {
+        final SearchCoalescerImpl coalescer = (SearchCoalescerImpl) ctx.registerInjectActivateService(new SearchCoalescerImpl(), "enabled", true, "max.wait.ms", 10L);
+
+        coalescer.join("key");
+
+        assertNull(coalescer.join("key").await());
+        assertEquals(1L, coalescer.getTimeoutCount());
+        assertEquals(0L, coalescer.getCoalescedCount());
+    }
+
+    @Test
+    public void await_LeaderFailed() throws Exception {
+        final SearchCoalescerImpl coalescer = (SearchCoalescerImpl) ctx.registerInjectActivateService(new SearchCoalescerImpl(), "enabled", true);
+
+        final SearchFlight leader = coalescer.join("key");
+        final SearchFlight follower = coalescer.join("key");
+
+        leader.complete(null);
+
+        assertNull(follower.await());
+        assertEquals(1L, coalescer.getFailureCount());
+        assertEquals(0L, coalescer.getInFlightCount());
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.adobe.aem.commons.assetshare.search.providers.impl.cache;
+
+import com.day.cq.search.PredicateGroup;
+import com.day.cq.search.Query;
+import com.day.cq.search.QueryBuilder;
+import com.day.cq.search.result.Hit;
+import com.day.cq.search.result.SearchResult;
+import com.google.common.collect.ImmutableMap;
+import io.wcm.testing.mock.aem.junit.AemContext;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import javax.jcr.Session;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class SearchPrefetcherImplTest {
+
+    @Rule
+    public AemContext ctx = new AemContext();
+
+    @Mock
+    QueryBuilder queryBuilder;
+
+    @Mock
+    Query query;
+
+    @Mock
+    SearchResult searchResult;
+
+    @Mock
+    Hit hit;
+
+    @Mock
+    Resource hitResource;
+
+    @Mock
+    ResourceResolver resourceResolver;
+
+    @Mock
+    ResourceResolver prefetchResourceResolver;
+
+    @Mock
+    ResourceResolver leakingResourceResolver;
+
+    @Before
+    public void setUp() throws Exception {
+        ctx.registerService(QueryBuilder.class, queryBuilder);
+
+        lenient().doReturn("alice").when(resourceResolver).getUserID();
+        lenient().doReturn(prefetchResourceResolver).when(resourceResolver).clone(null);
+        lenient().doReturn(query).when(queryBuilder).createQuery(any(PredicateGroup.class), any());
+        lenient().doReturn(searchResult).when(query).getResult();
+        lenient().doReturn(Collections.singletonList(hit)).when(searchResult).getHits();
+        lenient().doReturn("/content/dam/b.png").when(hit).getPath();
+        lenient().doReturn(hitResource).when(hit).getResource();
+        lenient().doReturn(leakingResourceResolver).when(hitResource).getResourceResolver();
+    }
+
+    @Test
+    public void prefetch() throws Exception {
+        final SearchPrefetcher prefetcher = ctx.registerInjectActivateService(new SearchPrefetcherImpl(), "enabled", true);
+
+        final PredicateGroup page = PredicateGroup.create(ImmutableMap.of("fulltext", "cats", "p.offset", "0", "p.limit", "24"));
+        final PredicateGroup nextPage = PredicateGroup.create(ImmutableMap.of("fulltext", "cats", "p.offset", "24", "p.limit", "24"));
+
+        prefetcher.prefetch(page, 24, resourceResolver);
+
+        verify(prefetchResourceResolver, timeout(5000)).close();
+        verify(leakingResourceResolver).close();
+
+        // The page that was served is not modified.
+        assertEquals("0", page.get("offset"));
+
+        assertNull(prefetcher.take(prefetcher.getKey(page, resourceResolver)));
+
+        final CachedSearchResult actual = prefetcher.take(prefetcher.getKey(nextPage, resourceResolver));
+        assertNotNull(actual);
+        assertEquals(Collections.singletonList("/content/dam/b.png"), actual.getHitPaths());
+
+        // Prefetched pages are only served once.
+        assertNull(prefetcher.take(prefetcher.getKey(nextPage, resourceResolver)));
+    }
+
+    @Test
+    public void isEnabled() throws Exception {
+        final SearchPrefetcher prefetcher = ctx.registerInjectActivateService(new SearchPrefetcherImpl(), "enabled", false);
+
+        assertFalse(prefetcher.isEnabled());
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.adobe.aem.commons.assetshare.search.providers.impl.cache;
+
+import com.day.cq.search.PredicateGroup;
+import com.day.cq.search.result.SearchResult;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.wcm.testing.mock.aem.junit.AemContext;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import javax.jcr.Session;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class SearchResultsCacheImplTest {
+
+    @Rule
+    public AemContext ctx = new AemContext();
+
+    @Mock
+    SearchResult searchResult;
+
+    @Before
+    public void setUp() {
+        lenient().doReturn(2L).when(searchResult).getTotalMatches();
+        lenient().doReturn(10L).when(searchResult).getHitsPerPage();
+    }
+
+    @Test
+    public void getKey_IgnoresGroupIdsAndParameterOrder() throws Exception {
+        final SearchResultsCache cache = ctx.registerInjectActivateService(new SearchResultsCacheImpl(), "enabled", true);
+
+        final PredicateGroup first = PredicateGroup.create(ImmutableMap.<String, String>builder()
+                .put("1_group.propertyvalues.property", "./jcr:content/metadata/dc:format")
+                .put("1_group.propertyvalues.1_values", "image/png")
+                .put("2_group.fulltext", "cats")
+                .put("p.limit", "24")
+                .build());
+
+        final PredicateGroup second = PredicateGroup.create(ImmutableMap.<String, String>builder()
+                .put("p.limit", "24")
+                .put("4_group.fulltext", "cats")
+                .put("7_group.propertyvalues.1_values", "image/png")
+                .put("7_group.propertyvalues.property", "./jcr:content/metadata/dc:format")
+                .build());
+
+        final PredicateGroup third = PredicateGroup.create(ImmutableMap.<String, String>builder()
+                .put("p.limit", "48")
+                .put("4_group.fulltext", "cats")
+                .put("7_group.propertyvalues.1_values", "image/png")
+                .put("7_group.propertyvalues.property", "./jcr:content/metadata/dc:format")
+                .build());
+
+        assertEquals(cache.getKey(first, ctx.resourceResolver()), cache.getKey(second, ctx.resourceResolver()));
+        assertNotEquals(cache.getKey(first, ctx.resourceResolver()), cache.getKey(third, ctx.resourceResolver()));
+    }
+
+    @Test
+    public void getKey_RoundsAbsoluteDates() throws Exception {
+        final SearchResultsCache cache = ctx.registerInjectActivateService(new SearchResultsCacheImpl(),
+                "enabled", true,
+                "date.rounding.seconds", 60L);
+
+        final PredicateGroup first = PredicateGroup.create(ImmutableMap.of(
+                "daterange.property", "jcr:content/metadata/prism:expirationDate",
+                "daterange.lowerBound", "2024-01-01T10:00:05.000Z"));
+
+        final PredicateGroup second = PredicateGroup.create(ImmutableMap.of(
+                "daterange.property", "jcr:content/metadata/prism:expirationDate",
+                "daterange.lowerBound", "2024-01-01T10:00:55.000Z"));
+
+        assertEquals(cache.getKey(first, ctx.resourceResolver()), cache.getKey(second, ctx.resourceResolver()));
+    }
+
+    @Test
+    public void get() throws Exception {
+        final SearchResultsCacheImpl cache = ctx.registerInjectActivateService(new SearchResultsCacheImpl(), "enabled", true);
+
+        cache.put("key", new CachedSearchResult(ImmutableList.of("/content/dam/a.png", "/content/dam/b.png"), searchResult), cache.getGeneration());
+
+        final CachedSearchResult actual = cache.get("key");
+
+        assertNotNull(actual);
+        assertEquals(ImmutableList.of("/content/dam/a.png", "/content/dam/b.png"), actual.getHitPaths());
+        assertEquals(2L, actual.getTotalMatches());
+        assertNull(cache.get("missing"));
+
+        assertEquals(1L, cache.getHitCount());
+        assertEquals(1L, cache.getMissCount());
+    }
+
+    @Test
+    public void put_EvictsLeastRecentlyUsed() throws Exception {
+        final SearchResultsCacheImpl cache = ctx.registerInjectActivateService(new SearchResultsCacheImpl(),
+                "enabled", true,
+                "max.entries", 2);
+
+        cache.put("one", new CachedSearchResult(Collections.emptyList(), searchResult), cache.getGeneration());
+        cache.put("two", new CachedSearchResult(Collections.emptyList(), searchResult), cache.getGeneration());
+        // Touch one, so two becomes the least recently used
+        cache.get("one");
+        cache.put("three", new CachedSearchResult(Collections.emptyList(), searchResult), cache.getGeneration());
+
+        assertNotNull(cache.get("one"));
+        assertNull(cache.get("two"));
+        assertNotNull(cache.get("three"));
+        assertEquals(2L, cache.getSize());
+        assertEquals(1L, cache.getEvictionCount());
+    }
+
+    @Test
+    public void get_Expired() throws Exception {
+        final SearchResultsCacheImpl cache = ctx.registerInjectActivateService(new SearchResultsCacheImpl(),
+                "enabled", true,
+                "ttl.seconds", 0L);
+
+        cache.put("key", new CachedSearchResult(Collections.emptyList(), searchResult), cache.getGeneration());
+
+        assertNull(cache.get("key"));
+        assertEquals(1L, cache.getExpirationCount());
+    }
+
+    @Test
+    public void onChange() throws Exception {
+        final SearchResultsCacheImpl cache = ctx.registerInjectActivateService(new SearchResultsCacheImpl(), "enabled", true);
+
+        cache.put("key", new CachedSearchResult(Collections.emptyList(), searchResult), cache.getGeneration());
+        cache.onChange(Collections.emptyList());
+
+        assertNull(cache.get("key"));
+        assertEquals(1L, cache.getInvalidationCount());
+    }
+
+    @Test
+    public void put_InvalidatedWhileSearching() throws Exception {
+        final SearchResultsCacheImpl cache = ctx.registerInjectActivateService(new SearchResultsCacheImpl(), "enabled", true);
+
+        // The search starts, and the asset tree changes before it completes.
+        final long generation = cache.getGeneration();
+        cache.onChange(Collections.emptyList());
+        cache.put("key", new CachedSearchResult(Collections.emptyList(), searchResult), generation);
+
+        assertNull(cache.get("key"));
+        assertEquals(0L, cache.getSize());
+    }
+
+    @Test
+    public void getKey_ComputesPrincipalsOncePerResourceResolver() throws Exception {
+        final SearchResultsCache cache = ctx.registerInjectActivateService(new SearchResultsCacheImpl(), "enabled", true);
+        final ResourceResolver resourceResolver = mock(ResourceResolver.class);
+        final PredicateGroup predicateGroup = PredicateGroup.create(ImmutableMap.of("fulltext", "cats"));
+
+        doReturn("alice").when(resourceResolver).getUserID();
+
+        assertEquals(cache.getKey(predicateGroup, resourceResolver), cache.getKey(predicateGroup, resourceResolver));
+        verify(resourceResolver, times(1)).adaptTo(Session.class);
+    }
+
+    @Test
+    public void toSearchResult() throws Exception {
+        ctx.create().resource("/content/dam/a.png");
+
+        final CachedSearchResult cachedSearchResult = new CachedSearchResult(ImmutableList.of("/content/dam/a.png", "/content/dam/b.png"), searchResult);
+        final SearchResult actual = cachedSearchResult.toSearchResult(ctx.resourceResolver());
+
+        assertEquals(2, actual.getHits().size());
+        assertEquals("/content/dam/a.png", actual.getHits().get(0).getResource().getPath());
+        assertNull(actual.getNextPage());
+    }
+}
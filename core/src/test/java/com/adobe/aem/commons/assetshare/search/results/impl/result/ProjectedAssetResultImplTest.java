@@ -0,0 +1,94 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.adobe.aem.commons.assetshare.search.results.impl.result;
+
+import com.adobe.aem.commons.assetshare.search.results.AssetResult;
+import com.google.common.collect.ImmutableMap;
+import org.apache.sling.api.resource.ValueMap;
+import org.apache.sling.api.wrappers.ValueMapDecorator;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+public class ProjectedAssetResultImplTest {
+    private final AtomicInteger adaptations = new AtomicInteger();
+
+    private ProjectedAssetResultImpl projectedAssetResult(final AssetResult assetResult) {
+        return new ProjectedAssetResultImpl("/content/dam/folder/test asset.png",
+                ImmutableMap.of("title", "Projected title", "dam:size", 100L),
+                path -> {
+                    adaptations.incrementAndGet();
+                    return assetResult;
+                });
+    }
+
+    @Test
+    public void getProperties_Projected() {
+        final ProjectedAssetResultImpl result = projectedAssetResult(mock(AssetResult.class));
+
+        assertEquals("Projected title", result.getTitle());
+        assertEquals(Long.valueOf(100L), result.getProperties().get("dam:size", Long.class));
+        assertEquals("100", result.getProperties().get("dam:size", String.class));
+        assertEquals("/content/dam/folder/test asset.png", result.getPath());
+        assertEquals("test asset.png", result.getName());
+        assertEquals(AssetResult.TYPE, result.getType());
+
+        assertFalse(result.isAdapted());
+        assertEquals(0, adaptations.get());
+    }
+
+    @Test
+    public void getProperties_FallsBackOnce() {
+        final AssetResult assetResult = mock(AssetResult.class);
+        final ValueMap properties = new ValueMapDecorator(ImmutableMap.of("fileSize", "100 B", "title", "Adapted title"));
+        doReturn(properties).when(assetResult).getProperties();
+
+        final ProjectedAssetResultImpl result = projectedAssetResult(assetResult);
+
+        assertEquals("100 B", result.getProperties().get("fileSize", String.class));
+        assertTrue(result.getProperties().containsKey("fileSize"));
+        assertNull(result.getProperties().get("missing"));
+
+        // Projected values take precedence.
+        assertEquals("Projected title", result.getTitle());
+
+        assertTrue(result.isAdapted());
+        assertEquals(1, adaptations.get());
+    }
+
+    @Test
+    public void getProperties_NotAdaptable() {
+        final ProjectedAssetResultImpl result = projectedAssetResult(null);
+
+        assertNull(result.getProperties().get("fileSize"));
+        assertNull(result.getResource());
+        assertTrue(result.getRenditions().isEmpty());
+        assertEquals("Projected title", result.getTitle());
+        assertEquals(1, adaptations.get());
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.adobe.aem.commons.assetshare.search.results.impl.results;
+
+import com.adobe.aem.commons.assetshare.search.results.Result;
+import com.adobe.aem.commons.assetshare.search.results.Results;
+import com.day.cq.search.result.Hit;
+import com.day.cq.search.result.SearchResult;
+import com.google.common.collect.ImmutableList;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+@RunWith(MockitoJUnitRunner.class)
+public class LazyQueryBuilderResultsImplTest {
+    private static final List<String> HIT_PATHS = ImmutableList.of("/content/dam/a.png", "/content/dam/missing.png", "/content/dam/c.png");
+
+    @Mock
+    SearchResult searchResult;
+
+    final AtomicInteger adaptations = new AtomicInteger();
+
+    final Function<String, Result> adapter = hitPath -> {
+        adaptations.incrementAndGet();
+
+        if (hitPath.contains("missing")) {
+            return null;
+        }
+
+        final Result result = mock(Result.class);
+        doReturn(hitPath).when(result).getPath();
+        return result;
+    };
+
+    @Before
+    public void setUp() {
+        final List<Hit> hits = new ArrayList<>();
+        HIT_PATHS.forEach(hitPath -> hits.add(mock(Hit.class)));
+
+        doReturn(100L).when(searchResult).getTotalMatches();
+        doReturn(0L).when(searchResult).getStartIndex();
+        doReturn(hits).when(searchResult).getHits();
+    }
+
+    @Test
+    public void getTotals_DoNotAdapt() {
+        final Results results = new LazyQueryBuilderResultsImpl(HIT_PATHS, adapter, searchResult);
+
+        assertEquals(100L, results.getTotal());
+        assertEquals(3L, results.getRunningTotal());
+        assertEquals(0, adaptations.get());
+    }
+
+    @Test
+    public void getSize_DoesNotAdapt() {
+        final Results results = new LazyQueryBuilderResultsImpl(HIT_PATHS, adapter, searchResult);
+
+        // The number of hits, including the hit that cannot be adapted.
+        assertEquals(3L, results.getSize());
+        assertEquals(3, results.getResults().size());
+        assertEquals(0, adaptations.get());
+
+        assertEquals("/content/dam/a.png", results.getResults().iterator().next().getPath());
+        assertTrue(adaptations.get() <= 1);
+    }
+
+    @Test
+    public void get_AdaptsAllHits() {
+        final Results results = new LazyQueryBuilderResultsImpl(HIT_PATHS, adapter, searchResult);
+
+        assertEquals("/content/dam/c.png", results.getResults().get(1).getPath());
+        assertEquals(2, results.getResults().size());
+        assertEquals(3, adaptations.get());
+
+        final List<String> actual = new ArrayList<>();
+        for (final Result result : results.getResults()) {
+            actual.add(result.getPath());
+        }
+
+        // Once adapted, the results are iterated over without being adapted again.
+        assertEquals(ImmutableList.of("/content/dam/a.png", "/content/dam/c.png"), actual);
+        assertEquals(3, adaptations.get());
+    }
+
+    @Test
+    public void getResults_AdaptsOnIteration() {
+        final Results results = new LazyQueryBuilderResultsImpl(HIT_PATHS, adapter, searchResult);
+
+        final List<String> actual = new ArrayList<>();
+        for (final Result result : results.getResults()) {
+            actual.add(result.getPath());
+            assertEquals(actual.size() == 1 ? 1 : 3, adaptations.get());
+        }
+
+        assertEquals(ImmutableList.of("/content/dam/a.png", "/content/dam/c.png"), actual);
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.adobe.aem.commons.assetshare.util.impl;
+
+import io.wcm.testing.mock.aem.junit.AemContext;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class RequestScopedResourceResolversFilterTest {
+
+    @Rule
+    public final AemContext ctx = new AemContext();
+
+    @Mock
+    ResourceResolver resourceResolver;
+
+    @Mock
+    ResourceResolver closedResourceResolver;
+
+    @Test
+    public void doFilter() throws Exception {
+        final FilterChain chain = mock(FilterChain.class);
+
+        doReturn(true).when(resourceResolver).isLive();
+        doReturn(false).when(closedResourceResolver).isLive();
+
+        doAnswer(invocation -> {
+            assertTrue(RequestScopedResourceResolversFilter.isActive(ctx.request()));
+            RequestScopedResourceResolversFilter.register(ctx.request(), resourceResolver);
+            RequestScopedResourceResolversFilter.register(ctx.request(), closedResourceResolver);
+            verify(resourceResolver, never()).close();
+            return null;
+        }).when(chain).doFilter(any(), any());
+
+        new RequestScopedResourceResolversFilter().doFilter(ctx.request(), ctx.response(), chain);
+
+        verify(resourceResolver).close();
+        verify(closedResourceResolver, never()).close();
+        assertFalse(RequestScopedResourceResolversFilter.isActive(ctx.request()));
+    }
+
+    @Test
+    public void doFilter_ChainFails() throws Exception {
+        final FilterChain chain = mock(FilterChain.class);
+
+        doReturn(true).when(resourceResolver).isLive();
+
+        doAnswer(invocation -> {
+            RequestScopedResourceResolversFilter.register(ctx.request(), resourceResolver);
+            throw new ServletException("Rendering failed");
+        }).when(chain).doFilter(any(), any());
+
+        try {
+            new RequestScopedResourceResolversFilter().doFilter(ctx.request(), ctx.response(), chain);
+            fail("The chain's exception must be rethrown");
+        } catch (ServletException e) {
+            verify(resourceResolver).close();
+        }
+    }
+
+    @Test
+    public void doFilter_Nested() throws Exception {
+        final RequestScopedResourceResolversFilter filter = new RequestScopedResourceResolversFilter();
+        final FilterChain innerChain = mock(FilterChain.class);
+        final FilterChain outerChain = mock(FilterChain.class);
+
+        doReturn(true).when(resourceResolver).isLive();
+
+        doAnswer(invocation -> {
+            RequestScopedResourceResolversFilter.register(ctx.request(), resourceResolver);
+            return null;
+        }).when(innerChain).doFilter(any(), any());
+
+        doAnswer(invocation -> {
+            filter.doFilter(ctx.request(), ctx.response(), innerChain);
+            // Models created within the inner invocation may be used until the outer invocation completes.
+            verify(resourceResolver, never()).close();
+            return null;
+        }).when(outerChain).doFilter(any(), any());
+
+        filter.doFilter(ctx.request(), ctx.response(), outerChain);
+
+        verify(resourceResolver).close();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void register_NotActive() {
+        assertFalse(RequestScopedResourceResolversFilter.isActive(ctx.request()));
+        RequestScopedResourceResolversFilter.register(ctx.request(), resourceResolver);
+    }
+}
@@ -1,7 +1,9 @@
 package com.adobe.aem.commons.assetshare.util.impl;
 
 import com.adobe.aem.commons.assetshare.util.ServletHelper;
+import com.day.cq.wcm.api.Page;
 import io.wcm.testing.mock.aem.junit.AemContext;
+import org.apache.sling.api.resource.ValueMap;
 import org.apache.sling.api.scripting.SlingBindings;
 import org.junit.Before;
 import org.junit.Rule;
@@ -35,4 +37,20 @@ public class ServletHelperImplTest {
         assertEquals(ctx.response(), actual.getResponse());
         assertEquals(ctx.currentResource(), actual.getResource());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void addWcmBindings() {
+        ctx.create().page("/content/page");
+        ctx.currentResource(ctx.create().resource("/content/page/jcr:content/search", "prop", "value"));
+
+        ServletHelper servletHelper = ctx.getService(ServletHelper.class);
+
+        servletHelper.addWcmBindings(ctx.request(), ctx.response());
+
+        SlingBindings actual = (SlingBindings) ctx.request().getAttribute(SlingBindings.class.getName());
+
+        assertEquals(ctx.request(), actual.getRequest());
+        assertEquals("/content/page", ((Page) actual.get("currentPage")).getPath());
+        assertEquals("value", ((ValueMap) actual.get("properties")).get("prop", String.class));
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Asset Share Commons
+ *
+ * Copyright (C) 2024 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.adobe.aem.commons.assetshare.util.impl.requests;
+
+import com.google.common.collect.ImmutableMap;
+import io.wcm.testing.mock.aem.junit.AemContext;
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.scripting.SlingBindings;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ResourceResolverOverrideRequestWrapperTest {
+    @Rule
+    public final AemContext ctx = new AemContext();
+
+    @Mock
+    ResourceResolver resourceResolver;
+
+    @Before
+    public void setUp() {
+        ctx.currentResource(ctx.create().resource("/content/page"));
+        ctx.request().setParameterMap(ImmutableMap.of("fulltext", "cats"));
+    }
+
+    @Test
+    public void getResourceResolver() {
+        final Resource resource = mock(Resource.class);
+        doReturn(resource).when(resourceResolver).getResource("/content/page");
+
+        final SlingHttpServletRequest request = new ResourceResolverOverrideRequestWrapper(ctx.request(), resourceResolver);
+
+        assertSame(resourceResolver, request.getResourceResolver());
+        // The request's resource is resolved via the exposed resource resolver.
+        assertSame(resource, request.getResource());
+    }
+
+    @Test
+    public void getResource_NotReadable() {
+        final SlingHttpServletRequest request = new ResourceResolverOverrideRequestWrapper(ctx.request(), resourceResolver);
+
+        assertSame(ctx.request().getResource(), request.getResource());
+    }
+
+    @Test
+    public void getAttribute() {
+        ctx.request().setAttribute("shared", "value");
+
+        final SlingHttpServletRequest request = new ResourceResolverOverrideRequestWrapper(ctx.request(), resourceResolver);
+
+        request.setAttribute("local", "value");
+        request.removeAttribute("shared");
+        ctx.request().setAttribute("later", "value");
+
+        // The attributes are copied when the wrapper is created, and are not written through to the request.
+        assertEquals("value", request.getAttribute("local"));
+        assertNull(request.getAttribute("shared"));
+        assertNull(request.getAttribute("later"));
+        assertTrue(Collections.list(request.getAttributeNames()).contains("local"));
+        assertFalse(Collections.list(request.getAttributeNames()).contains("shared"));
+        assertNull(ctx.request().getAttribute("local"));
+        assertEquals("value", ctx.request().getAttribute("shared"));
+    }
+
+    @Test
+    public void getAttribute_SlingBindings() {
+        final SlingBindings bindings = new SlingBindings();
+        bindings.setRequest(ctx.request());
+        bindings.setResourceResolver(ctx.resourceResolver());
+        bindings.put("custom", "value");
+        ctx.request().setAttribute(SlingBindings.class.getName(), bindings);
+
+        final SlingHttpServletRequest request = new ResourceResolverOverrideRequestWrapper(ctx.request(), resourceResolver);
+        final SlingBindings detachedBindings = (SlingBindings) request.getAttribute(SlingBindings.class.getName());
+
+        assertSame(request, detachedBindings.getRequest());
+        assertSame(resourceResolver, detachedBindings.getResourceResolver());
+        assertSame(request.getResource(), detachedBindings.getResource());
+        assertEquals("value", detachedBindings.get("custom"));
+        assertSame(ctx.request(), bindings.getRequest());
+    }
+
+    @Test
+    public void getParameter() {
+        final SlingHttpServletRequest request = new ResourceResolverOverrideRequestWrapper(ctx.request(), resourceResolver);
+
+        ctx.request().setParameterMap(ImmutableMap.of("fulltext", "dogs"));
+
+        assertEquals("cats", request.getParameter("fulltext"));
+        assertEquals("cats", request.getRequestParameter("fulltext").getString());
+        assertEquals(1, request.getRequestParameterList().size());
+        assertEquals(Collections.singleton("fulltext"), request.getParameterMap().keySet());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void getInputStream() throws Exception {
+        new ResourceResolverOverrideRequestWrapper(ctx.request(), resourceResolver).getInputStream();
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void getRequestDispatcher() {
+        new ResourceResolverOverrideRequestWrapper(ctx.request(), resourceResolver).getRequestDispatcher("/content/page");
+    }
+}
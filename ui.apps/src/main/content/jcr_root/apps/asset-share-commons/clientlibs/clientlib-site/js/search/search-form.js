@@ -21,7 +21,11 @@
 AssetShare.Search.Form = function (ns) {
     "use strict";
 
-    var url,
+    // Must match CanonicalSearchQuery
+    var CANONICAL_IGNORED_PARAMETERS = ["_", "_charset_", "p.guessTotal", "wcmmode", "forceeditcontext"],
+        CANONICAL_SEGMENT_LENGTH = 128,
+        url,
+        canonical,
         mode,
         formData;
 
@@ -143,6 +147,54 @@ AssetShare.Search.Form = function (ns) {
         return formData;
     }
 
+    /**
+     * Builds the canonical, cacheable results URL of the form data: {page}.results.html/{base64url of the sorted query string}.html
+     *
+     * The query string is sorted by parameter name (keeping the order of the values of a parameter), drops empty values and parameters that
+     * do not affect the results, and is split into segments of CANONICAL_SEGMENT_LENGTH characters. This must produce the same URL as CanonicalSearchQuery does server-side.
+     *
+     * @param formDataToSubmit the form data to submit.
+     * @returns {string} the canonical results URL.
+     */
+    function _canonicalUrl(formDataToSubmit) {
+        var pairs = [],
+            encoded,
+            suffix = '',
+            i;
+
+        formDataToSubmit.getAll().forEach(function(field, index) {
+            if (field.name && field.value !== null && typeof field.value !== 'undefined' && String(field.value) !== ''
+                    && CANONICAL_IGNORED_PARAMETERS.indexOf(field.name) === -1) {
+                pairs.push({ name: field.name, value: String(field.value), index: index });
+            }
+        });
+
+        if (pairs.length === 0) {
+            return url;
+        }
+
+        // Array.sort is not guaranteed to be stable in all browsers, so fall back to the original index
+        pairs.sort(function (a, b) {
+            if (a.name < b.name) {
+                return -1;
+            } else if (a.name > b.name) {
+                return 1;
+            }
+            return a.index - b.index;
+        });
+
+        // encodeURIComponent only produces ASCII, so btoa is safe to use
+        encoded = window.btoa(pairs.map(function (pair) {
+            return encodeURIComponent(pair.name) + '=' + encodeURIComponent(pair.value);
+        }).join('&')).replace(/\+/g, '-').replace(/\//g, '_').replace(/=+$/, '');
+
+        for (i = 0; i < encoded.length; i += CANONICAL_SEGMENT_LENGTH) {
+            suffix += '/' + encoded.substring(i, i + CANONICAL_SEGMENT_LENGTH);
+        }
+
+        return url + suffix + '.html';
+    }
+
     function _valid(formToValidate) {
         var valid = true,
             visible = true;
@@ -179,7 +231,11 @@ AssetShare.Search.Form = function (ns) {
         var formToSubmit = serializeFor(serializationType, resetForm);
 
         if (_valid(formToSubmit)) {
-            $.when($.get(getUrl(), formToSubmit)).then(success);
+            if (canonical) {
+                $.when($.get(_canonicalUrl(buildFormData(formData, serializationType)))).then(success);
+            } else {
+                $.when($.get(getUrl(), formToSubmit)).then(success);
+            }
             return true;
         } else {
             return false;
@@ -189,6 +245,8 @@ AssetShare.Search.Form = function (ns) {
     function init() {
         // On init, the DOM is king as its populated by the server page load
         url = ns.Data.attr(ns.Elements.element("form"), "action");
+        // Only set when canonical search URLs are enabled
+        canonical = !!ns.Data.attr(ns.Elements.element("form"), "canonical-action");
         mode = ns.Data.val("mode");
 
         reset();